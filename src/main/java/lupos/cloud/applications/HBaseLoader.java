@@ -23,12 +23,24 @@
  */
 package lupos.cloud.applications;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.LinkedList;
+import java.util.List;
 
 import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.LoadCheckpoint;
+import lupos.cloud.hbase.LoadMetrics;
+import lupos.cloud.hbase.StorageProfile;
 import lupos.cloud.query.CloudEvaluator;
+import lupos.cloud.storage.Storage_Cloud;
+import lupos.cloud.storage.util.CloudManagement;
+import lupos.cloud.storage.util.ParallelTripleReader;
+import lupos.datastructures.items.Triple;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.URILiteral;
 
@@ -38,6 +50,11 @@ import lupos.datastructures.items.literal.URILiteral;
  * zwischen zwei Modi wie die Daten in HBase geladen werden. Einmal per HBase
  * API und einmal per MapReduce Job. Die MapReduce Job Variante bietet sich
  * dann an wenn man eine grere Menge an Tripel laden will.
+ *
+ * Beim BulkLoad ohne Parser-Threads wird der Fortschritt im Protokoll
+ * {@link LoadCheckpoint#CHECKPOINT_FILE} festgehalten. Ein Neustart mit
+ * derselben Datei setzt nach der letzten vollstndig geladenen Generation
+ * fort.
  */
 public class HBaseLoader {
 
@@ -50,12 +67,13 @@ public class HBaseLoader {
 	 *             the exception
 	 */
 	public static void main(final String[] args) throws Exception {
-		if (args.length != 3) {
-			System.out.println("Parameter: <n3 Pfad> <1/2 fr normal oder BulkLoad> <HTriple Cache Size>");
+		if (args.length != 3 && args.length != 4) {
+			System.out.println("Parameter: <n3 Pfad> <1/2 fr normal oder BulkLoad> <HTriple Cache Size> [<Anzahl Parser-Threads>]");
 			System.exit(0);
 		}
 
-		// init
+		// init (vor dem Evaluator, da dieser die Tabellen anlegt)
+		StorageProfile.UPDATE_EXISTING = true;
 		final CloudEvaluator evaluator = new CloudEvaluator();
 		if(args[1].equals("1")) {
 			HBaseConnection.MAP_REDUCE_BULK_LOAD = false;
@@ -66,18 +84,46 @@ public class HBaseLoader {
 		HBaseConnection.ROW_BUFFER_SIZE = Integer.parseInt(args[2]);
 		HBaseConnection.deleteTableOnCreation = true;
 		HBaseConnection.init();
+		LoadMetrics.reset();
+		LoadMetrics.startReporter();
+
+		// paralleles Parsen ohne den Umweg ber den Evaluator
+		if (args.length == 4) {
+			final long startTime = System.currentTimeMillis();
+			final long tripleAnzahl = loadParallel(
+					evaluator.getCloudManagement(), args[0],
+					Integer.parseInt(args[3]));
+			finish(startTime, tripleAnzahl);
+			return;
+		}
 
 		final String file_path = args[0];
-		final FileReader fr = new FileReader(file_path);
-		final BufferedReader br = new BufferedReader(fr);
+		final FileInputStream fis = new FileInputStream(file_path);
+		InputStream in = new BufferedInputStream(fis, 1 << 16);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
 		final StringBuilder prefix = new StringBuilder();
-		String curLine = br.readLine();
+		long position = 0;
+		String curLine = readLine(in, buffer);
 
 		// Prefix merken
 		while (curLine != null && curLine.startsWith("@")) {
 			prefix.append(curLine);
-			curLine = br.readLine();
+			position += buffer.size() + 1;
+			curLine = readLine(in, buffer);
+		}
+
+		// ggf. nach der letzten geladenen Generation fortsetzen
+		if (HBaseConnection.MAP_REDUCE_BULK_LOAD) {
+			final long resume = LoadCheckpoint.open(new File(file_path)
+					.getAbsolutePath());
+			if (resume > position) {
+				System.out.println("Setze bei Byte " + resume + " fort");
+				fis.getChannel().position(resume);
+				in = new BufferedInputStream(fis, 1 << 16);
+				position = resume;
+				curLine = readLine(in, buffer);
+			}
 		}
 
 		final long startTime = System.currentTimeMillis();
@@ -87,11 +133,14 @@ public class HBaseLoader {
 		// Tripel in 1000 Blcke einlesen und den Evaluator bergeben
 		while (run) {
 			final StringBuilder inputCache = new StringBuilder();
+			// alle Tripel vor dieser Position sind bergeben
+			LoadCheckpoint.setInputPosition(position);
 
 			for (int i = 0; i < 1000 && curLine != null; i++) {
 				tripleAnzahl++;
 				inputCache.append(curLine);
-				curLine = br.readLine();
+				position += buffer.size() + 1;
+				curLine = readLine(in, buffer);
 			}
 
 			final URILiteral rdfURL = LiteralFactory
@@ -100,8 +149,15 @@ public class HBaseLoader {
 			final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
 			defaultGraphs.add(rdfURL);
 
+			// die Zeit des Schreibens in den Puffer gehrt nicht zum Parsen
+			final long spool = LoadMetrics.getTotalNanos(LoadMetrics.SPOOL);
+			final long start = System.nanoTime();
 			evaluator.prepareInputData(defaultGraphs,
 					new LinkedList<URILiteral>());
+			// gepufferte Tripel bergeben, damit die Position stimmt
+			Storage_Cloud.getInstance(null).endImportData();
+			LoadMetrics.record(LoadMetrics.PARSE, System.nanoTime() - start
+					- (LoadMetrics.getTotalNanos(LoadMetrics.SPOOL) - spool));
 
 			if (curLine == null) {
 				run = false;
@@ -109,9 +165,92 @@ public class HBaseLoader {
 			}
 
 		}
-		br.close();
+		in.close();
+		LoadCheckpoint.setInputPosition(position);
+
+		finish(startTime, tripleAnzahl);
+	}
 
+	/**
+	 * Liest eine Zeile (ohne Zeilenumbruch) als Bytes in den Puffer, die
+	 * Position in der Datei wird um die Gre des Puffers plus eins erhht.
+	 *
+	 * @param in
+	 *            the in
+	 * @param buffer
+	 *            the buffer
+	 * @return die Zeile oder null am Dateiende
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static String readLine(final InputStream in,
+			final ByteArrayOutputStream buffer) throws IOException {
+		buffer.reset();
+		int b = in.read();
+		if (b < 0) {
+			return null;
+		}
+		while (b >= 0 && b != '\n') {
+			buffer.write(b);
+			b = in.read();
+		}
+		String line = buffer.toString("UTF-8");
+		if (line.endsWith("\r")) {
+			line = line.substring(0, line.length() - 1);
+		}
+		return line;
+	}
+
+	/**
+	 * Ldt die Datei mit mehreren Parser-Threads (siehe
+	 * {@link ParallelTripleReader}). Die geparsten Tripel werden direkt an die
+	 * Verteilungsstrategie bergeben.
+	 *
+	 * @param cloudManagement
+	 *            the cloud management
+	 * @param file_path
+	 *            the file_path
+	 * @param threads
+	 *            Anzahl der Parser-Threads
+	 * @return Anzahl der geladenen Tripel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static long loadParallel(final CloudManagement cloudManagement,
+			final String file_path, final int threads) throws IOException {
+		final ParallelTripleReader reader = new ParallelTripleReader(
+				file_path, threads, 1000);
+		reader.start();
+		long tripleAnzahl = 0;
+		List<Triple> block = reader.nextBlock();
+		while (block != null) {
+			tripleAnzahl += block.size();
+			cloudManagement.submitHBaseTripleToDatabase(Storage_Cloud
+					.buildInputHBaseTriple(block));
+			block = reader.nextBlock();
+		}
+		if (reader.getParseErrors() > 0) {
+			System.out.println("Fehlerhafte Zeilen: "
+					+ reader.getParseErrors());
+		}
+		return tripleAnzahl;
+	}
+
+	/**
+	 * Schliet den Import ab.
+	 *
+	 * @param startTime
+	 *            the start time
+	 * @param tripleAnzahl
+	 *            the triple anzahl
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void finish(final long startTime, final long tripleAnzahl)
+			throws IOException {
 		HBaseConnection.flush();
+		LoadCheckpoint.close();
+		System.out.println(LoadMetrics.report());
 		HBaseConnection.MAP_REDUCE_BULK_LOAD = false;
 		HBaseConnection.deleteTableOnCreation = false;
 		final long stopTime = System.currentTimeMillis();
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.applications;
+
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.bulkLoad.TripleBulkDelete;
+
+/**
+ * Löscht die Tripel einer N-Triples Datei, die bereits auf dem verteilten
+ * Dateisystem liegt, verteilt aus HBase (siehe {@link TripleBulkDelete}).
+ */
+public class HDFSDeleter {
+
+	/**
+	 * Main Methode.
+	 *
+	 * @param args
+	 *            the arguments
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (args.length != 1) {
+			System.out.println("Parameter: <HDFS Pfad der n3 Datei>");
+			System.exit(0);
+		}
+
+		// init
+		HBaseConnection.deleteTableOnCreation = false;
+		HBaseConnection.init();
+
+		final long startTime = System.currentTimeMillis();
+		final long tripleAnzahl = TripleBulkDelete.delete(args[0]);
+		final long stopTime = System.currentTimeMillis();
+		System.out.println("Löschen ist beendet Triple: " + tripleAnzahl
+				+ " Dauer: " + (stopTime - startTime) / 1000 + "s");
+	}
+}
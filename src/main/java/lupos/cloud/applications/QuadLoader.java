@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.applications;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.HBaseTriple;
+import lupos.cloud.hbase.LoadMetrics;
+import lupos.cloud.hbase.QuadDistributionTableStrategy;
+import lupos.cloud.hbase.StorageProfile;
+import lupos.cloud.storage.util.CloudManagement;
+import lupos.datastructures.items.Triple;
+import lupos.rdf.parser.NquadsParser;
+
+import org.semanticweb.yars.nx.Node;
+import org.semanticweb.yars.nx.parser.NxParser;
+
+/**
+ * Lädt Quads (N-Quads) direkt mit der Quad-Strategie (siehe
+ * {@link QuadDistributionTableStrategy}) in HBase, ohne sie vorher mit dem
+ * {@link QuadToN3Converter} in N3 Tripel umzuwandeln. Der Graph bleibt dabei
+ * erhalten. Wie beim {@link HBaseLoader} kann per HBase API oder per BulkLoad
+ * geladen werden.
+ */
+public class QuadLoader {
+
+	/** Anzahl der Quads, die als ein Block geladen werden. */
+	public static int BLOCK_SIZE = 1000;
+
+	/**
+	 * Main Methode.
+	 *
+	 * @param args
+	 *            the arguments
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (args.length != 3) {
+			System.out
+					.println("Parameter: <nquads Pfad> <1/2 für normal oder BulkLoad> <HTriple Cache Size>");
+			System.exit(0);
+		}
+
+		// init
+		HBaseDistributionStrategy.TABLE_STRATEGY = QuadDistributionTableStrategy.STRAGEGY_ID;
+		if (args[1].equals("1")) {
+			HBaseConnection.MAP_REDUCE_BULK_LOAD = false;
+		} else {
+			HBaseConnection.MAP_REDUCE_BULK_LOAD = true;
+		}
+		HBaseConnection.ROW_BUFFER_SIZE = Integer.parseInt(args[2]);
+		HBaseConnection.deleteTableOnCreation = true;
+		StorageProfile.UPDATE_EXISTING = true;
+		HBaseConnection.init();
+		final CloudManagement cloudManagement = new CloudManagement();
+		final HBaseDistributionStrategy strategy = HBaseDistributionStrategy
+				.getTableInstance();
+
+		final InputStream is = new FileInputStream(args[0]);
+		final Iterator<Node[]> it = new NxParser().parse(is);
+
+		LoadMetrics.reset();
+		LoadMetrics.startReporter();
+		final long startTime = System.currentTimeMillis();
+		long quadAnzahl = 0;
+		final ArrayList<Triple> triples = new ArrayList<Triple>(BLOCK_SIZE);
+		final ArrayList<String> graphs = new ArrayList<String>(BLOCK_SIZE);
+		while (it.hasNext()) {
+			final Node[] ns = it.next();
+			try {
+				triples.add(new Triple(NquadsParser.transformToLiteral(ns[0]),
+						NquadsParser.transformToLiteral(ns[1]), NquadsParser
+								.transformToLiteral(ns[2])));
+				graphs.add(ns.length > 3 ? NquadsParser.transformToLiteral(
+						ns[3]).toString()
+						: QuadDistributionTableStrategy.DEFAULT_GRAPH);
+				quadAnzahl++;
+			} catch (final URISyntaxException e) {
+				System.err.println(e);
+				e.printStackTrace();
+			}
+			if (triples.size() == BLOCK_SIZE) {
+				submit(cloudManagement, strategy, triples, graphs);
+			}
+		}
+		submit(cloudManagement, strategy, triples, graphs);
+		is.close();
+
+		HBaseConnection.flush();
+		System.out.println(LoadMetrics.report());
+		HBaseConnection.MAP_REDUCE_BULK_LOAD = false;
+		HBaseConnection.deleteTableOnCreation = false;
+		final long stopTime = System.currentTimeMillis();
+		System.out.println("Import ist beendet Quads: " + quadAnzahl
+				+ " Dauer: " + (stopTime - startTime) / 1000 + "s");
+	}
+
+	/**
+	 * Erzeugt die Indizes eines Blocks und übergibt sie der Datenbank. Die
+	 * Listen werden anschließend geleert.
+	 *
+	 * @param cloudManagement
+	 *            the cloud management
+	 * @param strategy
+	 *            the strategy
+	 * @param triples
+	 *            the triples
+	 * @param graphs
+	 *            the graphs
+	 */
+	private static void submit(final CloudManagement cloudManagement,
+			final HBaseDistributionStrategy strategy,
+			final ArrayList<Triple> triples, final ArrayList<String> graphs) {
+		if (triples.isEmpty()) {
+			return;
+		}
+		LoadMetrics.addTriples(triples.size());
+		strategy.prepareBlock(triples);
+		final ArrayList<HBaseTriple> hbaseTriples = new ArrayList<HBaseTriple>();
+		for (int i = 0; i < triples.size(); i++) {
+			hbaseTriples.addAll(strategy.generateIndecesTriple(triples.get(i),
+					graphs.get(i)));
+		}
+		cloudManagement.submitHBaseTripleToDatabase(hbaseTriples);
+		triples.clear();
+		graphs.clear();
+	}
+}
@@ -0,0 +1,612 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.bloomfilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ * Bloomfilter, dessen Größe anhand der Kardinalität der Zeile und der
+ * gewünschten Falsch-positiv-Rate bestimmt wird (anstatt fest
+ * {@link BitvectorManager#VECTORSIZE} Bits).
+ * 
+ * Die Spalten der Bloomfilter-Families enthalten weiterhin den
+ * Fingerabdruck {@link BitvectorManager#hash(byte[])} eines Elements (Wert
+ * zwischen 0 und {@link BitvectorManager#VECTORSIZE}). Ein Bitvektor der
+ * Größe m (immer eine Zweierpotenz) mit k Hashfunktionen setzt für einen
+ * Fingerabdruck p k Bits x_i & (m - 1) mit x_0 = p, x_i+1 = x_i + y_i und
+ * y_0 = h(p), y_i+1 = y_i + i (enhanced double hashing, h ist unabhängig von
+ * m und alle Werte werden modulo 2^32 berechnet). Dadurch kann ein Bitvektor
+ * auf jede kleinere Zweierpotenz "gefaltet" werden (Bit j wird zu Bit
+ * j & (m' - 1)), ohne dass ein Element verloren geht. Bei der Verknüpfung unterschiedlicher
+ * Bitvektoren werden alle auf die kleinste Größe gefaltet und es werden nur
+ * die ersten k Positionen mit dem kleinsten k geprüft. Mit der größten Größe
+ * {@link #MAX_SIZE} und k = 1 ist der Bitvektor exakt, da alle
+ * Fingerabdrücke kleiner als 2^30 sind.
+ * 
+ * Ein Bitvektor der Größe {@link #MAX_SIZE} mit k = 1 ist eine exakte Menge
+ * der Fingerabdrücke. Kleine Zeilen (siehe
+ * {@link BitvectorManager#EXACT_MAX_CARDINALITY}) werden so gespeichert und
+ * bei der Verknüpfung mit einem Bloomfilter in dessen Größe und Anzahl der
+ * Hashfunktionen überführt, anstatt dessen k zu verringern.
+ * 
+ * Die Bits werden als {@link CompressedBitmap} gehalten, UND, ODER und die
+ * Zugehörigkeit werden direkt auf der komprimierten Form berechnet.
+ * Serialisiert wird der Bitvektor mit einem Kopf (Kennung, Version, Größe,
+ * Anzahl der Hashfunktionen, angestrebte Falsch-positiv-Rate) und der mit
+ * Snappy komprimierten Bitmap. Byte-Bitvektoren der Versionen 1 und 2
+ * (Snappy-komprimiertes BitSet, Version 1 ohne k) und im alten Format (nur
+ * das Snappy-komprimierte BitSet über {@link BitvectorManager#VECTORSIZE}
+ * Bits, entspricht einer exakten Menge) werden weiterhin gelesen.
+ */
+public class Bitvector {
+
+	/** Größte Größe eines Bitvektors (deckt alle Fingerabdrücke exakt ab). */
+	public static final int MAX_SIZE = 1 << 30;
+
+	/** Kleinste Größe eines Bitvektors. */
+	public static final int MIN_SIZE = 64;
+
+	/** Größte Anzahl der Hashfunktionen. */
+	public static final int MAX_HASHES = 16;
+
+	/** ln(2). */
+	private static final double LN2 = Math.log(2);
+
+	/**
+	 * Kennung des Kopfes. Ein Snappy-Strom kann nicht mit 0 beginnen und
+	 * weitere Bytes enthalten, daher ist das alte Format eindeutig erkennbar.
+	 */
+	private static final byte[] MAGIC = new byte[] { 0, 'L', 'B', 'V' };
+
+	/** Version des Formats. */
+	private static final byte VERSION = 3;
+
+	/** Länge des Kopfes der Version 1 (Kennung, Version, Größe). */
+	private static final int HEADER_LENGTH_V1 = MAGIC.length + 1 + 4;
+
+	/** Länge des Kopfes (zusätzlich k und Falsch-positiv-Rate). */
+	private static final int HEADER_LENGTH = HEADER_LENGTH_V1 + 1 + 4;
+
+	/** Größe (Anzahl der Bits, Zweierpotenz). */
+	private final int size;
+
+	/** Anzahl der Hashfunktionen (k). */
+	private final int hashes;
+
+	/** Angestrebte Falsch-positiv-Rate (0, falls unbekannt). */
+	private final float falsePositiveRate;
+
+	/** Die gesetzten Bits. */
+	private final CompressedBitmap bits;
+
+	/**
+	 * Erzeugt einen leeren Bitvektor.
+	 * 
+	 * @param size
+	 *            die Größe, wird auf die nächste Zweierpotenz aufgerundet
+	 * @param hashes
+	 *            Anzahl der Hashfunktionen
+	 */
+	public Bitvector(final int size, final int hashes) {
+		this(toSize(size), hashes, 0, new CompressedBitmap());
+	}
+
+	/**
+	 * Instantiates a new bitvector.
+	 * 
+	 * @param size
+	 *            die Größe (Zweierpotenz)
+	 * @param hashes
+	 *            Anzahl der Hashfunktionen
+	 * @param falsePositiveRate
+	 *            angestrebte Falsch-positiv-Rate
+	 * @param bits
+	 *            the bits
+	 */
+	private Bitvector(final int size, final int hashes,
+			final float falsePositiveRate, final CompressedBitmap bits) {
+		if (hashes < 1 || hashes > MAX_HASHES) {
+			throw new IllegalArgumentException("Invalid number of hashes "
+					+ hashes);
+		}
+		this.size = size;
+		this.hashes = hashes;
+		this.falsePositiveRate = falsePositiveRate;
+		this.bits = bits;
+	}
+
+	/**
+	 * Bestimmt die Größe eines Bitvektors für die Anzahl der Elemente und die
+	 * gewünschte Falsch-positiv-Rate. Ohne feste Anzahl an Hashfunktionen
+	 * (siehe {@link BitvectorManager#HASH_FUNCTIONS}) wird die optimale
+	 * Größe m = -n ln(p) / ln(2)^2 gewählt, mit k festen Hashfunktionen gilt
+	 * m = -k n / ln(1 - p^(1/k)).
+	 * 
+	 * @param elements
+	 *            Anzahl der Elemente
+	 * @param falsePositiveRate
+	 *            die gewünschte Falsch-positiv-Rate
+	 * @return die Größe (Zweierpotenz)
+	 */
+	public static int getSize(final long elements,
+			final double falsePositiveRate) {
+		final int k = BitvectorManager.HASH_FUNCTIONS;
+		final double bits;
+		if (k > 0) {
+			bits = -k * elements
+					/ Math.log(1 - Math.pow(falsePositiveRate, 1.0 / k));
+		} else {
+			bits = -elements * Math.log(falsePositiveRate) / (LN2 * LN2);
+		}
+		if (bits >= MAX_SIZE) {
+			return MAX_SIZE;
+		}
+		return toSize((int) Math.ceil(bits));
+	}
+
+	/**
+	 * Bestimmt die Anzahl der Hashfunktionen für die Anzahl der Elemente und
+	 * die Größe des Bitvektors (k = m / n ln(2)). Ein Bitvektor der Größe
+	 * {@link #MAX_SIZE} ist mit einer Hashfunktion exakt.
+	 * 
+	 * @param elements
+	 *            Anzahl der Elemente
+	 * @param size
+	 *            die Größe
+	 * @return die Anzahl der Hashfunktionen
+	 */
+	public static int getHashes(final long elements, final int size) {
+		if (size == MAX_SIZE) {
+			return 1;
+		}
+		if (BitvectorManager.HASH_FUNCTIONS > 0) {
+			return Math.min(BitvectorManager.HASH_FUNCTIONS, MAX_HASHES);
+		}
+		if (elements == 0) {
+			return 1;
+		}
+		final long k = Math.round((double) size / elements * LN2);
+		return (int) Math.max(1, Math.min(MAX_HASHES, k));
+	}
+
+	/**
+	 * Rundet auf die nächste Zweierpotenz zwischen {@link #MIN_SIZE} und
+	 * {@link #MAX_SIZE} auf.
+	 */
+	private static int toSize(final int bits) {
+		if (bits <= MIN_SIZE) {
+			return MIN_SIZE;
+		}
+		if (bits > MAX_SIZE / 2) {
+			return MAX_SIZE;
+		}
+		return Integer.highestOneBit(bits - 1) << 1;
+	}
+
+	/**
+	 * Fügt einen Fingerabdruck hinzu.
+	 * 
+	 * @param fingerprint
+	 *            der Fingerabdruck (siehe {@link BitvectorManager#hash(byte[])})
+	 */
+	public void add(final int fingerprint) {
+		int step = step(fingerprint);
+		int position = fingerprint;
+		for (int i = 0; i < this.hashes; i++) {
+			this.bits.add(position & (this.size - 1));
+			position += step;
+			step += i;
+		}
+	}
+
+	/**
+	 * Prüft, ob ein Fingerabdruck (möglicherweise) enthalten ist.
+	 * 
+	 * @param fingerprint
+	 *            der Fingerabdruck
+	 * @return false, falls das Element sicher nicht enthalten ist
+	 */
+	public boolean contains(final int fingerprint) {
+		return this.contains(fingerprint, this.hashes);
+	}
+
+	/**
+	 * Prüft die ersten k Positionen eines Fingerabdrucks.
+	 */
+	private boolean contains(final int fingerprint, final int k) {
+		int step = step(fingerprint);
+		int position = fingerprint;
+		for (int i = 0; i < k; i++) {
+			if (!this.bits.contains(position & (this.size - 1))) {
+				return false;
+			}
+			position += step;
+			step += i;
+		}
+		return true;
+	}
+
+	/**
+	 * Zweiter Hashwert (y_0) für das double hashing, unabhängig von der Größe
+	 * und ungerade.
+	 */
+	private static int step(final int fingerprint) {
+		int h = fingerprint;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h | 1;
+	}
+
+	/**
+	 * Prüft, ob ein Element, das innerhalb eines größeren Byte-Arrays liegt,
+	 * (möglicherweise) enthalten ist.
+	 * 
+	 * @param buf
+	 *            the buf
+	 * @param offset
+	 *            the offset
+	 * @param length
+	 *            the length
+	 * @return false, falls das Element sicher nicht enthalten ist
+	 */
+	public boolean contains(final byte[] buf, final int offset,
+			final int length) {
+		return this.contains(BitvectorManager.hash(buf, offset, length));
+	}
+
+	/**
+	 * Gets the size.
+	 * 
+	 * @return die Größe (Anzahl der Bits)
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the hashes.
+	 * 
+	 * @return die Anzahl der Hashfunktionen
+	 */
+	public int getHashes() {
+		return this.hashes;
+	}
+
+	/**
+	 * Angestrebte Falsch-positiv-Rate, mit der der Bitvektor erzeugt wurde.
+	 * 
+	 * @return die Rate oder 0, falls unbekannt
+	 */
+	public double getTargetFalsePositiveRate() {
+		return this.falsePositiveRate;
+	}
+
+	/**
+	 * Prüft, ob der Bitvektor eine exakte Menge der Fingerabdrücke ist.
+	 * 
+	 * @return true, if is exact
+	 */
+	public boolean isExact() {
+		return this.size == MAX_SIZE && this.hashes == 1;
+	}
+
+	/**
+	 * Geschätzte Größe im Speicher in Bytes.
+	 * 
+	 * @return the long
+	 */
+	public long getMemorySize() {
+		return 32 + this.bits.getMemorySize();
+	}
+
+	/**
+	 * Anzahl der gesetzten Bits.
+	 * 
+	 * @return the int
+	 */
+	public int cardinality() {
+		return this.bits.cardinality();
+	}
+
+	/**
+	 * Geschätzte Falsch-positiv-Rate (Anteil der gesetzten Bits hoch k).
+	 * 
+	 * @return the double
+	 */
+	public double getFalsePositiveRate() {
+		return Math.pow((double) this.cardinality() / this.size, this.hashes);
+	}
+
+	/**
+	 * Faltet den Bitvektor auf eine kleinere Größe und Anzahl der
+	 * Hashfunktionen. Ein Bloomfilter wird gefaltet (die ersten k Positionen
+	 * bleiben gesetzt), eine exakte Menge wird mit k Positionen je
+	 * Fingerabdruck neu aufgebaut.
+	 * 
+	 * @param newSize
+	 *            die neue Größe (Zweierpotenz, nicht größer als die aktuelle)
+	 * @param newHashes
+	 *            die neue Anzahl der Hashfunktionen (nicht größer als die
+	 *            aktuelle, außer bei einer exakten Menge)
+	 * @return der gefaltete Bitvektor (this, falls sich nichts ändert)
+	 */
+	public Bitvector fold(final int newSize, final int newHashes) {
+		if (newSize == this.size && newHashes == this.hashes) {
+			return this;
+		}
+		if (newSize > this.size || Integer.bitCount(newSize) != 1
+				|| (newHashes > this.hashes && !this.isExact())) {
+			throw new IllegalArgumentException("Bitvector of size "
+					+ this.size + " with " + this.hashes
+					+ " hashes can not be folded to " + newSize + "/"
+					+ newHashes);
+		}
+		if (this.isExact()) {
+			final Bitvector result = new Bitvector(newSize, newHashes,
+					this.falsePositiveRate, new CompressedBitmap());
+			for (int p = this.bits.nextSetBit(0); p >= 0; p = this.bits
+					.nextSetBit(p + 1)) {
+				result.add(p);
+			}
+			return result;
+		}
+		return new Bitvector(newSize, newHashes, this.falsePositiveRate,
+				this.bits.fold(newSize));
+	}
+
+	/**
+	 * ODER-Verknüpfung (z.B. der Unterzeilen einer Zeile), siehe
+	 * {@link #and(List)} für die Größe des Ergebnisses.
+	 * 
+	 * @param other
+	 *            the other
+	 * @return das Ergebnis
+	 */
+	public Bitvector or(final Bitvector other) {
+		final List<Bitvector> operands = new ArrayList<Bitvector>(2);
+		operands.add(this);
+		operands.add(other);
+		final Bitvector target = target(operands);
+		return new Bitvector(target.size, target.hashes,
+				target.falsePositiveRate, this.fold(target.size,
+						target.hashes).bits.or(other.fold(target.size,
+						target.hashes).bits));
+	}
+
+	/**
+	 * UND-Verknüpfung mehrerer Bitvektoren. Alle Bloomfilter werden auf die
+	 * kleinste Größe gefaltet, das Ergebnis nutzt die kleinste Anzahl an
+	 * Hashfunktionen (die ersten k Positionen eines Elements sind in allen
+	 * Bitvektoren gesetzt). Exakte Mengen werden in diese Größe und Anzahl
+	 * der Hashfunktionen überführt, sind alle Bitvektoren exakt, ist es auch
+	 * das Ergebnis. Die Bitmaps werden nach aufsteigender Kardinalität
+	 * verknüpft.
+	 * 
+	 * @param bitvectors
+	 *            die Bitvektoren (mindestens einer)
+	 * @return das Ergebnis
+	 */
+	public static Bitvector and(final List<Bitvector> bitvectors) {
+		final Bitvector target = target(bitvectors);
+		final List<CompressedBitmap> folded = new ArrayList<CompressedBitmap>(
+				bitvectors.size());
+		for (final Bitvector bv : bitvectors) {
+			folded.add(bv.fold(target.size, target.hashes).bits);
+		}
+		Collections.sort(folded, new Comparator<CompressedBitmap>() {
+			@Override
+			public int compare(final CompressedBitmap o1,
+					final CompressedBitmap o2) {
+				return Integer.compare(o1.cardinality(), o2.cardinality());
+			}
+		});
+		CompressedBitmap result = folded.get(0);
+		for (int i = 1; i < folded.size() && result.cardinality() > 0; i++) {
+			result = result.and(folded.get(i));
+		}
+		return new Bitvector(target.size, target.hashes,
+				target.falsePositiveRate, result);
+	}
+
+	/**
+	 * Bestimmt Größe, Anzahl der Hashfunktionen und Falsch-positiv-Rate des
+	 * Ergebnisses einer Verknüpfung (als Bitvektor ohne Bits).
+	 */
+	private static Bitvector target(final List<Bitvector> bitvectors) {
+		int newSize = MAX_SIZE;
+		int newHashes = MAX_HASHES;
+		float newRate = 0;
+		boolean exact = true;
+		for (final Bitvector bv : bitvectors) {
+			newRate = Math.max(newRate, bv.falsePositiveRate);
+			if (!bv.isExact()) {
+				newSize = Math.min(newSize, bv.size);
+				newHashes = Math.min(newHashes, bv.hashes);
+				exact = false;
+			}
+		}
+		if (exact) {
+			newHashes = 1;
+		}
+		return new Bitvector(newSize, newHashes, newRate, null);
+	}
+
+	/**
+	 * Bitvektor -> Byte-Array (Kopf und Snappy-komprimierte Bitmap).
+	 * 
+	 * @return the byte[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public byte[] toByteArray() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		this.bits.write(out);
+		out.close();
+		final byte[] compressed = Snappy.compress(bytes.toByteArray());
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH
+				+ compressed.length);
+		buffer.put(MAGIC);
+		buffer.put(VERSION);
+		buffer.putInt(this.size);
+		buffer.put((byte) this.hashes);
+		buffer.putFloat(this.falsePositiveRate);
+		buffer.put(compressed);
+		return buffer.array();
+	}
+
+	/**
+	 * Byte-Array -> Bitvektor. Byte-Bitvektoren im alten Format (nur
+	 * Snappy-komprimiertes BitSet) werden als exakte Menge gelesen,
+	 * Bitvektoren der Version 1 mit einer Hashfunktion.
+	 * 
+	 * @param bytes
+	 *            the bytes
+	 * @return the bitvector
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Bitvector fromByteArray(final byte[] bytes)
+			throws IOException {
+		if (bytes.length < HEADER_LENGTH_V1
+				|| !Arrays.equals(MAGIC, Arrays.copyOf(bytes, MAGIC.length))) {
+			return new Bitvector(MAX_SIZE, 1, 0, toBitmap(Snappy
+					.uncompress(bytes)));
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.position(MAGIC.length);
+		final byte version = buffer.get();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unknown bitvector version " + version);
+		}
+		final int size = buffer.getInt();
+		int hashes = 1;
+		float rate = 0;
+		if (version > 1) {
+			hashes = buffer.get();
+			rate = buffer.getFloat();
+		}
+		final byte[] uncompressed = Snappy.uncompress(Arrays.copyOfRange(
+				bytes, buffer.position(), bytes.length));
+		if (version < 3) {
+			return new Bitvector(size, hashes, rate, toBitmap(uncompressed));
+		}
+		return new Bitvector(size, hashes, rate,
+				CompressedBitmap.read(new DataInputStream(
+						new ByteArrayInputStream(uncompressed))));
+	}
+
+	/**
+	 * Überführt ein serialisiertes BitSet (Versionen 1 und 2 und altes
+	 * Format) in eine komprimierte Bitmap.
+	 */
+	private static CompressedBitmap toBitmap(final byte[] bitSet) {
+		final BitSet bits = BitSet.valueOf(bitSet);
+		final CompressedBitmap result = new CompressedBitmap();
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			result.add(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Sammelt die Fingerabdrücke einer Zeile, bis deren Anzahl bekannt ist,
+	 * und erzeugt daraus einen passend dimensionierten Bitvektor.
+	 */
+	public static class Collector {
+
+		/** Die Fingerabdrücke. */
+		private int[] fingerprints = new int[1024];
+
+		/** Anzahl der Fingerabdrücke. */
+		private int count = 0;
+
+		/**
+		 * Fügt einen Fingerabdruck hinzu.
+		 * 
+		 * @param fingerprint
+		 *            the fingerprint
+		 */
+		public void add(final int fingerprint) {
+			if (this.count == this.fingerprints.length) {
+				this.fingerprints = Arrays.copyOf(this.fingerprints,
+						this.count * 2);
+			}
+			this.fingerprints[this.count++] = fingerprint;
+		}
+
+		/**
+		 * Anzahl der gesammelten Fingerabdrücke.
+		 * 
+		 * @return the int
+		 */
+		public int size() {
+			return this.count;
+		}
+
+		/**
+		 * Verwirft die gesammelten Fingerabdrücke.
+		 */
+		public void clear() {
+			this.count = 0;
+		}
+
+		/**
+		 * Erzeugt den Bitvektor mit der Falsch-positiv-Rate
+		 * {@link BitvectorManager#FALSE_POSITIVE_RATE}, Größe und Anzahl der
+		 * Hashfunktionen werden aus der Anzahl der Fingerabdrücke bestimmt.
+		 * Bis {@link BitvectorManager#EXACT_MAX_CARDINALITY} Fingerabdrücke
+		 * wird eine exakte Menge erzeugt.
+		 * 
+		 * @return the bitvector
+		 */
+		public Bitvector build() {
+			final double rate = BitvectorManager.FALSE_POSITIVE_RATE;
+			final int size = this.count <= BitvectorManager.EXACT_MAX_CARDINALITY ? MAX_SIZE
+					: getSize(this.count, rate);
+			final Bitvector result = new Bitvector(size, getHashes(
+					this.count, size), (float) rate, new CompressedBitmap());
+			for (int i = 0; i < this.count; i++) {
+				result.add(this.fingerprints[i]);
+			}
+			return result;
+		}
+	}
+}
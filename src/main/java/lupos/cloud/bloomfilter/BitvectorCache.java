@@ -0,0 +1,472 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.bloomfilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lupos.cloud.hbase.HBaseConnection;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Cache der Bitvektoren über mehrere Anfragen hinweg. Die Bitvektoren der
+ * einzelnen Zeilen (Tabelle, Rowkeys, Column-Family) werden im Speicher
+ * gehalten (LRU, begrenzt durch {@link #MAX_MEMORY}), die verknüpften
+ * Bitvektoren einer Variablen bleiben auf dem verteilten Dateisystem unter
+ * {@link #CACHE_DIR} liegen (LRU, begrenzt durch {@link #MAX_MERGED}). Eine
+ * Anfrage, deren Bitvektoren alle im Cache liegen, lädt nichts aus HBase und
+ * schreibt nichts auf das verteilte Dateisystem.
+ * 
+ * Die Einträge werden verworfen, wenn Tripel der Zeile über
+ * {@link HBaseConnection} bzw. den HBaseDeleter in diesem Prozess eingefügt
+ * oder gelöscht werden. Nach einem Bulk-Load wird der gesamte Cache
+ * geleert. Änderungen durch andere Prozesse werden nur durch das Alter der
+ * Einträge ({@link #MAX_AGE}) berücksichtigt.
+ * 
+ * Die Pfade der verknüpften Bitvektoren werden von den Anfragen bis zum Ende
+ * des Pig-Jobs belegt ({@link #getMerged(String)},
+ * {@link #putMerged(String, List, String)}, {@link #release(String)}). Die
+ * Datei eines verworfenen Eintrags wird erst gelöscht, wenn keine Anfrage sie
+ * mehr benutzt.
+ */
+public class BitvectorCache {
+
+	/** Cache aktiv. */
+	public static boolean ACTIVE = true;
+
+	/** Größe des Speichers für die Bitvektoren der Zeilen in Bytes. */
+	public static long MAX_MEMORY = 128L * 1024 * 1024;
+
+	/** Anzahl der verknüpften Bitvektoren auf dem verteilten Dateisystem. */
+	public static int MAX_MERGED = 1000;
+
+	/** Alter in Sekunden, nach dem ein Eintrag verworfen wird (0 = nie). */
+	public static long MAX_AGE = 3600;
+
+	/** Verzeichnis der verknüpften Bitvektoren. */
+	public static final String CACHE_DIR = BitvectorManager.WORKING_DIR
+			+ "/cache";
+
+	/** Bitvektoren der Zeilen (in Zugriffsreihenfolge). */
+	private static final LinkedHashMap<String, Entry> vectors = new LinkedHashMap<String, Entry>(
+			16, 0.75f, true);
+
+	/** Pfade der verknüpften Bitvektoren (in Zugriffsreihenfolge). */
+	private static final LinkedHashMap<String, Entry> merged = new LinkedHashMap<String, Entry>(
+			16, 0.75f, true);
+
+	/** Pfad -> Anzahl der Anfragen, die den verknüpften Bitvektor benutzen. */
+	private static final HashMap<String, Integer> users = new HashMap<String, Integer>();
+
+	/** Pfade verworfener Einträge, die noch benutzt werden. */
+	private static final HashSet<String> obsolete = new HashSet<String>();
+
+	/** Zähler für eindeutige Pfade der verknüpften Bitvektoren. */
+	private static long generation = 0;
+
+	/** Tabelle und Rowkey -> Schlüssel der abhängigen Einträge. */
+	private static final HashMap<String, HashSet<String>> rowIndex = new HashMap<String, HashSet<String>>();
+
+	/**
+	 * Gibt an, ob der Cache leer ist (ohne Synchronisation lesbar, da
+	 * {@link #invalidate(String, byte[])} beim Laden für jede Zelle aufgerufen
+	 * wird).
+	 */
+	private static volatile boolean empty = true;
+
+	/** Belegter Speicher der Bitvektoren der Zeilen. */
+	private static long memory = 0;
+
+	/** Gibt an, ob das Arbeitsverzeichnis bereits angelegt wurde. */
+	private static boolean initialized = false;
+
+	/**
+	 * Eintrag des Caches.
+	 */
+	private static class Entry {
+
+		/** Der Bitvektor (nur für Zeilen). */
+		final Bitvector vector;
+
+		/** Pfad auf dem verteilten Dateisystem (nur für verknüpfte). */
+		final String path;
+
+		/** Geschätzte Größe im Speicher. */
+		final long size;
+
+		/** Zeitpunkt der Erzeugung. */
+		final long created = System.currentTimeMillis();
+
+		/** Schlüssel der Zeilen im {@link BitvectorCache#rowIndex}. */
+		final List<String> rows;
+
+		Entry(final Bitvector vector, final String path, final List<String> rows) {
+			this.vector = vector;
+			this.path = path;
+			this.size = vector == null ? 0 : vector.getMemorySize();
+			this.rows = rows;
+		}
+
+		boolean isExpired() {
+			return MAX_AGE > 0
+					&& System.currentTimeMillis() - this.created > MAX_AGE * 1000;
+		}
+	}
+
+	/**
+	 * Legt das Arbeitsverzeichnis an. Beim ersten Aufruf (und bei
+	 * deaktiviertem Cache bei jedem Aufruf) wird es zuvor gelöscht, da der
+	 * Inhalt eines früheren Prozesses nicht mehr aktuell sein muss.
+	 * 
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void init() throws IOException {
+		if (!initialized || !ACTIVE) {
+			clear();
+			HBaseConnection.getHdfs_fileSystem().delete(
+					new Path(BitvectorManager.WORKING_DIR), true);
+			HBaseConnection.getHdfs_fileSystem().mkdirs(new Path(CACHE_DIR));
+			initialized = true;
+		}
+	}
+
+	/**
+	 * Schlüssel des Bitvektors eines Tripel-Musters (Tabelle, Column-Family
+	 * und alle Unterzeilen).
+	 * 
+	 * @param bv
+	 *            the bv
+	 * @return the key
+	 */
+	public static String getKey(final CloudBitvector bv) {
+		final StringBuilder key = new StringBuilder(bv.getTablename());
+		key.append('|').append(
+				bv.getColumnFamily() == null ? "-" : Bytes.toStringBinary(bv
+						.getColumnFamily()));
+		for (final byte[] row : bv.getRows()) {
+			key.append('|').append(Bytes.toStringBinary(row));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Schlüssel eines verknüpften Bitvektors (unabhängig von der Reihenfolge
+	 * der Tripel-Muster).
+	 * 
+	 * @param keys
+	 *            die Schlüssel der verknüpften Bitvektoren
+	 * @return the merged key
+	 */
+	public static String getMergedKey(final List<String> keys) {
+		final List<String> sorted = new ArrayList<String>(keys);
+		Collections.sort(sorted);
+		final StringBuilder result = new StringBuilder();
+		for (final String key : sorted) {
+			result.append(key).append('\n');
+		}
+		return DigestUtils.shaHex(result.toString());
+	}
+
+	/**
+	 * Liefert den Bitvektor einer Zeile.
+	 * 
+	 * @param key
+	 *            the key (siehe {@link #getKey(CloudBitvector)})
+	 * @return der Bitvektor oder null, falls er nicht im Cache liegt
+	 */
+	public static synchronized Bitvector get(final String key) {
+		final Entry entry = vectors.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired()) {
+			remove(key);
+			return null;
+		}
+		return entry.vector;
+	}
+
+	/**
+	 * Speichert den Bitvektor einer Zeile, ggf. werden die am längsten nicht
+	 * genutzten Bitvektoren verdrängt.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param bv
+	 *            das Tripel-Muster
+	 * @param vector
+	 *            der Bitvektor
+	 */
+	public static synchronized void put(final String key,
+			final CloudBitvector bv, final Bitvector vector) {
+		if (!ACTIVE || vector == null) {
+			return;
+		}
+		remove(key);
+		final Entry entry = new Entry(vector, null, getRows(bv));
+		if (entry.size > MAX_MEMORY) {
+			return;
+		}
+		vectors.put(key, entry);
+		memory += entry.size;
+		index(key, entry);
+		final Iterator<Map.Entry<String, Entry>> it = vectors.entrySet()
+				.iterator();
+		while (memory > MAX_MEMORY && it.hasNext()) {
+			final Map.Entry<String, Entry> eldest = it.next();
+			if (!eldest.getKey().equals(key)) {
+				it.remove();
+				memory -= eldest.getValue().size;
+				unindex(eldest.getKey(), eldest.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Liefert den Pfad eines verknüpften Bitvektors. Der Pfad wird bis zum
+	 * Aufruf von {@link #release(String)} nicht gelöscht.
+	 * 
+	 * @param key
+	 *            the key (siehe {@link #getMergedKey(List)})
+	 * @return der Pfad oder null, falls er nicht im Cache liegt
+	 */
+	public static synchronized String getMerged(final String key) {
+		final Entry entry = merged.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired()) {
+			remove(key);
+			return null;
+		}
+		acquire(entry.path);
+		return entry.path;
+	}
+
+	/**
+	 * Gibt einen neuen Pfad für einen verknüpften Bitvektor zurück. Die Pfade
+	 * sind eindeutig, damit die Datei eines verworfenen Eintrags nicht
+	 * überschrieben wird, während sie noch benutzt wird.
+	 * 
+	 * @param key
+	 *            the key (siehe {@link #getMergedKey(List)})
+	 * @return the path
+	 */
+	public static synchronized String newMergedPath(final String key) {
+		return CACHE_DIR + "/" + key + "_" + (generation++);
+	}
+
+	/**
+	 * Speichert den Pfad eines verknüpften Bitvektors. Der Pfad wird bis zum
+	 * Aufruf von {@link #release(String)} nicht gelöscht.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param members
+	 *            die verknüpften Tripel-Muster
+	 * @param path
+	 *            der Pfad (existiert er nicht, wird der Bitvektor ignoriert)
+	 */
+	public static synchronized void putMerged(final String key,
+			final List<CloudBitvector> members, final String path) {
+		acquire(path);
+		if (!ACTIVE) {
+			return;
+		}
+		remove(key);
+		final List<String> rows = new ArrayList<String>();
+		for (final CloudBitvector bv : members) {
+			rows.addAll(getRows(bv));
+		}
+		final Entry entry = new Entry(null, path, rows);
+		merged.put(key, entry);
+		index(key, entry);
+		final Iterator<Map.Entry<String, Entry>> it = merged.entrySet()
+				.iterator();
+		while (merged.size() > MAX_MERGED && it.hasNext()) {
+			final Map.Entry<String, Entry> eldest = it.next();
+			it.remove();
+			unindex(eldest.getKey(), eldest.getValue());
+			discard(eldest.getValue());
+		}
+	}
+
+	/**
+	 * Gibt den Pfad eines verknüpften Bitvektors nach dem Ende des Pig-Jobs
+	 * wieder frei. Wurde der Eintrag inzwischen verworfen, wird die Datei
+	 * gelöscht, sobald sie von keiner Anfrage mehr benutzt wird.
+	 * 
+	 * @param path
+	 *            the path
+	 */
+	public static synchronized void release(final String path) {
+		final Integer count = users.get(path);
+		if (count == null) {
+			return;
+		}
+		if (count > 1) {
+			users.put(path, count - 1);
+			return;
+		}
+		users.remove(path);
+		if (obsolete.remove(path)) {
+			deleteFile(path);
+		}
+	}
+
+	/**
+	 * Verwirft alle Einträge, die von der Zeile abhängen.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param row
+	 *            der (ggf. mit Salt versehene) Rowkey
+	 */
+	public static void invalidate(final String tablename, final byte[] row) {
+		if (empty) {
+			return;
+		}
+		synchronized (BitvectorCache.class) {
+			final HashSet<String> keys = rowIndex.get(getRowKey(tablename, row));
+			if (keys != null) {
+				for (final String key : new ArrayList<String>(keys)) {
+					remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Verwirft alle Einträge (z.B. nach einem Bulk-Load).
+	 */
+	public static synchronized void clear() {
+		for (final Entry entry : merged.values()) {
+			discard(entry);
+		}
+		vectors.clear();
+		merged.clear();
+		rowIndex.clear();
+		empty = true;
+		memory = 0;
+	}
+
+	/**
+	 * Entfernt einen Eintrag (Zeile oder verknüpft).
+	 */
+	private static void remove(final String key) {
+		Entry entry = vectors.remove(key);
+		if (entry != null) {
+			memory -= entry.size;
+			unindex(key, entry);
+		}
+		entry = merged.remove(key);
+		if (entry != null) {
+			unindex(key, entry);
+			discard(entry);
+		}
+	}
+
+	/**
+	 * Belegt den Pfad eines verknüpften Bitvektors.
+	 */
+	private static void acquire(final String path) {
+		final Integer count = users.get(path);
+		users.put(path, count == null ? 1 : count + 1);
+	}
+
+	private static List<String> getRows(final CloudBitvector bv) {
+		final List<String> result = new ArrayList<String>(bv.getRows().length);
+		for (final byte[] row : bv.getRows()) {
+			result.add(getRowKey(bv.getTablename(), row));
+		}
+		return result;
+	}
+
+	private static String getRowKey(final String tablename, final byte[] row) {
+		return tablename + "|" + Bytes.toStringBinary(row);
+	}
+
+	private static void index(final String key, final Entry entry) {
+		for (final String row : entry.rows) {
+			HashSet<String> keys = rowIndex.get(row);
+			if (keys == null) {
+				keys = new HashSet<String>();
+				rowIndex.put(row, keys);
+			}
+			keys.add(key);
+		}
+		empty = rowIndex.isEmpty();
+	}
+
+	private static void unindex(final String key, final Entry entry) {
+		for (final String row : entry.rows) {
+			final HashSet<String> keys = rowIndex.get(row);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty()) {
+					rowIndex.remove(row);
+				}
+			}
+		}
+		empty = rowIndex.isEmpty();
+	}
+
+	/**
+	 * Löscht die Datei eines verworfenen verknüpften Bitvektors bzw. merkt sie
+	 * zum Löschen vor, solange sie noch benutzt wird.
+	 */
+	private static void discard(final Entry entry) {
+		if (users.containsKey(entry.path)) {
+			obsolete.add(entry.path);
+		} else {
+			deleteFile(entry.path);
+		}
+	}
+
+	/**
+	 * Löscht die Datei eines verknüpften Bitvektors.
+	 */
+	private static void deleteFile(final String path) {
+		if (path == null || !path.startsWith(CACHE_DIR)) {
+			return;
+		}
+		try {
+			HBaseConnection.getHdfs_fileSystem().delete(new Path(path),
+					false);
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -23,33 +23,40 @@
  */
 package lupos.cloud.bloomfilter;
 
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.NavigableMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import lupos.cloud.hbase.CompositeKey;
 import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
 import lupos.cloud.pig.PigQuery;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Get;
-import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.HTablePool;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
-import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.util.bloom.HashFunction;
 import org.apache.hadoop.util.bloom.Key;
 import org.apache.hadoop.util.hash.Hash;
 import org.apache.pig.impl.util.MultiMap;
-import org.xerial.snappy.Snappy;
 
 /**
  * Diese Klasse verwaltet alle Informationen bzgl. des Bitvektors. So wird z.B.
@@ -57,12 +64,48 @@ import org.xerial.snappy.Snappy;
  */
 public class BitvectorManager {
 
-	/** Referenzen zu den jeweiligen HBase-Tabellen. */
-	public static HashMap<String, HTable> hTables = new HashMap<String, HTable>();
+	/**
+	 * Anzahl der Threads, die die Bitvektoren parallel laden, verknüpfen und
+	 * auf das verteilte Dateisystem schreiben.
+	 */
+	public static int FETCH_THREADS = 8;
+
+	/** Threads zum Laden und Verknüpfen der Bitvektoren. */
+	private static ExecutorService executor = null;
 
-	/** Bitvektorgroesse. */
+	/** Referenzen zu den jeweiligen HBase-Tabellen (je Thread eine). */
+	private static HTablePool tablePool = null;
+
+	/**
+	 * Wertebereich der Fingerabdrücke, die als Spaltennamen der
+	 * Bloomfilter-Families gespeichert werden.
+	 */
 	public static final int VECTORSIZE = 1000000000;
 
+	/**
+	 * Falsch-positiv-Rate, nach der die Größe der Bitvektoren anhand der
+	 * Kardinalität der Zeile bestimmt wird (siehe {@link Bitvector}).
+	 */
+	public static double FALSE_POSITIVE_RATE = 0.01;
+
+	/**
+	 * Anzahl der Hashfunktionen je Element (k), 0 wählt k optimal aus der
+	 * Kardinalität der Zeile und der Größe des Bitvektors.
+	 */
+	public static int HASH_FUNCTIONS = 0;
+
+	/**
+	 * Zeilen mit höchstens so vielen Werten werden als exakte Menge der
+	 * Fingerabdrücke gespeichert (siehe {@link Bitvector#isExact()}).
+	 */
+	public static int EXACT_MAX_CARDINALITY = 25000;
+
+	/**
+	 * Ist die geschätzte Falsch-positiv-Rate eines verknüpften Bitvektors
+	 * mindestens so groß, wird er ignoriert.
+	 */
+	public static double IGNORE_RATE = 0.95;
+
 	/** Column-Family unter dem der Bitvektor 1 gespeichert werden soll. */
 	public static final byte[] bloomfilter1ColumnFamily = "1".getBytes();
 
@@ -73,6 +116,17 @@ public class BitvectorManager {
 	private static HashFunction hash = new HashFunction(VECTORSIZE, 1,
 			Hash.JENKINS_HASH);
 
+	/** Jenkins Hash für die Berechnung auf Teilbereichen eines Arrays. */
+	private static final Hash jenkins = Hash.getInstance(Hash.JENKINS_HASH);
+
+	/** Puffer für {@link #hash(byte[], int, int)} (je Thread). */
+	private static final ThreadLocal<byte[]> hashBuffer = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[256];
+		}
+	};
+
 	/** Speicherort der BItvektor auf dem verteilten Dateisystem. */
 	public static final String WORKING_DIR = "/tmp/CloudBitvectors";
 
@@ -80,7 +134,8 @@ public class BitvectorManager {
 	public static final String BLOOMFILTER_NAME = "cloudBloomfilter_";
 
 	/**
-	 * Hashfunktion.
+	 * Hashfunktion. Liefert den Fingerabdruck eines Elements, aus dem ein
+	 * {@link Bitvector} seine k Positionen ableitet.
 	 *
 	 * @param toHash
 	 *            the to hash
@@ -90,146 +145,401 @@ public class BitvectorManager {
 		return hash.hash(new Key(toHash))[0];
 	}
 
+	/**
+	 * Berechnet den Fingerabdruck eines Elements, das innerhalb eines
+	 * größeren Byte-Arrays liegt (z.B. ein Element eines zusammengesetzten
+	 * Spaltennamens). Das Ergebnis ist identisch zu {@link #hash(byte[])},
+	 * es wird jedoch kein neues Array erzeugt.
+	 *
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @return the int
+	 */
+	public static int hash(final byte[] buf, final int off, final int len) {
+		byte[] bytes = buf;
+		if (off != 0) {
+			bytes = hashBuffer.get();
+			if (bytes.length < len) {
+				bytes = new byte[len];
+				hashBuffer.set(bytes);
+			}
+			System.arraycopy(buf, off, bytes, 0, len);
+		}
+		// entspricht HashFunction mit nbHash = 1
+		return Math.abs(jenkins.hash(bytes, len, 0) % VECTORSIZE);
+	}
+
 	/**
 	 * Innerhalb dieser Methode wird der finale Bitvektor generiert. Dazu wird
 	 * für jede Variable der zugehörige Bitvektor geladen und ungf. mit anderne
-	 * Bitvektoren zum finalen Bitvektor verknüpft.
+	 * Bitvektoren zum finalen Bitvektor verknüpft. Bitvektoren der Zeilen und
+	 * verknüpfte Bitvektoren werden aus dem {@link BitvectorCache} genommen,
+	 * falls vorhanden.
+	 *
+	 * Jeder Bitvektor eines Tripel-Musters wird von einem eigenen Task
+	 * geladen (höchstens {@link #FETCH_THREADS} gleichzeitig, gleiche
+	 * Bitvektoren nur einmal). Sobald alle Bitvektoren einer Gruppe geladen
+	 * sind, verknüpft der Task, der den letzten geladen hat, die Gruppe und
+	 * schreibt das Ergebnis auf das verteilte Dateisystem.
+	 *
+	 * Die Pfade der verknüpften Bitvektoren bleiben belegt, bis sie nach dem
+	 * Pig-Job mit {@link BitvectorCache#release(String)} freigegeben werden.
 	 *
 	 * @param bitvectors
 	 *            the bitvectors
 	 * @param pigQuery
 	 *            the pig query
+	 * @return die belegten Pfade der verknüpften Bitvektoren
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static void generateBitvector(
+	public static List<String> generateBitvector(
 			final HashMap<String, HashSet<CloudBitvector>> bitvectors,
 			final PigQuery pigQuery) throws IOException {
 		System.out.println("# bitvectors: " + bitvectors.size());
 
 		init();
+		final List<MergeGroup> mergeGroups = new ArrayList<MergeGroup>();
+		final LinkedHashMap<String, Fetch> fetches = new LinkedHashMap<String, Fetch>();
 		for (final String var : bitvectors.keySet()) {
-
-			final MultiMap<Integer, BitSet> bitSetList = new MultiMap<Integer, BitSet>();
-			final MultiMap<Integer, Boolean> bitSetFromBytearrayList = new MultiMap<Integer, Boolean>();
-			if (bitvectors.get(var).size() > 1) {
+			// Wenn nur ein bitvector vorahnden ist ignoriere diesen
+			if (bitvectors.get(var).size() <= 1) {
+				System.out.println("\n---> " + var
+						+ " vector ignored, because appears only once <---");
 				for (final CloudBitvector bv : bitvectors.get(var)) {
-					BitSet toAdd = null;
-					Boolean fromBytearray = false;
+					pigQuery.replaceBloomfilterName(
+							DigestUtils.sha512Hex(var + bv.getPatternId())
+									.toString(), getIgnorePath(var));
+				}
+				continue;
+			}
 
-					// lade Byte-Bitvektor. Wenn keiner existiert ist toAdd =
-					// null
-					toAdd = getDirectBitSetFromeHbaseTable(bv.getTablename(),
-							bv.getRow(), bv.getColumnFamily());
+			// Gruppen der Bitvektoren, die UND-verknüpft werden
+			final MultiMap<Integer, CloudBitvector> groups = new MultiMap<Integer, CloudBitvector>();
+			for (final CloudBitvector bv : bitvectors.get(var)) {
+				groups.put(bv.getSetId(), bv);
+			}
 
-					// generiere Bitvektor aus Indizes
-					if (toAdd == null) {
-						toAdd = getBitSetFromeHbaseTable(bv.getTablename(),
-								bv.getRow(), bv.getColumnFamily());
-					} else {
-						fromBytearray = true;
+			for (final Integer setId : groups.keySet()) {
+				final MergeGroup mergeGroup = new MergeGroup(var,
+						groups.get(setId));
+				mergeGroups.add(mergeGroup);
+				if (mergeGroup.path != null) {
+					System.out.println("\n---> " + var
+							+ " vector from cache <---");
+					continue;
+				}
+				for (int i = 0; i < mergeGroup.members.size(); i++) {
+					final String key = mergeGroup.keys.get(i);
+					Fetch fetch = fetches.get(key);
+					if (fetch == null) {
+						fetch = new Fetch(mergeGroup.members.get(i), key);
+						fetches.put(key, fetch);
 					}
-
-					bitSetList.put(bv.getSetId(), toAdd);
-					bitSetFromBytearrayList.put(bv.getSetId(), fromBytearray);
+					fetch.addListener(mergeGroup, i);
 				}
 			}
+		}
 
-			// Wenn nur ein bitvector vorahnden ist ignoriere diesen
-			if (bitSetList.size() == 0) {
-				System.out.println("\n---> " + var
-						+ " vector ignored, because appears only once <---");
-				for (final CloudBitvector bv : bitvectors.get(var)) {
+		// alle Ladevorgänge starten, erst danach werden die Gruppen verknüpft
+		for (final Fetch fetch : fetches.values()) {
+			getExecutor().execute(fetch);
+		}
+
+		final List<String> paths = new ArrayList<String>(mergeGroups.size());
+		try {
+			for (final MergeGroup mergeGroup : mergeGroups) {
+				final String path = mergeGroup.await();
+				paths.add(path);
+
+				// Ersetze Hash-Strings im PigLatin-Programm
+				for (final CloudBitvector bv : mergeGroup.members) {
 					pigQuery.replaceBloomfilterName(
-							DigestUtils.sha512Hex(var + bv.getPatternId())
-									.toString(), WORKING_DIR + "/"
-									+ BLOOMFILTER_NAME + var.replace("?", "")
-									+ "_IGNORE");
+							DigestUtils.sha512Hex(
+									mergeGroup.var + bv.getPatternId())
+									.toString(), path);
 				}
-			} else {
-				// AND verknüpfen
-				final ArrayList<BitSet> groupBitSetList = new ArrayList<BitSet>();
-				Integer startId = null;
-				boolean first = true;
-				for (final Integer setId : bitSetList.keySet()) {
-					if (first) {
-						startId = setId;
-						first = false;
-					}
-					groupBitSetList.add(mergeBitSet(var, bitSetList.get(setId),
-							bitSetFromBytearrayList.get(setId)));
+			}
+		} catch (final IOException e) {
+			// die Pfade der übrigen Gruppen werden nicht mehr benutzt
+			for (final MergeGroup mergeGroup : mergeGroups) {
+				try {
+					BitvectorCache.release(mergeGroup.await());
+				} catch (final IOException ignore) {
+					// Gruppe ohne Pfad
 				}
+			}
+			throw e;
+		}
+		return paths;
+	}
 
-				Integer groupCounter = startId;
-				for (final BitSet bitVector : groupBitSetList) {
-					final Path local = new Path("cloudBloomfilter_"
-							+ var.replace("?", "") + "_" + groupCounter);
-					final Path remote = new Path(WORKING_DIR + "/" + BLOOMFILTER_NAME
-							+ var.replace("?", "") + "_" + groupCounter);
-					// sind mehr als 95% der Bits gesetzt -> ignoiere den
-					// Bitvektor
-					if ((bitVector.cardinality()) >= (BitvectorManager.VECTORSIZE * 0.95)) {
-						System.out
-								.println("\n---> "
-										+ var
-										+ " vector ignored, because to many true bits (>95%) <---");
-						for (final CloudBitvector bv : bitvectors.get(var)) {
-							pigQuery.replaceBloomfilterName(DigestUtils
-									.sha512Hex(var + bv.getPatternId())
-									.toString(), WORKING_DIR + "/"
-									+ BLOOMFILTER_NAME + var.replace("?", "")
-									+ "_IGNORE");
-						}
-					} else {
-						writeByteToDisk(toByteArray(bitVector), local);
-						HBaseConnection.getHdfs_fileSystem().copyFromLocalFile(
-								true, true, local, remote);
-						new File(local.getName()).delete();
-
-						// Ersetze Hash-Strings im PigLatin-Programm
-						for (final CloudBitvector bv : bitvectors.get(var)) {
-							if (bv.getSetId() == groupCounter) {
-								pigQuery.replaceBloomfilterName(DigestUtils
-										.sha512Hex(var + bv.getPatternId())
-										.toString(),
-										WORKING_DIR + "/" + BLOOMFILTER_NAME
-												+ var.replace("?", "") + "_"
-												+ groupCounter);
-							}
+	/**
+	 * Threads zum Laden und Verknüpfen der Bitvektoren.
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(FETCH_THREADS,
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(final Runnable r) {
+							final Thread thread = new Thread(r,
+									"BitvectorManager-"
+											+ threadNumber.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
 						}
-					}
-					groupCounter++;
+					});
+		}
+		return executor;
+	}
+
+	/**
+	 * Referenzen zu den HBase-Tabellen, jeder Thread erhält eine eigene.
+	 */
+	private static synchronized HTablePool getTablePool() {
+		if (tablePool == null) {
+			tablePool = new HTablePool(HBaseConnection.getConfiguration(),
+					FETCH_THREADS);
+		}
+		return tablePool;
+	}
+
+	/**
+	 * Gruppe von Bitvektoren einer Variablen, die UND-verknüpft werden.
+	 */
+	private static class MergeGroup {
+
+		/** The var. */
+		final String var;
+
+		/** Die Tripel-Muster der Gruppe. */
+		final List<CloudBitvector> members;
 
+		/** Schlüssel der Bitvektoren im {@link BitvectorCache}. */
+		final List<String> keys;
+
+		/** Schlüssel des verknüpften Bitvektors. */
+		final String mergedKey;
+
+		/** Die geladenen Bitvektoren. */
+		final Bitvector[] vectors;
+
+		/** Gibt je Bitvektor an, ob er als Byte-Bitvektor geladen wurde. */
+		final Boolean[] fromBytearray;
+
+		/** Anzahl der noch nicht geladenen Bitvektoren. */
+		private int pending;
+
+		/** Pfad des verknüpften Bitvektors. */
+		volatile String path;
+
+		/** Fehler beim Laden oder Verknüpfen. */
+		private IOException error = null;
+
+		/** Wird nach dem Verknüpfen (oder einem Fehler) heruntergezählt. */
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		MergeGroup(final String var, final List<CloudBitvector> members) {
+			this.var = var;
+			this.members = members;
+			this.keys = new ArrayList<String>(members.size());
+			for (final CloudBitvector bv : members) {
+				this.keys.add(BitvectorCache.getKey(bv));
+			}
+			this.mergedKey = BitvectorCache.getMergedKey(this.keys);
+			this.vectors = new Bitvector[members.size()];
+			this.fromBytearray = new Boolean[members.size()];
+			this.pending = members.size();
+			this.path = BitvectorCache.getMerged(this.mergedKey);
+			if (this.path != null) {
+				this.done.countDown();
+			}
+		}
+
+		/**
+		 * Ein Bitvektor der Gruppe wurde geladen. Ist es der letzte, wird die
+		 * Gruppe im aufrufenden Thread verknüpft.
+		 */
+		void arrived(final int index, final Bitvector vector,
+				final boolean bytearray, final IOException e) {
+			synchronized (this) {
+				this.vectors[index] = vector;
+				this.fromBytearray[index] = bytearray;
+				if (e != null && this.error == null) {
+					this.error = e;
+				}
+				if (--this.pending > 0) {
+					return;
+				}
+			}
+			try {
+				if (this.error == null) {
+					this.path = merge(this);
 				}
+			} catch (final IOException ex) {
+				this.error = ex;
+			} catch (final RuntimeException ex) {
+				this.error = new IOException(ex);
+			} finally {
+				this.done.countDown();
 			}
 		}
 
-		// clean up
+		/**
+		 * Wartet, bis die Gruppe verknüpft ist.
+		 *
+		 * @return der Pfad des verknüpften Bitvektors
+		 */
+		String await() throws IOException {
+			try {
+				this.done.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			if (this.error != null) {
+				throw this.error;
+			}
+			return this.path;
+		}
+	}
+
+	/**
+	 * Lädt den Bitvektor eines Tripel-Musters und gibt ihn an alle Gruppen
+	 * weiter, die ihn benötigen.
+	 */
+	private static class Fetch implements Runnable {
+
+		/** Das Tripel-Muster. */
+		private final CloudBitvector bv;
+
+		/** Schlüssel im {@link BitvectorCache}. */
+		private final String key;
+
+		/** Gruppen, die den Bitvektor benötigen. */
+		private final List<MergeGroup> groups = new ArrayList<MergeGroup>(1);
+
+		/** Position des Bitvektors in der jeweiligen Gruppe. */
+		private final List<Integer> indices = new ArrayList<Integer>(1);
+
+		Fetch(final CloudBitvector bv, final String key) {
+			this.bv = bv;
+			this.key = key;
+		}
+
+		void addListener(final MergeGroup group, final int index) {
+			this.groups.add(group);
+			this.indices.add(index);
+		}
+
+		@Override
+		public void run() {
+			Bitvector toAdd = null;
+			boolean fromBytearray = false;
+			IOException error = null;
+			try {
+				toAdd = BitvectorCache.get(this.key);
+				if (toAdd == null) {
+					// lade Byte-Bitvektor. Wenn keiner existiert ist toAdd =
+					// null
+					toAdd = getDirectBitSetFromeHbaseTable(
+							this.bv.getTablename(), this.bv.getRows(),
+							this.bv.getColumnFamily());
+
+					// generiere Bitvektor aus Indizes (null, falls der
+					// Bitvektor nichts einschränkt)
+					if (toAdd == null) {
+						toAdd = getBitSetFromeHbaseTable(
+								this.bv.getTablename(), this.bv.getRow(),
+								this.bv.getColumnFamily());
+					} else {
+						fromBytearray = true;
+					}
+					BitvectorCache.put(this.key, this.bv, toAdd);
+				}
+			} catch (final IOException e) {
+				error = e;
+			} catch (final RuntimeException e) {
+				error = new IOException(e);
+			}
+			for (int i = 0; i < this.groups.size(); i++) {
+				this.groups.get(i).arrived(this.indices.get(i), toAdd,
+						fromBytearray, error);
+			}
+		}
+	}
 
-		for (final HTable tab : hTables.values()) {
-			tab.close();
+	/**
+	 * Verknüpft die geladenen Bitvektoren einer Gruppe und speichert das
+	 * Ergebnis auf dem verteilten Dateisystem.
+	 *
+	 * @param group
+	 *            die Gruppe
+	 * @return der Pfad des verknüpften Bitvektors (existiert nicht, falls er
+	 *         ignoriert wird)
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static String merge(final MergeGroup group) throws IOException {
+		final String var = group.var;
+
+		// AND verknüpfen
+		final Bitvector bitVector = mergeBitSet(var,
+				Arrays.asList(group.vectors),
+				Arrays.asList(group.fromBytearray));
+
+		// schränkt der Bitvektor nichts ein oder ist die geschätzte
+		// Falsch-positiv-Rate zu hoch -> ignoiere den Bitvektor
+		final String path;
+		if (bitVector == null
+				|| bitVector.getFalsePositiveRate() >= IGNORE_RATE) {
+			System.out.println("\n---> " + var
+					+ " vector ignored, because to many true bits (>"
+					+ (int) (IGNORE_RATE * 100) + "%) <---");
+			path = getIgnorePath(var);
+		} else {
+			path = BitvectorCache.newMergedPath(group.mergedKey);
+			final FSDataOutputStream out = HBaseConnection.getHdfs_fileSystem()
+					.create(new Path(path), true);
+			try {
+				out.write(bitVector.toByteArray());
+			} finally {
+				out.close();
+			}
 		}
-		hTables = new HashMap<String, HTable>();
+		BitvectorCache.putMerged(group.mergedKey, group.members, path);
+		return path;
+	}
 
+	/**
+	 * Pfad für einen ignorierten Bitvektor (die Datei existiert nicht).
+	 */
+	private static String getIgnorePath(final String var) {
+		return WORKING_DIR + "/" + BLOOMFILTER_NAME + var.replace("?", "")
+				+ "_IGNORE";
 	}
 
 	/**
-	 * Init.
+	 * Init. Das Arbeitsverzeichnis wird nur beim ersten Aufruf gelöscht, die
+	 * verknüpften Bitvektoren im Cache bleiben erhalten.
 	 *
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
 	private static void init() throws IOException {
 		HBaseConnection.init();
-		HBaseConnection.getHdfs_fileSystem()
-				.delete(new Path(WORKING_DIR), true);
-		HBaseConnection.getHdfs_fileSystem().mkdirs(new Path(WORKING_DIR));
-
+		BitvectorCache.init();
 	}
 
 	/**
-	 * Diese Methode lädt den Bitvektor aus HBase und erzeugt das BitSet anhand
-	 * der einzelnen Indizes zurück in ein Java-Bitset.
+	 * Diese Methode lädt die Fingerabdrücke der Zeile aus HBase und erzeugt
+	 * daraus einen anhand ihrer Anzahl dimensionierten Bitvektor.
 	 *
 	 * @param tablename
 	 *            the tablename
@@ -237,110 +547,131 @@ public class BitvectorManager {
 	 *            the row
 	 * @param cf
 	 *            the cf
-	 * @return the bit set frome hbase table
+	 * @return der Bitvektor oder null, falls er nichts einschränkt
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private static BitSet getBitSetFromeHbaseTable(final String tablename,
-			final String row, final byte[] cf) throws IOException {
-
-		final BitSet bitvector = new BitSet(VECTORSIZE);
+	private static Bitvector getBitSetFromeHbaseTable(final String tablename,
+			final byte[] row, final byte[] cf) throws IOException {
 
 		// Spezialfall bei ?s ?p ?o, es gibt kein Bitvector für ?s, da rowkey,
-		// daher wird ein volller bitvector zurück gegeben
+		// daher wird kein Bitvektor (keine Einschränkung) zurück gegeben
 		if (cf == null) {
-			bitvector.set(0, VECTORSIZE);
-			return bitvector;
-		}
-
-		HTable hTable = hTables.get(tablename);
-		if (hTable == null) {
-			hTable = new HTable(HBaseConnection.getConfiguration(), tablename);
-			hTables.put(tablename, hTable);
+			return null;
 		}
+		final Bitvector.Collector collector = new Bitvector.Collector();
 
 		final Scan s = new Scan();
-		s.setStartRow(Bytes.toBytes(row));
-		s.setStopRow(Bytes.toBytes(row + "z"));
+		s.setStartRow(row);
+		// genau die Zeile bzw. alle Unterzeilen mit dem Präfix
+		s.setStopRow(HBaseDistributionStrategy.getTableInstance()
+				.isPrefixScan(tablename) ? CompositeKey.getPrefixStopRow(row)
+				: CompositeKey.getStopRow(row));
 		s.setBatch(250000);
 		s.setCacheBlocks(false);
 		s.addFamily(cf);
 
-		final ResultScanner scanner = hTable.getScanner(s);
-		for (Result res = scanner.next(); res != null; res = scanner.next()) {
-			addResultToBitSet(bitvector, res, cf);
+		final HTableInterface hTable = getTablePool().getTable(tablename);
+		try {
+			final ResultScanner scanner = hTable.getScanner(s);
+			for (Result res = scanner.next(); res != null; res = scanner
+					.next()) {
+				addResultToBitSet(collector, res, cf);
+			}
+			scanner.close();
+		} finally {
+			// zurück in den Pool
+			hTable.close();
 		}
 
-		// cleanup
-		// hTable.close();
-
-		return bitvector;
+		return collector.build();
 	}
 
 	/**
 	 * In dieser Methode wird der serialisierte Byte-Bitvektor aus HBase geladen
-	 * und in das Java BitSet-Objekt überführt.
+	 * und in einen {@link Bitvector} überführt. Ist die Zeile auf mehrere
+	 * Unterzeilen verteilt, werden die Bitvektoren aller Unterzeilen mit einem
+	 * Aufruf geladen und ODER-verknüpft (auf die kleinste Größe gefaltet).
+	 * Fehlt der Bitvektor einer Unterzeile,
+	 * wird null zurückgegeben und der Bitvektor aus den Indizes erzeugt.
 	 *
 	 * @param tablename
 	 *            the tablename
-	 * @param row
-	 *            the row
+	 * @param rows
+	 *            the rows
 	 * @param cf
 	 *            the cf
 	 * @return the direct bit set frome hbase table
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private static BitSet getDirectBitSetFromeHbaseTable(final String tablename,
-			final String row, final byte[] cf) throws IOException {
-		BitSet result = null;
+	private static Bitvector getDirectBitSetFromeHbaseTable(final String tablename,
+			final byte[][] rows, final byte[] cf) throws IOException {
+		Bitvector result = null;
 
 		// Spezialfall, wird in anderer Methode verarbeitet
 		if (cf == null) {
 			return null;
 		}
 
-		HTable hTable = hTables.get(tablename);
-		if (hTable == null) {
-			hTable = new HTable(HBaseConnection.getConfiguration(), tablename);
-			hTables.put(tablename, hTable);
+		final List<Get> gets = new ArrayList<Get>(rows.length);
+		for (final byte[] row : rows) {
+			final Get g = new Get(row);
+			g.addColumn(cf, "bloomfilter".getBytes());
+			gets.add(g);
 		}
 
-		final Get g = new Get(row.getBytes());
-		g.addColumn(cf, "bloomfilter".getBytes());
-		final Result r = hTable.get(g);
-
-		if (!r.isEmpty()) {
-			result = fromByteArray(r.getValue(cf, "bloomfilter".getBytes()));
+		final Result[] results;
+		final HTableInterface hTable = getTablePool().getTable(tablename);
+		try {
+			results = hTable.get(gets);
+		} finally {
+			// zurück in den Pool
 			hTable.close();
 		}
 
+		for (final Result r : results) {
+			if (r == null || r.isEmpty()) {
+				return null;
+			}
+			final Bitvector toAdd = fromByteArray(r.getValue(cf,
+					"bloomfilter".getBytes()));
+			if (result == null) {
+				result = toAdd;
+			} else {
+				result = result.or(toAdd);
+			}
+		}
+
 		return result;
 	}
 
 	/**
-	 * Setzt die Indizes im Bitvektor.
+	 * Sammelt die Fingerabdrücke (Spaltennamen der Bloomfilter-Family), ein
+	 * vorhandener Byte-Bitvektor wird übersprungen.
 	 *
-	 * @param bitvector
-	 *            the bitvector
+	 * @param collector
+	 *            the collector
 	 * @param resultMap
 	 *            the result map
 	 * @param cf
 	 *            the cf
-	 * @return the bit set
+	 * @return the collector
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static BitSet addResultToBitSet(final BitSet bitvector, final Result resultMap,
+	public static Bitvector.Collector addResultToBitSet(
+			final Bitvector.Collector collector, final Result resultMap,
 			final byte[] cf) throws IOException {
 		final NavigableMap<byte[], byte[]> cfResults = resultMap.getFamilyMap(cf);
 		if (cfResults != null) {
 			for (final byte[] entry : cfResults.keySet()) {
-				final Integer pos = byteArrayToInteger(entry);
-				bitvector.set(pos);
+				if (entry.length == 4) {
+					collector.add(byteArrayToInteger(entry));
+				}
 			}
 		}
-		return bitvector;
+		return collector;
 	}
 
 	/**
@@ -373,7 +704,9 @@ public class BitvectorManager {
 	}
 
 	/**
-	 * UND-Verkünpfung der Bitvektoren.
+	 * UND-Verkünpfung der Bitvektoren. Bitvektoren unterschiedlicher Größe
+	 * werden auf die kleinste Größe gefaltet, Bitvektoren ohne Einschränkung
+	 * (null) werden übersprungen.
 	 *
 	 * @param var
 	 *            the var
@@ -385,38 +718,50 @@ public class BitvectorManager {
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static BitSet mergeBitSet(final String var, final List<BitSet> bitSetList,
+	public static Bitvector mergeBitSet(final String var,
+			final List<Bitvector> bitSetList,
 			final List<Boolean> bytearrayBooleanList) throws IOException {
-		if (bitSetList.size() == 1) {
-			return bitSetList.get(0);
+		final List<Bitvector> toMerge = new ArrayList<Bitvector>(
+				bitSetList.size());
+		for (final Bitvector bv : bitSetList) {
+			if (bv != null) {
+				toMerge.add(bv);
+			}
+		}
+		if (toMerge.size() == 0) {
+			return null;
+		}
+		if (toMerge.size() == 1) {
+			return toMerge.get(0);
 		}
-		System.out.print("\n---> " + var + " is merged (and) from ");
+		// als eine Zeile ausgeben, die Gruppen werden parallel verknüpft
+		final StringBuilder log = new StringBuilder();
+		log.append("\n---> ").append(var).append(" is merged (and) from ");
 		int j = 0;
-		for (final BitSet bs : bitSetList) {
+		for (final Bitvector bs : bitSetList) {
 			if (j > 0) {
-				System.out.print(", ");
+				log.append(", ");
 			}
-			final int card = bs.cardinality();
-
-			if (bytearrayBooleanList.get(j)) {
-				System.out.print(card + "(b)");
+			if (bs == null) {
+				log.append("full");
+			} else if (bytearrayBooleanList.get(j)) {
+				log.append(bs.cardinality() + "/" + bs.getSize() + "(b)");
 			} else {
-				System.out.print(card);
+				log.append(bs.cardinality() + "/" + bs.getSize());
 			}
 			j++;
 		}
 
-		for (int i = 1; i < bitSetList.size(); i++) {
-			bitSetList.get(0).and(bitSetList.get(i));
-		}
+		final Bitvector result = Bitvector.and(toMerge);
 
-		System.out.println(" to " + bitSetList.get(0).cardinality() + " <---");
-		return bitSetList.get(0);
+		log.append(" to " + result.cardinality() + "/" + result.getSize()
+				+ " <---");
+		System.out.println(log);
+		return result;
 	}
 
 	/**
-	 * BitSet -> Byte-Array. Zusätlich findet die Snappy-Komprimierung hier
-	 * statt.
+	 * Bitvektor -> Byte-Array (siehe {@link Bitvector#toByteArray()}).
 	 *
 	 * @param bits
 	 *            the bits
@@ -424,24 +769,21 @@ public class BitvectorManager {
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static byte[] toByteArray(final BitSet bits) throws IOException {
-		final byte[] compressedBytes = Snappy.compress(bits.toByteArray());
-		return compressedBytes;
+	public static byte[] toByteArray(final Bitvector bits) throws IOException {
+		return bits.toByteArray();
 	}
 
 	/**
-	 * Byte-Array -> BitSet. Zusätzlich findet die Snappy-Dekomprimierung hier
-	 * statt.
+	 * Byte-Array -> Bitvektor (siehe {@link Bitvector#fromByteArray(byte[])}).
 	 *
 	 * @param compressedBytes
 	 *            the compressed bytes
-	 * @return the bit set
+	 * @return the bitvector
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static BitSet fromByteArray(final byte[] compressedBytes)
+	public static Bitvector fromByteArray(final byte[] compressedBytes)
 			throws IOException {
-		final byte[] bytes = Snappy.uncompress(compressedBytes);
-		return BitSet.valueOf(bytes);
+		return Bitvector.fromByteArray(compressedBytes);
 	}
-}
\ No newline at end of file
+}
@@ -27,10 +27,11 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.NavigableMap;
 
+import lupos.cloud.hbase.CompositeKey;
 import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.RowKeySalt;
 
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
@@ -92,8 +93,8 @@ public class BloomfilterGenerator {
 		final ResultScanner scanner = hTable.getScanner(s);
 
 		byte[] lastRowkey = null;
-		final BitSet bitvector1 = new BitSet(BitvectorManager.VECTORSIZE);
-		final BitSet bitvector2 = new BitSet(BitvectorManager.VECTORSIZE);
+		final Bitvector.Collector bitvector1 = new Bitvector.Collector();
+		final Bitvector.Collector bitvector2 = new Bitvector.Collector();
 		boolean reset = true;
 		byte[] curBitvectorName = null;
 		for (Result res = scanner.next(); res != null; res = scanner.next()) {
@@ -116,7 +117,7 @@ public class BloomfilterGenerator {
 
 			// Speichere Bitvektoren
 			if (lastRowkey != null && !Arrays.equals(lastRowkey, res.getRow())) {
-				if (bitvector1.cardinality() >= MIN_CARD) {
+				if (bitvector1.size() >= MIN_CARD) {
 					// store bitvectors
 					storeBitvectorToHBase(tablename, curBitvectorName,
 							bitvector1, bitvector2, hTable);
@@ -126,7 +127,6 @@ public class BloomfilterGenerator {
 				reset = true;
 			}
 
-			final String curKey = Bytes.toString(res.getRow());
 			if (reset) {
 				curBitvectorName = res.getRow();
 				bitvector1.clear();
@@ -134,7 +134,8 @@ public class BloomfilterGenerator {
 				reset = false;
 			}
 
-			if (curKey.contains(",")) {
+			if (CompositeKey.isComposite(res.getRow(),
+					RowKeySalt.getSaltLength(RowKeySalt.SALT_BUCKETS))) {
 				addResultToBitSet(false, bitvector1, bitvector2, res);
 			} else {
 				addResultToBitSet(true, bitvector1, bitvector2, res);
@@ -145,7 +146,7 @@ public class BloomfilterGenerator {
 
 		// letzten Bitvektor speichern
 		if (lastRowkey != null) {
-			if (bitvector1.cardinality() >= MIN_CARD) {
+			if (bitvector1.size() >= MIN_CARD) {
 				storeBitvectorToHBase(tablename, curBitvectorName, bitvector1,
 						bitvector2, hTable);
 			}
@@ -180,7 +181,8 @@ public class BloomfilterGenerator {
 	 *             the unsupported encoding exception
 	 */
 	private static void addResultToBitSet(final Boolean twoBitvectors,
-			final BitSet bitvector1, final BitSet bitvector2, final Result res)
+			final Bitvector.Collector bitvector1,
+			final Bitvector.Collector bitvector2, final Result res)
 			throws UnsupportedEncodingException {
 		final byte[] bloomfilterColumn = "bloomfilter".getBytes();
 
@@ -192,7 +194,7 @@ public class BloomfilterGenerator {
 				// Bloomfilter
 				if (!Arrays.equals(entry, bloomfilterColumn)) {
 					final Integer position = byteArrayToInteger(entry);
-					bitvector1.set(position);
+					bitvector1.add(position);
 				}
 			}
 		}
@@ -206,7 +208,7 @@ public class BloomfilterGenerator {
 					// Bloomfilter
 					if (!Arrays.equals(entry, bloomfilterColumn)) {
 						final Integer position = byteArrayToInteger(entry);
-						bitvector2.set(position);
+						bitvector2.add(position);
 					}
 				}
 			}
@@ -241,33 +243,23 @@ public class BloomfilterGenerator {
 	 *             Signals that an I/O exception has occurred.
 	 */
 	private static void storeBitvectorToHBase(final String tablename, final byte[] rowkey,
-			final BitSet bitvector1, final BitSet bitvector2, final HTable table)
+			final Bitvector.Collector bitvector1,
+			final Bitvector.Collector bitvector2, final HTable table)
 			throws IOException {
 		// HTable table = new HTable(HBaseConnection.getConfiguration(),
 		// tablename);
 		final Put row = new Put(rowkey);
 		row.add(BitvectorManager.bloomfilter1ColumnFamily,
-				Bytes.toBytes("bloomfilter"), toByteArray(bitvector1));
-		if (bitvector2 != null) {
+				Bytes.toBytes("bloomfilter"), bitvector1.build().toByteArray());
+		if (bitvector2.size() > 0) {
 			row.add(BitvectorManager.bloomfilter2ColumnFamily,
-					Bytes.toBytes("bloomfilter"), toByteArray(bitvector2));
+					Bytes.toBytes("bloomfilter"), bitvector2.build().toByteArray());
 		}
 		table.put(row);
 		// table.close();
 		System.out.println("Tabelle : " + tablename + " RowKey: "
 				+ Bytes.toString(rowkey) + " Bitvector-Size: "
-				+ bitvector1.cardinality());
-	}
-
-	/**
-	 * To byte array.
-	 *
-	 * @param bits
-	 *            the bits
-	 * @return the byte[]
-	 */
-	public static byte[] toByteArray(final BitSet bits) {
-		return bits.toByteArray();
+				+ bitvector1.size());
 	}
 
 }
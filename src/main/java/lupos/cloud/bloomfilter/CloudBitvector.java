@@ -30,8 +30,11 @@ package lupos.cloud.bloomfilter;
  */
 public class CloudBitvector {
 
-	/** The row. */
-	String row;
+	/** The row (binär kodierter Rowkey). */
+	byte[] row;
+
+	/** Alle Unterzeilen, auf die die Zeile verteilt ist. */
+	byte[][] rows;
 
 	/** The column family. */
 	byte[] columnFamily;
@@ -52,16 +55,19 @@ public class CloudBitvector {
 	 *            the tablename
 	 * @param row
 	 *            the row
+	 * @param rows
+	 *            the rows
 	 * @param columnFamily
 	 *            the column family
 	 * @param patternId
 	 *            the pattern id
 	 */
-	public CloudBitvector(String tablename, String row, byte[] columnFamily,
-			Integer patternId) {
+	public CloudBitvector(String tablename, byte[] row, byte[][] rows,
+			byte[] columnFamily, Integer patternId) {
 		super();
 		this.tablename = tablename;
 		this.row = row;
+		this.rows = rows;
 		this.columnFamily = columnFamily;
 		this.patternId = patternId;
 		setId = 0;
@@ -81,10 +87,19 @@ public class CloudBitvector {
 	 * 
 	 * @return the row
 	 */
-	public String getRow() {
+	public byte[] getRow() {
 		return row;
 	}
 
+	/**
+	 * Gets the rows.
+	 * 
+	 * @return the rows
+	 */
+	public byte[][] getRows() {
+		return rows;
+	}
+
 	/**
 	 * Gets the tablename.
 	 * 
@@ -0,0 +1,664 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.bloomfilter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Komprimierte Bitmap nach dem Vorbild von Roaring-Bitmaps. Die Werte werden
+ * anhand ihrer oberen 16 Bit in Container aufgeteilt. Ein Container mit
+ * höchstens {@link #ARRAY_MAX} Werten speichert die unteren 16 Bit als
+ * sortiertes Array, größere Container als Bitmap mit 2^16 Bits. UND, ODER,
+ * Kardinalität und Zugehörigkeit werden direkt auf den Containern berechnet,
+ * ohne die Bitmap zu entpacken.
+ * 
+ * Es werden nur nicht negative Werte unterstützt.
+ */
+public class CompressedBitmap {
+
+	/** Größte Anzahl der Werte eines Array-Containers. */
+	public static final int ARRAY_MAX = 4096;
+
+	/** Typ eines Array-Containers in der Serialisierung. */
+	private static final byte ARRAY = 0;
+
+	/** Typ eines Bitmap-Containers in der Serialisierung. */
+	private static final byte BITMAP = 1;
+
+	/** Obere 16 Bit der Container (sortiert). */
+	private char[] keys;
+
+	/** Die Container. */
+	private Container[] containers;
+
+	/** Anzahl der Container. */
+	private int count = 0;
+
+	/**
+	 * Erzeugt eine leere Bitmap.
+	 */
+	public CompressedBitmap() {
+		this(4);
+	}
+
+	/**
+	 * Erzeugt eine leere Bitmap.
+	 * 
+	 * @param capacity
+	 *            erwartete Anzahl der Container
+	 */
+	private CompressedBitmap(final int capacity) {
+		this.keys = new char[Math.max(capacity, 1)];
+		this.containers = new Container[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Fügt einen Wert hinzu.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	public void add(final int value) {
+		final char high = (char) (value >>> 16);
+		final char low = (char) value;
+		int i = this.find(high);
+		if (i >= 0) {
+			this.containers[i] = this.containers[i].add(low);
+		} else {
+			i = -i - 1;
+			this.insert(i, high, new ArrayContainer().add(low));
+		}
+	}
+
+	/**
+	 * Prüft, ob ein Wert enthalten ist.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return true, if successful
+	 */
+	public boolean contains(final int value) {
+		final int i = this.find((char) (value >>> 16));
+		return i >= 0 && this.containers[i].contains((char) value);
+	}
+
+	/**
+	 * Anzahl der Werte.
+	 * 
+	 * @return the int
+	 */
+	public int cardinality() {
+		int result = 0;
+		for (int i = 0; i < this.count; i++) {
+			result += this.containers[i].cardinality();
+		}
+		return result;
+	}
+
+	/**
+	 * Geschätzte Größe im Speicher in Bytes.
+	 * 
+	 * @return the long
+	 */
+	public long getMemorySize() {
+		long result = 32 + this.keys.length * 2 + this.containers.length * 8;
+		for (int i = 0; i < this.count; i++) {
+			result += this.containers[i].getMemorySize();
+		}
+		return result;
+	}
+
+	/**
+	 * Liefert den kleinsten Wert, der größer oder gleich from ist.
+	 * 
+	 * @param from
+	 *            the from (nicht negativ)
+	 * @return der Wert oder -1, falls es keinen gibt
+	 */
+	public int nextSetBit(final int from) {
+		int i = this.find((char) (from >>> 16));
+		if (i >= 0) {
+			final int low = this.containers[i].next(from & 0xFFFF);
+			if (low >= 0) {
+				return (this.keys[i] << 16) | low;
+			}
+			i++;
+		} else {
+			i = -i - 1;
+		}
+		if (i < this.count) {
+			return (this.keys[i] << 16) | this.containers[i].next(0);
+		}
+		return -1;
+	}
+
+	/**
+	 * UND-Verknüpfung zweier Bitmaps (die Eingaben bleiben unverändert).
+	 * 
+	 * @param other
+	 *            the other
+	 * @return das Ergebnis
+	 */
+	public CompressedBitmap and(final CompressedBitmap other) {
+		final CompressedBitmap result = new CompressedBitmap(Math.min(
+				this.count, other.count));
+		int i = 0;
+		int j = 0;
+		while (i < this.count && j < other.count) {
+			if (this.keys[i] < other.keys[j]) {
+				i++;
+			} else if (this.keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				final Container c = this.containers[i]
+						.and(other.containers[j]);
+				if (c != null) {
+					result.append(this.keys[i], c);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * ODER-Verknüpfung zweier Bitmaps (die Eingaben bleiben unverändert).
+	 * 
+	 * @param other
+	 *            the other
+	 * @return das Ergebnis
+	 */
+	public CompressedBitmap or(final CompressedBitmap other) {
+		final CompressedBitmap result = new CompressedBitmap(this.count
+				+ other.count);
+		int i = 0;
+		int j = 0;
+		while (i < this.count || j < other.count) {
+			if (j == other.count
+					|| (i < this.count && this.keys[i] < other.keys[j])) {
+				result.append(this.keys[i], this.containers[i].copy());
+				i++;
+			} else if (i == this.count || this.keys[i] > other.keys[j]) {
+				result.append(other.keys[j], other.containers[j].copy());
+				j++;
+			} else {
+				result.append(this.keys[i],
+						this.containers[i].or(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Faltet die Bitmap auf eine kleinere Zweierpotenz: jeder Wert v wird zu
+	 * v & (size - 1). Ab 2^16 werden ganze Container zusammengefasst.
+	 * 
+	 * @param size
+	 *            die neue Größe (Zweierpotenz)
+	 * @return das Ergebnis (die Eingabe bleibt unverändert)
+	 */
+	public CompressedBitmap fold(final int size) {
+		if (size >= 1 << 16) {
+			final int mask = (size >>> 16) - 1;
+			final CompressedBitmap result = new CompressedBitmap(Math.min(
+					this.count, mask + 1));
+			for (int i = 0; i < this.count; i++) {
+				final char high = (char) (this.keys[i] & mask);
+				final int pos = result.find(high);
+				if (pos >= 0) {
+					result.containers[pos] = result.containers[pos]
+							.or(this.containers[i]);
+				} else {
+					result.insert(-pos - 1, high, this.containers[i].copy());
+				}
+			}
+			return result;
+		}
+		final CompressedBitmap result = new CompressedBitmap(1);
+		for (int v = this.nextSetBit(0); v >= 0; v = this.nextSetBit(v + 1)) {
+			result.add(v & (size - 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Serialisiert die Bitmap.
+	 * 
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void write(final DataOutput out) throws IOException {
+		out.writeInt(this.count);
+		for (int i = 0; i < this.count; i++) {
+			out.writeChar(this.keys[i]);
+			this.containers[i].write(out);
+		}
+	}
+
+	/**
+	 * Liest eine serialisierte Bitmap.
+	 * 
+	 * @param in
+	 *            the in
+	 * @return the compressed bitmap
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static CompressedBitmap read(final DataInput in)
+			throws IOException {
+		final int count = in.readInt();
+		final CompressedBitmap result = new CompressedBitmap(count);
+		for (int i = 0; i < count; i++) {
+			final char key = in.readChar();
+			final byte type = in.readByte();
+			final int cardinality = in.readInt();
+			if (type == ARRAY) {
+				final char[] values = new char[Math.max(cardinality, 4)];
+				for (int j = 0; j < cardinality; j++) {
+					values[j] = in.readChar();
+				}
+				result.append(key, new ArrayContainer(values, cardinality));
+			} else if (type == BITMAP) {
+				final long[] words = new long[1024];
+				for (int j = 0; j < words.length; j++) {
+					words[j] = in.readLong();
+				}
+				result.append(key, new BitmapContainer(words, cardinality));
+			} else {
+				throw new IOException("Unknown container type " + type);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Binäre Suche nach einem Container.
+	 * 
+	 * @return Index des Containers oder -(Einfügeposition) - 1
+	 */
+	private int find(final char high) {
+		int lo = 0;
+		int hi = this.count - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (this.keys[mid] < high) {
+				lo = mid + 1;
+			} else if (this.keys[mid] > high) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(lo + 1);
+	}
+
+	/**
+	 * Fügt einen Container an der Position ein.
+	 */
+	private void insert(final int pos, final char high, final Container c) {
+		this.ensureCapacity(this.count + 1);
+		System.arraycopy(this.keys, pos, this.keys, pos + 1, this.count - pos);
+		System.arraycopy(this.containers, pos, this.containers, pos + 1,
+				this.count - pos);
+		this.keys[pos] = high;
+		this.containers[pos] = c;
+		this.count++;
+	}
+
+	/**
+	 * Hängt einen Container mit größerem Schlüssel an.
+	 */
+	private void append(final char high, final Container c) {
+		this.ensureCapacity(this.count + 1);
+		this.keys[this.count] = high;
+		this.containers[this.count] = c;
+		this.count++;
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (capacity > this.keys.length) {
+			final int newLength = Math.max(capacity, this.keys.length * 2);
+			this.keys = Arrays.copyOf(this.keys, newLength);
+			this.containers = Arrays.copyOf(this.containers, newLength);
+		}
+	}
+
+	/**
+	 * Container für die unteren 16 Bit der Werte mit gleichen oberen 16 Bit.
+	 * {@link #add(char)} verändert den Container, alle übrigen Operationen
+	 * erzeugen neue Container.
+	 */
+	private abstract static class Container {
+
+		/**
+		 * Fügt einen Wert hinzu.
+		 * 
+		 * @return der Container (ggf. ein umgewandelter)
+		 */
+		abstract Container add(char value);
+
+		abstract boolean contains(char value);
+
+		abstract int cardinality();
+
+		/**
+		 * Kleinster Wert größer oder gleich from, -1 falls es keinen gibt.
+		 */
+		abstract int next(int from);
+
+		/**
+		 * UND-Verknüpfung, null falls das Ergebnis leer ist.
+		 */
+		abstract Container and(Container other);
+
+		abstract Container or(Container other);
+
+		abstract Container copy();
+
+		abstract long getMemorySize();
+
+		abstract void write(DataOutput out) throws IOException;
+	}
+
+	/**
+	 * Container mit einem sortierten Array der Werte.
+	 */
+	private static class ArrayContainer extends Container {
+
+		private char[] values;
+
+		private int cardinality;
+
+		ArrayContainer() {
+			this(new char[4], 0);
+		}
+
+		ArrayContainer(final char[] values, final int cardinality) {
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(final char value) {
+			int pos = Arrays.binarySearch(this.values, 0, this.cardinality,
+					value);
+			if (pos >= 0) {
+				return this;
+			}
+			if (this.cardinality == ARRAY_MAX) {
+				return this.toBitmap().add(value);
+			}
+			pos = -pos - 1;
+			if (this.cardinality == this.values.length) {
+				this.values = Arrays.copyOf(this.values, Math.min(ARRAY_MAX,
+						this.values.length * 2));
+			}
+			System.arraycopy(this.values, pos, this.values, pos + 1,
+					this.cardinality - pos);
+			this.values[pos] = value;
+			this.cardinality++;
+			return this;
+		}
+
+		@Override
+		boolean contains(final char value) {
+			return Arrays.binarySearch(this.values, 0, this.cardinality, value) >= 0;
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		int next(final int from) {
+			int pos = Arrays.binarySearch(this.values, 0, this.cardinality,
+					(char) from);
+			if (pos < 0) {
+				pos = -pos - 1;
+			}
+			return pos < this.cardinality ? this.values[pos] : -1;
+		}
+
+		@Override
+		Container and(final Container other) {
+			final char[] result = new char[Math.max(
+					Math.min(this.cardinality, other.cardinality()), 1)];
+			int n = 0;
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer o = (ArrayContainer) other;
+				int i = 0;
+				int j = 0;
+				while (i < this.cardinality && j < o.cardinality) {
+					if (this.values[i] < o.values[j]) {
+						i++;
+					} else if (this.values[i] > o.values[j]) {
+						j++;
+					} else {
+						result[n++] = this.values[i];
+						i++;
+						j++;
+					}
+				}
+			} else {
+				for (int i = 0; i < this.cardinality; i++) {
+					if (other.contains(this.values[i])) {
+						result[n++] = this.values[i];
+					}
+				}
+			}
+			return n == 0 ? null : new ArrayContainer(result, n);
+		}
+
+		@Override
+		Container or(final Container other) {
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+			final ArrayContainer o = (ArrayContainer) other;
+			if (this.cardinality + o.cardinality > ARRAY_MAX) {
+				return this.toBitmap().or(o);
+			}
+			final char[] result = new char[Math.max(this.cardinality
+					+ o.cardinality, 4)];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < this.cardinality || j < o.cardinality) {
+				if (j == o.cardinality
+						|| (i < this.cardinality && this.values[i] < o.values[j])) {
+					result[n++] = this.values[i++];
+				} else if (i == this.cardinality
+						|| this.values[i] > o.values[j]) {
+					result[n++] = o.values[j++];
+				} else {
+					result[n++] = this.values[i];
+					i++;
+					j++;
+				}
+			}
+			return new ArrayContainer(result, n);
+		}
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(this.values,
+					Math.max(this.cardinality, 4)), this.cardinality);
+		}
+
+		@Override
+		long getMemorySize() {
+			return 32 + this.values.length * 2;
+		}
+
+		@Override
+		void write(final DataOutput out) throws IOException {
+			out.writeByte(ARRAY);
+			out.writeInt(this.cardinality);
+			for (int i = 0; i < this.cardinality; i++) {
+				out.writeChar(this.values[i]);
+			}
+		}
+
+		private BitmapContainer toBitmap() {
+			final BitmapContainer result = new BitmapContainer(new long[1024],
+					0);
+			for (int i = 0; i < this.cardinality; i++) {
+				result.add(this.values[i]);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Container mit einer Bitmap über alle 2^16 Werte.
+	 */
+	private static class BitmapContainer extends Container {
+
+		private final long[] words;
+
+		private int cardinality;
+
+		BitmapContainer(final long[] words, final int cardinality) {
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(final char value) {
+			final long bit = 1L << value;
+			if ((this.words[value >>> 6] & bit) == 0) {
+				this.words[value >>> 6] |= bit;
+				this.cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(final char value) {
+			return (this.words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		int next(final int from) {
+			int i = from >>> 6;
+			if (i >= this.words.length) {
+				return -1;
+			}
+			long word = this.words[i] & (-1L << from);
+			while (true) {
+				if (word != 0) {
+					return (i << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if (++i == this.words.length) {
+					return -1;
+				}
+				word = this.words[i];
+			}
+		}
+
+		@Override
+		Container and(final Container other) {
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+			final BitmapContainer o = (BitmapContainer) other;
+			final long[] result = new long[1024];
+			int n = 0;
+			for (int i = 0; i < result.length; i++) {
+				result[i] = this.words[i] & o.words[i];
+				n += Long.bitCount(result[i]);
+			}
+			if (n == 0) {
+				return null;
+			}
+			if (n > ARRAY_MAX) {
+				return new BitmapContainer(result, n);
+			}
+			final char[] values = new char[n];
+			int pos = 0;
+			for (int i = 0; i < result.length; i++) {
+				long word = result[i];
+				while (word != 0) {
+					values[pos++] = (char) ((i << 6) + Long
+							.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, n);
+		}
+
+		@Override
+		Container or(final Container other) {
+			final BitmapContainer result = (BitmapContainer) this.copy();
+			if (other instanceof ArrayContainer) {
+				final ArrayContainer o = (ArrayContainer) other;
+				for (int i = 0; i < o.cardinality; i++) {
+					result.add(o.values[i]);
+				}
+			} else {
+				final BitmapContainer o = (BitmapContainer) other;
+				int n = 0;
+				for (int i = 0; i < result.words.length; i++) {
+					result.words[i] |= o.words[i];
+					n += Long.bitCount(result.words[i]);
+				}
+				result.cardinality = n;
+			}
+			return result;
+		}
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(this.words.clone(), this.cardinality);
+		}
+
+		@Override
+		long getMemorySize() {
+			return 32 + this.words.length * 8;
+		}
+
+		@Override
+		void write(final DataOutput out) throws IOException {
+			out.writeByte(BITMAP);
+			out.writeInt(this.cardinality);
+			for (final long word : this.words) {
+				out.writeLong(word);
+			}
+		}
+	}
+}
@@ -27,9 +27,9 @@ import java.io.IOException;
 
 import lupos.cloud.bloomfilter.BitvectorManager;
 import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.JobOrchestrator;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.BinaryComparator;
 import org.apache.hadoop.hbase.filter.QualifierFilter;
@@ -39,31 +39,23 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.mapreduce.Job;
 
 /**
- * Für jede Tabelle wird ein eigener Thread erzeugt der für die
- * Byte-Bitvektorgeneierung zuständig ist.
+ * Für jede Tabelle wird ein eigener Job erzeugt der für die
+ * Byte-Bitvektorgeneierung zuständig ist (siehe {@link JobOrchestrator}).
  */
-public class BVJobThread extends Thread {
+public class BVJob extends JobOrchestrator.JobTask {
 
 	/** Tabellenname. */
 	private String tablename;
 
-	/** MapReduce-Job Referenz. */
-	private Job job;
-
-	/** Status des Jobs. */
-	private boolean finished = false;
-
 	/**
-	 * Instantiates a new bV job thread.
+	 * Instantiates a new bV job.
 	 * 
 	 * @param tablename
 	 *            the tablename
-	 * @throws IOException
-	 *             Signals that an I/O exception has occurred.
 	 */
-	public BVJobThread(String tablename) throws IOException {
+	public BVJob(String tablename) {
+		super("MR_BV_ " + tablename);
 		this.tablename = tablename;
-		createJob();
 	}
 
 	/**
@@ -72,9 +64,10 @@ public class BVJobThread extends Thread {
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private void createJob() throws IOException {
+	@Override
+	protected Job createJob() throws IOException {
 		Configuration config = HBaseConnection.getConfiguration();
-		job = new Job(config, "MR_BV_ " + tablename);
+		Job job = new Job(config, getName());
 
 		Scan scan = new Scan();
 		int caching = BloomfilterGeneratorMR.CACHING;
@@ -101,43 +94,17 @@ public class BVJobThread extends Thread {
 				null, // reducer class
 				job);
 		job.setNumReduceTasks(0); // kein Reduce Task notwendig
-	}
-
-	/**
-	 * Thread run() Method.
-	 * 
-	 */
-
-	public void run() {
-		try {
-			this.job.waitForCompletion(true);
-			this.finished = true;
-
-		} catch (TableNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-	}
-
-	/**
-	 * Gets the job.
-	 * 
-	 * @return the job
-	 */
-	public Job getJob() {
 		return job;
 	}
 
-	/**
-	 * Checks if is finished.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @return true, if is finished
+	 * @see lupos.cloud.hbase.JobOrchestrator.JobTask#getCounterGroup()
 	 */
-	public boolean isFinished() {
-		return finished;
+	@Override
+	protected String getCounterGroup() {
+		return "MyMapper";
 	}
 
 	/**
@@ -25,9 +25,13 @@ package lupos.cloud.bloomfilter.mapreduce;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.Future;
 
 import lupos.cloud.hbase.HBaseConnection;
 import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.JobOrchestrator;
+
+import org.apache.hadoop.mapreduce.Counters;
 
 /**
  * * Mit Hilfe dieser Klasse wird die Byte-Bitvektorgeneierung gestartet. Die
@@ -67,48 +71,25 @@ public class BloomfilterGeneratorMR {
 			InterruptedException, ClassNotFoundException {
 		System.out.println("Starts with b: " + BATCH + " c: " + CACHING);
 		HBaseConnection.init();
-		ArrayList<BVJobThread> jobList = new ArrayList<BVJobThread>();
+		ArrayList<Future<Counters>> jobList = new ArrayList<Future<Counters>>();
 
 		long startTime = System.currentTimeMillis();
 
 		String[] tables = HBaseDistributionStrategy.getTableInstance()
 				.getTableNames();
 
-
 		for (String tablename : tables) {
 			System.out.println("Aktuelle Tabelle: " + tablename);
-			BVJobThread curJob = new BVJobThread(tablename);
-			jobList.add(curJob);
-			curJob.start();
-
+			jobList.add(JobOrchestrator.getInstance().submit(
+					new BVJob(tablename)));
 		}
 
 		System.out.println("Warte bis alle Jobs abgeschlossen sind ...");
-		for (BVJobThread job : jobList) {
-			while (!job.isFinished()) {
-				sleep(2000);
-			}
-			System.out.println(job.getTablename() + " ist fertig");
-		}
+		JobOrchestrator.awaitAll(jobList);
 
 		long stopTime = System.currentTimeMillis();
 		System.out.println("Bitvektor Generierung beendet." + " Dauer: "
 				+ (stopTime - startTime) / 1000 + "s");
 	}
 
-	/**
-	 * Sleep.
-	 * 
-	 * @param time
-	 *            the time
-	 */
-	private static void sleep(int time) {
-		try {
-			Thread.sleep(time);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-	}
-
 }
@@ -27,9 +27,9 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.NavigableMap;
 
+import lupos.cloud.bloomfilter.Bitvector;
 import lupos.cloud.bloomfilter.BitvectorManager;
 
 import org.apache.hadoop.hbase.client.Put;
@@ -37,7 +37,6 @@ import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapper;
 import org.apache.hadoop.hbase.util.Bytes;
-import org.xerial.snappy.Snappy;
 
 /**
  * Innerhalb dieser Mapper-Klasse befindet sich die eigentliche Logik zum
@@ -47,18 +46,20 @@ import org.xerial.snappy.Snappy;
  * werden kann müssen die verschiedenen "batches" addiert werden und danach
  * erfolgt dann die Üebrprüfung ob die Reihe die Bedingung erfüllt. Ist die
  * Anzahl der Reihen kleiner als die maximale Anzahl Batch-Anzahl wird die Reihe
- * sofort verworfen.
+ * sofort verworfen. Die Fingerabdrücke einer Reihe werden gesammelt und erst
+ * beim Speichern in einen anhand ihrer Anzahl dimensionierten
+ * {@link Bitvector} überführt.
  */
 public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 
 	/** Rowkey des letzten Durchlaufs. */
 	byte[] lastRowkey = null;
 
-	/** Bitvektor des ersten Elements. */
-	BitSet bitvector1 = new BitSet(BitvectorManager.VECTORSIZE);
+	/** Fingerabdrücke des ersten Elements. */
+	Bitvector.Collector bitvector1 = new Bitvector.Collector();
 
-	/** Bitvektor des zweiten Elements. */
-	BitSet bitvector2 = new BitSet(BitvectorManager.VECTORSIZE);
+	/** Fingerabdrücke des zweiten Elements. */
+	Bitvector.Collector bitvector2 = new Bitvector.Collector();
 
 	/** Rowkey, für den der BV gespeichert werden oll */
 	byte[] curBitvectorName = null;
@@ -89,9 +90,7 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 
 		// Speichere Bitvektoren
 		if (this.lastRowkey != null && !Arrays.equals(this.lastRowkey, res.getRow())) {
-			if (this.bitvector1.cardinality() >= BloomfilterGeneratorMR.MIN_CARD) {
-				final NavigableMap<byte[], byte[]> cfResults = res
-						.getFamilyMap(BitvectorManager.bloomfilter1ColumnFamily);
+			if (this.bitvector1.size() >= BloomfilterGeneratorMR.MIN_CARD) {
 				// store bitvectors
 				this.storeBitvectorToHBase(this.curBitvectorName, this.bitvector1, this.bitvector2,
 						context);
@@ -100,7 +99,6 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 			this.reset = true;
 		}
 
-		final String curKey = Bytes.toString(res.getRow());
 		if (this.reset) {
 			this.curBitvectorName = res.getRow();
 			this.bitvector1.clear();
@@ -108,11 +106,10 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 			this.reset = false;
 		}
 
-		if (curKey.contains(",")) {
-			addResultToBitSet(false, this.bitvector1, this.bitvector2, res, context);
-		} else {
-			addResultToBitSet(true, this.bitvector1, this.bitvector2, res, context);
-		}
+		// Bitvektor 2 ist nur gefüllt, wenn die Spaltennamen aus zwei
+		// Elementen bestehen (unabhängig vom Aufbau des Rowkeys, ein Graph der
+		// Quad-Strategie zählt nicht mit)
+		addResultToBitSet(this.bitvector1, this.bitvector2, res, context);
 
 		this.lastRowkey = res.getRow();
 	}
@@ -140,7 +137,8 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 	}
 
 	/**
-	 * Speichert den Bitvektor (komprimiert mit Snappy) in HBase ab.
+	 * Speichert den Bitvektor (siehe {@link Bitvector#toByteArray()}) in HBase
+	 * ab.
 	 *
 	 * @param curBitvectorName2
 	 *            the cur bitvector name2
@@ -156,19 +154,20 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 	 *             the interrupted exception
 	 */
 	private void storeBitvectorToHBase(final byte[] curBitvectorName2,
-			final BitSet bitvector1, final BitSet bitvector2, final Context context)
+			final Bitvector.Collector bitvector1,
+			final Bitvector.Collector bitvector2, final Context context)
 			throws IOException, InterruptedException {
 		final Put row = new Put(curBitvectorName2);
 
 		row.setWriteToWAL(false);
 
-		final byte[] compressedBitvector1 = Snappy.compress(toByteArray(bitvector1));
+		final byte[] compressedBitvector1 = bitvector1.build().toByteArray();
 		row.add(BitvectorManager.bloomfilter1ColumnFamily,
 				Bytes.toBytes("bloomfilter"), compressedBitvector1);
 
-		if (bitvector2.cardinality() > 0) {
-			final byte[] compressedBitvector2 = Snappy
-					.compress(toByteArray(bitvector2));
+		if (bitvector2.size() > 0) {
+			final byte[] compressedBitvector2 = bitvector2.build()
+					.toByteArray();
 			row.add(BitvectorManager.bloomfilter2ColumnFamily,
 					Bytes.toBytes("bloomfilter"), compressedBitvector2);
 		}
@@ -179,10 +178,8 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 	}
 
 	/**
-	 * Setzt die Indizes der jeweiligen Zeile im aktuellen Bitvektor.
+	 * Sammelt die Fingerabdrücke der jeweiligen Zeile.
 	 *
-	 * @param twoBitvectors
-	 *            the two bitvectors
 	 * @param bitvector1
 	 *            the bitvector1
 	 * @param bitvector2
@@ -194,8 +191,9 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 	 * @throws UnsupportedEncodingException
 	 *             the unsupported encoding exception
 	 */
-	private static void addResultToBitSet(final Boolean twoBitvectors,
-			final BitSet bitvector1, final BitSet bitvector2, final Result res, final Context context)
+	private static void addResultToBitSet(final Bitvector.Collector bitvector1,
+			final Bitvector.Collector bitvector2, final Result res,
+			final Context context)
 			throws UnsupportedEncodingException {
 		final byte[] bloomfilterColumn = "bloomfilter".getBytes();
 
@@ -207,7 +205,7 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 				// Bloomfilter
 				if (!Arrays.equals(entry, bloomfilterColumn)) {
 					final Integer position = byteArrayToInteger(entry);
-					bitvector1.set(position);
+					bitvector1.add(position);
 				} else {
 					context.getCounter("MyMapper", "BITVECTOR_EXIST_ALREADY")
 							.increment(1);
@@ -216,35 +214,21 @@ public class MyMapper extends TableMapper<ImmutableBytesWritable, Put> {
 		}
 
 		// Bitvektor 2
-		if (twoBitvectors) {
-			cfResults = res
-					.getFamilyMap(BitvectorManager.bloomfilter2ColumnFamily);
-			if (cfResults != null) {
-				for (final byte[] entry : cfResults.keySet()) {
-					// Bloomfilter
-					if (!Arrays.equals(entry, bloomfilterColumn)) {
-						final Integer position = byteArrayToInteger(entry);
-						bitvector2.set(position);
-					} else {
-						context.getCounter("MyMapper",
-								"BITVECTOR_EXIST_ALREADY").increment(1);
-					}
+		cfResults = res.getFamilyMap(BitvectorManager.bloomfilter2ColumnFamily);
+		if (cfResults != null) {
+			for (final byte[] entry : cfResults.keySet()) {
+				// Bloomfilter
+				if (!Arrays.equals(entry, bloomfilterColumn)) {
+					final Integer position = byteArrayToInteger(entry);
+					bitvector2.add(position);
+				} else {
+					context.getCounter("MyMapper", "BITVECTOR_EXIST_ALREADY")
+							.increment(1);
 				}
 			}
 		}
 	}
 
-	/**
-	 * BitSet -> ByteArray
-	 *
-	 * @param bits
-	 *            the bits
-	 * @return the byte[]
-	 */
-	public static byte[] toByteArray(final BitSet bits) {
-		return bits.toByteArray();
-	}
-
 	/**
 	 * ByteArray -> BitSet.
 	 *
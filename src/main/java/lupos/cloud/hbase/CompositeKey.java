@@ -0,0 +1,403 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Binäre Kodierung zusammengesetzter Rowkeys und Spaltennamen (z.B. "s,p" in
+ * der Tabelle sp_o). Einzelne Elemente werden unverändert als UTF-8 Bytes
+ * gespeichert. Bei mehreren Elementen beginnt der Schlüssel mit dem Byte 0x00,
+ * danach folgt jedes Element mit vorangestellter Länge (VarInt). Im Gegensatz
+ * zum früheren Trennzeichen "," ist die Kodierung für beliebige Literale
+ * eindeutig und kann mit dem {@link Cursor} ohne String-Erzeugung gelesen
+ * werden.
+ */
+public final class CompositeKey {
+
+	/** Kennzeichnet einen zusammengesetzten Schlüssel. */
+	public static final byte MARKER = 0x00;
+
+	/** UTF-8 Zeichensatz. */
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private CompositeKey() {
+	}
+
+	/**
+	 * Gibt die (exklusive) Stop-Row zurück, mit der ein Scan genau die Zeile
+	 * row liefert. Das ist der kleinste Schlüssel, der größer als row ist.
+	 *
+	 * @param row
+	 *            the row
+	 * @return the stop row
+	 */
+	public static byte[] getStopRow(final byte[] row) {
+		return Arrays.copyOf(row, row.length + 1);
+	}
+
+	/**
+	 * Gibt die (exklusive) Stop-Row zurück, mit der ein Scan genau die Zeilen
+	 * liefert, die mit prefix beginnen.
+	 *
+	 * @param prefix
+	 *            the prefix
+	 * @return the prefix stop row (leer, falls bis zum Tabellenende gelesen
+	 *         werden muss)
+	 */
+	public static byte[] getPrefixStopRow(final byte[] prefix) {
+		for (int i = prefix.length - 1; i >= 0; i--) {
+			if (prefix[i] != (byte) 0xFF) {
+				final byte[] result = Arrays.copyOf(prefix, i + 1);
+				result[i]++;
+				return result;
+			}
+		}
+		return new byte[0];
+	}
+
+	/**
+	 * Kodiert die Elemente eines Schlüssels.
+	 *
+	 * @param elements
+	 *            the elements
+	 * @return the byte[]
+	 */
+	public static byte[] encode(final String... elements) {
+		if (elements.length == 1) {
+			return elements[0].getBytes(UTF8);
+		}
+		return encodeComposite(elements);
+	}
+
+	/**
+	 * Kodiert die Elemente immer in der zusammengesetzten Form (auch bei nur
+	 * einem Element). Die Kodierung von (e1, ..., en) ist damit ein Präfix der
+	 * Kodierung von (e1, ..., en, x) und kann für Präfix-Scans genutzt werden.
+	 *
+	 * @param elements
+	 *            the elements
+	 * @return the byte[]
+	 */
+	public static byte[] encodeComposite(final String... elements) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(MARKER);
+		for (final String element : elements) {
+			final byte[] bytes = element.getBytes(UTF8);
+			writeElement(out, bytes, 0, bytes.length);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Schreibt ein Element mit vorangestellter Länge.
+	 *
+	 * @param out
+	 *            the out
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 */
+	public static void writeElement(final ByteArrayOutputStream out,
+			final byte[] buf, final int off, final int len) {
+		int value = len;
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+		out.write(buf, off, len);
+	}
+
+	/**
+	 * Schreibt einen zusammengesetzten Schlüssel ohne seine ersten Elemente
+	 * (mit vorangestellter Länge) in den Puffer. Das Ergebnis ist wieder ein
+	 * zusammengesetzter Schlüssel, der nur die restlichen Elemente enthält.
+	 *
+	 * @param out
+	 *            the out
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @param prefixLength
+	 *            Länge des zu entfernenden Präfixes (inkl. Markierung), siehe
+	 *            {@link #encodeComposite(String...)}
+	 */
+	public static void writeCompositeSuffix(final ByteArrayOutputStream out,
+			final byte[] buf, final int off, final int len,
+			final int prefixLength) {
+		int value = len - prefixLength + 1;
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+		out.write(MARKER);
+		out.write(buf, off + prefixLength, len - prefixLength);
+	}
+
+	/**
+	 * Gibt die Position zurück, an der das letzte Element eines
+	 * zusammengesetzten Schlüssels (mit vorangestellter Länge) beginnt. Der
+	 * Bereich von off bis zu dieser Position ist wieder ein zusammengesetzter
+	 * Schlüssel ohne das letzte Element.
+	 *
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @param cursor
+	 *            Cursor, der danach auf dem letzten Element steht
+	 * @return the position
+	 */
+	public static int getLastElementStart(final byte[] buf, final int off,
+			final int len, final Cursor cursor) {
+		cursor.reset(buf, off, len);
+		int elementStart = off + 1;
+		int result = elementStart;
+		while (cursor.next()) {
+			result = elementStart;
+			elementStart = cursor.getOffset() + cursor.getLength();
+		}
+		return result;
+	}
+
+	/**
+	 * Prüft ob der Schlüssel aus mehreren Elementen besteht.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if is composite
+	 */
+	public static boolean isComposite(final byte[] key) {
+		return isComposite(key, 0);
+	}
+
+	/**
+	 * Prüft ob der ab offset beginnende Schlüssel aus mehreren Elementen
+	 * besteht (z.B. hinter einem Salt).
+	 *
+	 * @param key
+	 *            the key
+	 * @param offset
+	 *            the offset
+	 * @return true, if is composite
+	 */
+	public static boolean isComposite(final byte[] key, final int offset) {
+		return key.length > offset && key[offset] == MARKER;
+	}
+
+	/**
+	 * Dekodiert alle Elemente eines Schlüssels.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the string[]
+	 */
+	public static String[] decode(final byte[] key) {
+		final ArrayList<String> result = new ArrayList<String>(2);
+		final Cursor cursor = new Cursor().reset(key, 0, key.length);
+		while (cursor.next()) {
+			result.add(cursor.getString());
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Wandelt einen Schlüssel in eine Zeichenkette um, die als Parameter einer
+	 * Pig UDF übergeben werden kann.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the string
+	 */
+	public static String toArgument(final byte[] key) {
+		return new String(Base64.encodeBase64(key), UTF8);
+	}
+
+	/**
+	 * Gegenstück zu {@link #toArgument(byte[])}.
+	 *
+	 * @param argument
+	 *            the argument
+	 * @return the byte[]
+	 */
+	public static byte[] fromArgument(final String argument) {
+		return Base64.decodeBase64(argument.getBytes(UTF8));
+	}
+
+	/**
+	 * Liest die Elemente eines Schlüssels bzw. einer Liste von Schlüsseln
+	 * direkt aus dem Byte-Array, ohne Kopien oder Strings zu erzeugen. Eine
+	 * Instanz kann für beliebig viele Schlüssel wiederverwendet werden.
+	 */
+	public static final class Cursor {
+
+		/** The buffer. */
+		private byte[] buf;
+
+		/** Aktuelle Leseposition. */
+		private int pos;
+
+		/** Ende (exklusiv). */
+		private int end;
+
+		/** Schlüssel ohne Längenangaben (genau ein Element). */
+		private boolean single;
+
+		/** Start des aktuellen Elements. */
+		private int offset;
+
+		/** Länge des aktuellen Elements. */
+		private int length;
+
+		/**
+		 * Setzt den Cursor auf einen Schlüssel.
+		 *
+		 * @param buffer
+		 *            the buffer
+		 * @param off
+		 *            the off
+		 * @param len
+		 *            the len
+		 * @return the cursor
+		 */
+		public Cursor reset(final byte[] buffer, final int off, final int len) {
+			this.buf = buffer;
+			this.end = off + len;
+			if (len > 0 && buffer[off] == MARKER) {
+				this.pos = off + 1;
+				this.single = false;
+			} else {
+				this.pos = off;
+				this.single = true;
+			}
+			return this;
+		}
+
+		/**
+		 * Setzt den Cursor auf eine Liste von Einträgen, die jeweils mit
+		 * vorangestellter Länge geschrieben wurden (siehe
+		 * {@link CompositeKey#writeElement(ByteArrayOutputStream, byte[], int, int)}
+		 * ).
+		 *
+		 * @param buffer
+		 *            the buffer
+		 * @param off
+		 *            the off
+		 * @param len
+		 *            the len
+		 * @return the cursor
+		 */
+		public Cursor resetList(final byte[] buffer, final int off,
+				final int len) {
+			this.buf = buffer;
+			this.pos = off;
+			this.end = off + len;
+			this.single = false;
+			return this;
+		}
+
+		/**
+		 * Springt zum nächsten Element.
+		 *
+		 * @return true, falls ein weiteres Element vorhanden ist
+		 */
+		public boolean next() {
+			if (this.pos >= this.end) {
+				return false;
+			}
+			if (this.single) {
+				this.offset = this.pos;
+				this.length = this.end - this.pos;
+				this.pos = this.end;
+				return true;
+			}
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.buf[this.pos++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			this.offset = this.pos;
+			this.length = value;
+			this.pos += value;
+			return true;
+		}
+
+		/**
+		 * Gets the buffer.
+		 *
+		 * @return the buffer
+		 */
+		public byte[] getBuffer() {
+			return this.buf;
+		}
+
+		/**
+		 * Gets the offset.
+		 *
+		 * @return the offset
+		 */
+		public int getOffset() {
+			return this.offset;
+		}
+
+		/**
+		 * Gets the length.
+		 *
+		 * @return the length
+		 */
+		public int getLength() {
+			return this.length;
+		}
+
+		/**
+		 * Erzeugt einen String aus dem aktuellen Element.
+		 *
+		 * @return the string
+		 */
+		public String getString() {
+			return new String(this.buf, this.offset, this.length, UTF8);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import lupos.datastructures.items.Triple;
+
+/**
+ * Variante der Hexa-Strategie, bei der statt der vollständigen N3-Terme nur
+ * IDs fester Breite aus dem {@link HBaseDictionary} in den sechs Tabellen
+ * gespeichert werden. Dadurch werden die Tabellen deutlich kleiner und es
+ * werden beim Scannen und bei den Pig Joins weniger Bytes bewegt. Das
+ * Wörterbuch wird nur beim Binden von Literalen in Anfragen und beim Dekodieren
+ * der Ergebnisse benötigt.
+ */
+public class DictionaryDistributionTableStrategy extends
+		HexaDistributionTableStrategy {
+
+	/** The Constant STRAGEGY_ID. */
+	public static final int STRAGEGY_ID = 3;
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see lupos.cloud.hbase.HBaseDistributionStrategy#createTables()
+	 */
+	@Override
+	public void createTables() throws IOException {
+		super.createTables();
+		HBaseDictionary.createTables();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#prepareBlock(java.util.Collection
+	 * )
+	 */
+	@Override
+	public void prepareBlock(final Collection<Triple> triples) {
+		try {
+			HBaseDictionary.encodeAll(collectTerms(triples));
+		} catch (final IOException e) {
+			throw new RuntimeException("Wörterbuch nicht erreichbar", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#prepareLookupBlock(java.util
+	 * .Collection)
+	 */
+	@Override
+	public void prepareLookupBlock(final Collection<Triple> triples) {
+		try {
+			HBaseDictionary.lookupAll(collectTerms(triples));
+		} catch (final IOException e) {
+			throw new RuntimeException("Wörterbuch nicht erreichbar", e);
+		}
+	}
+
+	/**
+	 * Gibt die Terme aller Tripel eines Blocks zurück.
+	 *
+	 * @param triples
+	 *            the triples
+	 * @return the terms
+	 */
+	private static HashSet<String> collectTerms(final Collection<Triple> triples) {
+		final HashSet<String> terms = new HashSet<String>();
+		for (final Triple triple : triples) {
+			terms.add(triple.getSubject().toString());
+			terms.add(triple.getPredicate().toString());
+			terms.add(triple.getObject().toString());
+		}
+		return terms;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#lookupIndecesTriple(lupos
+	 * .datastructures.items.Triple)
+	 */
+	@Override
+	public Collection<HBaseTriple> lookupIndecesTriple(final Triple triple) {
+		final String subject = this.lookupTerm(triple.getSubject().toString());
+		final String predicate = this.lookupTerm(triple.getPredicate()
+				.toString());
+		final String object = this.lookupTerm(triple.getObject().toString());
+		if (subject.equals(HBaseDictionary.UNKNOWN_ID)
+				|| predicate.equals(HBaseDictionary.UNKNOWN_ID)
+				|| object.equals(HBaseDictionary.UNKNOWN_ID)) {
+			// ein unbekannter Term kann in keinem Tripel vorkommen
+			return Collections.emptyList();
+		}
+		return this.generateIndecesTriple(subject, predicate, object);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#encodeTerm(java.lang.String)
+	 */
+	@Override
+	public String encodeTerm(final String term) {
+		try {
+			return HBaseDictionary.encode(term);
+		} catch (final IOException e) {
+			throw new RuntimeException("Wörterbuch nicht erreichbar", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#lookupTerm(java.lang.String)
+	 */
+	@Override
+	public String lookupTerm(final String term) {
+		try {
+			return HBaseDictionary.lookup(term);
+		} catch (final IOException e) {
+			throw new RuntimeException("Wörterbuch nicht erreichbar", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#decodeTerm(java.lang.String)
+	 */
+	@Override
+	public String decodeTerm(final String value) {
+		try {
+			return HBaseDictionary.decode(value);
+		} catch (final IOException e) {
+			throw new RuntimeException("Wörterbuch nicht erreichbar", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#decodeTerms(java.util.Collection
+	 * )
+	 */
+	@Override
+	public Map<String, String> decodeTerms(final Collection<String> values) {
+		try {
+			return HBaseDictionary.decodeAll(values);
+		} catch (final IOException e) {
+			throw new RuntimeException("Wörterbuch nicht erreichbar", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see lupos.cloud.hbase.HBaseDistributionStrategy#storesLexicalValues()
+	 */
+	@Override
+	public boolean storesLexicalValues() {
+		return false;
+	}
+}
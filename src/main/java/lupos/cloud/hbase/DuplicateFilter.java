@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import lupos.datastructures.items.Triple;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Entfernt doppelte Tripel beim Laden, bevor sie in die Index-Tabellen
+ * geschrieben werden. In den Mappern des BulkLoads dient ein begrenzter
+ * {@link Cache} der zuletzt gesehenen Schlüssel dazu, Duplikate innerhalb
+ * eines Splits zu verwerfen (die übrigen entfernt der Combiner, siehe
+ * KeyValueDedupCombiner). Auf dem Client kann optional ein Bloomfilter über
+ * alle geladenen Tripel vorgeschaltet werden (siehe {@link #filter(Collection)}):
+ * Tripel, die der Bloomfilter nicht kennt, sind sicher neu, alle anderen
+ * werden per Multi-Get gegen die erste Index-Tabelle geprüft. Der
+ * Bloomfilter kennt nur die Tripel, die dieser Prozess geladen hat, vorher
+ * gespeicherte Tripel werden also nicht erkannt.
+ */
+public final class DuplicateFilter {
+
+	/** Wenn true, werden doppelte Tripel bereits auf dem Client verworfen. */
+	public static boolean CLIENT_FILTER = false;
+
+	/** Erwartete Anzahl Tripel für die Größe des Client-Bloomfilters. */
+	public static int EXPECTED_TRIPLES = 10000000;
+
+	/** Falsch-Positiv-Rate des Client-Bloomfilters. */
+	public static double FALSE_POSITIVE_RATE = 0.01;
+
+	/**
+	 * Speicher des Caches in den Mappern in Bytes (Einträge inklusive der
+	 * Schlüssel), muss deutlich unter dem Heap der Tasks liegen.
+	 */
+	public static int MAPPER_CACHE_BYTES = 16 * 1024 * 1024;
+
+	/** Konfigurations-Eigenschaft für Map-Reduce Jobs. */
+	public static final String MAPPER_CACHE_BYTES_PROPERTY = "lupos.cloud.dedup.cache";
+
+	/** Bloomfilter des Clients. */
+	private static BitSet bloomfilter = null;
+
+	/** Anzahl der Bits des Bloomfilters. */
+	private static int bloomfilterSize;
+
+	/** Anzahl der Hashfunktionen des Bloomfilters. */
+	private static int hashCount;
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private DuplicateFilter() {
+	}
+
+	/**
+	 * Berechnet einen 64-Bit Fingerabdruck (FNV-1a), 0 wird nicht vergeben.
+	 * 
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @return the fingerprint
+	 */
+	public static long fingerprint(final byte[] buf, final int off,
+			final int len) {
+		return fingerprint(0xcbf29ce484222325L, buf, off, len);
+	}
+
+	/**
+	 * Setzt einen Fingerabdruck mit weiteren Bytes fort.
+	 * 
+	 * @param hash
+	 *            der bisherige Fingerabdruck
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @return the fingerprint
+	 */
+	public static long fingerprint(long hash, final byte[] buf, final int off,
+			final int len) {
+		for (int i = off; i < off + len; i++) {
+			hash ^= buf[i] & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Gibt den Schlüssel eines Tripels zurück, an dem Duplikate erkannt
+	 * werden.
+	 * 
+	 * @param triple
+	 *            the triple
+	 * @return the key
+	 */
+	public static String key(final Triple triple) {
+		return triple.getSubject().toString() + " "
+				+ triple.getPredicate().toString() + " "
+				+ triple.getObject().toString();
+	}
+
+	/**
+	 * Berechnet den Fingerabdruck eines Tripels.
+	 * 
+	 * @param triple
+	 *            the triple
+	 * @return the fingerprint
+	 */
+	private static long fingerprint(final Triple triple) {
+		final byte[] bytes = Bytes.toBytes(key(triple));
+		return fingerprint(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Verwirft doppelte Tripel eines Blocks (falls {@link #CLIENT_FILTER}
+	 * aktiv ist): Duplikate innerhalb des Blocks und Tripel, die bereits in
+	 * HBase gespeichert sind.
+	 * 
+	 * @param triples
+	 *            the triples
+	 * @return die neuen Tripel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized Collection<Triple> filter(
+			final Collection<Triple> triples) throws IOException {
+		if (!CLIENT_FILTER) {
+			return triples;
+		}
+		if (bloomfilter == null) {
+			// optimale Größe: m = -n ln(p) / ln(2)^2, k = m/n ln(2)
+			final double bits = -EXPECTED_TRIPLES * Math.log(FALSE_POSITIVE_RATE)
+					/ (Math.log(2) * Math.log(2));
+			bloomfilterSize = (int) Math.min(Integer.MAX_VALUE - 1,
+					Math.max(64, bits));
+			hashCount = Math.max(1, (int) Math.round(bloomfilterSize
+					/ (double) EXPECTED_TRIPLES * Math.log(2)));
+			bloomfilter = new BitSet(bloomfilterSize);
+		}
+
+		final ArrayList<Triple> result = new ArrayList<Triple>(triples.size());
+		final ArrayList<Triple> candidates = new ArrayList<Triple>();
+		final HashSet<String> seen = new HashSet<String>();
+		for (final Triple triple : triples) {
+			if (!seen.add(key(triple))) {
+				continue;
+			}
+			final long fingerprint = fingerprint(triple);
+			if (mightContain(fingerprint)) {
+				candidates.add(triple);
+			} else {
+				put(fingerprint);
+				result.add(triple);
+			}
+		}
+
+		// Kandidaten gegen die erste Index-Tabelle prüfen
+		final boolean[] existing = exists(candidates);
+		for (int i = 0; i < existing.length; i++) {
+			if (!existing[i]) {
+				result.add(candidates.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Prüft per Multi-Get, welche Tripel bereits gespeichert sind.
+	 * 
+	 * @param triples
+	 *            the triples
+	 * @return the boolean[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static boolean[] exists(final List<Triple> triples)
+			throws IOException {
+		final boolean[] result = new boolean[triples.size()];
+		if (triples.isEmpty()) {
+			return result;
+		}
+		final HBaseDistributionStrategy strategy = HBaseDistributionStrategy
+				.getTableInstance();
+		final String firstTable = strategy.getTableNames()[0];
+		// nur nachschlagen, Tripel mit unbekannten Termen existieren nicht
+		strategy.prepareLookupBlock(triples);
+		final List<Get> gets = new ArrayList<Get>(triples.size());
+		final int[] positions = new int[triples.size()];
+		for (int i = 0; i < triples.size(); i++) {
+			for (final HBaseTriple item : strategy.lookupIndecesTriple(triples
+					.get(i))) {
+				if (item.getTablename().equals(firstTable)) {
+					final Get g = new Get(item.getRowKey());
+					g.addColumn(Bytes.toBytes(item.getColumnFamily()),
+							item.getColumn());
+					positions[gets.size()] = i;
+					gets.add(g);
+					break;
+				}
+			}
+		}
+		if (gets.isEmpty()) {
+			return result;
+		}
+		final Result[] found = HBaseConnection.getTable(firstTable).get(gets);
+		for (int i = 0; i < found.length; i++) {
+			result[positions[i]] = found[i] != null && !found[i].isEmpty();
+		}
+		return result;
+	}
+
+	/**
+	 * Position der i-ten Hashfunktion (Double Hashing).
+	 * 
+	 * @param fingerprint
+	 *            the fingerprint
+	 * @param i
+	 *            the i
+	 * @return the position
+	 */
+	private static int position(final long fingerprint, final int i) {
+		final int h1 = (int) fingerprint;
+		final int h2 = (int) (fingerprint >>> 32);
+		return ((h1 + i * h2) & Integer.MAX_VALUE) % bloomfilterSize;
+	}
+
+	/**
+	 * Prüft, ob der Bloomfilter den Fingerabdruck enthalten könnte.
+	 * 
+	 * @param fingerprint
+	 *            the fingerprint
+	 * @return true, if successful
+	 */
+	private static boolean mightContain(final long fingerprint) {
+		for (int i = 0; i < hashCount; i++) {
+			if (!bloomfilter.get(position(fingerprint, i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fügt einen Fingerabdruck in den Bloomfilter ein.
+	 * 
+	 * @param fingerprint
+	 *            the fingerprint
+	 */
+	private static void put(final long fingerprint) {
+		for (int i = 0; i < hashCount; i++) {
+			bloomfilter.set(position(fingerprint, i));
+		}
+	}
+
+	/**
+	 * Begrenzter Cache der zuletzt gesehenen Schlüssel (direkt adressiert über
+	 * den Fingerabdruck, bei Kollisionen wird der ältere Eintrag
+	 * überschrieben). Gleiche Fingerabdrücke werden am Schlüssel selbst
+	 * geprüft, Duplikate werden daher nicht immer, aber nie fälschlich
+	 * erkannt. Der Speicher ist durch die Summe der Schlüssellängen begrenzt,
+	 * ist er erschöpft, wird der Cache geleert.
+	 */
+	public static final class Cache {
+
+		/** Geschätzter Speicher eines Eintrags ohne die Schlüsselbytes. */
+		private static final int ENTRY_OVERHEAD = 32;
+
+		/** Geschätzte Größe eines Eintrags für die Anzahl der Plätze. */
+		private static final int ENTRY_ESTIMATE = 128;
+
+		/** Fingerabdrücke der Einträge. */
+		private final long[] fingerprints;
+
+		/** Schlüssel der Einträge, null bei freien Einträgen. */
+		private final byte[][] keys;
+
+		/** Maximaler Speicher in Bytes. */
+		private final long maxBytes;
+
+		/** Belegter Speicher in Bytes. */
+		private long usedBytes = 0;
+
+		/**
+		 * Instantiates a new cache.
+		 * 
+		 * @param maxBytes
+		 *            Speicher des Caches in Bytes
+		 */
+		public Cache(final int maxBytes) {
+			final int capacity = Integer.highestOneBit(Math.max(2, maxBytes
+					/ ENTRY_ESTIMATE));
+			this.fingerprints = new long[capacity];
+			this.keys = new byte[capacity][];
+			this.maxBytes = maxBytes;
+			this.usedBytes = (long) capacity * 16;
+		}
+
+		/**
+		 * Fügt einen Schlüssel hinzu.
+		 * 
+		 * @param key
+		 *            der Schlüssel
+		 * @return false, falls der Schlüssel bereits enthalten war
+		 */
+		public boolean add(final byte[] key) {
+			return this.add(key, 0, key.length);
+		}
+
+		/**
+		 * Fügt einen Schlüssel hinzu, der Bereich wird nur beim Einfügen
+		 * kopiert.
+		 * 
+		 * @param buf
+		 *            the buf
+		 * @param off
+		 *            the off
+		 * @param len
+		 *            the len
+		 * @return false, falls der Schlüssel bereits enthalten war
+		 */
+		public boolean add(final byte[] buf, final int off, final int len) {
+			final long fingerprint = fingerprint(buf, off, len);
+			final int i = (int) (fingerprint ^ (fingerprint >>> 32))
+					& (this.keys.length - 1);
+			final byte[] old = this.keys[i];
+			if (old != null && this.fingerprints[i] == fingerprint
+					&& Bytes.compareTo(old, 0, old.length, buf, off, len) == 0) {
+				return false;
+			}
+			if (old != null) {
+				this.usedBytes -= old.length + ENTRY_OVERHEAD;
+			}
+			if (this.usedBytes + len + ENTRY_OVERHEAD > this.maxBytes) {
+				Arrays.fill(this.keys, null);
+				this.usedBytes = (long) this.keys.length * 16;
+			}
+			this.fingerprints[i] = fingerprint;
+			this.keys[i] = Arrays.copyOfRange(buf, off, off + len);
+			this.usedBytes += len + ENTRY_OVERHEAD;
+			return true;
+		}
+	}
+}
@@ -24,15 +24,18 @@
 package lupos.cloud.hbase;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
+import lupos.cloud.bloomfilter.BitvectorCache;
 import lupos.cloud.bloomfilter.BitvectorManager;
-import lupos.cloud.hbase.bulkLoad.BulkLoad;
+import lupos.cloud.hbase.bulkLoad.BulkLoadGeneration;
+import lupos.cloud.hbase.bulkLoad.SpoolRecord;
 
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -42,7 +45,6 @@ import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableExistsException;
 import org.apache.hadoop.hbase.TableNotEnabledException;
-import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
@@ -50,10 +52,14 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
-import org.apache.hadoop.hbase.io.hfile.Compression.Algorithm;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
-
-import au.com.bytecode.opencsv.CSVWriter;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.SnappyCodec;
+import org.apache.hadoop.util.NativeCodeLoader;
 
 /**
  * In erster Linie wird diese Klasse genutzt um die Verbindung mit HBase
@@ -77,12 +83,32 @@ public class HBaseConnection {
 	/** HTable-Referenzen. */
 	static HashMap<String, HTable> hTables = new HashMap<String, HTable>();
 
-	/** CSV-Writer Referenze. */
-	static HashMap<String, CSVWriter> csvwriter = new HashMap<String, CSVWriter>();
+	/** Writer des binären Puffers je Tabelle. */
+	static HashMap<String, SequenceFile.Writer> spoolWriter = new HashMap<String, SequenceFile.Writer>();
+
+	/** Wiederverwendeter Rowkey für den Puffer. */
+	private static final ImmutableBytesWritable spoolKey = new ImmutableBytesWritable();
+
+	/** Wiederverwendeter Datensatz für den Puffer. */
+	private static final SpoolRecord spoolRecord = new SpoolRecord();
 
 	/** Zähler der gespeicherten HBase-Tripel. */
 	static int rowCounter = 0;
 
+	/** Nummer der aktuell gefüllten Generation des Puffers. */
+	static int generation = 0;
+
+	/**
+	 * Maximale Anzahl der Generationen, die gleichzeitig im Hintergrund
+	 * geladen werden, während die nächste Generation gefüllt wird (1 =
+	 * Doppelpufferung). Ist die Grenze erreicht, wartet der Client auf die
+	 * älteste Generation.
+	 */
+	public static int MAX_PENDING_LOADS = 1;
+
+	/** Generationen, die im Hintergrund geladen werden. */
+	static ArrayList<BulkLoadGeneration> pendingLoads = new ArrayList<BulkLoadGeneration>();
+
 	/** Anzahl der Zwischengespeicherten HBase-Tripel. */
 	public static int ROW_BUFFER_SIZE = 21000000;
 
@@ -92,6 +118,15 @@ public class HBaseConnection {
 	/** Arbeitsname der Datei. */
 	public static final String BUFFER_FILE_NAME = "rowBufferFile";
 
+	/** Dateiendung des binären Puffers (SequenceFile). */
+	public static final String BUFFER_FILE_SUFFIX = ".seq";
+
+	/**
+	 * Wenn true, wird der Puffer blockweise komprimiert (Snappy, falls die
+	 * native Bibliothek vorhanden ist, sonst Deflate).
+	 */
+	public static boolean COMPRESS_BUFFER = true;
+
 	/** Arbeitsname des HFiles. */
 	public static final String BUFFER_HFILE_NAME = "rowBufferHFile";
 
@@ -101,6 +136,14 @@ public class HBaseConnection {
 	/** Wenn diese Variable True ist, ist der BulkLoad-Modus aktiv. */
 	public static boolean MAP_REDUCE_BULK_LOAD = true;
 
+	/**
+	 * Wenn true, werden die HFiles im BulkLoad-Modus ohne MapReduce Job direkt
+	 * vom Client sortiert und geschrieben (siehe LocalBulkLoad). Lohnt sich
+	 * für mittlere Datenmengen, bei denen der Job-Start länger dauert als das
+	 * eigentliche Laden.
+	 */
+	public static boolean LOCAL_BULK_LOAD = false;
+
 	/** Wenn aktiv, werden die HBase-Tabellen beim Start gelöscht. */
 	public static boolean deleteTableOnCreation = false;
 
@@ -137,8 +180,11 @@ public class HBaseConnection {
 	}
 
 	/**
-	 * Erzeugt für jeden Index eine Tabelle und erstellt die Column-Families +
-	 * aktiviert LZO Komprimierung.
+	 * Erzeugt für jeden Index eine Tabelle und erstellt die Column-Families mit
+	 * den jeweiligen Speicherprofilen (siehe {@link StorageProfile}). Bei
+	 * aktivem Salting (siehe {@link RowKeySalt}) wird die Tabelle vorab
+	 * geteilt. Existiert die Tabelle bereits, werden nur die Speicherprofile
+	 * angepasst.
 	 *
 	 * @param tablename
 	 *            the tablename
@@ -161,12 +207,62 @@ public class HBaseConnection {
 					BitvectorManager.bloomfilter1ColumnFamily);
 			final HColumnDescriptor familyb2 = new HColumnDescriptor(
 					BitvectorManager.bloomfilter2ColumnFamily);
-			family.setCompressionType(Algorithm.LZO);
-			familyb1.setCompressionType(Algorithm.LZO);
-			familyb2.setCompressionType(Algorithm.LZO);
+			for (final HColumnDescriptor hcd : new HColumnDescriptor[] {
+					family, familyb1, familyb2 }) {
+				StorageProfile.getProfile(tablename, hcd.getName()).apply(hcd);
+			}
 			descriptor.addFamily(family);
 			descriptor.addFamily(familyb1);
 			descriptor.addFamily(familyb2);
+			// bei aktivem Salting wird die Tabelle an den Bucket-Grenzen
+			// vorab geteilt
+			final byte[][] splitKeys = RowKeySalt.getSplitKeys();
+			if (splitKeys != null) {
+				admin.createTable(descriptor, splitKeys);
+			} else {
+				admin.createTable(descriptor);
+			}
+			if (message) {
+				System.out.println("Tabelle \"" + tablename
+						+ "\" wurde erzeugt"
+						+ ((splitKeys != null) ? " (" + RowKeySalt.SALT_BUCKETS
+								+ " Regionen)" : ""));
+			}
+		} catch (final TableExistsException e) {
+			if (message) {
+				System.out.println("Tabelle \"" + tablename
+						+ "\" existiert bereits!");
+			}
+			if (StorageProfile.UPDATE_EXISTING) {
+				updateStorageProfiles(tablename, false);
+			}
+		}
+	}
+
+	/**
+	 * Erzeugt eine Hilfstabelle (z.B. für das Wörterbuch) mit nur einer
+	 * Column-Family und ohne Bloomfilter-Spalten.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @param familyname
+	 *            the familyname
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void createAuxiliaryTable(final String tablename,
+			final String familyname) throws IOException {
+		init();
+		try {
+			if (deleteTableOnCreation) {
+				deleteTable(tablename);
+			}
+			final HTableDescriptor descriptor = new HTableDescriptor(
+					Bytes.toBytes(tablename));
+			final HColumnDescriptor family = new HColumnDescriptor(familyname);
+			StorageProfile.getAuxiliaryProfile(tablename, family.getName())
+					.apply(family);
+			descriptor.addFamily(family);
 			admin.createTable(descriptor);
 			if (message) {
 				System.out.println("Tabelle \"" + tablename
@@ -177,20 +273,84 @@ public class HBaseConnection {
 				System.out.println("Tabelle \"" + tablename
 						+ "\" existiert bereits!");
 			}
+			if (StorageProfile.UPDATE_EXISTING) {
+				updateStorageProfiles(tablename, true);
+			}
+		}
+	}
+
+	/**
+	 * Passt die Column-Families einer vorhandenen Tabelle an die
+	 * Speicherprofile an (siehe {@link StorageProfile}). Nur wenn sich eine
+	 * Einstellung geändert hat, wird die Tabelle deaktiviert, geändert und
+	 * anschließend eine Major-Compaction angestoßen, damit auch die bereits
+	 * geschriebenen HFiles neu kodiert werden.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @param auxiliary
+	 *            true für Hilfstabellen
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void updateStorageProfiles(final String tablename,
+			final boolean auxiliary) throws IOException {
+		init();
+		if (!checkTable(tablename)) {
+			return;
+		}
+
+		final HTableDescriptor descriptor = admin.getTableDescriptor(Bytes
+				.toBytes(tablename));
+		final ArrayList<HColumnDescriptor> changed = new ArrayList<HColumnDescriptor>();
+		for (final HColumnDescriptor family : descriptor.getColumnFamilies()) {
+			final StorageProfile profile = auxiliary ? StorageProfile
+					.getAuxiliaryProfile(tablename, family.getName())
+					: StorageProfile.getProfile(tablename, family.getName());
+			if (profile.apply(family)) {
+				changed.add(family);
+			}
+		}
+		if (changed.isEmpty()) {
+			return;
+		}
+
+		try {
+			admin.disableTable(tablename);
+		} catch (final TableNotEnabledException e) {
+			// ignore
+		}
+		for (final HColumnDescriptor family : changed) {
+			admin.modifyColumn(tablename, family);
+		}
+		admin.enableTable(tablename);
+		try {
+			admin.majorCompact(tablename);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (message) {
+			System.out.println("Speicherprofile der Tabelle \"" + tablename
+					+ "\" wurden angepasst");
 		}
 	}
 
 	/**
 	 * Die Tripel in dem lokalen TripelCache werden in HBase geladen (nur für
-	 * den BulkLoad).
+	 * den BulkLoad), die Writer-Threads geleert (siehe {@link HBaseWriter})
+	 * und die Statistiken geschrieben (siehe {@link HBaseStatistics}).
 	 *
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
 	public static void flush() throws IOException {
+		HBaseDictionary.flush();
 		if (rowCounter > 0) {
 			startBulkLoad();
 		}
+		waitForBulkLoads(0);
+		HBaseWriter.flush();
+		HBaseStatistics.flush();
 	}
 
 	/**
@@ -218,37 +378,6 @@ public class HBaseConnection {
 		}
 	}
 
-	/**
-	 * Entfernt ein HBase Triple.
-	 *
-	 * @param tablename
-	 *            the tablename
-	 * @param columnFamily
-	 *            the column family
-	 * @param rowKey
-	 *            the row key
-	 * @param colunmnname
-	 *            the colunmnname
-	 * @throws IOException
-	 *             Signals that an I/O exception has occurred.
-	 */
-	public static void deleteRow(final String tablename, final String columnFamily,
-			final String rowKey, final String colunmnname) throws IOException {
-		init();
-		HTable table = hTables.get(tablename);
-		if (table == null) {
-			table = new HTable(configuration, tablename);
-			hTables.put(tablename, table);
-		}
-		final Delete row = new Delete(rowKey.getBytes());
-		row.deleteColumn(columnFamily.getBytes(), colunmnname.getBytes());
-		table.delete(row);
-		if (message) {
-			System.out.println(rowKey + " und Spalte " + colunmnname
-					+ " wurden geloescht");
-		}
-	}
-
 	/**
 	 * Deaktivieren einer Tabelle.
 	 *
@@ -353,32 +482,28 @@ public class HBaseConnection {
 	/**
 	 * Fügt eine Reihe (=row) hinzu.
 	 *
-	 * @param tablename
-	 *            the tablename
-	 * @param row_key
-	 *            the row_key
-	 * @param columnFamily
-	 *            the column family
-	 * @param column
-	 *            the column
-	 * @param value
-	 *            the value
+	 * @param item
+	 *            the item
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public static void addRow(final String tablename, final String row_key,
-			final String columnFamily, final String column, final String value)
-			throws IOException {
+	public static void addRow(final HBaseTriple item) throws IOException {
+		final String tablename = item.getTablename();
+		LoadMetrics.addCell();
 		// schnellere Variante zum einlesen von Tripel
 		if (MAP_REDUCE_BULK_LOAD) {
-			if (csvwriter.get(tablename) == null) {
-				csvwriter.put(tablename, new CSVWriter(new FileWriter(
-						WORKING_DIR + File.separator + tablename + "_"
-								+ BUFFER_FILE_NAME + ".csv"), '\t'));
+			SequenceFile.Writer writer = spoolWriter.get(tablename);
+			if (writer == null) {
+				writer = createSpoolWriter(tablename);
+				spoolWriter.put(tablename, writer);
 			}
-			// Schreibe die Zeile in auf den Festplattenpuffer
-			final String[] entries = { columnFamily, row_key, column, value };
-			csvwriter.get(tablename).writeNext(entries);
+			// Schreibe die Zeile in den binären Festplattenpuffer: kodierter
+			// Rowkey als Schlüssel, Family, Spaltenname und Wert als
+			// Datensatz (siehe SpoolRecord)
+			spoolKey.set(item.getRowKey());
+			spoolRecord.set(Bytes.toBytes(item.getColumnFamily()),
+					item.getColumn(), Bytes.toBytes(item.getValue()));
+			writer.append(spoolKey, spoolRecord);
 			rowCounter++;
 
 			if (rowCounter == ROW_BUFFER_SIZE) {
@@ -386,43 +511,69 @@ public class HBaseConnection {
 			}
 
 		} else {
-			// Einlesen per Tripel per HBase API (sehr langsam bei großen
-			// Datenmengen), da die Tripel einzeln übertragen weden.
-			HTable table = hTables.get(tablename);
-			if (table == null) {
-				table = new HTable(configuration, tablename);
-				hTables.put(tablename, table);
-			}
-			final Put row = new Put(Bytes.toBytes(row_key));
-			row.add(Bytes.toBytes(columnFamily), Bytes.toBytes(column),
-					Bytes.toBytes(value));
-
-			final String toSplit = column;
-			String elem1 = null;
-			String elem2 = null;
-			if (toSplit.contains(",")) {
-				elem1 = toSplit.substring(0, toSplit.indexOf(","));
-				elem2 = toSplit.substring(toSplit.indexOf(",") + 1,
-						toSplit.length());
-			} else {
-				elem1 = toSplit.substring(0, toSplit.length());
-			}
+			// Einlesen per Tripel per HBase API. Mit HBaseWriter gebündelt
+			// und parallel, sonst sehr langsam bei großen Datenmengen, da die
+			// Tripel einzeln übertragen weden.
+			final Put row = new Put(item.getRowKey());
+			row.add(Bytes.toBytes(item.getColumnFamily()), item.getColumn(),
+					Bytes.toBytes(item.getValue()));
+			BitvectorCache.invalidate(tablename, row.getRow());
+
 			// Bloomfilter
-			if (!(elem1 == null)) {
-				final Integer position = BitvectorManager.hash(elem1.getBytes());
-				row.add(BitvectorManager.bloomfilter1ColumnFamily,
-						integerToByteArray(4, position), Bytes.toBytes(""));
+			final String[] columnElements = item.getBloomElements();
+			final Integer position1 = BitvectorManager.hash(Bytes
+					.toBytes(columnElements[0]));
+			row.add(BitvectorManager.bloomfilter1ColumnFamily,
+					integerToByteArray(4, position1), Bytes.toBytes(""));
+
+			if (columnElements.length > 1) {
+				final Integer position2 = BitvectorManager.hash(Bytes
+						.toBytes(columnElements[1]));
+				row.add(BitvectorManager.bloomfilter2ColumnFamily,
+						integerToByteArray(4, position2), Bytes.toBytes(""));
 			}
 
-			if (!(elem2 == null)) {
-				final Integer position = BitvectorManager.hash(elem2.getBytes());
-				row.add(BitvectorManager.bloomfilter2ColumnFamily,
-						integerToByteArray(4, position), Bytes.toBytes(""));
+			if (HBaseWriter.WRITER_THREADS > 0) {
+				HBaseWriter.put(tablename, row);
+			} else {
+				HTable table = hTables.get(tablename);
+				if (table == null) {
+					table = new HTable(configuration, tablename);
+					hTables.put(tablename, table);
+				}
+				table.put(row);
 			}
 
-			table.put(row);
+		}
+	}
 
+	/**
+	 * Erzeugt den lokalen binären Puffer einer Tabelle.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @return the writer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static SequenceFile.Writer createSpoolWriter(final String tablename)
+			throws IOException {
+		final Path path = new Path(new File(BulkLoadGeneration.getLocalFile(
+				tablename, generation)).getAbsolutePath());
+		final FileSystem local = FileSystem.getLocal(configuration);
+		if (!COMPRESS_BUFFER) {
+			return SequenceFile.createWriter(local, configuration, path,
+					ImmutableBytesWritable.class, SpoolRecord.class,
+					CompressionType.NONE);
+		}
+		final CompressionCodec codec = (NativeCodeLoader.isNativeCodeLoaded() && NativeCodeLoader
+				.buildSupportsSnappy()) ? new SnappyCodec() : new DefaultCodec();
+		if (codec instanceof Configurable) {
+			((Configurable) codec).setConf(configuration);
 		}
+		return SequenceFile.createWriter(local, configuration, path,
+				ImmutableBytesWritable.class, SpoolRecord.class,
+				CompressionType.BLOCK, codec);
 	}
 
 	/**
@@ -439,41 +590,68 @@ public class HBaseConnection {
 	}
 
 	/**
-	 * Start bulk load.
+	 * Schließt die aktuelle Generation des Puffers ab und übergibt sie einem
+	 * Hintergrund-Thread (siehe {@link BulkLoadGeneration}), der sie hochlädt
+	 * und per MapReduce lädt. Der Client füllt währenddessen die nächste
+	 * Generation und wartet nur, wenn bereits {@link #MAX_PENDING_LOADS}
+	 * Generationen geladen werden.
 	 *
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
 	public static void startBulkLoad() throws IOException {
 		rowCounter = 0;
-		final ArrayList<BulkLoad> bulkList = new ArrayList<BulkLoad>();
-		for (final String key : csvwriter.keySet()) {
-			csvwriter.get(key).close();
-			hdfs_fileSystem.copyFromLocalFile(true, true, new Path(WORKING_DIR
-					+ File.separator + key + "_" + BUFFER_FILE_NAME + ".csv"),
-					new Path("/tmp/" + WORKING_DIR + "/" + key + "_"
-							+ BUFFER_FILE_NAME + ".csv"));
-			final BulkLoad b = new BulkLoad(key);
-			b.start();
-			bulkList.add(b);
-		}
-
-		System.out.println("Wait until jobs are finished ...");
-		boolean allJobsReady = false;
-		while (!allJobsReady) {
-			allJobsReady = true;
-			for (final BulkLoad b : bulkList) {
-				if (!b.isFinished()) {
-					allJobsReady = false;
-				}
-			}
-			wait(5); // warte 5 sekunden
+		if (spoolWriter.isEmpty()) {
+			return;
 		}
-		System.out.println("ready!");
+		for (final Map.Entry<String, SequenceFile.Writer> writer : spoolWriter
+				.entrySet()) {
+			writer.getValue().close();
+			LoadMetrics.addSpoolBytes(new File(BulkLoadGeneration.getLocalFile(
+					writer.getKey(), generation)).length());
+		}
+		// die Zählung der Generation abschließen, Fingerabdrücke und
+		// Änderungen bleiben bis zum Ende des Ladens bei der Generation
+		final Object statistics = HBaseStatistics.sealGeneration();
+
+		waitForBulkLoads(Math.max(0, MAX_PENDING_LOADS - 1));
+		final BulkLoadGeneration load = new BulkLoadGeneration(generation,
+				spoolWriter.keySet(), statistics,
+				LoadCheckpoint.getInputPosition());
+		load.start();
+		pendingLoads.add(load);
+
+		generation++;
+		spoolWriter = new HashMap<String, SequenceFile.Writer>();
+	}
 
-		csvwriter = new HashMap<String, CSVWriter>();
-		hdfs_fileSystem.delete(new Path("/tmp/" + WORKING_DIR), true);
-		hdfs_fileSystem.mkdirs(new Path("/tmp/" + WORKING_DIR));
+	/**
+	 * Wartet, bis höchstens noch die angegebene Anzahl an Generationen im
+	 * Hintergrund geladen wird.
+	 *
+	 * @param remaining
+	 *            Anzahl der Generationen, die weiterlaufen dürfen
+	 * @throws IOException
+	 *             falls eine Generation nicht geladen werden konnte
+	 */
+	public static void waitForBulkLoads(final int remaining) throws IOException {
+		if (pendingLoads.size() > remaining) {
+			System.out.println("Wait until jobs are finished ...");
+		}
+		while (pendingLoads.size() > remaining) {
+			final BulkLoadGeneration load = pendingLoads.remove(0);
+			try {
+				load.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			if (!load.isFinished()) {
+				throw new IOException("BulkLoad der Generation "
+						+ load.getGeneration() + " ist fehlgeschlagen",
+						load.getError());
+			}
+		}
 	}
 
 	/**
@@ -518,6 +696,25 @@ public class HBaseConnection {
 		return null;
 	}
 
+	/**
+	 * Gibt die (zwischengespeicherte) Referenz einer Tabelle zurück.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @return the table
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static HTable getTable(final String tablename) throws IOException {
+		init();
+		HTable table = hTables.get(tablename);
+		if (table == null) {
+			table = new HTable(configuration, tablename);
+			hTables.put(tablename, table);
+		}
+		return table;
+	}
+
 	/**
 	 * Gibt eine Zeile anhand des rowkeys und den Prefix einer Spalte zurück.
 	 *
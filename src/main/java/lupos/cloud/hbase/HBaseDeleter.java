@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lupos.cloud.bloomfilter.BitvectorCache;
+import lupos.cloud.bloomfilter.BitvectorManager;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Löscht Tripel blockweise. Die Deletes werden je Tabelle gestapelt und über
+ * die Threads des {@link HBaseWriter} parallel gesendet, die Statistiken
+ * (siehe {@link HBaseStatistics}) werden vorher abgezählt. Anschließend
+ * werden die Bloomfilter-Spalten der betroffenen Zeilen entfernt, deren
+ * Hashwert von keiner verbliebenen Spalte der Zeile mehr erzeugt wird.
+ */
+public final class HBaseDeleter {
+
+	/** Wenn true, werden verwaiste Bloomfilter-Spalten entfernt. */
+	public static boolean BLOOM_CLEANUP = true;
+
+	/**
+	 * Maximale Anzahl verbliebener Spalten einer Zeile, die für das
+	 * Aufräumen der Bloomfilter-Spalten gelesen werden. Bei größeren Zeilen
+	 * bleiben die Bloomfilter-Spalten erhalten, was nur zu falsch-positiven
+	 * Treffern des Bloomfilters führt.
+	 */
+	public static int BLOOM_CLEANUP_MAX_CELLS = 10000;
+
+	/** Anzahl der Zeilen je Multi-Get beim Aufräumen. */
+	public static int BLOOM_CLEANUP_GET_SIZE = 100;
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private HBaseDeleter() {
+	}
+
+	/**
+	 * Löscht die Zellen eines Blocks von Tripeln.
+	 * 
+	 * @param items
+	 *            die Zellen aller Indizes (siehe
+	 *            {@link HBaseDistributionStrategy#generateIndecesTriple(lupos.datastructures.items.Triple)})
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void delete(final Collection<HBaseTriple> items)
+			throws IOException {
+		HBaseConnection.init();
+		HBaseStatistics.remove(items);
+
+		// Tabelle -> Rowkey -> Hashwerte der Elemente der gelöschten Spalten
+		final Map<String, TreeMap<byte[], RowCandidates>> rows = new HashMap<String, TreeMap<byte[], RowCandidates>>();
+		final Map<String, List<Delete>> deletes = new HashMap<String, List<Delete>>();
+		for (final HBaseTriple item : items) {
+			final byte[] rowKey = item.getRowKey();
+			final byte[] family = Bytes.toBytes(item.getColumnFamily());
+			final Delete delete = new Delete(rowKey);
+			delete.deleteColumns(family, item.getColumn());
+			send(deletes, item.getTablename(), delete);
+			BitvectorCache.invalidate(item.getTablename(), rowKey);
+
+			if (BLOOM_CLEANUP) {
+				TreeMap<byte[], RowCandidates> tableRows = rows.get(item
+						.getTablename());
+				if (tableRows == null) {
+					tableRows = new TreeMap<byte[], RowCandidates>(
+							Bytes.BYTES_COMPARATOR);
+					rows.put(item.getTablename(), tableRows);
+				}
+				RowCandidates candidates = tableRows.get(rowKey);
+				if (candidates == null) {
+					candidates = new RowCandidates(family);
+					tableRows.put(rowKey, candidates);
+				}
+				final String[] columnElements = item.getBloomElements();
+				candidates.hashes1.add(BitvectorManager.hash(Bytes
+						.toBytes(columnElements[0])));
+				if (columnElements.length > 1) {
+					candidates.hashes2.add(BitvectorManager.hash(Bytes
+							.toBytes(columnElements[1])));
+				}
+			}
+		}
+		flush(deletes);
+
+		for (final Map.Entry<String, TreeMap<byte[], RowCandidates>> table : rows
+				.entrySet()) {
+			cleanupBloomfilter(table.getKey(), table.getValue(), deletes);
+		}
+		flush(deletes);
+		HBaseStatistics.flush();
+	}
+
+	/**
+	 * Entfernt die Bloomfilter-Spalten, deren Hashwert in den Zeilen nicht
+	 * mehr vorkommt.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param rows
+	 *            Rowkey -> Kandidaten
+	 * @param deletes
+	 *            die Deletes, falls ohne {@link HBaseWriter} gesendet wird
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void cleanupBloomfilter(final String tablename,
+			final TreeMap<byte[], RowCandidates> rows,
+			final Map<String, List<Delete>> deletes) throws IOException {
+		final CompositeKey.Cursor cursor = new CompositeKey.Cursor();
+		final List<byte[]> rowKeys = new ArrayList<byte[]>(rows.keySet());
+		for (int start = 0; start < rowKeys.size(); start += BLOOM_CLEANUP_GET_SIZE) {
+			final List<byte[]> chunk = rowKeys.subList(start,
+					Math.min(rowKeys.size(), start + BLOOM_CLEANUP_GET_SIZE));
+			final List<Get> gets = new ArrayList<Get>(chunk.size());
+			for (final byte[] rowKey : chunk) {
+				final Get get = new Get(rowKey);
+				get.addFamily(rows.get(rowKey).family);
+				get.setFilter(new KeyOnlyFilter());
+				get.setMaxResultsPerColumnFamily(BLOOM_CLEANUP_MAX_CELLS + 1);
+				gets.add(get);
+			}
+			final Result[] results = HBaseConnection.getTable(tablename).get(
+					gets);
+			for (int i = 0; i < results.length; i++) {
+				final KeyValue[] kvs = results[i] == null ? null : results[i]
+						.raw();
+				if (kvs != null && kvs.length > BLOOM_CLEANUP_MAX_CELLS) {
+					// zu große Zeile, Bloomfilter-Spalten behalten
+					continue;
+				}
+				final RowCandidates candidates = rows.get(chunk.get(i));
+				if (kvs != null) {
+					for (final KeyValue kv : kvs) {
+						cursor.reset(kv.getBuffer(), kv.getQualifierOffset(),
+								kv.getQualifierLength());
+						if (!cursor.next()) {
+							continue;
+						}
+						candidates.hashes1.remove(BitvectorManager.hash(
+								kv.getBuffer(), cursor.getOffset(),
+								cursor.getLength()));
+						if (cursor.next()) {
+							candidates.hashes2.remove(BitvectorManager.hash(
+									kv.getBuffer(), cursor.getOffset(),
+									cursor.getLength()));
+						}
+					}
+				}
+				if (candidates.hashes1.isEmpty()
+						&& candidates.hashes2.isEmpty()) {
+					continue;
+				}
+				final Delete delete = new Delete(chunk.get(i));
+				for (final Integer hash : candidates.hashes1) {
+					delete.deleteColumns(
+							BitvectorManager.bloomfilter1ColumnFamily,
+							HBaseConnection.integerToByteArray(4, hash));
+				}
+				for (final Integer hash : candidates.hashes2) {
+					delete.deleteColumns(
+							BitvectorManager.bloomfilter2ColumnFamily,
+							HBaseConnection.integerToByteArray(4, hash));
+				}
+				send(deletes, tablename, delete);
+			}
+		}
+	}
+
+	/**
+	 * Übergibt einen Delete an den {@link HBaseWriter} oder sammelt ihn, falls
+	 * ohne Writer-Threads gearbeitet wird.
+	 * 
+	 * @param deletes
+	 *            the deletes
+	 * @param tablename
+	 *            the tablename
+	 * @param delete
+	 *            the delete
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void send(final Map<String, List<Delete>> deletes,
+			final String tablename, final Delete delete) throws IOException {
+		if (HBaseWriter.WRITER_THREADS > 0) {
+			HBaseWriter.delete(tablename, delete);
+			return;
+		}
+		List<Delete> list = deletes.get(tablename);
+		if (list == null) {
+			list = new ArrayList<Delete>();
+			deletes.put(tablename, list);
+		}
+		list.add(delete);
+	}
+
+	/**
+	 * Sendet alle gesammelten Deletes und wartet, bis sie geschrieben sind.
+	 * 
+	 * @param deletes
+	 *            the deletes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void flush(final Map<String, List<Delete>> deletes)
+			throws IOException {
+		if (HBaseWriter.WRITER_THREADS > 0) {
+			HBaseWriter.flush();
+			return;
+		}
+		for (final Map.Entry<String, List<Delete>> entry : deletes.entrySet()) {
+			HBaseConnection.getTable(entry.getKey()).delete(entry.getValue());
+		}
+		deletes.clear();
+	}
+
+	/**
+	 * Hashwerte der Elemente der gelöschten Spalten einer Zeile.
+	 */
+	private static final class RowCandidates {
+
+		/** Column-Family der Spalten. */
+		final byte[] family;
+
+		/** Hashwerte der ersten Elemente (Bloomfilter 1). */
+		final HashSet<Integer> hashes1 = new HashSet<Integer>();
+
+		/** Hashwerte der zweiten Elemente (Bloomfilter 2). */
+		final HashSet<Integer> hashes2 = new HashSet<Integer>();
+
+		/**
+		 * Instantiates a new row candidates.
+		 * 
+		 * @param family
+		 *            the family
+		 */
+		RowCandidates(final byte[] family) {
+			this.family = family;
+		}
+	}
+}
@@ -0,0 +1,437 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Verwaltet das Wörterbuch der Dictionary-Strategie. Jedem RDF-Term (in
+ * N3-Darstellung) wird eine ID fester Breite zugeordnet. Die Zuordnung wird in
+ * zwei HBase Tabellen gespeichert (Term -> ID und ID -> Term). Die IDs werden
+ * blockweise über einen HBase-Zähler vergeben, so dass beim Laden nur selten
+ * ein Zähler-RPC notwendig ist. Die Kodierung der IDs ist ordnungserhaltend,
+ * d.h. die lexikographische Ordnung der IDs entspricht der Vergabereihenfolge.
+ */
+public class HBaseDictionary {
+
+	/** Tabelle Term -> ID. */
+	public static final String TERM_TO_ID_TABLE = "dictionary_t2i";
+
+	/** Tabelle ID -> Term. */
+	public static final String ID_TO_TERM_TABLE = "dictionary_i2t";
+
+	/** Column-Family der Wörterbuchtabellen. */
+	public static final String COLUMN_FAMILY = "d";
+
+	/** Spaltenname unter dem der Wert gespeichert wird. */
+	private static final byte[] VALUE_COLUMN = Bytes.toBytes("v");
+
+	/** Zeile des Zählers (liegt außerhalb des ID-Alphabets). */
+	private static final byte[] COUNTER_ROW = Bytes.toBytes("#counter");
+
+	/** Spalte des Zählers. */
+	private static final byte[] COUNTER_COLUMN = Bytes.toBytes("next");
+
+	/**
+	 * Ordnungserhaltendes Alphabet (aufsteigend nach ASCII sortiert). Enthält
+	 * weder "," noch Anführungszeichen, daher können die IDs ohne Escaping in
+	 * Rowkeys, Spaltennamen und PigLatin-Programmen verwendet werden.
+	 */
+	private static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz"
+			.toCharArray();
+
+	/** Breite einer ID (8 Zeichen a 6 Bit = 48 Bit). */
+	public static final int ID_WIDTH = 8;
+
+	/**
+	 * ID für unbekannte Terme. Diese ID liegt außerhalb des Alphabets und kann
+	 * daher in keiner Tabelle vorkommen, d.h. ein Tripel-Muster mit einem
+	 * unbekannten Term liefert eine leere Ergebnismenge.
+	 */
+	public static final String UNKNOWN_ID = "!!!!!!!!";
+
+	/** Anzahl der IDs, die pro Zähler-RPC reserviert werden. */
+	public static int ID_BLOCK_SIZE = 10000;
+
+	/** Maximale Anzahl an Einträgen in den Caches. */
+	public static int CACHE_SIZE = 500000;
+
+	/**
+	 * Wenn true, wird davon ausgegangen, dass nur ein Loader gleichzeitig in
+	 * das Wörterbuch schreibt. Neue Einträge werden dann gepuffert statt per
+	 * checkAndPut geschrieben (deutlich schneller beim initialen Laden).
+	 */
+	public static boolean EXCLUSIVE_LOAD = false;
+
+	/** Cache Term -> ID. */
+	private static Map<String, String> termCache = createCache();
+
+	/** Cache ID -> Term. */
+	private static Map<String, String> idCache = createCache();
+
+	/** Nächste freie ID des reservierten Blocks. */
+	private static long nextId = 0;
+
+	/** Ende (exklusiv) des reservierten Blocks. */
+	private static long blockEnd = 0;
+
+	/** Referenz Term -> ID Tabelle. */
+	private static HTable termTable = null;
+
+	/** Referenz ID -> Term Tabelle. */
+	private static HTable idTable = null;
+
+	/**
+	 * Erzeugt einen LRU-Cache.
+	 *
+	 * @return the map
+	 */
+	@SuppressWarnings("serial")
+	private static Map<String, String> createCache() {
+		return new LinkedHashMap<String, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, String> eldest) {
+				return this.size() > CACHE_SIZE;
+			}
+		};
+	}
+
+	/**
+	 * Erzeugt die Wörterbuchtabellen.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void createTables() throws IOException {
+		HBaseConnection.createAuxiliaryTable(TERM_TO_ID_TABLE, COLUMN_FAMILY);
+		HBaseConnection.createAuxiliaryTable(ID_TO_TERM_TABLE, COLUMN_FAMILY);
+	}
+
+	/**
+	 * Öffnet die Tabellen.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void init() throws IOException {
+		if (termTable == null) {
+			HBaseConnection.init();
+			termTable = new HTable(HBaseConnection.getConfiguration(),
+					TERM_TO_ID_TABLE);
+			idTable = new HTable(HBaseConnection.getConfiguration(),
+					ID_TO_TERM_TABLE);
+			if (EXCLUSIVE_LOAD) {
+				termTable.setAutoFlush(false);
+				idTable.setAutoFlush(false);
+			}
+		}
+	}
+
+	/**
+	 * Gibt die ID eines Terms zurück. Ist der Term noch nicht im Wörterbuch,
+	 * wird eine neue ID vergeben.
+	 *
+	 * @param term
+	 *            the term
+	 * @return the id
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized String encode(final String term)
+			throws IOException {
+		final ArrayList<String> terms = new ArrayList<String>(1);
+		terms.add(term);
+		return encodeAll(terms).get(term);
+	}
+
+	/**
+	 * Gibt die IDs mehrerer Terme zurück, fehlende Terme werden mit einem
+	 * einzigen Multi-Get nachgeschlagen und ggf. neu vergeben.
+	 *
+	 * @param terms
+	 *            the terms
+	 * @return Zuordnung Term -> ID
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized Map<String, String> encodeAll(
+			final Collection<String> terms) throws IOException {
+		final Map<String, String> result = lookupAll(terms);
+		for (final Map.Entry<String, String> entry : result.entrySet()) {
+			if (entry.getValue().equals(UNKNOWN_ID)) {
+				final String id = allocate(entry.getKey());
+				cache(entry.getKey(), id);
+				entry.setValue(id);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die IDs mehrerer Terme zurück ohne neue zu vergeben. Fehlende Terme
+	 * werden mit einem einzigen Multi-Get nachgeschlagen, unbekannte Terme
+	 * werden auf {@link #UNKNOWN_ID} abgebildet.
+	 *
+	 * @param terms
+	 *            the terms
+	 * @return Zuordnung Term -> ID
+	 * @throws IOException
+	 *             falls die Term-Tabelle nicht gelesen werden kann
+	 */
+	public static synchronized Map<String, String> lookupAll(
+			final Collection<String> terms) throws IOException {
+		final HashMap<String, String> result = new HashMap<String, String>();
+		final ArrayList<String> missing = new ArrayList<String>();
+		for (final String term : terms) {
+			final String id = termCache.get(term);
+			if (id != null) {
+				result.put(term, id);
+			} else if (!result.containsKey(term)) {
+				result.put(term, UNKNOWN_ID);
+				missing.add(term);
+			}
+		}
+		if (missing.isEmpty()) {
+			return result;
+		}
+
+		init();
+		final List<Get> gets = new ArrayList<Get>(missing.size());
+		for (final String term : missing) {
+			final Get g = new Get(Bytes.toBytes(term));
+			g.addColumn(Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN);
+			gets.add(g);
+		}
+		final Result[] found = termTable.get(gets);
+		for (int i = 0; i < missing.size(); i++) {
+			if (found[i] != null && !found[i].isEmpty()) {
+				final String term = missing.get(i);
+				final String id = Bytes.toString(found[i].getValue(
+						Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN));
+				cache(term, id);
+				result.put(term, id);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die ID eines Terms zurück ohne eine neue zu vergeben (z.B. für
+	 * gebundene Terme in Anfragen). Unbekannte Terme werden auf
+	 * {@link #UNKNOWN_ID} abgebildet.
+	 *
+	 * @param term
+	 *            the term
+	 * @return the id
+	 * @throws IOException
+	 *             falls die Term-Tabelle nicht gelesen werden kann
+	 */
+	public static synchronized String lookup(final String term)
+			throws IOException {
+		String id = termCache.get(term);
+		if (id != null) {
+			return id;
+		}
+		init();
+		final Get g = new Get(Bytes.toBytes(term));
+		g.addColumn(Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN);
+		final Result r = termTable.get(g);
+		if (r == null || r.isEmpty()) {
+			return UNKNOWN_ID;
+		}
+		id = Bytes.toString(r.getValue(Bytes.toBytes(COLUMN_FAMILY),
+				VALUE_COLUMN));
+		cache(term, id);
+		return id;
+	}
+
+	/**
+	 * Gibt den Term zu einer ID zurück.
+	 *
+	 * @param id
+	 *            the id
+	 * @return the term
+	 * @throws IOException
+	 *             falls die ID unbekannt ist oder die ID-Tabelle nicht gelesen
+	 *             werden kann
+	 */
+	public static synchronized String decode(final String id)
+			throws IOException {
+		final ArrayList<String> ids = new ArrayList<String>(1);
+		ids.add(id);
+		return decodeAll(ids).get(id);
+	}
+
+	/**
+	 * Gibt die Terme zu mehreren IDs zurück (z.B. für einen Block von
+	 * Anfrageergebnissen). Fehlende IDs werden mit einem einzigen Multi-Get
+	 * nachgeschlagen.
+	 *
+	 * @param ids
+	 *            the ids
+	 * @return Zuordnung ID -> Term
+	 * @throws IOException
+	 *             falls eine ID unbekannt ist oder die ID-Tabelle nicht
+	 *             gelesen werden kann
+	 */
+	public static synchronized Map<String, String> decodeAll(
+			final Collection<String> ids) throws IOException {
+		final HashMap<String, String> result = new HashMap<String, String>();
+		final ArrayList<String> missing = new ArrayList<String>();
+		for (final String id : ids) {
+			final String term = idCache.get(id);
+			if (term != null) {
+				result.put(id, term);
+			} else if (!result.containsKey(id)) {
+				result.put(id, null);
+				missing.add(id);
+			}
+		}
+		if (missing.isEmpty()) {
+			return result;
+		}
+
+		init();
+		final List<Get> gets = new ArrayList<Get>(missing.size());
+		for (final String id : missing) {
+			final Get g = new Get(Bytes.toBytes(id));
+			g.addColumn(Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN);
+			gets.add(g);
+		}
+		final Result[] found = idTable.get(gets);
+		for (int i = 0; i < missing.size(); i++) {
+			final String id = missing.get(i);
+			if (found[i] == null || found[i].isEmpty()) {
+				throw new IOException("ID " + id + " nicht im Wörterbuch");
+			}
+			final String term = Bytes.toString(found[i].getValue(
+					Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN));
+			cache(term, id);
+			result.put(id, term);
+		}
+		return result;
+	}
+
+	/**
+	 * Vergibt eine neue ID für einen Term und speichert beide Richtungen. Die
+	 * Zeile ID -> Term wird zuerst geschrieben, damit jede sichtbare ID eines
+	 * Terms auch dekodiert werden kann.
+	 *
+	 * @param term
+	 *            the term
+	 * @return the id
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static String allocate(final String term) throws IOException {
+		if (nextId >= blockEnd) {
+			blockEnd = idTable.incrementColumnValue(COUNTER_ROW,
+					Bytes.toBytes(COLUMN_FAMILY), COUNTER_COLUMN,
+					ID_BLOCK_SIZE);
+			nextId = blockEnd - ID_BLOCK_SIZE;
+		}
+		final String id = toId(nextId++);
+
+		// die ID ist eindeutig, daher kann die Zeile ohne Prüfung
+		// geschrieben werden
+		final Put idPut = new Put(Bytes.toBytes(id));
+		idPut.add(Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN,
+				Bytes.toBytes(term));
+		idTable.put(idPut);
+
+		final Put termPut = new Put(Bytes.toBytes(term));
+		termPut.add(Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN,
+				Bytes.toBytes(id));
+		if (EXCLUSIVE_LOAD) {
+			termTable.put(termPut);
+		} else if (!termTable.checkAndPut(Bytes.toBytes(term),
+				Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN, null, termPut)) {
+			// ein anderer Loader war schneller -> dessen ID verwenden und die
+			// eigene (nirgends referenzierte) ID wieder entfernen
+			idTable.delete(new Delete(Bytes.toBytes(id)));
+			final Get g = new Get(Bytes.toBytes(term));
+			g.addColumn(Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN);
+			return Bytes.toString(termTable.get(g).getValue(
+					Bytes.toBytes(COLUMN_FAMILY), VALUE_COLUMN));
+		}
+		return id;
+	}
+
+	/**
+	 * Schreibt gepufferte Einträge nach HBase. Die ID-Tabelle wird zuerst
+	 * geschrieben, damit keine ID ohne Term sichtbar wird.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void flush() throws IOException {
+		if (termTable != null) {
+			idTable.flushCommits();
+			termTable.flushCommits();
+		}
+	}
+
+	/**
+	 * Speichert eine Zuordnung in beiden Caches.
+	 *
+	 * @param term
+	 *            the term
+	 * @param id
+	 *            the id
+	 */
+	private static void cache(final String term, final String id) {
+		termCache.put(term, id);
+		idCache.put(id, term);
+	}
+
+	/**
+	 * Kodiert eine Zahl als ID fester Breite.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the id
+	 */
+	public static String toId(long value) {
+		final char[] result = new char[ID_WIDTH];
+		for (int i = ID_WIDTH - 1; i >= 0; i--) {
+			result[i] = ALPHABET[(int) (value & 0x3F)];
+			value >>>= 6;
+		}
+		return new String(result);
+	}
+}
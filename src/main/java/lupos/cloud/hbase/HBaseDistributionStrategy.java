@@ -23,10 +23,14 @@
  */
 package lupos.cloud.hbase;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeMap;
 
 import lupos.datastructures.items.Triple;
+import lupos.engine.operators.tripleoperator.TriplePattern;
 
 /**
  * Oberkalsse für die HBase Verteilungsstrategie der Tripel.
@@ -60,6 +64,15 @@ public abstract class HBaseDistributionStrategy {
 			case HexaSubkeyDistributionTableStrategy.STRAGEGY_ID:
 				instance = new HexaSubkeyDistributionTableStrategy();
 				break;
+			case DictionaryDistributionTableStrategy.STRAGEGY_ID:
+				instance = new DictionaryDistributionTableStrategy();
+				break;
+			case ThreePermutationDistributionTableStrategy.STRAGEGY_ID:
+				instance = new ThreePermutationDistributionTableStrategy();
+				break;
+			case QuadDistributionTableStrategy.STRAGEGY_ID:
+				instance = new QuadDistributionTableStrategy();
+				break;
 			default:
 				instance = new HexaDistributionTableStrategy();
 				break;
@@ -68,6 +81,29 @@ public abstract class HBaseDistributionStrategy {
 		return instance;
 	}
 
+	/**
+	 * Wählt für ein Tripel-Muster die Tabelle aus, in der abhängig von den
+	 * gebundenen Elementen gesucht wird. Die Reihenfolge der Buchstaben im
+	 * Tabellennamen (z.B. "p_os") gibt die Reihenfolge der Elemente in Rowkey
+	 * und Spaltenname an.
+	 *
+	 * @param triplePattern the triple pattern
+	 * @return the tablename
+	 */
+	public abstract String getTablename(TriplePattern triplePattern);
+
+	/**
+	 * Gibt die Anzahl der Elemente im Rowkey einer Tabelle zurück. Sind in
+	 * einem Tripel-Muster mehr Elemente gebunden, werden die übrigen als
+	 * Präfix des Spaltennamens gesucht.
+	 *
+	 * @param tablename the tablename
+	 * @return the row key length
+	 */
+	public int getRowKeyLength(final String tablename) {
+		return tablename.indexOf('_');
+	}
+
 	/**
 	 * Generiert anhand eines Tripel die verschiedenen Indizes.
 	 *
@@ -77,6 +113,35 @@ public abstract class HBaseDistributionStrategy {
 	public abstract Collection<HBaseTriple> generateIndecesTriple(
 			final Triple triple);
 
+	/**
+	 * Generiert die Indizes eines (möglicherweise) gespeicherten Tripels, z.B.
+	 * zum Löschen oder für Existenzprüfungen. Im Gegensatz zu
+	 * {@link #generateIndecesTriple(Triple)} werden die Terme nur
+	 * nachgeschlagen (siehe {@link #lookupTerm(String)}), es werden also keine
+	 * neuen Einträge angelegt. Ist ein Term unbekannt, kann das Tripel nicht
+	 * gespeichert sein und die Collection ist leer.
+	 *
+	 * @param triple the triple
+	 * @return the collection
+	 */
+	public Collection<HBaseTriple> lookupIndecesTriple(final Triple triple) {
+		return this.generateIndecesTriple(triple);
+	}
+
+	/**
+	 * Generiert anhand eines Quads (Tripel und Graph) die verschiedenen
+	 * Indizes. Strategien, die keine Graphen speichern (siehe
+	 * {@link #storesGraphs()}), ignorieren den Graph.
+	 *
+	 * @param triple the triple
+	 * @param graph the graph (N3-Darstellung)
+	 * @return the collection
+	 */
+	public Collection<HBaseTriple> generateIndecesTriple(final Triple triple,
+			final String graph) {
+		return this.generateIndecesTriple(triple);
+	}
+
 	/**
 	 * Gibt die Reihenfolge der Elemente wieder.
 	 *
@@ -91,13 +156,14 @@ public abstract class HBaseDistributionStrategy {
 	 * Generiert aus einem Tripel ein HBase Tripel.
 	 *
 	 * @param tablename the tablename
-	 * @param row_key the row_key
-	 * @param column the column
+	 * @param rowElements the row elements
+	 * @param columnElements the column elements
 	 * @param value the value
 	 * @return the h base triple
 	 */
 	public abstract HBaseTriple generateHBaseTriple(final String tablename,
-			final String row_key, final String column, final String value);
+			final String[] rowElements, final String[] columnElements,
+			final String value);
 	
 	/**
 	 * Gibt den Namen der Spaltenfamilie zurück.
@@ -106,4 +172,164 @@ public abstract class HBaseDistributionStrategy {
 	 */
 	public abstract String getColumnFamilyName();
 
+	/**
+	 * Legt alle von der Strategie benötigten Tabellen an.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void createTables() throws IOException {
+		for (final String tablename : this.getTableNames()) {
+			HBaseConnection.createTable(tablename, this.getColumnFamilyName());
+		}
+		HBaseStatistics.createTable();
+	}
+
+	/**
+	 * Wird vor dem Einfügen eines Tripelblocks aufgerufen, z.B. um alle Terme
+	 * des Blocks gesammelt zu kodieren.
+	 *
+	 * @param triples
+	 *            the triples
+	 */
+	public void prepareBlock(final Collection<Triple> triples) {
+		// standardmäßig nichts zu tun
+	}
+
+	/**
+	 * Wird vor {@link #lookupIndecesTriple(Triple)} für einen Tripelblock
+	 * aufgerufen, z.B. um alle Terme des Blocks gesammelt nachzuschlagen.
+	 *
+	 * @param triples
+	 *            the triples
+	 */
+	public void prepareLookupBlock(final Collection<Triple> triples) {
+		// standardmäßig nichts zu tun
+	}
+
+	/**
+	 * Kodiert einen Term (N3-Darstellung) für die Speicherung in HBase.
+	 *
+	 * @param term
+	 *            the term
+	 * @return the kodierter Term
+	 */
+	public String encodeTerm(final String term) {
+		return term;
+	}
+
+	/**
+	 * Kodiert einen in einer Anfrage gebundenen Term. Im Gegensatz zu
+	 * {@link #encodeTerm(String)} werden hier keine neuen Einträge angelegt.
+	 *
+	 * @param term
+	 *            the term
+	 * @return the kodierter Term
+	 */
+	public String lookupTerm(final String term) {
+		return term;
+	}
+
+	/**
+	 * Dekodiert einen aus HBase gelesenen Wert in die N3-Darstellung.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the term
+	 */
+	public String decodeTerm(final String value) {
+		return value;
+	}
+
+	/**
+	 * Dekodiert mehrere aus HBase gelesene Werte, z.B. alle Werte eines Blocks
+	 * von Anfrageergebnissen.
+	 *
+	 * @param values
+	 *            the values
+	 * @return Zuordnung Wert -> Term
+	 */
+	public Map<String, String> decodeTerms(final Collection<String> values) {
+		final HashMap<String, String> result = new HashMap<String, String>();
+		for (final String value : values) {
+			result.put(value, this.decodeTerm(value));
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt den Rowkey zurück, mit dem die zu den (kodierten) Literalen eines
+	 * Tripel-Musters gehörenden Zeilen gescannt werden. Besteht die Zeile aus
+	 * mehreren Unterzeilen, ist dies das gemeinsame Präfix.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @param literals
+	 *            the literals
+	 * @return the scan key
+	 */
+	public byte[] getScanKey(final String tablename, final String[] literals) {
+		return RowKeySalt.salt(CompositeKey.encode(literals));
+	}
+
+	/**
+	 * Gibt an, ob der Rowkey von {@link #getScanKey(String, String[])} nur ein
+	 * Präfix der zu lesenden Zeilen ist (z.B. bei Unterzeilen). Sonst wird
+	 * genau eine Zeile gelesen.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @return true, if is prefix scan
+	 */
+	public boolean isPrefixScan(final String tablename) {
+		return false;
+	}
+
+	/**
+	 * Gibt alle Rowkeys zurück, auf die die zu den Literalen gehörenden Spalten
+	 * verteilt sind.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @param literals
+	 *            the literals
+	 * @return the row keys
+	 */
+	public byte[][] getRowKeys(final String tablename, final String[] literals) {
+		return new byte[][] { this.getScanKey(tablename, literals) };
+	}
+
+	/**
+	 * Gibt an, ob die Tabellen die lexikalischen Werte der Terme enthalten.
+	 * Ist dies nicht der Fall, können Filter und Sortierungen nicht in Pig
+	 * ausgeführt werden.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean storesLexicalValues() {
+		return true;
+	}
+
+	/**
+	 * Gibt an, ob der Graph eines Quads als letztes Element des Spaltennamens
+	 * gespeichert wird (siehe {@link QuadDistributionTableStrategy}).
+	 *
+	 * @return true, if successful
+	 */
+	public boolean storesGraphs() {
+		return false;
+	}
+
+	/**
+	 * Kodiert einen Graph für die Speicherung im Spaltennamen bzw. für die
+	 * Suche nach einem gebundenen Graph.
+	 *
+	 * @param graph
+	 *            the graph (N3-Darstellung)
+	 * @return the kodierter Graph
+	 */
+	public String encodeGraph(final String graph) {
+		return this.encodeTerm(graph);
+	}
+
 }
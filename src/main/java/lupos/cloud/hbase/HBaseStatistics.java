@@ -0,0 +1,789 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Verwaltet die Statistiktabelle. Beim Laden (Bulk-Load und HBase API) und
+ * Löschen werden für jeden Index die Anzahl der Zellen und die Größe in Bytes
+ * pro Rowkey sowie pro Tabelle gezählt. Zusätzlich werden pro Prädikat die
+ * Anzahl der verschiedenen Subjekte und Objekte gepflegt, diese ergeben sich
+ * aus den Zeilen der Indizes mit den Rowkey-Elementen (s, p) bzw. (p, o), die
+ * von 0 auf einen positiven Wert wechseln (bzw. umgekehrt). Die Zähler werden
+ * per Increment geändert, so dass auch mehrere Loader gleichzeitig schreiben
+ * können.
+ *
+ * Damit die Zähler bei inkrementellem Laden korrekt bleiben, wird für jedes
+ * Tripel vorab geprüft, ob es bereits gespeichert ist (ein Multi-Get pro Block
+ * auf der ersten Tabelle der Strategie). Doppelte Tripel innerhalb eines
+ * Blocks bzw. einer noch nicht geladenen Bulk-Load-Generation werden über
+ * Fingerabdrücke erkannt. Die Mapper des verteilten Ladens (siehe
+ * TripleKVMapper) schreiben ihre Änderungen mit {@link #spill(DataOutput)} in
+ * eine Datei, die erst nach dem Laden der HFiles übernommen wird (siehe
+ * {@link #apply(DataInput)}).
+ *
+ * Alle Rowkey-Elemente werden in gespeicherter Form angegeben (siehe
+ * {@link HBaseDistributionStrategy#encodeTerm(String)}).
+ */
+public class HBaseStatistics {
+
+	/** Name der Statistiktabelle. */
+	public static final String TABLE_NAME = "statistics";
+
+	/** Column-Family der Statistiktabelle. */
+	public static final String COLUMN_FAMILY = "s";
+
+	/** Wenn true, werden die Statistiken beim Laden gepflegt. */
+	public static boolean ACTIVE = true;
+
+	/** Konfigurations-Eigenschaft für Map-Reduce Jobs. */
+	public static final String ACTIVE_PROPERTY = "lupos.cloud.statistics.active";
+
+	/**
+	 * Wenn true, wird vor dem Zählen geprüft, ob ein Tripel bereits in HBase
+	 * gespeichert ist. Nur bei einem einzigen Ladevorgang in leere Tabellen
+	 * kann darauf verzichtet werden, Duplikate über Bulk-Load-Generationen
+	 * hinweg werden dann mehrfach gezählt.
+	 */
+	public static boolean CHECK_EXISTING = true;
+
+	/** Spalte Anzahl der Zellen. */
+	private static final byte[] CELLS = Bytes.toBytes("c");
+
+	/** Spalte Größe in Bytes. */
+	private static final byte[] BYTES = Bytes.toBytes("b");
+
+	/** Spalte Anzahl verschiedener Subjekte. */
+	private static final byte[] SUBJECTS = Bytes.toBytes("s");
+
+	/** Spalte Anzahl verschiedener Objekte. */
+	private static final byte[] OBJECTS = Bytes.toBytes("o");
+
+	/** Markierung der Zeilen mit Tabellensummen. */
+	private static final String TABLE_MARKER = "#table";
+
+	/** Markierung der Zeilen mit Prädikatstatistiken. */
+	private static final String PREDICATE_MARKER = "#predicate";
+
+	/** Gesammelte Änderungen: Statistikzeile -> {Zellen, Bytes}. */
+	private static TreeMap<byte[], long[]> deltas = new TreeMap<byte[], long[]>(
+			Bytes.BYTES_COMPARATOR);
+
+	/**
+	 * Statistikzeile -> Prädikat und Spalte der verschiedenen Subjekte bzw.
+	 * Objekte, die bei einem Wechsel der Zeile von bzw. auf 0 angepasst wird.
+	 */
+	private static TreeMap<byte[], Object[]> distinctRows = new TreeMap<byte[], Object[]>(
+			Bytes.BYTES_COMPARATOR);
+
+	/** Fingerabdrücke der gezählten, aber noch nicht geladenen Tripel. */
+	private static long[] pending = new long[1 << 16];
+
+	/** Anzahl der Einträge in {@link #pending}. */
+	private static int pendingSize = 0;
+
+	/**
+	 * Fingerabdrücke der Generationen, die gerade per BulkLoad geladen werden
+	 * (siehe {@link #sealGeneration()}).
+	 */
+	private static final ArrayList<Generation> loading = new ArrayList<Generation>();
+
+	/** Referenz Statistiktabelle. */
+	private static HTable table = null;
+
+	/**
+	 * Erzeugt die Statistiktabelle.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void createTable() throws IOException {
+		HBaseConnection.createAuxiliaryTable(TABLE_NAME, COLUMN_FAMILY);
+	}
+
+	/**
+	 * Öffnet die Tabelle.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void init() throws IOException {
+		if (table == null) {
+			HBaseConnection.init();
+			table = new HTable(HBaseConnection.getConfiguration(), TABLE_NAME);
+		}
+	}
+
+	/**
+	 * Zählt die Zellen eines Blocks neu eingefügter Tripel. Muss vor dem
+	 * Schreiben des Blocks aufgerufen werden.
+	 *
+	 * @param items
+	 *            die Zellen aller Indizes (siehe
+	 *            {@link HBaseDistributionStrategy#generateIndecesTriple(lupos.datastructures.items.Triple)})
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void add(final Collection<HBaseTriple> items)
+			throws IOException {
+		if (!ACTIVE) {
+			return;
+		}
+		final HashSet<Long> counted = new HashSet<Long>();
+		final HashSet<Long> candidates = new HashSet<Long>();
+		final List<HBaseTriple> lookups = new ArrayList<HBaseTriple>();
+		final String firstTable = HBaseDistributionStrategy.getTableInstance()
+				.getTableNames()[0];
+		for (final HBaseTriple item : items) {
+			if (item.getTablename().equals(firstTable)) {
+				final long fingerprint = getFingerprint(item);
+				if (!containsPending(fingerprint)
+						&& candidates.add(fingerprint)) {
+					lookups.add(item);
+				}
+			}
+		}
+		final boolean[] existing = exists(lookups, CHECK_EXISTING);
+		for (int i = 0; i < lookups.size(); i++) {
+			if (!existing[i]) {
+				final long fingerprint = getFingerprint(lookups.get(i));
+				counted.add(fingerprint);
+				addPending(fingerprint);
+			}
+		}
+		count(items, counted, 1);
+	}
+
+	/**
+	 * Zählt die Zellen gelöschter Tripel ab. Muss vor dem Löschen aufgerufen
+	 * werden, nicht vorhandene Tripel werden ignoriert.
+	 *
+	 * @param items
+	 *            die Zellen aller Indizes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void remove(final Collection<HBaseTriple> items)
+			throws IOException {
+		if (!ACTIVE) {
+			return;
+		}
+		final HashSet<Long> counted = new HashSet<Long>();
+		final List<HBaseTriple> lookups = new ArrayList<HBaseTriple>();
+		final String firstTable = HBaseDistributionStrategy.getTableInstance()
+				.getTableNames()[0];
+		for (final HBaseTriple item : items) {
+			if (item.getTablename().equals(firstTable)) {
+				lookups.add(item);
+			}
+		}
+		final boolean[] existing = exists(lookups, true);
+		for (int i = 0; i < lookups.size(); i++) {
+			if (existing[i]) {
+				counted.add(getFingerprint(lookups.get(i)));
+			}
+		}
+		count(items, counted, -1);
+	}
+
+	/**
+	 * Prüft per Multi-Get, welche Zellen bereits gespeichert sind.
+	 *
+	 * @param items
+	 *            the items
+	 * @param check
+	 *            false, falls nicht geprüft werden soll
+	 * @return the boolean[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static boolean[] exists(final List<HBaseTriple> items,
+			final boolean check) throws IOException {
+		final boolean[] result = new boolean[items.size()];
+		if (!check || items.isEmpty()) {
+			return result;
+		}
+		final List<Get> gets = new ArrayList<Get>(items.size());
+		for (final HBaseTriple item : items) {
+			final Get g = new Get(item.getRowKey());
+			g.addColumn(Bytes.toBytes(item.getColumnFamily()),
+					item.getColumn());
+			gets.add(g);
+		}
+		final Result[] found = HBaseConnection.getTable(
+				items.get(0).getTablename()).get(gets);
+		for (int i = 0; i < result.length; i++) {
+			result[i] = found[i] != null && !found[i].isEmpty();
+		}
+		return result;
+	}
+
+	/**
+	 * Sammelt die Änderungen der Zähler für alle Zellen der gezählten Tripel.
+	 *
+	 * @param items
+	 *            the items
+	 * @param counted
+	 *            Fingerabdrücke der zu zählenden Tripel
+	 * @param sign
+	 *            1 beim Einfügen, -1 beim Löschen
+	 */
+	private static void count(final Collection<HBaseTriple> items,
+			final HashSet<Long> counted, final int sign) {
+		if (counted.isEmpty()) {
+			return;
+		}
+		final HBaseDistributionStrategy strategy = HBaseDistributionStrategy
+				.getTableInstance();
+		for (final HBaseTriple item : items) {
+			if (!counted.contains(getFingerprint(item))) {
+				continue;
+			}
+			final String tablename = item.getTablename();
+			final String[] rowElements = Arrays.copyOf(item.getRowElements(),
+					strategy.getRowKeyLength(tablename));
+			final long size = item.getRowKey().length
+					+ item.getColumnFamily().length() + item.getColumn().length
+					+ Bytes.toBytes(item.getValue()).length;
+
+			final byte[] row = getRow(tablename, rowElements);
+			addDelta(row, sign, sign * size);
+			addDelta(CompositeKey.encodeComposite(TABLE_MARKER, tablename),
+					sign, sign * size);
+			if (!distinctRows.containsKey(row)) {
+				final byte[] column = getDistinctColumn(tablename);
+				if (column != null) {
+					final int p = tablename.indexOf('p');
+					distinctRows.put(row, new Object[] { rowElements[p], column });
+				}
+			}
+		}
+	}
+
+	/**
+	 * Addiert eine Änderung.
+	 *
+	 * @param row
+	 *            the row
+	 * @param cells
+	 *            the cells
+	 * @param bytes
+	 *            the bytes
+	 */
+	private static void addDelta(final byte[] row, final long cells,
+			final long bytes) {
+		long[] delta = deltas.get(row);
+		if (delta == null) {
+			delta = new long[2];
+			deltas.put(row, delta);
+		}
+		delta[0] += cells;
+		delta[1] += bytes;
+	}
+
+	/**
+	 * Gibt die Spalte der Prädikatstatistik zurück, die von den Zeilen einer
+	 * Tabelle abgeleitet wird: Zeilen mit den Elementen (s, p) bestimmen die
+	 * verschiedenen Subjekte, Zeilen mit (p, o) die verschiedenen Objekte. Gibt
+	 * es mehrere passende Tabellen, wird nur die erste verwendet.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @return die Spalte oder null
+	 */
+	private static byte[] getDistinctColumn(final String tablename) {
+		final HBaseDistributionStrategy strategy = HBaseDistributionStrategy
+				.getTableInstance();
+		final String letters = getRowLetters(tablename);
+		if (!letters.equals("ps") && !letters.equals("op")) {
+			return null;
+		}
+		for (final String other : strategy.getTableNames()) {
+			if (getRowLetters(other).equals(letters)) {
+				if (!other.equals(tablename)) {
+					return null;
+				}
+				break;
+			}
+		}
+		return letters.equals("ps") ? SUBJECTS : OBJECTS;
+	}
+
+	/**
+	 * Gibt die sortierten Buchstaben des Rowkeys einer Tabelle zurück.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @return the row letters
+	 */
+	private static String getRowLetters(final String tablename) {
+		final char[] letters = tablename.substring(0,
+				HBaseDistributionStrategy.getTableInstance().getRowKeyLength(
+						tablename)).toCharArray();
+		Arrays.sort(letters);
+		return new String(letters);
+	}
+
+	/**
+	 * Schreibt die gesammelten Änderungen per Increment in die
+	 * Statistiktabelle und verwirft die Fingerabdrücke. Beim Bulk-Load werden
+	 * die Änderungen je Generation erst geschrieben, nachdem sie geladen ist
+	 * (siehe {@link #sealGeneration()}).
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void flush() throws IOException {
+		pending = new long[1 << 16];
+		pendingSize = 0;
+		writeDeltas(deltas, distinctRows);
+		deltas = new TreeMap<byte[], long[]>(Bytes.BYTES_COMPARATOR);
+		distinctRows = new TreeMap<byte[], Object[]>(Bytes.BYTES_COMPARATOR);
+	}
+
+	/**
+	 * Schließt die Zählung einer BulkLoad-Generation ab, deren Tripel im
+	 * Hintergrund geladen werden. Änderungen und Fingerabdrücke bleiben bis zu
+	 * {@link #releaseGeneration(Object, boolean)} bei der Generation: die
+	 * Fingerabdrücke, damit Tripel der folgenden Generationen nicht doppelt
+	 * gezählt werden, die Änderungen, damit eine fehlgeschlagene Generation
+	 * nicht gezählt wird.
+	 *
+	 * @return Kennung der Generation
+	 */
+	public static synchronized Object sealGeneration() {
+		final Generation sealed = new Generation(pending, deltas, distinctRows);
+		if (pendingSize > 0) {
+			loading.add(sealed);
+		}
+		pending = new long[1 << 16];
+		pendingSize = 0;
+		deltas = new TreeMap<byte[], long[]>(Bytes.BYTES_COMPARATOR);
+		distinctRows = new TreeMap<byte[], Object[]>(Bytes.BYTES_COMPARATOR);
+		return sealed;
+	}
+
+	/**
+	 * Schreibt die Änderungen einer Generation, falls sie vollständig geladen
+	 * wurde, und verwirft anschließend ihre Fingerabdrücke. Die Änderungen
+	 * einer fehlgeschlagenen Generation werden verworfen, ihre Tripel werden
+	 * beim erneuten Laden (siehe LoadCheckpoint) wieder gezählt.
+	 *
+	 * @param generation
+	 *            Kennung der Generation (siehe {@link #sealGeneration()})
+	 * @param loaded
+	 *            true, falls alle Tabellen der Generation geladen wurden
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void releaseGeneration(final Object generation,
+			final boolean loaded) throws IOException {
+		for (int i = 0; i < loading.size(); i++) {
+			if (loading.get(i) == generation) {
+				loading.remove(i);
+				break;
+			}
+		}
+		if (loaded) {
+			final Generation sealed = (Generation) generation;
+			writeDeltas(sealed.deltas, sealed.distinctRows);
+		}
+	}
+
+	/**
+	 * Gibt die Anzahl der Statistikzeilen mit gesammelten Änderungen zurück.
+	 *
+	 * @return the int
+	 */
+	public static synchronized int getPendingRows() {
+		return deltas.size();
+	}
+
+	/**
+	 * Schreibt die gesammelten Änderungen in einen Strom statt in die
+	 * Statistiktabelle und verwirft sie. Die Fingerabdrücke bleiben erhalten.
+	 * Kann mehrmals aufgerufen werden, das Ende des Stroms wird mit
+	 * out.writeBoolean(false) markiert.
+	 *
+	 * @param out
+	 *            the out
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void spill(final DataOutput out)
+			throws IOException {
+		if (deltas.isEmpty()) {
+			return;
+		}
+		out.writeBoolean(true);
+		out.writeInt(deltas.size());
+		for (final Map.Entry<byte[], long[]> entry : deltas.entrySet()) {
+			Bytes.writeByteArray(out, entry.getKey());
+			out.writeLong(entry.getValue()[0]);
+			out.writeLong(entry.getValue()[1]);
+			final Object[] distinct = distinctRows.get(entry.getKey());
+			if (distinct == null) {
+				out.writeByte(0);
+			} else {
+				out.writeByte(distinct[1] == SUBJECTS ? 1 : 2);
+				Bytes.writeByteArray(out, Bytes.toBytes((String) distinct[0]));
+			}
+		}
+		deltas = new TreeMap<byte[], long[]>(Bytes.BYTES_COMPARATOR);
+		distinctRows = new TreeMap<byte[], Object[]>(Bytes.BYTES_COMPARATOR);
+	}
+
+	/**
+	 * Übernimmt die mit {@link #spill(DataOutput)} geschriebenen Änderungen in
+	 * die Statistiktabelle.
+	 *
+	 * @param in
+	 *            the in
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void apply(final DataInput in)
+			throws IOException {
+		while (in.readBoolean()) {
+			final int size = in.readInt();
+			final TreeMap<byte[], long[]> chunk = new TreeMap<byte[], long[]>(
+					Bytes.BYTES_COMPARATOR);
+			final TreeMap<byte[], Object[]> chunkDistinct = new TreeMap<byte[], Object[]>(
+					Bytes.BYTES_COMPARATOR);
+			for (int i = 0; i < size; i++) {
+				final byte[] row = Bytes.readByteArray(in);
+				chunk.put(row, new long[] { in.readLong(), in.readLong() });
+				final byte column = in.readByte();
+				if (column != 0) {
+					chunkDistinct.put(row, new Object[] {
+							Bytes.toString(Bytes.readByteArray(in)),
+							column == 1 ? SUBJECTS : OBJECTS });
+				}
+			}
+			writeDeltas(chunk, chunkDistinct);
+		}
+	}
+
+	/**
+	 * Schreibt gesammelte Änderungen.
+	 *
+	 * @param deltas
+	 *            Statistikzeile -> {Zellen, Bytes}
+	 * @param distinctRows
+	 *            Statistikzeile -> Prädikat und Spalte der verschiedenen
+	 *            Subjekte bzw. Objekte
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeDeltas(final TreeMap<byte[], long[]> deltas,
+			final TreeMap<byte[], Object[]> distinctRows) throws IOException {
+		if (deltas.isEmpty()) {
+			return;
+		}
+		init();
+		final byte[] family = Bytes.toBytes(COLUMN_FAMILY);
+		final TreeMap<byte[], long[]> predicateDeltas = new TreeMap<byte[], long[]>(
+				Bytes.BYTES_COMPARATOR);
+		for (final Map.Entry<byte[], long[]> entry : deltas.entrySet()) {
+			final long[] delta = entry.getValue();
+			if (delta[0] == 0 && delta[1] == 0) {
+				continue;
+			}
+			final Increment inc = new Increment(entry.getKey());
+			inc.addColumn(family, CELLS, delta[0]);
+			inc.addColumn(family, BYTES, delta[1]);
+			final Result r = table.increment(inc);
+
+			final Object[] distinct = distinctRows.get(entry.getKey());
+			if (distinct == null || delta[0] == 0) {
+				continue;
+			}
+			final long cells = Bytes.toLong(r.getValue(family, CELLS));
+			int change = 0;
+			if (delta[0] > 0 && cells == delta[0]) {
+				change = 1;
+			} else if (delta[0] < 0 && cells == 0) {
+				change = -1;
+			}
+			if (change != 0) {
+				final byte[] row = CompositeKey.encodeComposite(
+						PREDICATE_MARKER, (String) distinct[0]);
+				long[] d = predicateDeltas.get(row);
+				if (d == null) {
+					d = new long[2];
+					predicateDeltas.put(row, d);
+				}
+				d[distinct[1] == SUBJECTS ? 0 : 1] += change;
+			}
+		}
+		for (final Map.Entry<byte[], long[]> entry : predicateDeltas
+				.entrySet()) {
+			final Increment inc = new Increment(entry.getKey());
+			inc.addColumn(family, SUBJECTS, entry.getValue()[0]);
+			inc.addColumn(family, OBJECTS, entry.getValue()[1]);
+			table.increment(inc);
+		}
+	}
+
+	/**
+	 * Gibt die Anzahl der Zellen und die Größe in Bytes einer Zeile zurück.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @param rowElements
+	 *            die Rowkey-Elemente (ohne Unterzeilen, siehe
+	 *            {@link HexaSubkeyDistributionTableStrategy})
+	 * @return {Zellen, Bytes}
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static long[] getRowStatistics(final String tablename,
+			final String... rowElements) throws IOException {
+		return get(getRow(tablename, rowElements), CELLS, BYTES);
+	}
+
+	/**
+	 * Gibt die Anzahl der Zellen und die Größe in Bytes einer Tabelle zurück.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @return {Zellen, Bytes}
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static long[] getTableStatistics(final String tablename)
+			throws IOException {
+		return get(CompositeKey.encodeComposite(TABLE_MARKER, tablename),
+				CELLS, BYTES);
+	}
+
+	/**
+	 * Gibt die Anzahl der verschiedenen Subjekte und Objekte eines Prädikats
+	 * zurück. Nur verfügbar, wenn die Strategie Indizes mit den Rowkeys (s, p)
+	 * bzw. (p, o) besitzt, sonst 0.
+	 *
+	 * @param predicate
+	 *            the predicate
+	 * @return {Subjekte, Objekte}
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static long[] getPredicateStatistics(final String predicate)
+			throws IOException {
+		return get(CompositeKey.encodeComposite(PREDICATE_MARKER, predicate),
+				SUBJECTS, OBJECTS);
+	}
+
+	/**
+	 * Liest zwei Zähler einer Statistikzeile.
+	 *
+	 * @param row
+	 *            the row
+	 * @param first
+	 *            the first
+	 * @param second
+	 *            the second
+	 * @return the long[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static long[] get(final byte[] row, final byte[] first,
+			final byte[] second) throws IOException {
+		init();
+		final byte[] family = Bytes.toBytes(COLUMN_FAMILY);
+		final Result r = table.get(new Get(row));
+		final long[] result = new long[2];
+		if (r != null && !r.isEmpty()) {
+			final byte[] v1 = r.getValue(family, first);
+			final byte[] v2 = r.getValue(family, second);
+			result[0] = v1 == null ? 0 : Bytes.toLong(v1);
+			result[1] = v2 == null ? 0 : Bytes.toLong(v2);
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die Statistikzeile einer Indexzeile zurück.
+	 *
+	 * @param tablename
+	 *            the tablename
+	 * @param rowElements
+	 *            the row elements
+	 * @return the row
+	 */
+	private static byte[] getRow(final String tablename,
+			final String[] rowElements) {
+		final String[] elements = new String[rowElements.length + 1];
+		elements[0] = tablename;
+		System.arraycopy(rowElements, 0, elements, 1, rowElements.length);
+		return CompositeKey.encodeComposite(elements);
+	}
+
+	/**
+	 * Berechnet einen 64-Bit Fingerabdruck (FNV-1a) des Tripels, zu dem eine
+	 * Zelle gehört. Die Elemente werden dazu nach den Buchstaben des
+	 * Tabellennamens sortiert, so dass alle Indizes eines Tripels denselben
+	 * Fingerabdruck liefern. Zusätzliche Elemente des Spaltennamens (siehe
+	 * {@link QuadDistributionTableStrategy}) werden angehängt.
+	 *
+	 * @param item
+	 *            the item
+	 * @return the fingerprint
+	 */
+	private static long getFingerprint(final HBaseTriple item) {
+		final String tablename = item.getTablename();
+		final String letters = tablename.replace("_", "");
+		final int rowKeyLength = HBaseDistributionStrategy.getTableInstance()
+				.getRowKeyLength(tablename);
+		final String[] rowElements = item.getRowElements();
+		final String[] columnElements = item.getColumnElements();
+		final TreeMap<Character, String> sorted = new TreeMap<Character, String>();
+		for (int i = 0; i < letters.length(); i++) {
+			sorted.put(letters.charAt(i), i < rowKeyLength ? rowElements[i]
+					: columnElements[i - rowKeyLength]);
+		}
+		// weitere Elemente des Spaltennamens (z.B. der Graph) gehören zum
+		// Tripel
+		final ArrayList<String> elements = new ArrayList<String>(
+				sorted.values());
+		for (int i = letters.length() - rowKeyLength; i < columnElements.length; i++) {
+			elements.add(columnElements[i]);
+		}
+		final byte[] key = CompositeKey.encodeComposite(elements
+				.toArray(new String[elements.size()]));
+		long hash = 0xcbf29ce484222325L;
+		for (final byte b : key) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Prüft, ob ein Fingerabdruck bereits gezählt wurde.
+	 *
+	 * @param fingerprint
+	 *            the fingerprint
+	 * @return true, if successful
+	 */
+	private static boolean containsPending(final long fingerprint) {
+		if (contains(pending, fingerprint)) {
+			return true;
+		}
+		for (final Generation sealed : loading) {
+			if (contains(sealed.fingerprints, fingerprint)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sucht einen Fingerabdruck in einer Tabelle.
+	 *
+	 * @param values
+	 *            the values
+	 * @param fingerprint
+	 *            the fingerprint
+	 * @return true, if successful
+	 */
+	private static boolean contains(final long[] values, final long fingerprint) {
+		int i = (int) (fingerprint ^ (fingerprint >>> 32)) & (values.length - 1);
+		while (values[i] != 0) {
+			if (values[i] == fingerprint) {
+				return true;
+			}
+			i = (i + 1) & (values.length - 1);
+		}
+		return false;
+	}
+
+	/**
+	 * Fügt einen Fingerabdruck hinzu (offene Adressierung, die Tabelle wird
+	 * bei halber Füllung verdoppelt).
+	 *
+	 * @param fingerprint
+	 *            the fingerprint
+	 */
+	private static void addPending(final long fingerprint) {
+		if (2 * (pendingSize + 1) > pending.length) {
+			final long[] old = pending;
+			pending = new long[old.length * 2];
+			pendingSize = 0;
+			for (final long value : old) {
+				if (value != 0) {
+					addPending(value);
+				}
+			}
+		}
+		int i = (int) (fingerprint ^ (fingerprint >>> 32)) & (pending.length - 1);
+		while (pending[i] != 0) {
+			if (pending[i] == fingerprint) {
+				return;
+			}
+			i = (i + 1) & (pending.length - 1);
+		}
+		pending[i] = fingerprint;
+		pendingSize++;
+	}
+
+	/**
+	 * Eine abgeschlossene BulkLoad-Generation (siehe {@link #sealGeneration()}).
+	 */
+	private static class Generation {
+
+		/** Fingerabdrücke der gezählten Tripel. */
+		final long[] fingerprints;
+
+		/** Änderungen: Statistikzeile -> {Zellen, Bytes}. */
+		final TreeMap<byte[], long[]> deltas;
+
+		/** Statistikzeile -> Prädikat und Spalte (siehe distinctRows). */
+		final TreeMap<byte[], Object[]> distinctRows;
+
+		Generation(final long[] fingerprints,
+				final TreeMap<byte[], long[]> deltas,
+				final TreeMap<byte[], Object[]> distinctRows) {
+			this.fingerprints = fingerprints;
+			this.deltas = deltas;
+			this.distinctRows = distinctRows;
+		}
+	}
+}
@@ -23,19 +23,26 @@
  */
 package lupos.cloud.hbase;
 
+import java.util.Arrays;
+
 /**
  * Speichert die Informationen eines HBase Tripels <=> einer Zeile in HBase.
+ * Rowkey und Spaltenname werden als Liste ihrer Elemente gehalten und erst
+ * beim Schreiben mit {@link CompositeKey} binär kodiert.
  */
 public class HBaseTriple {
 
-	/** The row_key. */
-	String row_key;
+	/** Elemente des Rowkeys. */
+	String[] rowElements;
 
 	/** The column family. */
 	String columnFamily;
 
-	/** The column. */
-	String column;
+	/** Elemente des Spaltennamens. */
+	String[] columnElements;
+
+	/** Elemente des Spaltennamens, die in die Bitvektoren eingehen. */
+	String[] bloomElements;
 
 	/** The value. */
 	String value;
@@ -48,20 +55,21 @@ public class HBaseTriple {
 	 * 
 	 * @param tablename
 	 *            the tablename
-	 * @param row_key
-	 *            the row_key
+	 * @param rowElements
+	 *            the row elements
 	 * @param columnFamily
 	 *            the column family
-	 * @param column
-	 *            the column
+	 * @param columnElements
+	 *            the column elements
 	 * @param value
 	 *            the value
 	 */
-	public HBaseTriple(String tablename, String row_key, String columnFamily,
-			String column, String value) {
+	public HBaseTriple(String tablename, String[] rowElements,
+			String columnFamily, String[] columnElements, String value) {
 		super();
-		this.row_key = row_key;
-		this.column = column;
+		this.rowElements = rowElements;
+		this.columnElements = columnElements;
+		this.bloomElements = columnElements;
 		this.columnFamily = columnFamily;
 		this.value = value;
 		this.tablename = tablename;
@@ -77,41 +85,86 @@ public class HBaseTriple {
 	}
 
 	/**
-	 * Gets the row_key.
+	 * Gets the row elements.
 	 * 
-	 * @return the row_key
+	 * @return the row elements
 	 */
-	public String getRow_key() {
-		return row_key;
+	public String[] getRowElements() {
+		return rowElements;
 	}
 
 	/**
-	 * Sets the row_key.
+	 * Sets the row elements.
 	 * 
-	 * @param row_key
-	 *            the new row_key
+	 * @param rowElements
+	 *            the new row elements
 	 */
-	public void setRow_key(String row_key) {
-		this.row_key = row_key;
+	public void setRowElements(String[] rowElements) {
+		this.rowElements = rowElements;
 	}
 
 	/**
-	 * Gets the column.
+	 * Gibt den binär kodierten Rowkey zurück (ggf. mit Salt, siehe
+	 * {@link RowKeySalt}).
 	 * 
-	 * @return the column
+	 * @return the row key
 	 */
-	public String getColumn() {
-		return column;
+	public byte[] getRowKey() {
+		return RowKeySalt.salt(CompositeKey.encode(rowElements));
 	}
 
 	/**
-	 * Sets the column.
+	 * Gets the column elements.
 	 * 
-	 * @param column_family
-	 *            the new column
+	 * @return the column elements
+	 */
+	public String[] getColumnElements() {
+		return columnElements;
+	}
+
+	/**
+	 * Sets the column elements.
+	 * 
+	 * @param columnElements
+	 *            the new column elements
+	 */
+	public void setColumnElements(String[] columnElements) {
+		this.columnElements = columnElements;
+		this.bloomElements = columnElements;
+	}
+
+	/**
+	 * Hängt ein Element an den Spaltennamen an, das nicht in die Bitvektoren
+	 * eingeht (z.B. den Graph, siehe {@link QuadDistributionTableStrategy}).
+	 * 
+	 * @param element
+	 *            the element
+	 */
+	public void appendColumnElement(String element) {
+		String[] result = Arrays.copyOf(columnElements,
+				columnElements.length + 1);
+		result[columnElements.length] = element;
+		this.columnElements = result;
+	}
+
+	/**
+	 * Gibt die Elemente des Spaltennamens zurück, deren Fingerabdrücke in den
+	 * Bloomfilter-Spalten ("1" für das erste, "2" für das zweite Element)
+	 * gespeichert werden.
+	 * 
+	 * @return the bloom elements
+	 */
+	public String[] getBloomElements() {
+		return bloomElements;
+	}
+
+	/**
+	 * Gibt den binär kodierten Spaltennamen zurück.
+	 * 
+	 * @return the column
 	 */
-	public void setColumn(String column_family) {
-		this.column = column_family;
+	public byte[] getColumn() {
+		return CompositeKey.encode(columnElements);
 	}
 
 	/**
@@ -140,8 +193,9 @@ public class HBaseTriple {
 	 */
 	@Override
 	public String toString() {
-		return "HBaseTriple [row_key=" + row_key + ", column_family=" + column
-				+ ", value=" + value + "]";
+		return "HBaseTriple [row_key=" + Arrays.toString(rowElements)
+				+ ", column=" + Arrays.toString(columnElements) + ", value="
+				+ value + "]";
 	}
 
 	/**
@@ -160,7 +214,7 @@ public class HBaseTriple {
 	 *            the new column family
 	 */
 	public void setColumnFamily(String column_family) {
-		this.column = column_family;
+		this.columnFamily = column_family;
 	}
 
 }
@@ -0,0 +1,359 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+
+/**
+ * Schreibt die Zellen im Modus ohne BulkLoad (siehe
+ * {@link HBaseConnection#addRow(HBaseTriple)}) mit mehreren Threads. Die Puts
+ * werden je Tabelle zu Stapeln zusammengefasst und über eine beschränkte
+ * Warteschlange an die Writer-Threads verteilt. Jeder Thread hat eigene
+ * HTable-Referenzen mit deaktiviertem AutoFlush und großem Schreibpuffer.
+ * Optional wird das Write-Ahead-Log abgeschaltet, die Tabellen werden dann
+ * bei {@link #flush()} auf die Festplatte geschrieben. Deletes (siehe
+ * {@link HBaseDeleter}) werden ebenso gestapelt, aber immer mit
+ * Write-Ahead-Log gesendet.
+ */
+public final class HBaseWriter {
+
+	/** Anzahl der Writer-Threads, 0 schreibt jeden Put direkt (langsam). */
+	public static int WRITER_THREADS = 4;
+
+	/** Anzahl der Puts je Stapel. */
+	public static int BATCH_SIZE = 1000;
+
+	/** Maximale Anzahl der Stapel in der Warteschlange. */
+	public static int QUEUE_SIZE = 64;
+
+	/** Größe des Schreibpuffers je Thread und Tabelle in Bytes. */
+	public static long WRITE_BUFFER_SIZE = 12L * 1024 * 1024;
+
+	/**
+	 * Wenn true, wird ohne Write-Ahead-Log geschrieben. Schneller, aber bei
+	 * einem Ausfall eines RegionServers vor dem Flush gehen Daten verloren.
+	 */
+	public static boolean DISABLE_WAL = false;
+
+	/** Markierung für {@link #flush()}. */
+	private static final Batch FLUSH = new Batch(null, false);
+
+	/** Warteschlange der Stapel. */
+	private static BlockingQueue<Batch> queue = null;
+
+	/** Writer-Threads. */
+	private static final ArrayList<Thread> threads = new ArrayList<Thread>();
+
+	/** Stapel, die gerade gefüllt werden (Tabelle -> Stapel). */
+	private static final HashMap<String, Batch> batches = new HashMap<String, Batch>();
+
+	/** Stapel von Deletes, die gerade gefüllt werden (Tabelle -> Stapel). */
+	private static final HashMap<String, Batch> deleteBatches = new HashMap<String, Batch>();
+
+	/** Tabellen, in die seit dem letzten Flush geschrieben wurde. */
+	private static final HashSet<String> written = new HashSet<String>();
+
+	/** Zähler für den laufenden Flush. */
+	private static CountDownLatch flushLatch = null;
+
+	/** Erster Fehler eines Writer-Threads. */
+	private static IOException error = null;
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private HBaseWriter() {
+	}
+
+	/**
+	 * Fügt einen Put für eine Tabelle hinzu.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param put
+	 *            the put
+	 * @throws IOException
+	 *             falls ein Writer-Thread fehlgeschlagen ist
+	 */
+	public static synchronized void put(final String tablename, final Put put)
+			throws IOException {
+		checkError();
+		if (DISABLE_WAL) {
+			put.setWriteToWAL(false);
+		}
+		Batch batch = batches.get(tablename);
+		if (batch == null) {
+			batch = new Batch(tablename, false);
+			batches.put(tablename, batch);
+		}
+		batch.puts.add(put);
+		if (batch.puts.size() >= BATCH_SIZE) {
+			batches.remove(tablename);
+			enqueue(batch);
+		}
+	}
+
+	/**
+	 * Fügt einen Delete für eine Tabelle hinzu.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param delete
+	 *            the delete
+	 * @throws IOException
+	 *             falls ein Writer-Thread fehlgeschlagen ist
+	 */
+	public static synchronized void delete(final String tablename,
+			final Delete delete) throws IOException {
+		checkError();
+		Batch batch = deleteBatches.get(tablename);
+		if (batch == null) {
+			batch = new Batch(tablename, true);
+			deleteBatches.put(tablename, batch);
+		}
+		batch.deletes.add(delete);
+		if (batch.deletes.size() >= BATCH_SIZE) {
+			deleteBatches.remove(tablename);
+			enqueue(batch);
+		}
+	}
+
+	/**
+	 * Übergibt alle angefangenen Stapel und wartet, bis alle Threads ihre
+	 * Schreibpuffer geleert haben. Ohne Write-Ahead-Log werden die Tabellen
+	 * anschließend auf die Festplatte geschrieben.
+	 * 
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void flush() throws IOException {
+		if (queue == null) {
+			return;
+		}
+		for (final Batch batch : batches.values()) {
+			enqueue(batch);
+		}
+		batches.clear();
+		for (final Batch batch : deleteBatches.values()) {
+			enqueue(batch);
+		}
+		deleteBatches.clear();
+		flushLatch = new CountDownLatch(threads.size());
+		for (int i = 0; i < threads.size(); i++) {
+			enqueue(FLUSH);
+		}
+		try {
+			flushLatch.await();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		checkError();
+		if (DISABLE_WAL) {
+			for (final String tablename : written) {
+				try {
+					HBaseConnection.admin.flush(tablename);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				}
+			}
+		}
+		written.clear();
+	}
+
+	/**
+	 * Übergibt einen Stapel an die Writer-Threads (startet sie bei Bedarf).
+	 * 
+	 * @param batch
+	 *            the batch
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void enqueue(final Batch batch) throws IOException {
+		if (queue == null) {
+			start();
+		}
+		if (batch.tablename != null && !batch.isDelete()) {
+			written.add(batch.tablename);
+		}
+		try {
+			queue.put(batch);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Startet die Writer-Threads.
+	 */
+	private static void start() {
+		queue = new ArrayBlockingQueue<Batch>(QUEUE_SIZE);
+		for (int i = 0; i < WRITER_THREADS; i++) {
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					write();
+				}
+			}, "HBaseWriter-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+	}
+
+	/**
+	 * Schleife eines Writer-Threads.
+	 */
+	private static void write() {
+		final Map<String, HTable> tables = new HashMap<String, HTable>();
+		while (true) {
+			final Batch batch;
+			try {
+				batch = queue.take();
+			} catch (final InterruptedException e) {
+				return;
+			}
+			try {
+				if (batch == FLUSH) {
+					for (final HTable table : tables.values()) {
+						table.flushCommits();
+					}
+				} else {
+					HTable table = tables.get(batch.tablename);
+					if (table == null) {
+						table = new HTable(HBaseConnection.getConfiguration(),
+								batch.tablename);
+						table.setAutoFlush(false);
+						table.setWriteBufferSize(WRITE_BUFFER_SIZE);
+						tables.put(batch.tablename, table);
+					}
+					if (batch.isDelete()) {
+						// vorher geschriebene Puts dürfen nicht nach dem
+						// Delete ankommen
+						table.flushCommits();
+						table.delete(batch.deletes);
+					} else {
+						table.put(batch.puts);
+					}
+				}
+			} catch (final IOException e) {
+				setError(e);
+			} finally {
+				if (batch == FLUSH) {
+					// warten, bis alle Threads ihre Markierung erhalten haben,
+					// damit kein Thread zwei Markierungen nimmt
+					final CountDownLatch latch = flushLatch;
+					latch.countDown();
+					try {
+						latch.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merkt sich den ersten Fehler eines Writer-Threads.
+	 * 
+	 * @param e
+	 *            the e
+	 */
+	private static void setError(final IOException e) {
+		synchronized (threads) {
+			if (error == null) {
+				error = e;
+			}
+		}
+	}
+
+	/**
+	 * Wirft den Fehler eines Writer-Threads weiter.
+	 * 
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void checkError() throws IOException {
+		synchronized (threads) {
+			if (error != null) {
+				final IOException e = error;
+				error = null;
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Ein Stapel von Puts oder Deletes für eine Tabelle.
+	 */
+	private static final class Batch {
+
+		/** The tablename. */
+		final String tablename;
+
+		/** The puts. */
+		final List<Put> puts;
+
+		/** The deletes. */
+		final List<Delete> deletes;
+
+		/**
+		 * Instantiates a new batch.
+		 * 
+		 * @param tablename
+		 *            the tablename
+		 * @param delete
+		 *            true für einen Stapel von Deletes
+		 */
+		Batch(final String tablename, final boolean delete) {
+			this.tablename = tablename;
+			this.puts = delete ? null : new ArrayList<Put>();
+			this.deletes = delete ? new ArrayList<Delete>() : null;
+		}
+
+		/**
+		 * Checks if is delete.
+		 * 
+		 * @return true, if is delete
+		 */
+		boolean isDelete() {
+			return this.deletes != null;
+		}
+	}
+}
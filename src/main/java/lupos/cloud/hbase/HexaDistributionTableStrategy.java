@@ -28,6 +28,8 @@ import java.util.Collection;
 import java.util.TreeMap;
 
 import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.Variable;
+import lupos.engine.operators.tripleoperator.TriplePattern;
 
 /**
  * Die konkrete Implementierung einer Verteilungsstrategie. Bei dieser Strategie
@@ -55,6 +57,57 @@ public class HexaDistributionTableStrategy extends HBaseDistributionStrategy {
 		return result;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#getTablename(lupos.engine.
+	 * operators.tripleoperator.TriplePattern)
+	 */
+	@Override
+	public String getTablename(final TriplePattern triplePattern) {
+		switch (getPatternKind(triplePattern)) {
+		case 110:
+			return "s_po";
+		case 101:
+			return "p_so";
+		case 11:
+			return "o_sp";
+		case 100:
+			return "sp_o";
+		case 10:
+			return "so_p";
+		case 1:
+			return "po_s";
+		case 111:
+			// Wenn alles Variablen sind kann eine beliebige Tabelle verwendet
+			// werden, hier wird S_PO genommen
+			return "s_po";
+		default:
+			// Wenn alles Literale sind kann eine beliebige Tabelle verwendet
+			// werden, hier wird SO_P genommen
+			return "so_p";
+		}
+	}
+
+	/**
+	 * Kodiert, welche Elemente eines Tripel-Musters Variablen sind (Subjekt 1,
+	 * Prädikat 10, Objekt 100), z.B. 110 für (s ?p ?o).
+	 *
+	 * @param triplePattern
+	 *            the triple pattern
+	 * @return the pattern kind
+	 */
+	protected static int getPatternKind(final TriplePattern triplePattern) {
+		final int subject = triplePattern.getSubject().getClass() == Variable.class ? 1
+				: 0;
+		final int predicate = triplePattern.getPredicate().getClass() == Variable.class ? 10
+				: 0;
+		final int object = triplePattern.getObject().getClass() == Variable.class ? 100
+				: 0;
+		return subject + predicate + object;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -64,6 +117,26 @@ public class HexaDistributionTableStrategy extends HBaseDistributionStrategy {
 	 */
 	@Override
 	public Collection<HBaseTriple> generateIndecesTriple(final Triple triple) {
+		// jeder Term wird nur einmal kodiert und für alle Tabellen genutzt
+		return this.generateIndecesTriple(
+				this.encodeTerm(triple.getSubject().toString()),
+				this.encodeTerm(triple.getPredicate().toString()),
+				this.encodeTerm(triple.getObject().toString()));
+	}
+
+	/**
+	 * Generiert die Indizes zu den bereits kodierten Termen eines Tripels.
+	 *
+	 * @param subject
+	 *            the subject
+	 * @param predicate
+	 *            the predicate
+	 * @param object
+	 *            the object
+	 * @return the collection
+	 */
+	protected Collection<HBaseTriple> generateIndecesTriple(
+			final String subject, final String predicate, final String object) {
 		final ArrayList<HBaseTriple> result = new ArrayList<HBaseTriple>();
 		for (final String tablename : this.getTableNames()) {
 			final String row_key_string = tablename.substring(0,
@@ -71,29 +144,44 @@ public class HexaDistributionTableStrategy extends HBaseDistributionStrategy {
 			final String column_name_string = tablename.substring(
 					tablename.indexOf("_") + 1, tablename.length());
 
-			String row_key = "";
-			boolean first = true;
-			for (final Integer key : this.getInputValue(row_key_string, triple).keySet()) {
-				if (first) {
-					first = false;
-				} else {
-					row_key += ",";
-				}
-				row_key += this.getInputValue(row_key_string, triple).get(key);
-			}
+			final String[] row_key = selectElements(row_key_string, subject,
+					predicate, object);
+			final String[] column = selectElements(column_name_string,
+					subject, predicate, object);
+			result.add(this.generateHBaseTriple(tablename, row_key, column, ""));
+		}
+		return result;
+	}
 
-			String column = "";
-			first = true;
-			for (final Integer key : this.getInputValue(column_name_string, triple)
-					.keySet()) {
-				if (first) {
-					first = false;
-				} else {
-					column += ",";
-				}
-				column += this.getInputValue(column_name_string, triple).get(key);
+	/**
+	 * Gibt die (kodierten) Terme in der durch elements vorgegebenen
+	 * Reihenfolge zurück, z.B. "po" -> {p, o}.
+	 *
+	 * @param elements
+	 *            the elements
+	 * @param subject
+	 *            the subject
+	 * @param predicate
+	 *            the predicate
+	 * @param object
+	 *            the object
+	 * @return the string[]
+	 */
+	protected static String[] selectElements(final String elements,
+			final String subject, final String predicate, final String object) {
+		final String[] result = new String[elements.length()];
+		for (int i = 0; i < elements.length(); i++) {
+			switch (elements.charAt(i)) {
+			case 's':
+				result[i] = subject;
+				break;
+			case 'p':
+				result[i] = predicate;
+				break;
+			default:
+				result[i] = object;
+				break;
 			}
-			result.add(this.generateHBaseTriple(tablename, row_key, column, ""));
 		}
 		return result;
 	}
@@ -128,12 +216,47 @@ public class HexaDistributionTableStrategy extends HBaseDistributionStrategy {
 	 *
 	 * @see
 	 * lupos.cloud.hbase.HBaseDistributionStrategy#generateHBaseTriple(java.
-	 * lang.String, java.lang.String, java.lang.String, java.lang.String)
+	 * lang.String, java.lang.String[], java.lang.String[], java.lang.String)
 	 */
 	@Override
 	public HBaseTriple generateHBaseTriple(final String tablename,
-			final String row_key, final String column, final String value) {
-		return new HBaseTriple(tablename, row_key, COLUMN_FAMILY, column, value);
+			final String[] rowElements, final String[] columnElements,
+			final String value) {
+		return new HBaseTriple(tablename, rowElements, COLUMN_FAMILY,
+				columnElements, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#encodeTerm(java.lang.String)
+	 */
+	@Override
+	public String encodeTerm(final String term) {
+		return TypedLiteralEncoding.encode(term);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#lookupTerm(java.lang.String)
+	 */
+	@Override
+	public String lookupTerm(final String term) {
+		return TypedLiteralEncoding.encode(term);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#decodeTerm(java.lang.String)
+	 */
+	@Override
+	public String decodeTerm(final String value) {
+		return TypedLiteralEncoding.decode(value);
 	}
 
 	/*
@@ -23,25 +23,25 @@
  */
 package lupos.cloud.hbase;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.HashMap;
 
-import lupos.datastructures.items.Triple;
+import org.apache.hadoop.hbase.util.Bytes;
 
 /**
- * Die konkrete Implementierung einer Verteilungsstrategie. Bei dieser Strategie
- * wird jedes Tripel nach 6 unterschiedlichen Indizierungsschlüsseln in Tabellen
- * eingeordnet. Dabei ist der Schlüssel jeweils der rowKey und der Wert wird als
- * Spaltenname gespeichert. Der eigentliceh Zellenwert in der HBase Tabelle
- * bleibt leer.
+ * Erweiterung der Hexa-Strategie, bei der sehr große Zeilen in k Unterzeilen
+ * aufgeteilt werden. Dazu wird an den Rowkey ein zusätzliches Element (der
+ * Subkey, berechnet aus dem Hashwert des Spaltennamens) angehängt. HBase kann
+ * eine Region nur zwischen zwei Zeilen teilen, daher wird z.B. die sehr große
+ * rdf:type Zeile der Tabelle p_so erst durch die Unterzeilen auf mehrere
+ * Regionen (und damit Mapper) verteilt.
  * 
- * Anmerkung: Diese Klasse wurde nur zu Testzwecken genutzt könnte aber ggf. als
- * Grundlage für eine spätere zusätzliche Partitionierung der P_SO Tabelle
- * dienen.
+ * Da der Rowkey als zusammengesetzter Schlüssel kodiert wird, ist der
+ * ursprüngliche Rowkey ein Präfix aller Unterzeilen. Gebundene Tripel-Muster
+ * werden daher per Präfix-Scan über alle Unterzeilen gelesen.
  */
 public class HexaSubkeyDistributionTableStrategy extends
-		HBaseDistributionStrategy {
+		HexaDistributionTableStrategy {
 
 	/** The Constant STRAGEGY_ID. */
 	public static final int STRAGEGY_ID = 2;
@@ -49,105 +49,97 @@ public class HexaSubkeyDistributionTableStrategy extends
 	/** The Constant COLUMN_FAMILY. */
 	public static final String COLUMN_FAMILY = "HexaSub";
 
-	private static final int k = 3;
+	/** Anzahl der Unterzeilen für Tabellen ohne eigenen Eintrag. */
+	public static int DEFAULT_SUBKEYS = 1;
 
-	/*
-	 * (non-Javadoc)
+	/** Anzahl der Unterzeilen je Tabelle. */
+	public static HashMap<String, Integer> SUBKEYS = new HashMap<String, Integer>();
+
+	static {
+		SUBKEYS.put("p_so", 8);
+	}
+
+	/**
+	 * Gibt die Anzahl der Unterzeilen einer Tabelle zurück.
 	 * 
-	 * @see lupos.cloud.hbase.HBaseDistributionStrategy#getTableNames()
+	 * @param tablename
+	 *            the tablename
+	 * @return the subkeys
 	 */
-	public String[] getTableNames() {
-		String[] result = { "S_PO", "P_SO", "O_SP", "SP_O", "SO_P", "PO_S" };
-		return result;
+	public static int getSubkeys(final String tablename) {
+		final Integer result = SUBKEYS.get(tablename);
+		return (result == null) ? DEFAULT_SUBKEYS : result;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see
-	 * lupos.cloud.hbase.HBaseDistributionStrategy#generateIndecesTriple(lupos
-	 * .datastructures.items.Triple)
+	 * lupos.cloud.hbase.HexaDistributionTableStrategy#generateHBaseTriple(java
+	 * .lang.String, java.lang.String[], java.lang.String[], java.lang.String)
 	 */
-	public Collection<HBaseTriple> generateIndecesTriple(final Triple triple) {
-		ArrayList<HBaseTriple> result = new ArrayList<HBaseTriple>();
-		for (String tablename : getTableNames()) {
-			String row_key_string = tablename.substring(0,
-					tablename.indexOf("_"));
-			String column_name_string = tablename.substring(
-					tablename.indexOf("_") + 1, tablename.length());
-
-			String row_key = "";
-			boolean first = true;
-			for (Integer key : getInputValue(row_key_string, triple).keySet()) {
-				if (first) {
-					first = false;
-				} else {
-					row_key += ",";
-				}
-				row_key += getInputValue(row_key_string, triple).get(key);
-			}
-
-			String column = "";
-			first = true;
-
-			ArrayList<Integer> hashValues = new ArrayList<Integer>();
-
-			for (Integer key : getInputValue(column_name_string, triple)
-					.keySet()) {
-				if (first) {
-					first = false;
-				} else {
-					column += ",";
-				}
-				int hashValue = getInputValue(column_name_string, triple).get(
-						key).hashCode()
-						% k;
-				if (hashValue < 0) {
-					hashValue = hashValue * (-1);
-				}
-				hashValues.add(hashValue);
-				column += getInputValue(column_name_string, triple).get(key);
-			}
+	@Override
+	public HBaseTriple generateHBaseTriple(final String tablename,
+			final String[] rowElements, final String[] columnElements,
+			final String value) {
+		final int k = getSubkeys(tablename);
+		if (k <= 1) {
+			return new HBaseTriple(tablename, rowElements, COLUMN_FAMILY,
+					columnElements, value);
+		}
+		final int subkey = (Bytes.hashCode(CompositeKey.encode(columnElements)) & Integer.MAX_VALUE)
+				% k;
+		final String[] row = Arrays.copyOf(rowElements, rowElements.length + 1);
+		row[rowElements.length] = String.valueOf(subkey);
+		return new HBaseTriple(tablename, row, COLUMN_FAMILY, columnElements,
+				value);
+	}
 
-			for (Integer hashVal : hashValues) {
-				row_key += hashVal;
-			}
-			result.add(generateHBaseTriple(tablename, row_key, column, ""));
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see lupos.cloud.hbase.HBaseDistributionStrategy#getScanKey(java.lang.
+	 * String, java.lang.String[])
+	 */
+	@Override
+	public byte[] getScanKey(final String tablename, final String[] literals) {
+		if (getSubkeys(tablename) <= 1 || literals.length == 0) {
+			return super.getScanKey(tablename, literals);
 		}
-		return result;
+		return RowKeySalt.salt(CompositeKey.encodeComposite(literals));
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see
-	 * lupos.cloud.hbase.HBaseDistributionStrategy#getInputValue(java.lang.String
-	 * , lupos.datastructures.items.Triple)
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#isPrefixScan(java.lang.String
+	 * )
 	 */
-	public TreeMap<Integer, Object> getInputValue(String elements, Triple triple) {
-		TreeMap<Integer, Object> tm = new TreeMap<Integer, Object>();
-		int subject = elements.indexOf('S');
-		if (subject > -1)
-			tm.put(subject, triple.getSubject());
-		int predicate = elements.indexOf('P');
-		if (predicate > -1)
-			tm.put(predicate, triple.getPredicate());
-		int object = elements.indexOf('O');
-		if (object > -1)
-			tm.put(object, triple.getObject());
-		return tm;
+	@Override
+	public boolean isPrefixScan(final String tablename) {
+		return getSubkeys(tablename) > 1;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see
-	 * lupos.cloud.hbase.HBaseDistributionStrategy#generateHBaseTriple(java.
-	 * lang.String, java.lang.String, java.lang.String, java.lang.String)
+	 * @see lupos.cloud.hbase.HBaseDistributionStrategy#getRowKeys(java.lang.
+	 * String, java.lang.String[])
 	 */
-	public HBaseTriple generateHBaseTriple(final String tablename,
-			final String row_key, final String column, final String value) {
-		return new HBaseTriple(tablename, row_key, COLUMN_FAMILY, column, value);
+	@Override
+	public byte[][] getRowKeys(final String tablename, final String[] literals) {
+		final int k = getSubkeys(tablename);
+		if (k <= 1 || literals.length == 0) {
+			return super.getRowKeys(tablename, literals);
+		}
+		final byte[][] result = new byte[k][];
+		final String[] row = Arrays.copyOf(literals, literals.length + 1);
+		for (int i = 0; i < k; i++) {
+			row[literals.length] = String.valueOf(i);
+			result[i] = RowKeySalt.salt(CompositeKey.encode(row));
+		}
+		return result;
 	}
 
 	/*
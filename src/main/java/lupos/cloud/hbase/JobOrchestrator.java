@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+
+/**
+ * Führt MapReduce-Jobs (BulkLoad, Bitvektoren) asynchron aus. Es laufen
+ * höchstens {@link #MAX_CONCURRENT_JOBS} Jobs gleichzeitig, fehlgeschlagene
+ * Jobs werden bis zu {@link #MAX_ATTEMPTS} mal neu erzeugt und gestartet.
+ * Nach einem erfolgreichen Job wird {@link JobTask#completed(Job)}
+ * aufgerufen und die Zähler der Gruppe des Jobs ausgegeben. Der Aufrufer
+ * wartet über die zurückgegebenen Futures, Fehler werden dabei als
+ * IOException weitergegeben.
+ */
+public class JobOrchestrator {
+
+	/** Maximale Anzahl gleichzeitig laufender Jobs. */
+	public static int MAX_CONCURRENT_JOBS = 6;
+
+	/** Maximale Anzahl der Versuche je Job. */
+	public static int MAX_ATTEMPTS = 3;
+
+	/** Gemeinsame Instanz (siehe {@link #getInstance()}). */
+	private static JobOrchestrator instance = null;
+
+	/** Thread-Pool der Jobs. */
+	private final ExecutorService executor;
+
+	/** Maximale Anzahl der Versuche je Job. */
+	private final int maxAttempts;
+
+	/**
+	 * Ein Job, der bei jedem Versuch neu erzeugt wird.
+	 */
+	public static abstract class JobTask {
+
+		/** Name für die Ausgaben. */
+		private final String name;
+
+		/**
+		 * Instantiates a new job task.
+		 * 
+		 * @param name
+		 *            the name
+		 */
+		protected JobTask(final String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the name.
+		 * 
+		 * @return the name
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Erzeugt den Job für einen Versuch (ein Job kann nur einmal
+		 * gestartet werden).
+		 * 
+		 * @return the job
+		 * @throws Exception
+		 *             the exception
+		 */
+		protected abstract Job createJob() throws Exception;
+
+		/**
+		 * Wird nach dem erfolgreichen Job aufgerufen (z.B. zum Laden der
+		 * HFiles). Schlägt der Aufruf fehl, wird der Versuch wiederholt.
+		 * 
+		 * @param job
+		 *            the job
+		 * @throws Exception
+		 *             the exception
+		 */
+		protected void completed(final Job job) throws Exception {
+		}
+
+		/**
+		 * Gibt die Zählergruppe zurück, die nach dem Job ausgegeben wird.
+		 * 
+		 * @return the counter group or null
+		 */
+		protected String getCounterGroup() {
+			return null;
+		}
+	}
+
+	/**
+	 * Instantiates a new job orchestrator.
+	 * 
+	 * @param maxConcurrentJobs
+	 *            maximale Anzahl gleichzeitig laufender Jobs
+	 * @param maxAttempts
+	 *            maximale Anzahl der Versuche je Job
+	 */
+	public JobOrchestrator(final int maxConcurrentJobs, final int maxAttempts) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(maxConcurrentJobs,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread thread = new Thread(r, "JobOrchestrator-"
+								+ threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Gibt die gemeinsame Instanz mit den Standardwerten zurück.
+	 * 
+	 * @return the instance
+	 */
+	public static synchronized JobOrchestrator getInstance() {
+		if (instance == null) {
+			instance = new JobOrchestrator(MAX_CONCURRENT_JOBS, MAX_ATTEMPTS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Startet einen Job asynchron.
+	 * 
+	 * @param task
+	 *            the task
+	 * @return Future mit den Zählern des erfolgreichen Jobs
+	 */
+	public Future<Counters> submit(final JobTask task) {
+		return this.executor.submit(new Callable<Counters>() {
+			@Override
+			public Counters call() throws Exception {
+				return JobOrchestrator.this.run(task);
+			}
+		});
+	}
+
+	/**
+	 * Wartet auf alle Jobs. Alle Jobs laufen zu Ende, auch wenn einer davon
+	 * fehlschlägt.
+	 * 
+	 * @param futures
+	 *            the futures
+	 * @return die Zähler der Jobs in derselben Reihenfolge
+	 * @throws IOException
+	 *             falls mindestens ein Job endgültig fehlgeschlagen ist
+	 */
+	public static List<Counters> awaitAll(final List<Future<Counters>> futures)
+			throws IOException {
+		final List<Counters> result = new ArrayList<Counters>(futures.size());
+		IOException error = null;
+		for (final Future<Counters> future : futures) {
+			try {
+				result.add(future.get());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (final ExecutionException e) {
+				if (error == null) {
+					error = (e.getCause() instanceof IOException) ? (IOException) e
+							.getCause() : new IOException(e.getCause());
+				}
+				result.add(null);
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+		return result;
+	}
+
+	/**
+	 * Führt einen Job mit Wiederholungen aus.
+	 * 
+	 * @param task
+	 *            the task
+	 * @return the counters
+	 * @throws Exception
+	 *             der Fehler des letzten Versuchs
+	 */
+	private Counters run(final JobTask task) throws Exception {
+		Exception lastError = null;
+		for (int attempt = 1; attempt <= this.maxAttempts; attempt++) {
+			try {
+				final Job job = task.createJob();
+				if (!job.waitForCompletion(true)) {
+					throw new IOException("Job " + job.getJobName()
+							+ " ist fehlgeschlagen");
+				}
+				task.completed(job);
+				final Counters counters = job.getCounters();
+				report(task, counters);
+				return counters;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw e;
+			} catch (final Exception e) {
+				lastError = e;
+				System.err.println(task.getName() + ": Versuch " + attempt
+						+ "/" + this.maxAttempts + " fehlgeschlagen: " + e);
+			}
+		}
+		throw new IOException(task.getName() + " ist endgültig fehlgeschlagen",
+				lastError);
+	}
+
+	/**
+	 * Gibt die Zähler der Gruppe eines Jobs aus.
+	 * 
+	 * @param task
+	 *            the task
+	 * @param counters
+	 *            the counters
+	 */
+	private static void report(final JobTask task, final Counters counters) {
+		final StringBuilder sb = new StringBuilder(task.getName()
+				+ " ist fertig");
+		if (task.getCounterGroup() != null && counters != null) {
+			for (final Counter counter : counters.getGroup(task
+					.getCounterGroup())) {
+				sb.append(' ').append(counter.getName()).append('=')
+						.append(counter.getValue());
+			}
+		}
+		System.out.println(sb);
+	}
+}
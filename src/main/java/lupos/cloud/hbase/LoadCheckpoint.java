@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.TreeMap;
+
+/**
+ * Protokoll eines wiederaufnehmbaren Ladevorgangs. Beim Abschließen einer
+ * Generation des BulkLoad-Puffers wird die Byte-Position der Eingabe
+ * festgehalten, bis zu der alle Tripel in dieser oder einer früheren
+ * Generation enthalten sind (siehe {@link #setInputPosition(long)}). Ist die
+ * Generation in HBase geladen, wird sie mit dieser Position in die Datei
+ * {@link #CHECKPOINT_FILE} geschrieben. Ein Neustart mit derselben Eingabe
+ * setzt hinter der letzten Generation fort, vor der alle Generationen geladen
+ * wurden (siehe {@link #open(String)}). Tripel einer unvollständigen
+ * Generation werden dabei erneut geladen, was in HBase keine Duplikate
+ * erzeugt.
+ * 
+ * Format der Datei (eine Zeile je Eintrag):
+ * 
+ * <pre>
+ * input &lt;Pfad der Eingabe&gt;
+ * start &lt;erste Generation&gt; &lt;Position&gt;
+ * commit &lt;Generation&gt; &lt;Position&gt;
+ * </pre>
+ */
+public final class LoadCheckpoint {
+
+	/** Datei des Protokolls, null deaktiviert das Protokoll. */
+	public static String CHECKPOINT_FILE = "loadCheckpoint.log";
+
+	/** Position der Eingabe, bis zu der alle Tripel übergeben wurden. */
+	private static long inputPosition = 0;
+
+	/** Geöffnetes Protokoll. */
+	private static Writer log = null;
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private LoadCheckpoint() {
+	}
+
+	/**
+	 * Öffnet das Protokoll für eine Eingabe. Wurde die Eingabe bereits
+	 * teilweise geladen, wird die Position zurückgegeben, ab der fortgesetzt
+	 * werden muss, und die Nummerierung der Generationen fortgeführt.
+	 * 
+	 * @param input
+	 *            Pfad der Eingabe
+	 * @return Byte-Position, ab der gelesen werden muss (0 = von vorne)
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized long open(final String input) throws IOException {
+		if (CHECKPOINT_FILE == null) {
+			return 0;
+		}
+		final File file = new File(CHECKPOINT_FILE);
+		long resume = 0;
+		int nextGeneration = 0;
+		boolean sameInput = false;
+		if (file.exists()) {
+			final BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			try {
+				// Generation -> Position der aktuellen Wiederaufnahme
+				final TreeMap<Integer, Long> committed = new TreeMap<Integer, Long>();
+				int expected = 0;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("input ")) {
+						sameInput = line.substring(6).equals(input);
+						continue;
+					}
+					final String[] parts = line.split(" ");
+					if (parts.length != 3) {
+						// unvollständig geschriebene letzte Zeile
+						continue;
+					}
+					final int generation = Integer.parseInt(parts[1]);
+					final long position = Long.parseLong(parts[2]);
+					if (parts[0].equals("start")) {
+						committed.clear();
+						expected = generation;
+						resume = position;
+					} else {
+						committed.put(generation, position);
+					}
+					nextGeneration = Math.max(nextGeneration, generation + 1);
+				}
+				while (committed.containsKey(expected)) {
+					resume = committed.get(expected);
+					expected++;
+				}
+			} catch (final NumberFormatException e) {
+				throw new IOException("Protokoll " + CHECKPOINT_FILE
+						+ " ist fehlerhaft", e);
+			} finally {
+				reader.close();
+			}
+		}
+		if (!sameInput) {
+			resume = 0;
+			nextGeneration = 0;
+		}
+		HBaseConnection.generation = nextGeneration;
+		inputPosition = resume;
+		log = new OutputStreamWriter(new FileOutputStream(file, sameInput),
+				"UTF-8");
+		if (!sameInput) {
+			write("input " + input);
+		}
+		write("start " + nextGeneration + " " + resume);
+		return resume;
+	}
+
+	/**
+	 * Setzt die Position der Eingabe, bis zu der alle Tripel an
+	 * {@link HBaseConnection#addRow(HBaseTriple)} übergeben wurden. Wird vor
+	 * jedem Block mit dessen Anfang aufgerufen.
+	 * 
+	 * @param position
+	 *            the position
+	 */
+	public static synchronized void setInputPosition(final long position) {
+		inputPosition = position;
+	}
+
+	/**
+	 * Gibt die Position zurück, die einer abgeschlossenen Generation
+	 * zugeordnet wird.
+	 * 
+	 * @return the input position
+	 */
+	public static synchronized long getInputPosition() {
+		return inputPosition;
+	}
+
+	/**
+	 * Vermerkt eine vollständig in HBase geladene Generation.
+	 * 
+	 * @param generation
+	 *            the generation
+	 * @param position
+	 *            die Position der Eingabe beim Abschließen der Generation
+	 */
+	public static synchronized void committed(final int generation,
+			final long position) {
+		if (log == null) {
+			return;
+		}
+		try {
+			write("commit " + generation + " " + position);
+		} catch (final IOException e) {
+			// das Laden ist davon nicht betroffen
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Schließt das Protokoll.
+	 * 
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized void close() throws IOException {
+		if (log != null) {
+			log.close();
+			log = null;
+		}
+	}
+
+	/**
+	 * Schreibt eine Zeile und leert den Puffer.
+	 * 
+	 * @param line
+	 *            the line
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void write(final String line) throws IOException {
+		log.write(line + "\n");
+		log.flush();
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Laufende Kennzahlen eines Ladevorgangs: Tripel/s, Zellen/s, Größe des
+ * BulkLoad-Puffers und die Dauer der einzelnen Stufen (Parsen, Schreiben in
+ * den Puffer bzw. an die Writer-Threads, Hochladen ins HDFS und Erzeugen und
+ * Laden der HFiles). Daran ist erkennbar, welche Stufe den Ladevorgang
+ * begrenzt. Die Ladeprogramme setzen die Kennzahlen beim Start zurück und
+ * starten einen Hintergrund-Thread, der sie alle {@link #REPORT_INTERVAL}
+ * Sekunden ausgibt, solange geladen wird.
+ */
+public final class LoadMetrics {
+
+	/** Stufe: Parsen der Eingabe. */
+	public static final int PARSE = 0;
+
+	/** Stufe: Verteilen auf die Indizes und Schreiben in den Puffer. */
+	public static final int SPOOL = 1;
+
+	/** Stufe: Hochladen einer Generation ins HDFS. */
+	public static final int UPLOAD = 2;
+
+	/** Stufe: Erzeugen und Laden der HFiles einer Generation. */
+	public static final int HFILE = 3;
+
+	/** Namen der Stufen für die Ausgabe. */
+	private static final String[] STAGE_NAMES = { "parse", "spool", "upload",
+			"hfile" };
+
+	/** Abstand der Ausgaben in Sekunden, 0 deaktiviert die Ausgabe. */
+	public static int REPORT_INTERVAL = 60;
+
+	/** Zeit Formatierung. */
+	private static final SimpleDateFormat formatter = new SimpleDateFormat(
+			"yyyy.MM.dd HH:mm:ss");
+
+	/** Anzahl der geladenen Tripel. */
+	private static final AtomicLong triples = new AtomicLong();
+
+	/** Anzahl der geschriebenen Zellen (HBase-Tripel). */
+	private static final AtomicLong cells = new AtomicLong();
+
+	/** Bytes der abgeschlossenen Generationen des Puffers. */
+	private static final AtomicLong spoolBytes = new AtomicLong();
+
+	/** Summe der Dauer je Stufe in Nanosekunden. */
+	private static final AtomicLong[] stageNanos = new AtomicLong[STAGE_NAMES.length];
+
+	/** Anzahl der Messungen je Stufe. */
+	private static final AtomicLong[] stageCount = new AtomicLong[STAGE_NAMES.length];
+
+	static {
+		for (int i = 0; i < STAGE_NAMES.length; i++) {
+			stageNanos[i] = new AtomicLong();
+			stageCount[i] = new AtomicLong();
+		}
+	}
+
+	/** Beginn der Messung. */
+	private static long startTime = System.currentTimeMillis();
+
+	/** Thread der regelmäßigen Ausgabe. */
+	private static Thread reporter = null;
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private LoadMetrics() {
+	}
+
+	/**
+	 * Zählt geladene Tripel.
+	 * 
+	 * @param count
+	 *            the count
+	 */
+	public static void addTriples(final long count) {
+		triples.addAndGet(count);
+	}
+
+	/**
+	 * Zählt eine geschriebene Zelle.
+	 */
+	public static void addCell() {
+		cells.incrementAndGet();
+	}
+
+	/**
+	 * Zählt die Bytes einer abgeschlossenen Generation des Puffers.
+	 * 
+	 * @param bytes
+	 *            the bytes
+	 */
+	public static void addSpoolBytes(final long bytes) {
+		spoolBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Erfasst die Dauer einer Stufe.
+	 * 
+	 * @param stage
+	 *            die Stufe, z.B. {@link #PARSE}
+	 * @param nanos
+	 *            Dauer in Nanosekunden
+	 */
+	public static void record(final int stage, final long nanos) {
+		stageNanos[stage].addAndGet(nanos);
+		stageCount[stage].incrementAndGet();
+	}
+
+	/**
+	 * Gibt die Summe der Dauer einer Stufe zurück.
+	 * 
+	 * @param stage
+	 *            the stage
+	 * @return Summe in Nanosekunden
+	 */
+	public static long getTotalNanos(final int stage) {
+		return stageNanos[stage].get();
+	}
+
+	/**
+	 * Gets the triples.
+	 * 
+	 * @return the triples
+	 */
+	public static long getTriples() {
+		return triples.get();
+	}
+
+	/**
+	 * Gets the cells.
+	 * 
+	 * @return the cells
+	 */
+	public static long getCells() {
+		return cells.get();
+	}
+
+	/**
+	 * Gets the spool bytes.
+	 * 
+	 * @return the spool bytes
+	 */
+	public static long getSpoolBytes() {
+		return spoolBytes.get();
+	}
+
+	/**
+	 * Setzt die Kennzahlen zurück.
+	 */
+	public static synchronized void reset() {
+		triples.set(0);
+		cells.set(0);
+		spoolBytes.set(0);
+		for (int i = 0; i < STAGE_NAMES.length; i++) {
+			stageNanos[i].set(0);
+			stageCount[i].set(0);
+		}
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gibt die Kennzahlen als eine Zeile zurück.
+	 * 
+	 * @return the string
+	 */
+	public static String report() {
+		final double seconds = Math.max(1,
+				System.currentTimeMillis() - startTime) / 1000.0;
+		final StringBuilder result = new StringBuilder();
+		result.append(triples.get()).append(" Tripel (")
+				.append(Math.round(triples.get() / seconds))
+				.append("/s), ").append(cells.get()).append(" Zellen (")
+				.append(Math.round(cells.get() / seconds))
+				.append("/s), Puffer ")
+				.append(spoolBytes.get() / (1024 * 1024)).append(" MB");
+		for (int i = 0; i < STAGE_NAMES.length; i++) {
+			final long count = stageCount[i].get();
+			if (count > 0) {
+				result.append(", ").append(STAGE_NAMES[i]).append(" ")
+						.append(stageNanos[i].get() / 1000000 / count)
+						.append(" ms (").append(count).append("x)");
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Startet die regelmäßige Ausgabe (nur von den Ladeprogrammen, nicht bei
+	 * einzelnen Einfügungen über den Evaluator).
+	 */
+	public static synchronized void startReporter() {
+		if (reporter != null || REPORT_INTERVAL <= 0) {
+			return;
+		}
+		reporter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				long lastCells = -1;
+				while (true) {
+					try {
+						Thread.sleep(REPORT_INTERVAL * 1000L);
+					} catch (final InterruptedException e) {
+						return;
+					}
+					// nur ausgeben, solange geladen wird
+					final long current = cells.get();
+					if (current != lastCells) {
+						lastCells = current;
+						System.out.println(formatter.format(new Date()) + ": "
+								+ report());
+					}
+				}
+			}
+		}, "LoadMetrics");
+		reporter.setDaemon(true);
+		reporter.start();
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.util.Collection;
+
+import lupos.datastructures.items.Triple;
+
+/**
+ * Verteilungsstrategie für Quads (Tripel mit benanntem Graph). Die sechs
+ * Indizes entsprechen der Hexa-Strategie, der Graph wird jedoch als letztes
+ * Element an den Spaltennamen angehängt. Rowkeys, Präfix-Scans und
+ * Bitvektoren bleiben dadurch unverändert. Die Zellen eines Tripels in
+ * verschiedenen Graphen liegen direkt hintereinander, so dass die HBaseLoadUDF
+ * den Graph beim Lesen entfernen und Duplikate überspringen kann (der
+ * Standardgraph ist die Vereinigung aller Graphen). Bei einem GRAPH-Muster mit
+ * gebundenem Graph werden nur die Spalten des Graphen gelesen.
+ *
+ * Tripel ohne Graph (z.B. aus N3-Dateien) werden im Graph
+ * {@link #DEFAULT_GRAPH} gespeichert.
+ */
+public class QuadDistributionTableStrategy extends HexaDistributionTableStrategy {
+
+	/** The Constant STRAGEGY_ID. */
+	public static final int STRAGEGY_ID = 5;
+
+	/** The Constant COLUMN_FAMILY. */
+	public static final String COLUMN_FAMILY = "Quad";
+
+	/** Graph der Tripel, die ohne Graph geladen werden. */
+	public static String DEFAULT_GRAPH = "";
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HexaDistributionTableStrategy#generateIndecesTriple
+	 * (lupos.datastructures.items.Triple)
+	 */
+	@Override
+	public Collection<HBaseTriple> generateIndecesTriple(final Triple triple) {
+		return this.generateIndecesTriple(triple, DEFAULT_GRAPH);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#generateIndecesTriple(lupos
+	 * .datastructures.items.Triple, java.lang.String)
+	 */
+	@Override
+	public Collection<HBaseTriple> generateIndecesTriple(final Triple triple,
+			final String graph) {
+		final String encodedGraph = this.encodeGraph(graph);
+		final Collection<HBaseTriple> result = super
+				.generateIndecesTriple(triple);
+		for (final HBaseTriple item : result) {
+			// der Graph geht nicht in die Bitvektoren ein
+			item.appendColumnElement(encodedGraph);
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HBaseDistributionStrategy#encodeGraph(java.lang.String)
+	 */
+	@Override
+	public String encodeGraph(final String graph) {
+		return graph.equals(DEFAULT_GRAPH) ? graph : this.encodeTerm(graph);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * lupos.cloud.hbase.HexaDistributionTableStrategy#generateHBaseTriple(java
+	 * .lang.String, java.lang.String[], java.lang.String[], java.lang.String)
+	 */
+	@Override
+	public HBaseTriple generateHBaseTriple(final String tablename,
+			final String[] rowElements, final String[] columnElements,
+			final String value) {
+		return new HBaseTriple(tablename, rowElements, COLUMN_FAMILY,
+				columnElements, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see lupos.cloud.hbase.HBaseDistributionStrategy#storesGraphs()
+	 */
+	@Override
+	public boolean storesGraphs() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see lupos.cloud.hbase.HexaDistributionTableStrategy#getColumnFamilyName()
+	 */
+	@Override
+	public String getColumnFamilyName() {
+		return COLUMN_FAMILY;
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Verteilt die Rowkeys der Index-Tabellen auf mehrere Regionen. Dazu wird
+ * jedem Rowkey ein Byte vorangestellt, das sich aus dem Hashwert des ersten
+ * Elements des (unveränderten) Rowkeys ergibt. Die Tabellen werden beim
+ * Erzeugen an den Bucket-Grenzen vorab geteilt, so dass sowohl der BulkLoad als
+ * auch die ersten Scans von Beginn an über alle Knoten verteilt werden. Da der
+ * Salt nur vom ersten Element abhängt, liegen alle Rowkeys mit demselben
+ * Präfix (z.B. die Unterzeilen einer geteilten Zeile) in genau einem Bucket und
+ * können ohne Fan-Out gelesen werden.
+ */
+public final class RowKeySalt {
+
+	/**
+	 * Anzahl der Buckets (max. 256). Bei 0 oder 1 ist das Salting deaktiviert.
+	 * Der Wert muss beim Laden und Anfragen identisch sein.
+	 */
+	public static int SALT_BUCKETS = 0;
+
+	/** Konfigurations-Eigenschaft für Map-Reduce Jobs. */
+	public static final String SALT_BUCKETS_PROPERTY = "lupos.cloud.salt.buckets";
+
+	/**
+	 * Utility-Klasse.
+	 */
+	private RowKeySalt() {
+	}
+
+	/**
+	 * Prüft ob das Salting aktiv ist.
+	 *
+	 * @return true, if is active
+	 */
+	public static boolean isActive() {
+		return SALT_BUCKETS > 1;
+	}
+
+	/**
+	 * Gibt die Länge des Salts zurück.
+	 *
+	 * @param buckets
+	 *            the buckets
+	 * @return the salt length
+	 */
+	public static int getSaltLength(final int buckets) {
+		return buckets > 1 ? 1 : 0;
+	}
+
+	/**
+	 * Versieht einen Rowkey mit dem Salt (bei aktivem Salting).
+	 *
+	 * @param rowKey
+	 *            the row key
+	 * @return the byte[]
+	 */
+	public static byte[] salt(final byte[] rowKey) {
+		return salt(rowKey, SALT_BUCKETS);
+	}
+
+	/**
+	 * Versieht einen Rowkey mit dem Salt.
+	 *
+	 * @param rowKey
+	 *            the row key
+	 * @param buckets
+	 *            Anzahl der Buckets
+	 * @return the byte[]
+	 */
+	public static byte[] salt(final byte[] rowKey, final int buckets) {
+		if (buckets <= 1) {
+			return rowKey;
+		}
+		final byte[] result = new byte[rowKey.length + 1];
+		result[0] = getBucket(rowKey, buckets);
+		System.arraycopy(rowKey, 0, result, 1, rowKey.length);
+		return result;
+	}
+
+	/**
+	 * Entfernt den Salt eines Rowkeys.
+	 *
+	 * @param saltedKey
+	 *            the salted key
+	 * @param buckets
+	 *            Anzahl der Buckets
+	 * @return the byte[]
+	 */
+	public static byte[] unsalt(final byte[] saltedKey, final int buckets) {
+		if (buckets <= 1) {
+			return saltedKey;
+		}
+		return Bytes.tail(saltedKey, saltedKey.length - 1);
+	}
+
+	/**
+	 * Berechnet den Bucket eines Rowkeys anhand des ersten Elements.
+	 *
+	 * @param rowKey
+	 *            the row key
+	 * @param buckets
+	 *            Anzahl der Buckets
+	 * @return the bucket
+	 */
+	public static byte getBucket(final byte[] rowKey, final int buckets) {
+		int hash = 1;
+		final CompositeKey.Cursor cursor = new CompositeKey.Cursor().reset(
+				rowKey, 0, rowKey.length);
+		if (cursor.next()) {
+			final int end = cursor.getOffset() + cursor.getLength();
+			for (int i = cursor.getOffset(); i < end; i++) {
+				hash = 31 * hash + rowKey[i];
+			}
+		}
+		return (byte) ((hash & Integer.MAX_VALUE) % buckets);
+	}
+
+	/**
+	 * Gibt die Schlüssel zurück, an denen eine neue Tabelle vorab geteilt
+	 * wird.
+	 *
+	 * @return the split keys oder null, falls das Salting deaktiviert ist
+	 */
+	public static byte[][] getSplitKeys() {
+		if (!isActive()) {
+			return null;
+		}
+		final byte[][] result = new byte[SALT_BUCKETS - 1][];
+		for (int i = 1; i < SALT_BUCKETS; i++) {
+			result[i - 1] = new byte[] { (byte) i };
+		}
+		return result;
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.util.HashMap;
+
+import lupos.cloud.bloomfilter.BitvectorManager;
+
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.io.hfile.Compression.Algorithm;
+import org.apache.hadoop.hbase.regionserver.StoreFile.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Speichereinstellungen einer Column-Family (Komprimierung, Block-Kodierung,
+ * Blockgröße, HBase-Bloomfilter und In-Memory). Die Profile werden beim
+ * Anlegen einer Tabelle gesetzt und bei bereits vorhandenen Tabellen nur
+ * nachträglich angepasst, falls {@link #UPDATE_EXISTING} gesetzt ist (siehe
+ * HBaseConnection).
+ * 
+ * Die Spaltennamen und Rowkeys der Index-Tabellen beginnen häufig mit langen
+ * gemeinsamen IRI-Präfixen, daher wird standardmäßig FAST_DIFF als
+ * Block-Kodierung verwendet.
+ */
+public class StorageProfile {
+
+	/**
+	 * Wenn true, werden vorhandene Tabellen beim Anlegen an die Profile
+	 * angepasst (deaktivieren, ändern, Major-Compaction). Wird nur von den
+	 * Ladeprogrammen gesetzt, damit z.B. ein Anfrage-Endpunkt keine laufenden
+	 * Tabellen ändert.
+	 */
+	public static boolean UPDATE_EXISTING = false;
+
+	/** Profil für die Column-Family der Index-Tabellen. */
+	public static StorageProfile INDEX = new StorageProfile(Algorithm.LZO,
+			DataBlockEncoding.FAST_DIFF, 64 * 1024, BloomType.ROW, false);
+
+	/** Profil für die Column-Families der Bitvektor-Indizes ("1" und "2"). */
+	public static StorageProfile BLOOMFILTER = new StorageProfile(
+			Algorithm.LZO, DataBlockEncoding.FAST_DIFF, 64 * 1024,
+			BloomType.ROW, false);
+
+	/** Profil für Hilfstabellen (z.B. das Wörterbuch). */
+	public static StorageProfile AUXILIARY = new StorageProfile(Algorithm.LZO,
+			DataBlockEncoding.PREFIX, 16 * 1024, BloomType.ROW, true);
+
+	/**
+	 * Abweichende Profile je Tabelle und Column-Family. Schlüssel ist
+	 * "tabelle:family" oder "tabelle" (gilt dann für alle Families der
+	 * Tabelle).
+	 */
+	public static HashMap<String, StorageProfile> PROFILES = new HashMap<String, StorageProfile>();
+
+	/** The compression. */
+	private final Algorithm compression;
+
+	/** The data block encoding. */
+	private final DataBlockEncoding dataBlockEncoding;
+
+	/** The blocksize. */
+	private final int blocksize;
+
+	/** The bloom type. */
+	private final BloomType bloomType;
+
+	/** The in memory. */
+	private final boolean inMemory;
+
+	/**
+	 * Instantiates a new storage profile.
+	 * 
+	 * @param compression
+	 *            the compression
+	 * @param dataBlockEncoding
+	 *            the data block encoding
+	 * @param blocksize
+	 *            the blocksize
+	 * @param bloomType
+	 *            the bloom type
+	 * @param inMemory
+	 *            the in memory
+	 */
+	public StorageProfile(final Algorithm compression,
+			final DataBlockEncoding dataBlockEncoding, final int blocksize,
+			final BloomType bloomType, final boolean inMemory) {
+		this.compression = compression;
+		this.dataBlockEncoding = dataBlockEncoding;
+		this.blocksize = blocksize;
+		this.bloomType = bloomType;
+		this.inMemory = inMemory;
+	}
+
+	/**
+	 * Gibt das Profil einer Column-Family einer Index-Tabelle zurück.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param familyname
+	 *            the familyname
+	 * @return the profile
+	 */
+	public static StorageProfile getProfile(final String tablename,
+			final byte[] familyname) {
+		StorageProfile result = getConfiguredProfile(tablename, familyname);
+		if (result != null) {
+			return result;
+		}
+		if (Bytes.equals(familyname, BitvectorManager.bloomfilter1ColumnFamily)
+				|| Bytes.equals(familyname,
+						BitvectorManager.bloomfilter2ColumnFamily)) {
+			return BLOOMFILTER;
+		}
+		return INDEX;
+	}
+
+	/**
+	 * Gibt das Profil einer Column-Family einer Hilfstabelle zurück.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param familyname
+	 *            the familyname
+	 * @return the auxiliary profile
+	 */
+	public static StorageProfile getAuxiliaryProfile(final String tablename,
+			final byte[] familyname) {
+		final StorageProfile result = getConfiguredProfile(tablename,
+				familyname);
+		return (result != null) ? result : AUXILIARY;
+	}
+
+	/**
+	 * Gibt das in {@link #PROFILES} eingetragene Profil zurück, sonst null.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param familyname
+	 *            the familyname
+	 * @return the configured profile
+	 */
+	private static StorageProfile getConfiguredProfile(final String tablename,
+			final byte[] familyname) {
+		final StorageProfile result = PROFILES.get(tablename + ":"
+				+ Bytes.toString(familyname));
+		return (result != null) ? result : PROFILES.get(tablename);
+	}
+
+	/**
+	 * Überträgt das Profil auf die Column-Family.
+	 * 
+	 * @param family
+	 *            the family
+	 * @return true, falls sich dadurch eine Einstellung geändert hat
+	 */
+	public boolean apply(final HColumnDescriptor family) {
+		final boolean changed = family.getCompressionType() != this.compression
+				|| family.getDataBlockEncoding() != this.dataBlockEncoding
+				|| family.getBlocksize() != this.blocksize
+				|| family.getBloomFilterType() != this.bloomType
+				|| family.isInMemory() != this.inMemory;
+		family.setCompressionType(this.compression);
+		family.setDataBlockEncoding(this.dataBlockEncoding);
+		family.setBlocksize(this.blocksize);
+		family.setBloomFilterType(this.bloomType);
+		family.setInMemory(this.inMemory);
+		return changed;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "StorageProfile [compression=" + this.compression
+				+ ", dataBlockEncoding=" + this.dataBlockEncoding
+				+ ", blocksize=" + this.blocksize + ", bloomType="
+				+ this.bloomType + ", inMemory=" + this.inMemory + "]";
+	}
+}
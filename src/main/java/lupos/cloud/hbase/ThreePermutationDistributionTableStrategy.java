@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import lupos.engine.operators.tripleoperator.TriplePattern;
+
+/**
+ * Verteilungsstrategie mit nur drei (zyklischen) Permutationen SPO, POS und
+ * OSP. Der Rowkey besteht jeweils aus dem ersten Element, der Spaltenname aus
+ * den beiden übrigen Elementen als zusammengesetzter Schlüssel. Gegenüber der
+ * Hexa-Strategie halbiert sich dadurch der Speicherbedarf und der Aufwand beim
+ * Laden.
+ * 
+ * Tripel-Muster mit zwei gebundenen Elementen werden über die Zeile des ersten
+ * Elements beantwortet, wobei nur die Spalten gelesen werden, die mit dem
+ * zweiten Element beginnen (Präfix-Scan über den zusammengesetzten Schlüssel,
+ * siehe {@link CompositeKey#encodeComposite(String...)}).
+ */
+public class ThreePermutationDistributionTableStrategy extends
+		HexaDistributionTableStrategy {
+
+	/** The Constant STRAGEGY_ID. */
+	public static final int STRAGEGY_ID = 4;
+
+	/** The Constant COLUMN_FAMILY. */
+	public static final String COLUMN_FAMILY = "Tri";
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see lupos.cloud.hbase.HexaDistributionTableStrategy#getTableNames()
+	 */
+	@Override
+	public String[] getTableNames() {
+		final String[] result = { "s_po", "p_os", "o_sp" };
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * lupos.cloud.hbase.HexaDistributionTableStrategy#getTablename(lupos.engine
+	 * .operators.tripleoperator.TriplePattern)
+	 */
+	@Override
+	public String getTablename(final TriplePattern triplePattern) {
+		switch (getPatternKind(triplePattern)) {
+		case 110:
+		case 100:
+			// s bzw. s,p gebunden
+			return "s_po";
+		case 101:
+		case 1:
+			// p bzw. p,o gebunden
+			return "p_os";
+		case 11:
+		case 10:
+			// o bzw. o,s gebunden
+			return "o_sp";
+		default:
+			// alle Elemente Variablen (bzw. Literale)
+			return "s_po";
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * lupos.cloud.hbase.HexaDistributionTableStrategy#generateHBaseTriple(java
+	 * .lang.String, java.lang.String[], java.lang.String[], java.lang.String)
+	 */
+	@Override
+	public HBaseTriple generateHBaseTriple(final String tablename,
+			final String[] rowElements, final String[] columnElements,
+			final String value) {
+		return new HBaseTriple(tablename, rowElements, COLUMN_FAMILY,
+				columnElements, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see lupos.cloud.hbase.HexaDistributionTableStrategy#getColumnFamilyName()
+	 */
+	@Override
+	public String getColumnFamilyName() {
+		return COLUMN_FAMILY;
+	}
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase;
+
+import java.util.HashSet;
+import java.util.TimeZone;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Ordnungserhaltende Kodierung von typisierten Literalen (Zahlen und
+ * xsd:dateTime). Dem N3-Term wird ein Kopf fester Länge vorangestellt, dessen
+ * lexikographische Ordnung der Ordnung der Werte entspricht:
+ * 
+ * TAG, Klasse ('N' für Zahlen, 'T' für xsd:dateTime), 16 Hex-Ziffern des
+ * Wertes, N3-Term
+ * 
+ * Da der ursprüngliche Term erhalten bleibt, ist die Kodierung verlustfrei.
+ * Liegt das Objekt als einziges Element im Spaltennamen (z.B. sp_o), können
+ * Bereichsanfragen (&lt;, &lt;=, &gt;, &gt;=) als Spaltenbereich
+ * (ColumnRangeFilter) ausgewertet werden.
+ */
+public final class TypedLiteralEncoding {
+
+	/** Wenn true, werden typisierte Literale kodiert gespeichert. */
+	public static boolean ACTIVE = true;
+
+	/** Erstes Zeichen eines kodierten Terms. */
+	public static final char TAG = '\u0001';
+
+	/** Klasse für numerische Literale. */
+	public static final char NUMERIC = 'N';
+
+	/** Klasse für xsd:dateTime. */
+	public static final char DATE_TIME = 'T';
+
+	/** Länge des Kopfes (TAG, Klasse, 16 Hex-Ziffern). */
+	public static final int HEADER_LENGTH = 18;
+
+	/** The Constant XSD. */
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+	/** Numerische Datentypen. */
+	private static final HashSet<String> NUMERIC_TYPES = new HashSet<String>();
+
+	static {
+		for (final String type : new String[] { "integer", "decimal", "double",
+				"float", "int", "long", "short", "byte", "nonNegativeInteger",
+				"nonPositiveInteger", "positiveInteger", "negativeInteger",
+				"unsignedLong", "unsignedInt", "unsignedShort", "unsignedByte" }) {
+			NUMERIC_TYPES.add(XSD + type);
+		}
+	}
+
+	/** Parser für xsd:dateTime. */
+	private static final DatatypeFactory DATATYPE_FACTORY;
+
+	static {
+		try {
+			DATATYPE_FACTORY = DatatypeFactory.newInstance();
+		} catch (final DatatypeConfigurationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** The Constant HEX. */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Instantiates a new typed literal encoding.
+	 */
+	private TypedLiteralEncoding() {
+	}
+
+	/**
+	 * Kodiert einen Term (N3-Darstellung). Terme, die keine unterstützten
+	 * typisierten Literale sind, werden unverändert zurückgegeben.
+	 * 
+	 * @param term
+	 *            the term
+	 * @return the kodierter Term
+	 */
+	public static String encode(final String term) {
+		if (!ACTIVE || term.length() == 0 || term.charAt(0) != '"') {
+			return term;
+		}
+		final int typeStart = term.lastIndexOf("\"^^<");
+		if (typeStart <= 0 || term.charAt(term.length() - 1) != '>') {
+			return term;
+		}
+		final String header = getHeader(term.substring(1, typeStart),
+				term.substring(typeStart + 4, term.length() - 1));
+		return (header == null) ? term : header + term;
+	}
+
+	/**
+	 * Dekodiert einen Term.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return the N3-Term
+	 */
+	public static String decode(final String value) {
+		if (value.length() >= HEADER_LENGTH && value.charAt(0) == TAG) {
+			return value.substring(HEADER_LENGTH);
+		}
+		return value;
+	}
+
+	/**
+	 * Gibt die Länge des Kopfes eines (UTF-8 kodierten) Terms zurück, bzw. 0
+	 * falls der Term nicht kodiert ist.
+	 * 
+	 * @param buf
+	 *            the buf
+	 * @param off
+	 *            the off
+	 * @param len
+	 *            the len
+	 * @return the header length
+	 */
+	public static int getHeaderLength(final byte[] buf, final int off,
+			final int len) {
+		return (len >= HEADER_LENGTH && buf[off] == TAG) ? HEADER_LENGTH : 0;
+	}
+
+	/**
+	 * Berechnet den Kopf für ein typisiertes Literal.
+	 * 
+	 * @param lexical
+	 *            the lexical
+	 * @param datatype
+	 *            the datatype (ohne spitze Klammern)
+	 * @return the header, null falls der Datentyp nicht unterstützt wird
+	 */
+	public static String getHeader(final String lexical, final String datatype) {
+		final char type = getType(datatype);
+		if (type == 0) {
+			return null;
+		}
+		try {
+			return getHeader(type, getValue(type, lexical.trim()));
+		} catch (final IllegalArgumentException e) {
+			// ungültiger lexikalischer Wert
+			return null;
+		}
+	}
+
+	/**
+	 * Gibt den Kopf für einen Wert einer Klasse zurück.
+	 * 
+	 * @param type
+	 *            the type
+	 * @param value
+	 *            the value
+	 * @return the header
+	 */
+	public static String getHeader(final char type, final double value) {
+		// -0.0 (z.B. "-0"^^xsd:integer) wie 0.0 einordnen
+		long bits = Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+		// Vorzeichen umdrehen bzw. bei negativen Zahlen alle Bits invertieren
+		bits ^= (bits < 0) ? 0xFFFFFFFFFFFFFFFFL : 0x8000000000000000L;
+		final char[] result = new char[HEADER_LENGTH];
+		result[0] = TAG;
+		result[1] = type;
+		for (int i = HEADER_LENGTH - 1; i >= 2; i--) {
+			result[i] = HEX[(int) (bits & 0xF)];
+			bits >>>= 4;
+		}
+		return new String(result);
+	}
+
+	/**
+	 * Gibt den Spaltenbereich [min, max) zurück, in dem alle kodierten
+	 * Literale einer Klasse mit min &lt;= Wert &lt;= max liegen. Da die Werte
+	 * als double verglichen werden, kann der Bereich einige zusätzliche Werte
+	 * enthalten, der Filter muss daher weiterhin ausgewertet werden.
+	 * 
+	 * @param type
+	 *            the type
+	 * @param min
+	 *            the min (null = unbeschränkt)
+	 * @param max
+	 *            the max (null = unbeschränkt)
+	 * @return {min, max}
+	 */
+	public static byte[][] getColumnRange(final char type, final Double min,
+			final Double max) {
+		final String start = (min == null) ? new String(new char[] { TAG,
+				type }) : getHeader(type, min);
+		final String stop = (max == null || Double.isInfinite(max) && max > 0) ? new String(
+				new char[] { TAG, (char) (type + 1) }) : getHeader(type,
+				Math.nextUp(max));
+		return new byte[][] { start.getBytes(CompositeKey.UTF8),
+				stop.getBytes(CompositeKey.UTF8) };
+	}
+
+	/**
+	 * Schneidet zwei Spaltenbereiche (siehe
+	 * {@link #getColumnRange(char, Double, Double)}). Ist der Schnitt leer,
+	 * liegt der Anfang hinter dem Ende und es wird keine Spalte gelesen.
+	 * 
+	 * @param a
+	 *            the a
+	 * @param b
+	 *            the b
+	 * @return {min, max}
+	 */
+	public static byte[][] intersectColumnRanges(final byte[][] a,
+			final byte[][] b) {
+		return new byte[][] {
+				Bytes.compareTo(a[0], b[0]) >= 0 ? a[0] : b[0],
+				Bytes.compareTo(a[1], b[1]) <= 0 ? a[1] : b[1] };
+	}
+
+	/**
+	 * Gibt die Klasse eines Datentyps zurück.
+	 * 
+	 * @param datatype
+	 *            the datatype
+	 * @return NUMERIC, DATE_TIME oder 0 (nicht unterstützt)
+	 */
+	public static char getType(final String datatype) {
+		if (NUMERIC_TYPES.contains(datatype)) {
+			return NUMERIC;
+		}
+		if ((XSD + "dateTime").equals(datatype)) {
+			return DATE_TIME;
+		}
+		return 0;
+	}
+
+	/**
+	 * Gibt den Wert eines Literals als double zurück (bei xsd:dateTime die
+	 * Millisekunden seit 1970).
+	 * 
+	 * @param type
+	 *            the type
+	 * @param lexical
+	 *            the lexical
+	 * @return the value
+	 * @throws IllegalArgumentException
+	 *             falls der lexikalische Wert ungültig ist
+	 */
+	public static double getValue(final char type, final String lexical) {
+		if (type == DATE_TIME) {
+			return DATATYPE_FACTORY.newXMLGregorianCalendar(lexical)
+					.toGregorianCalendar(TimeZone.getTimeZone("UTC"), null,
+							null).getTimeInMillis();
+		}
+		if ("INF".equals(lexical)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if ("-INF".equals(lexical)) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		if (lexical.length() > 0 && Character.isLetter(lexical.charAt(lexical.length() - 1))
+				&& !"NaN".equals(lexical)) {
+			// z.B. "1d" oder "Infinity" sind in XSD nicht erlaubt
+			throw new IllegalArgumentException(lexical);
+		}
+		return Double.parseDouble(lexical);
+	}
+}
@@ -25,11 +25,13 @@ package lupos.cloud.hbase.bulkLoad;
 
 import java.io.IOException;
 
+import lupos.cloud.hbase.DuplicateFilter;
 import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.JobOrchestrator;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.KeyValue;
-import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.HFileOutputFormat;
@@ -37,35 +39,34 @@ import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
 import org.apache.hadoop.hbase.mapreduce.hadoopbackport.TotalOrderPartitioner;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
 /**
- * Für das Übertragen der Tripel wird für jede Tabelle ein eigener Thread
- * gestartet.
+ * Für das Übertragen der Tripel wird für jede Tabelle ein eigener Job
+ * gestartet (siehe {@link JobOrchestrator}).
  */
-public class BulkLoad extends Thread {
+public class BulkLoad extends JobOrchestrator.JobTask {
 
 	/** Name der Tabelle. */
 	private String tablename;
 
-	/** Job Referenz. */
-	private Job job;
-
-	/** Job Status. */
-	private boolean finished = false;
+	/** Verzeichnis der Generation auf dem verteilten Dateisystem. */
+	private String directory;
 
 	/**
 	 * Instantiates a new bulk load.
 	 * 
 	 * @param tablename
 	 *            the tablename
-	 * @throws IOException
-	 *             Signals that an I/O exception has occurred.
+	 * @param directory
+	 *            Verzeichnis der Generation auf dem verteilten Dateisystem
+	 *            (siehe {@link BulkLoadGeneration})
 	 */
-	public BulkLoad(String tablename) throws IOException {
+	public BulkLoad(String tablename, String directory) {
+		super("BulkLoad " + tablename);
 		this.tablename = tablename;
-		createJob();
+		this.directory = directory;
 	}
 
 	/**
@@ -74,13 +75,14 @@ public class BulkLoad extends Thread {
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	private void createJob() throws IOException {
+	@Override
+	protected Job createJob() throws IOException {
 		System.out.println(tablename + " wird uebertragen!");
-		// init job
-		HBaseConnection.getConfiguration().set("hbase.table.name", tablename);
-
-		job = new Job(HBaseConnection.getConfiguration(),
+		// init job (mehrere Generationen können gleichzeitig laufen, daher
+		// nur die Konfiguration des Jobs ändern)
+		Job job = new Job(HBaseConnection.getConfiguration(),
 				"HBase Bulk Import for " + tablename);
+		job.getConfiguration().set("hbase.table.name", tablename);
 		job.setJarByClass(HBaseKVMapper.class);
 
 		job.setMapperClass(HBaseKVMapper.class);
@@ -88,68 +90,81 @@ public class BulkLoad extends Thread {
 		job.setMapOutputValueClass(KeyValue.class);
 		job.setOutputFormatClass(HFileOutputFormat.class);
 		job.setPartitionerClass(TotalOrderPartitioner.class);
-		job.setInputFormatClass(TextInputFormat.class);
+		// binärer Puffer aus Rowkey und SpoolRecord
+		job.setInputFormatClass(SequenceFileInputFormat.class);
 
 		// TableMapReduceUtil.addDependencyJars(job);
 
+		// generiere HFiles auf dem verteilten Dateisystem
+		HTable hTable = new HTable(HBaseConnection.getConfiguration(),
+				tablename);
+		HFileOutputFormat.configureIncrementalLoad(job, hTable);
+		hTable.close();
+		// Duplikate vor dem Shuffle entfernen
+		job.setCombinerClass(KeyValueDedupCombiner.class);
+		job.getConfiguration().setInt(
+				DuplicateFilter.MAPPER_CACHE_BYTES_PROPERTY,
+				DuplicateFilter.MAPPER_CACHE_BYTES);
+		job.getConfiguration().setInt(TripleBulkLoad.TABLE_STRATEGY_PROPERTY,
+				HBaseDistributionStrategy.TABLE_STRATEGY);
+
+		FileInputFormat.addInputPath(job, new Path(directory + "/"
+				+ tablename + "_" + HBaseConnection.BUFFER_FILE_NAME
+				+ HBaseConnection.BUFFER_FILE_SUFFIX));
+		// Ausgabe eines fehlgeschlagenen Versuchs entfernen
+		Path output = getOutputPath();
+		HBaseConnection.getHdfs_fileSystem().delete(output, true);
+		FileOutputFormat.setOutputPath(job, output);
+		return job;
 	}
 
 	/**
-	 * Lädt eine Tabelle per Map Reduce Bulkload.
+	 * Lädt die generierten HFiles in HBase.
 	 * 
+	 * @param job
+	 *            the job
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
 	 */
-
-	public void run() {
+	@Override
+	protected void completed(Job job) throws IOException {
+		HTable hTable = new HTable(HBaseConnection.getConfiguration(),
+				tablename);
 		try {
-			// generiere HFiles auf dem verteilten Dateisystem
-			HTable hTable = new HTable(HBaseConnection.getConfiguration(),
-					tablename);
-
-			HFileOutputFormat.configureIncrementalLoad(job, hTable);
-
-			FileInputFormat.addInputPath(job, new Path("/tmp/"
-					+ HBaseConnection.WORKING_DIR + "/" + tablename + "_"
-					+ HBaseConnection.BUFFER_FILE_NAME + ".csv"));
-			FileOutputFormat.setOutputPath(job, new Path("/tmp/"
-					+ HBaseConnection.WORKING_DIR + "/" + tablename + "_"
-					+ HBaseConnection.BUFFER_HFILE_NAME));
-
-			job.waitForCompletion(true);
-
-			// Lade generierte HFiles in HBase
 			LoadIncrementalHFiles loader = new LoadIncrementalHFiles(
 					HBaseConnection.getConfiguration());
-			loader.doBulkLoad(
-					new Path("/tmp/" + HBaseConnection.WORKING_DIR + "/"
-							+ tablename + "_"
-							+ HBaseConnection.BUFFER_HFILE_NAME), hTable);
-
-			this.finished = true;
-
-		} catch (TableNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} catch (Exception e) {
-			e.printStackTrace();
+			loader.doBulkLoad(getOutputPath(), hTable);
+		} finally {
+			hTable.close();
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see lupos.cloud.hbase.JobOrchestrator.JobTask#getCounterGroup()
+	 */
+	@Override
+	protected String getCounterGroup() {
+		return "HBaseKVMapper";
+	}
+
 	/**
-	 * Gets the job.
+	 * Verzeichnis der HFiles.
 	 * 
-	 * @return the job
+	 * @return the output path
 	 */
-	public Job getJob() {
-		return job;
+	private Path getOutputPath() {
+		return new Path(directory + "/" + tablename + "_"
+				+ HBaseConnection.BUFFER_HFILE_NAME);
 	}
 
 	/**
-	 * Checks if is finished.
+	 * Gets the tablename.
 	 * 
-	 * @return true, if is finished
+	 * @return the tablename
 	 */
-	public boolean isFinished() {
-		return finished;
+	public String getTablename() {
+		return tablename;
 	}
 }
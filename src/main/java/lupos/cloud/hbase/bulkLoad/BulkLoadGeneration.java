@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Future;
+
+import lupos.cloud.bloomfilter.BitvectorCache;
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseStatistics;
+import lupos.cloud.hbase.JobOrchestrator;
+import lupos.cloud.hbase.LoadCheckpoint;
+import lupos.cloud.hbase.LoadMetrics;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+
+/**
+ * Eine Generation des BulkLoad-Puffers. Sobald der lokale Puffer voll ist,
+ * wird er abgeschlossen und von diesem Thread hochgeladen, per
+ * {@link BulkLoad} je Tabelle in HFiles umgewandelt und in HBase geladen
+ * (bzw. ohne MapReduce per {@link LocalBulkLoad}).
+ * Währenddessen füllt der Client bereits die nächste Generation (siehe
+ * HBaseConnection#startBulkLoad()).
+ */
+public class BulkLoadGeneration extends Thread {
+
+	/** Nummer der Generation. */
+	private final int generation;
+
+	/** Tabellen mit Einträgen in dieser Generation. */
+	private final Collection<String> tables;
+
+	/** Kennung der Generation in den Statistiken. */
+	private final Object statistics;
+
+	/** Position der Eingabe beim Abschließen (siehe LoadCheckpoint). */
+	private final long inputPosition;
+
+	/** Job Status. */
+	private boolean finished = false;
+
+	/** Fehler beim Laden der Generation. */
+	private IOException error = null;
+
+	/**
+	 * Instantiates a new bulk load generation.
+	 * 
+	 * @param generation
+	 *            Nummer der Generation
+	 * @param tables
+	 *            Tabellen mit Einträgen in dieser Generation
+	 * @param statistics
+	 *            Kennung der Generation in den Statistiken (siehe
+	 *            {@link HBaseStatistics#sealGeneration()})
+	 * @param inputPosition
+	 *            Position der Eingabe, bis zu der alle Tripel in dieser oder
+	 *            einer früheren Generation enthalten sind
+	 */
+	public BulkLoadGeneration(final int generation,
+			final Collection<String> tables, final Object statistics,
+			final long inputPosition) {
+		super("BulkLoad generation " + generation);
+		this.generation = generation;
+		this.tables = new ArrayList<String>(tables);
+		this.statistics = statistics;
+		this.inputPosition = inputPosition;
+	}
+
+	/**
+	 * Lokaler Pfad des Puffers einer Tabelle.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param generation
+	 *            the generation
+	 * @return the local path
+	 */
+	public static String getLocalFile(final String tablename,
+			final int generation) {
+		return HBaseConnection.WORKING_DIR + File.separator + tablename + "_"
+				+ HBaseConnection.BUFFER_FILE_NAME + "_" + generation
+				+ HBaseConnection.BUFFER_FILE_SUFFIX;
+	}
+
+	/**
+	 * Verzeichnis der Generation auf dem verteilten Dateisystem.
+	 * 
+	 * @param generation
+	 *            the generation
+	 * @return the directory
+	 */
+	public static String getDirectory(final int generation) {
+		return "/tmp/" + HBaseConnection.WORKING_DIR + "/" + generation;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		final String directory = getDirectory(this.generation);
+		try {
+			final FileSystem fs = HBaseConnection.getHdfs_fileSystem();
+			boolean allJobsReady = true;
+			long start = System.nanoTime();
+			if (HBaseConnection.LOCAL_BULK_LOAD) {
+				// ohne MapReduce: HFiles lokal sortieren und schreiben
+				final ArrayList<LocalBulkLoad> localList = new ArrayList<LocalBulkLoad>();
+				for (final String tablename : this.tables) {
+					final LocalBulkLoad b = new LocalBulkLoad(tablename,
+							getLocalFile(tablename, this.generation),
+							directory);
+					b.start();
+					localList.add(b);
+				}
+				for (final LocalBulkLoad b : localList) {
+					b.join();
+					allJobsReady &= b.isFinished();
+					if (b.getError() != null && this.error == null) {
+						this.error = b.getError();
+					}
+				}
+				LoadMetrics.record(LoadMetrics.HFILE, System.nanoTime() - start);
+			} else {
+				final ArrayList<Future<Counters>> jobs = new ArrayList<Future<Counters>>();
+				for (final String tablename : this.tables) {
+					fs.copyFromLocalFile(true, true, new Path(getLocalFile(
+							tablename, this.generation)), new Path(directory
+							+ "/" + tablename + "_"
+							+ HBaseConnection.BUFFER_FILE_NAME
+							+ HBaseConnection.BUFFER_FILE_SUFFIX));
+					final long now = System.nanoTime();
+					LoadMetrics.record(LoadMetrics.UPLOAD, now - start);
+					start = now;
+					jobs.add(JobOrchestrator.getInstance().submit(
+							new BulkLoad(tablename, directory)));
+				}
+				try {
+					JobOrchestrator.awaitAll(jobs);
+				} catch (final IOException e) {
+					this.error = e;
+					allJobsReady = false;
+				}
+				LoadMetrics.record(LoadMetrics.HFILE, System.nanoTime() - start);
+			}
+			fs.delete(new Path(directory), true);
+			this.finished = allJobsReady;
+			if (allJobsReady) {
+				LoadCheckpoint.committed(this.generation, this.inputPosition);
+			}
+			// welche Zeilen geändert wurden ist nicht bekannt
+			BitvectorCache.clear();
+			System.out.println("Generation " + this.generation
+					+ (allJobsReady ? " ist geladen" : " ist fehlgeschlagen"));
+		} catch (final IOException e) {
+			this.error = e;
+			e.printStackTrace();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// erst jetzt sind die Tripel der Generation in HBase sichtbar,
+			// gezählt werden sie nur, wenn die Generation geladen wurde
+			try {
+				HBaseStatistics.releaseGeneration(this.statistics,
+						this.finished);
+			} catch (final IOException e) {
+				if (this.error == null) {
+					this.error = e;
+				}
+				this.finished = false;
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Gets the generation.
+	 * 
+	 * @return the generation
+	 */
+	public int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Checks if is finished.
+	 * 
+	 * @return true, if all tables of the generation were loaded
+	 */
+	public boolean isFinished() {
+		return this.finished;
+	}
+
+	/**
+	 * Gets the error.
+	 * 
+	 * @return der Fehler beim Laden oder null
+	 */
+	public IOException getError() {
+		return this.error;
+	}
+}
@@ -25,32 +25,44 @@ package lupos.cloud.hbase.bulkLoad;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import lupos.cloud.bloomfilter.BitvectorManager;
+import lupos.cloud.hbase.CompositeKey;
+import lupos.cloud.hbase.DuplicateFilter;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
 
-import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
-import org.apache.hadoop.hbase.util.Bytes;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 
-import au.com.bytecode.opencsv.CSVParser;
-
 /**
- * Mapper Klasse zum Laden großer Datenmengen in HBase. Dabei wird eine
- * CSV-Datei auslgesen und jede Zeile anschließend in das passende
- * Tabellenformat gebracht.
+ * Mapper Klasse zum Laden großer Datenmengen in HBase. Dabei wird der binäre
+ * Puffer (SequenceFile aus Rowkey und {@link SpoolRecord}) ausgelesen und
+ * jeder Datensatz anschließend in das passende Tabellenformat gebracht.
  */
 public class HBaseKVMapper extends
-		Mapper<LongWritable, Text, ImmutableBytesWritable, KeyValue> {
+		Mapper<ImmutableBytesWritable, SpoolRecord, ImmutableBytesWritable, KeyValue> {
+
+	/** Leerer Wert der Bloomfilter-Spalten. */
+	private static final byte[] EMPTY = new byte[0];
+
+	/** Cursor über die Elemente des Spaltennamens. */
+	private final CompositeKey.Cursor cursor = new CompositeKey.Cursor();
 
-	/** CSVParser Referenz. */
-	CSVParser csvParser = new CSVParser('\t');
+	/** Die zuletzt gelesenen Zellen (Rowkey, Family, Spaltenname). */
+	private DuplicateFilter.Cache duplicates;
 
-	/** Tabellenname. */
-	String tableName = "";;
+	/** Puffer für den Schlüssel der aktuellen Zelle. */
+	private ByteBuffer cell = ByteBuffer.allocate(256);
+
+	/** Zellen des aktuellen Datensatzes. */
+	private final ArrayList<KeyValue> keyValues = new ArrayList<KeyValue>(3);
+
+	/** Gibt an, ob das letzte Element des Spaltennamens der Graph ist. */
+	private boolean graphs;
 
 	/*
 	 * (non-Javadoc)
@@ -62,8 +74,13 @@ public class HBaseKVMapper extends
 	@Override
 	protected void setup(Context context) throws IOException,
 			InterruptedException {
-		Configuration c = context.getConfiguration();
-		tableName = c.get("hbase.table.name");
+		duplicates = new DuplicateFilter.Cache(context.getConfiguration()
+				.getInt(DuplicateFilter.MAPPER_CACHE_BYTES_PROPERTY,
+						DuplicateFilter.MAPPER_CACHE_BYTES));
+		HBaseDistributionStrategy.TABLE_STRATEGY = context.getConfiguration()
+				.getInt(TripleBulkLoad.TABLE_STRATEGY_PROPERTY,
+						HBaseDistributionStrategy.TABLE_STRATEGY);
+		graphs = HBaseDistributionStrategy.getTableInstance().storesGraphs();
 	}
 
 	/*
@@ -73,61 +90,97 @@ public class HBaseKVMapper extends
 	 * org.apache.hadoop.mapreduce.Mapper.Context)
 	 */
 	@Override
-	protected void map(LongWritable key, Text value, Context context)
-			throws IOException, InterruptedException {
-
-		String[] fields = null; // {"a", "b", "c", "d"};
-
-		try {
-			fields = csvParser.parseLine(value.toString());
-		} catch (Exception ex) {
-			context.getCounter("HBaseKVMapper", "PARSE_ERRORS").increment(1);
+	protected void map(ImmutableBytesWritable key, SpoolRecord value,
+			Context context) throws IOException, InterruptedException {
+		// doppelte Zellen (Rowkey, Family, Spaltenname) verwerfen
+		final byte[] family = value.getFamily();
+		final int length = 8 + key.getLength() + family.length
+				+ value.getColumnLength();
+		if (cell.capacity() < length) {
+			cell = ByteBuffer.allocate(Math.max(length, 2 * cell.capacity()));
+		}
+		cell.clear();
+		cell.putInt(key.getLength()).putInt(family.length)
+				.put(key.get(), key.getOffset(), key.getLength()).put(family)
+				.put(value.getColumn(), 0, value.getColumnLength());
+		if (!duplicates.add(cell.array(), 0, length)) {
+			context.getCounter("HBaseKVMapper", "DUPLICATE_CELLS").increment(1);
 			return;
 		}
 
-		if (fields.length < 4) {
+		keyValues.clear();
+		if (!createKeyValues(key, value, cursor, graphs, keyValues)) {
 			context.getCounter("HBaseKVMapper", "TRIPLE_ERROR").increment(1);
 			return;
 		}
+		for (final KeyValue kv : keyValues) {
+			context.write(key, kv);
+		}
+		context.getCounter("HBaseKVMapper", "TRIPLE_IMPORTED").increment(1);
 
-		ImmutableBytesWritable ibKey = new ImmutableBytesWritable(
-				Bytes.toBytes(fields[1]));
+	}
 
-		// S P O Content
-		KeyValue kv1 = new KeyValue(ibKey.get(), fields[0].getBytes(),
-				fields[2].getBytes(), fields[3].getBytes());
-
-		context.write(ibKey, kv1);
-
-		String toSplit = fields[2];
-		String elem1 = null;
-		String elem2 = null;
-		if (toSplit.contains(",")) {
-			elem1 = toSplit.substring(0, toSplit.indexOf(","));
-			elem2 = toSplit.substring(toSplit.indexOf(",") + 1,
-					toSplit.length());
-		} else {
-			elem1 = toSplit.substring(0, toSplit.length());
-		}
-		// Bloomfilter
-		if (!(elem1 == null)) {
-			Integer position = BitvectorManager.hash(elem1.getBytes());
-			KeyValue kv2 = new KeyValue(ibKey.get(),
-					BitvectorManager.bloomfilter1ColumnFamily,
-					IntegerToByteArray(4, position), "".getBytes());
-			context.write(ibKey, kv2);
+	/**
+	 * Erzeugt die Zellen eines Datensatzes: die Zelle des Index und die
+	 * Spalten der Bloomfilter (wird auch vom {@link LocalBulkLoad} genutzt).
+	 * 
+	 * @param key
+	 *            der kodierte (und ggf. mit Salt versehene) Rowkey
+	 * @param value
+	 *            the value
+	 * @param cursor
+	 *            Cursor über die Elemente des Spaltennamens
+	 * @param graphs
+	 *            true, falls das letzte Element des Spaltennamens der Graph
+	 *            ist (dieser geht nicht in die Bloomfilter ein, siehe
+	 *            {@link HBaseDistributionStrategy#storesGraphs()})
+	 * @param result
+	 *            die Liste, an die die Zellen angehängt werden
+	 * @return false, falls der Spaltenname leer ist
+	 */
+	public static boolean createKeyValues(final ImmutableBytesWritable key,
+			final SpoolRecord value, final CompositeKey.Cursor cursor,
+			final boolean graphs, final List<KeyValue> result) {
+		final byte[] row = key.get();
+		final int rowOffset = key.getOffset();
+		final int rowLength = key.getLength();
+		final byte[] column = value.getColumn();
+		final byte[] family = value.getFamily();
+
+		cursor.reset(column, 0, value.getColumnLength());
+		if (!cursor.next()) {
+			return false;
 		}
 
-		if (!(elem2 == null)) {
-			Integer position = BitvectorManager.hash(elem2.getBytes());
-			KeyValue kv2 = new KeyValue(ibKey.get(),
-					BitvectorManager.bloomfilter2ColumnFamily,
-					IntegerToByteArray(4, position), "".getBytes());
-			context.write(ibKey, kv2);
-		}
-		// }
-		context.getCounter("HBaseKVMapper", "TRIPLE_IMPORTED").increment(1);
+		// S P O Content
+		result.add(new KeyValue(row, rowOffset, rowLength, family, 0,
+				family.length, column, 0, value.getColumnLength(),
+				HConstants.LATEST_TIMESTAMP, KeyValue.Type.Put,
+				value.getValue(), 0, value.getValueLength()));
 
+		// Bloomfilter
+		Integer position = BitvectorManager.hash(column, cursor.getOffset(),
+				cursor.getLength());
+		result.add(new KeyValue(row, rowOffset, rowLength,
+				BitvectorManager.bloomfilter1ColumnFamily, 0,
+				BitvectorManager.bloomfilter1ColumnFamily.length,
+				IntegerToByteArray(4, position), 0, 4,
+				HConstants.LATEST_TIMESTAMP, KeyValue.Type.Put, EMPTY, 0, 0));
+
+		if (cursor.next()) {
+			position = BitvectorManager.hash(column, cursor.getOffset(),
+					cursor.getLength());
+			// das zweite Element zählt nur, wenn es nicht der Graph ist
+			if (!graphs || cursor.next()) {
+				result.add(new KeyValue(row, rowOffset, rowLength,
+						BitvectorManager.bloomfilter2ColumnFamily, 0,
+						BitvectorManager.bloomfilter2ColumnFamily.length,
+						IntegerToByteArray(4, position), 0, 4,
+						HConstants.LATEST_TIMESTAMP, KeyValue.Type.Put, EMPTY,
+						0, 0));
+			}
+		}
+		return true;
 	}
 
 	public static byte[] IntegerToByteArray(int allocate, Integer pos) {
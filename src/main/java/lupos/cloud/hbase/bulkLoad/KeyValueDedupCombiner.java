@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.IOException;
+import java.util.TreeSet;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner der BulkLoad-Jobs. Gibt die Zellen eines Rowkeys nur einmal aus,
+ * sodass doppelte Tripel, die der Cache der Mapper nicht erkannt hat (siehe
+ * DuplicateFilter), bereits vor dem Shuffle entfernt werden. Alle Zellen
+ * eines Ladevorgangs haben denselben Zeitstempel, gleiche Zellen sind daher
+ * nach KeyValue.COMPARATOR gleich.
+ */
+public class KeyValueDedupCombiner extends
+		Reducer<ImmutableBytesWritable, KeyValue, ImmutableBytesWritable, KeyValue> {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.hadoop.mapreduce.Reducer#reduce(KEYIN,
+	 * java.lang.Iterable, org.apache.hadoop.mapreduce.Reducer.Context)
+	 */
+	@Override
+	protected void reduce(final ImmutableBytesWritable row,
+			final Iterable<KeyValue> kvs, final Context context)
+			throws IOException, InterruptedException {
+		final TreeSet<KeyValue> distinct = new TreeSet<KeyValue>(
+				KeyValue.COMPARATOR);
+		for (final KeyValue kv : kvs) {
+			// das Objekt wird vom Framework wiederverwendet
+			if (!distinct.contains(kv)) {
+				distinct.add(kv.clone());
+			} else {
+				context.getCounter("KeyValueDedupCombiner", "DUPLICATE_CELLS")
+						.increment(1);
+			}
+		}
+		for (final KeyValue kv : distinct) {
+			context.write(row, kv);
+		}
+	}
+}
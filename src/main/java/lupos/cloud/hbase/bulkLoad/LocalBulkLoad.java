@@ -0,0 +1,485 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import lupos.cloud.hbase.CompositeKey;
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.SequenceFile;
+
+/**
+ * Lädt den Puffer einer Tabelle ohne MapReduce Job (siehe
+ * HBaseConnection#LOCAL_BULK_LOAD). Die Zellen werden im Speicher sortiert,
+ * bei vollem Puffer als sortierte Datei ausgelagert und anschließend
+ * gemischt (External Merge Sort). Die HFiles werden direkt geschrieben, an den
+ * Grenzen der Regionen geteilt und per LoadIncrementalHFiles geladen. Für
+ * mittlere Datenmengen entfallen so Job-Start, Partitionierung und Shuffle.
+ */
+public class LocalBulkLoad extends Thread {
+
+	/**
+	 * Größe des Sortierpuffers in Bytes je Tabelle. Bei parallelen Tabellen
+	 * und Generationen wird entsprechend mehr Speicher benötigt.
+	 */
+	public static long SORT_BUFFER_SIZE = 64L * 1024 * 1024;
+
+	/** Geschätzter Overhead einer Zelle im Sortierpuffer. */
+	private static final int KEYVALUE_OVERHEAD = 64;
+
+	/** Name der Tabelle. */
+	private final String tablename;
+
+	/** Lokale Pufferdatei (SequenceFile aus Rowkey und SpoolRecord). */
+	private final String spoolFile;
+
+	/** Verzeichnis der Generation auf dem verteilten Dateisystem. */
+	private final String directory;
+
+	/** Ausgelagerte, sortierte Teildateien. */
+	private final ArrayList<File> spills = new ArrayList<File>();
+
+	/** Job Status. */
+	private boolean finished = false;
+
+	/** Fehler beim Laden der Tabelle. */
+	private IOException error = null;
+
+	/**
+	 * Instantiates a new local bulk load.
+	 * 
+	 * @param tablename
+	 *            the tablename
+	 * @param spoolFile
+	 *            lokale Pufferdatei der Tabelle
+	 * @param directory
+	 *            Verzeichnis der Generation auf dem verteilten Dateisystem
+	 */
+	public LocalBulkLoad(final String tablename, final String spoolFile,
+			final String directory) {
+		this.tablename = tablename;
+		this.spoolFile = spoolFile;
+		this.directory = directory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		System.out.println(this.tablename + " wird lokal uebertragen!");
+		try {
+			final HTable hTable = new HTable(
+					HBaseConnection.getConfiguration(), this.tablename);
+			final Path output = new Path(this.directory + "/" + this.tablename
+					+ "_" + HBaseConnection.BUFFER_HFILE_NAME);
+			try {
+				final ArrayList<KeyValue> sorted = this.sortSpool();
+				this.writeHFiles(this.merge(sorted), hTable, output);
+			} finally {
+				for (final File spill : this.spills) {
+					spill.delete();
+				}
+			}
+
+			// Lade generierte HFiles in HBase
+			final LoadIncrementalHFiles loader = new LoadIncrementalHFiles(
+					HBaseConnection.getConfiguration());
+			loader.doBulkLoad(output, hTable);
+			hTable.close();
+			new File(this.spoolFile).delete();
+			this.finished = true;
+		} catch (final IOException e) {
+			this.error = e;
+			e.printStackTrace();
+		} catch (final Exception e) {
+			this.error = new IOException("Lokaler BulkLoad von "
+					+ this.tablename + " fehlgeschlagen", e);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Liest den Puffer und sortiert die Zellen. Ist der Sortierpuffer voll,
+	 * werden die Zellen sortiert ausgelagert.
+	 * 
+	 * @return die sortierten Zellen, die noch im Speicher sind
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private ArrayList<KeyValue> sortSpool() throws IOException {
+		final Configuration conf = HBaseConnection.getConfiguration();
+		final FileSystem local = FileSystem.getLocal(conf);
+		final SequenceFile.Reader reader = new SequenceFile.Reader(local,
+				new Path(new File(this.spoolFile).getAbsolutePath()), conf);
+		final ImmutableBytesWritable key = new ImmutableBytesWritable();
+		final SpoolRecord value = new SpoolRecord();
+		final CompositeKey.Cursor cursor = new CompositeKey.Cursor();
+		final boolean graphs = HBaseDistributionStrategy.getTableInstance()
+				.storesGraphs();
+		ArrayList<KeyValue> buffer = new ArrayList<KeyValue>();
+		long size = 0;
+		try {
+			while (reader.next(key, value)) {
+				final int start = buffer.size();
+				HBaseKVMapper.createKeyValues(key, value, cursor, graphs,
+						buffer);
+				for (int i = start; i < buffer.size(); i++) {
+					size += buffer.get(i).getLength() + KEYVALUE_OVERHEAD;
+				}
+				if (size >= SORT_BUFFER_SIZE) {
+					this.spill(buffer);
+					buffer = new ArrayList<KeyValue>();
+					size = 0;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		Collections.sort(buffer, KeyValue.COMPARATOR);
+		return buffer;
+	}
+
+	/**
+	 * Sortiert die Zellen und lagert sie in eine lokale Datei aus.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void spill(final ArrayList<KeyValue> buffer) throws IOException {
+		Collections.sort(buffer, KeyValue.COMPARATOR);
+		final File file = File.createTempFile(this.tablename + "_spill", null,
+				new File(HBaseConnection.WORKING_DIR));
+		this.spills.add(file);
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			for (final KeyValue kv : buffer) {
+				KeyValue.write(kv, out);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Mischt die ausgelagerten Dateien und die Zellen im Speicher.
+	 * 
+	 * @param sorted
+	 *            die sortierten Zellen im Speicher
+	 * @return Quelle der gemischten Zellen
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private MergeSource merge(final ArrayList<KeyValue> sorted)
+			throws IOException {
+		final PriorityQueue<Source> queue = new PriorityQueue<Source>(
+				this.spills.size() + 1, new Comparator<Source>() {
+					@Override
+					public int compare(final Source o1, final Source o2) {
+						return KeyValue.COMPARATOR.compare(o1.current,
+								o2.current);
+					}
+				});
+		final Source memory = new MemorySource(sorted);
+		if (memory.advance()) {
+			queue.add(memory);
+		}
+		for (final File spill : this.spills) {
+			final Source source = new SpillSource(spill);
+			if (source.advance()) {
+				queue.add(source);
+			} else {
+				source.close();
+			}
+		}
+		return new MergeSource(queue);
+	}
+
+	/**
+	 * Schreibt die sortierten Zellen als HFiles (je Column-Family und Region
+	 * eine Datei). Gleiche Zellen werden nur einmal geschrieben.
+	 * 
+	 * @param cells
+	 *            the cells
+	 * @param hTable
+	 *            the h table
+	 * @param output
+	 *            the output
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeHFiles(final MergeSource cells, final HTable hTable,
+			final Path output) throws IOException {
+		final Configuration conf = HBaseConnection.getConfiguration();
+		final FileSystem fs = HBaseConnection.getHdfs_fileSystem();
+		// der Block-Cache wird beim Schreiben nicht benötigt
+		final Configuration tempConf = new Configuration(conf);
+		tempConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+		final CacheConfig cacheConfig = new CacheConfig(tempConf);
+		final byte[][] startKeys = hTable.getStartKeys();
+		final byte[] now = Bytes.toBytes(System.currentTimeMillis());
+
+		final HashMap<String, StoreFile.Writer> writers = new HashMap<String, StoreFile.Writer>();
+		int region = 0;
+		KeyValue previous = null;
+		try {
+			KeyValue kv;
+			while ((kv = cells.next()) != null) {
+				// alle Zellen haben denselben Zeitstempel, gleiche Zeile und
+				// Spalte bedeutet daher eine doppelte Zelle
+				if (previous != null
+						&& KeyValue.COMPARATOR.matchingRowColumn(previous, kv)) {
+					continue;
+				}
+				previous = kv;
+				// neue Region: die HFiles der vorherigen Region abschließen
+				if (region + 1 < startKeys.length
+						&& Bytes.compareTo(kv.getBuffer(), kv.getRowOffset(),
+								kv.getRowLength(), startKeys[region + 1], 0,
+								startKeys[region + 1].length) >= 0) {
+					closeWriters(writers);
+					while (region + 1 < startKeys.length
+							&& Bytes.compareTo(kv.getBuffer(),
+									kv.getRowOffset(), kv.getRowLength(),
+									startKeys[region + 1], 0,
+									startKeys[region + 1].length) >= 0) {
+						region++;
+					}
+				}
+				final String family = Bytes.toString(kv.getFamily());
+				StoreFile.Writer writer = writers.get(family);
+				if (writer == null) {
+					final HColumnDescriptor descriptor = hTable
+							.getTableDescriptor().getFamily(kv.getFamily());
+					final Path familyDir = new Path(output, family);
+					fs.mkdirs(familyDir);
+					writer = new StoreFile.WriterBuilder(conf, cacheConfig, fs,
+							descriptor.getBlocksize())
+							.withOutputDir(familyDir)
+							.withCompression(descriptor.getCompression())
+							.withBloomType(descriptor.getBloomFilterType())
+							.withComparator(KeyValue.COMPARATOR).build();
+					writers.put(family, writer);
+				}
+				kv.updateLatestStamp(now);
+				writer.append(kv);
+			}
+		} finally {
+			cells.close();
+			closeWriters(writers);
+		}
+	}
+
+	/**
+	 * Schließt die HFiles und setzt die Metadaten des BulkLoads.
+	 * 
+	 * @param writers
+	 *            the writers
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void closeWriters(
+			final HashMap<String, StoreFile.Writer> writers) throws IOException {
+		for (final StoreFile.Writer writer : writers.values()) {
+			writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY,
+					Bytes.toBytes(System.currentTimeMillis()));
+			writer.appendFileInfo(StoreFile.BULKLOAD_TASK_KEY,
+					Bytes.toBytes("local"));
+			writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY,
+					Bytes.toBytes(true));
+			writer.appendTrackedTimestampsToMetadata();
+			writer.close();
+		}
+		writers.clear();
+	}
+
+	/**
+	 * Checks if is finished.
+	 * 
+	 * @return true, if is finished
+	 */
+	public boolean isFinished() {
+		return this.finished;
+	}
+
+	/**
+	 * Gets the error.
+	 * 
+	 * @return der Fehler beim Laden oder null
+	 */
+	public IOException getError() {
+		return this.error;
+	}
+
+	/**
+	 * Sortierte Folge von Zellen.
+	 */
+	private static abstract class Source {
+
+		/** Aktuelle Zelle. */
+		KeyValue current;
+
+		/**
+		 * Liest die nächste Zelle nach {@link #current}.
+		 * 
+		 * @return false, falls keine Zelle mehr vorhanden ist
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		abstract boolean advance() throws IOException;
+
+		/**
+		 * Gibt die Ressourcen frei.
+		 * 
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void close() throws IOException {
+		}
+	}
+
+	/**
+	 * Die sortierten Zellen im Speicher.
+	 */
+	private static class MemorySource extends Source {
+
+		private final ArrayList<KeyValue> cells;
+
+		private int position = 0;
+
+		MemorySource(final ArrayList<KeyValue> cells) {
+			this.cells = cells;
+		}
+
+		@Override
+		boolean advance() {
+			if (this.position == this.cells.size()) {
+				return false;
+			}
+			this.current = this.cells.get(this.position);
+			this.cells.set(this.position++, null);
+			return true;
+		}
+	}
+
+	/**
+	 * Eine ausgelagerte, sortierte Datei.
+	 */
+	private static class SpillSource extends Source {
+
+		private final DataInputStream in;
+
+		SpillSource(final File file) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file), 1 << 16));
+		}
+
+		@Override
+		boolean advance() throws IOException {
+			try {
+				this.current = KeyValue.create(this.in);
+				return true;
+			} catch (final EOFException e) {
+				return false;
+			}
+		}
+
+		@Override
+		void close() throws IOException {
+			this.in.close();
+		}
+	}
+
+	/**
+	 * Mischt mehrere sortierte Folgen.
+	 */
+	private static class MergeSource {
+
+		private final PriorityQueue<Source> queue;
+
+		MergeSource(final PriorityQueue<Source> queue) {
+			this.queue = queue;
+		}
+
+		/**
+		 * Gibt die nächste Zelle in sortierter Reihenfolge zurück.
+		 * 
+		 * @return die Zelle oder null am Ende
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		KeyValue next() throws IOException {
+			final Source source = this.queue.poll();
+			if (source == null) {
+				return null;
+			}
+			final KeyValue result = source.current;
+			if (source.advance()) {
+				this.queue.add(source);
+			} else {
+				source.close();
+			}
+			return result;
+		}
+
+		void close() throws IOException {
+			for (final Source source : this.queue) {
+				source.close();
+			}
+			this.queue.clear();
+		}
+	}
+}
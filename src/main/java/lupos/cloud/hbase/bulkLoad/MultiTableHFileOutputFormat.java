@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.hfile.AbstractHFileWriter;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFile.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * Ausgabeformat, das wie HFileOutputFormat HFiles erzeugt, aber die Einträge
+ * mehrerer Tabellen aufnimmt. Das erste Byte des Schlüssels ist die Nummer der
+ * Tabelle (siehe {@link TripleKVMapper}), die HFiles werden unter
+ * &lt;Ausgabe&gt;/&lt;Tabelle&gt;/&lt;Family&gt; abgelegt, sodass jedes
+ * Tabellenverzeichnis anschließend mit LoadIncrementalHFiles geladen werden
+ * kann. Komprimierung, Blockgröße und HBase-Bloomfilter jeder Column-Family
+ * werden vom Client in der Konfiguration übergeben (siehe
+ * {@link #configureFamily(Configuration, String, HColumnDescriptor)}).
+ */
+public class MultiTableHFileOutputFormat extends
+		FileOutputFormat<ImmutableBytesWritable, KeyValue> {
+
+	/** Tabellennamen in der Reihenfolge ihrer Nummern (kommagetrennt). */
+	public static final String TABLES_PROPERTY = "lupos.bulkload.tables";
+
+	/** Präfix der Einstellungen einer Column-Family. */
+	public static final String FAMILY_PROPERTY = "lupos.bulkload.family.";
+
+	/**
+	 * Überträgt die Einstellungen einer Column-Family in die Konfiguration.
+	 * 
+	 * @param conf
+	 *            the conf
+	 * @param tablename
+	 *            the tablename
+	 * @param family
+	 *            the family
+	 */
+	public static void configureFamily(final Configuration conf,
+			final String tablename, final HColumnDescriptor family) {
+		conf.set(FAMILY_PROPERTY + tablename + ":" + family.getNameAsString(),
+				family.getCompression().getName() + ","
+						+ family.getBloomFilterType().name() + ","
+						+ family.getBlocksize());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.hadoop.mapreduce.lib.output.FileOutputFormat#getRecordWriter
+	 * (org.apache.hadoop.mapreduce.TaskAttemptContext)
+	 */
+	@Override
+	public RecordWriter<ImmutableBytesWritable, KeyValue> getRecordWriter(
+			final TaskAttemptContext context) throws IOException,
+			InterruptedException {
+		final Path outputdir = ((FileOutputCommitter) this
+				.getOutputCommitter(context)).getWorkPath();
+		final Configuration conf = context.getConfiguration();
+		final FileSystem fs = outputdir.getFileSystem(conf);
+		final String[] tables = conf.getStrings(TABLES_PROPERTY);
+		// der Block-Cache wird beim Schreiben nicht benötigt
+		final Configuration tempConf = new Configuration(conf);
+		tempConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+		final CacheConfig cacheConfig = new CacheConfig(tempConf);
+		final byte[] taskId = Bytes.toBytes(context.getTaskAttemptID()
+				.toString());
+
+		return new RecordWriter<ImmutableBytesWritable, KeyValue>() {
+
+			/** Tabelle:Family -> Writer. */
+			private final Map<String, StoreFile.Writer> writers = new HashMap<String, StoreFile.Writer>();
+
+			private final byte[] now = Bytes.toBytes(System
+					.currentTimeMillis());
+
+			@Override
+			public void write(final ImmutableBytesWritable key,
+					final KeyValue kv) throws IOException {
+				final String table = tables[key.get()[key.getOffset()]];
+				final String family = Bytes.toString(kv.getFamily());
+				final String name = table + ":" + family;
+				StoreFile.Writer writer = this.writers.get(name);
+				if (writer == null) {
+					writer = this.createWriter(table, family, name);
+					this.writers.put(name, writer);
+				}
+				kv.updateLatestStamp(this.now);
+				writer.append(kv);
+			}
+
+			private StoreFile.Writer createWriter(final String table,
+					final String family, final String name) throws IOException {
+				final String[] settings = conf.getStrings(FAMILY_PROPERTY
+						+ name, "none", BloomType.NONE.name(),
+						String.valueOf(HColumnDescriptor.DEFAULT_BLOCKSIZE));
+				final Path familydir = new Path(new Path(outputdir, table),
+						family);
+				fs.mkdirs(familydir);
+				return new StoreFile.WriterBuilder(conf, cacheConfig, fs,
+						Integer.parseInt(settings[2]))
+						.withOutputDir(familydir)
+						.withCompression(
+								AbstractHFileWriter
+										.compressionByName(settings[0]))
+						.withBloomType(BloomType.valueOf(settings[1]))
+						.withComparator(KeyValue.COMPARATOR).build();
+			}
+
+			@Override
+			public void close(final TaskAttemptContext c) throws IOException,
+					InterruptedException {
+				for (final StoreFile.Writer writer : this.writers.values()) {
+					writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY,
+							Bytes.toBytes(System.currentTimeMillis()));
+					writer.appendFileInfo(StoreFile.BULKLOAD_TASK_KEY, taskId);
+					writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY,
+							Bytes.toBytes(true));
+					writer.appendTrackedTimestampsToMetadata();
+					writer.close();
+				}
+				this.writers.clear();
+			}
+		};
+	}
+}
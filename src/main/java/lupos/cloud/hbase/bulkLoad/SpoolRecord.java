@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Ein Datensatz des binären BulkLoad-Puffers (siehe
+ * HBaseConnection#addRow). Der Rowkey wird als Schlüssel der SequenceFile
+ * gespeichert, der Datensatz enthält Column-Family, den kodierten
+ * Spaltennamen (siehe CompositeKey) und den Wert, jeweils mit vorangestellter
+ * Länge. Die Puffer werden beim Lesen wiederverwendet, die Längen sind daher
+ * über die Getter abzufragen.
+ */
+public class SpoolRecord implements Writable {
+
+	/** The family. */
+	private byte[] family = new byte[0];
+
+	/** The column. */
+	private byte[] column = new byte[0];
+
+	/** Länge des Spaltennamens. */
+	private int columnLength = 0;
+
+	/** The value. */
+	private byte[] value = new byte[0];
+
+	/** Länge des Werts. */
+	private int valueLength = 0;
+
+	/**
+	 * Setzt den Inhalt des Datensatzes.
+	 * 
+	 * @param family
+	 *            the family
+	 * @param column
+	 *            the column
+	 * @param value
+	 *            the value
+	 */
+	public void set(final byte[] family, final byte[] column,
+			final byte[] value) {
+		this.family = family;
+		this.column = column;
+		this.columnLength = column.length;
+		this.value = value;
+		this.valueLength = value.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.hadoop.io.Writable#write(java.io.DataOutput)
+	 */
+	@Override
+	public void write(final DataOutput out) throws IOException {
+		Bytes.writeByteArray(out, this.family);
+		Bytes.writeByteArray(out, this.column, 0, this.columnLength);
+		Bytes.writeByteArray(out, this.value, 0, this.valueLength);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.hadoop.io.Writable#readFields(java.io.DataInput)
+	 */
+	@Override
+	public void readFields(final DataInput in) throws IOException {
+		// es gibt nur wenige Column-Families, das Array wird übernommen
+		final int familyLength = WritableUtils.readVInt(in);
+		if (this.family.length != familyLength) {
+			this.family = new byte[familyLength];
+		}
+		in.readFully(this.family);
+		this.columnLength = WritableUtils.readVInt(in);
+		if (this.column.length < this.columnLength) {
+			this.column = new byte[this.columnLength];
+		}
+		in.readFully(this.column, 0, this.columnLength);
+		this.valueLength = WritableUtils.readVInt(in);
+		if (this.value.length < this.valueLength) {
+			this.value = new byte[this.valueLength];
+		}
+		in.readFully(this.value, 0, this.valueLength);
+	}
+
+	/**
+	 * Gets the family.
+	 * 
+	 * @return the family
+	 */
+	public byte[] getFamily() {
+		return this.family;
+	}
+
+	/**
+	 * Gets the column buffer.
+	 * 
+	 * @return the column
+	 */
+	public byte[] getColumn() {
+		return this.column;
+	}
+
+	/**
+	 * Gets the column length.
+	 * 
+	 * @return the column length
+	 */
+	public int getColumnLength() {
+		return this.columnLength;
+	}
+
+	/**
+	 * Gets the value buffer.
+	 * 
+	 * @return the value
+	 */
+	public byte[] getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Gets the value length.
+	 * 
+	 * @return the value length
+	 */
+	public int getValueLength() {
+		return this.valueLength;
+	}
+}
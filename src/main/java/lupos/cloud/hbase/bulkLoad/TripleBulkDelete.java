@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import lupos.cloud.bloomfilter.BitvectorCache;
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.HBaseStatistics;
+import lupos.cloud.hbase.JobOrchestrator;
+import lupos.cloud.hbase.RowKeySalt;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+
+/**
+ * Verteiltes Löschen der Tripel einer N-Triples Datei, die auf dem verteilten
+ * Dateisystem liegt. Ein Map-Only Job parst die Datei und löscht die Tripel
+ * blockweise aus allen Index-Tabellen (siehe {@link TripleDeleteMapper}). Das
+ * Format der Datei entspricht dem des {@link TripleBulkLoad}.
+ */
+public class TripleBulkDelete {
+
+	/**
+	 * Löscht die Tripel der N-Triples Datei aus den Tabellen der aktuellen
+	 * Verteilungsstrategie.
+	 * 
+	 * @param input
+	 *            Pfad der Datei auf dem verteilten Dateisystem
+	 * @return Anzahl der gelöschten Tripel
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static long delete(final String input) throws Exception {
+		HBaseConnection.init();
+		final Configuration conf = new Configuration(
+				HBaseConnection.getConfiguration());
+		final FileSystem fs = FileSystem.get(conf);
+		final Path inputPath = new Path(input);
+
+		conf.setInt(TripleBulkLoad.TABLE_STRATEGY_PROPERTY,
+				HBaseDistributionStrategy.TABLE_STRATEGY);
+		conf.setInt(RowKeySalt.SALT_BUCKETS_PROPERTY, RowKeySalt.SALT_BUCKETS);
+		conf.setBoolean(HBaseStatistics.ACTIVE_PROPERTY,
+				HBaseStatistics.ACTIVE);
+		// die Statistiken dürfen nicht von zwei Versuchen abgezählt werden
+		conf.setBoolean("mapred.map.tasks.speculative.execution", false);
+		for (final Map.Entry<String, String> prefix : TripleBulkLoad
+				.readPrefixes(fs, inputPath).entrySet()) {
+			conf.set(TripleKVMapper.PREFIX_PROPERTY + prefix.getKey(),
+					prefix.getValue());
+		}
+
+		final Future<Counters> future = JobOrchestrator.getInstance().submit(
+				new JobOrchestrator.JobTask("HBase Triple Bulk Delete for "
+						+ input) {
+
+					@Override
+					protected Job createJob() throws IOException {
+						final Job job = new Job(conf, this.getName());
+						job.setJarByClass(TripleDeleteMapper.class);
+						job.setInputFormatClass(TextInputFormat.class);
+						job.setMapperClass(TripleDeleteMapper.class);
+						job.setNumReduceTasks(0);
+						job.setOutputKeyClass(NullWritable.class);
+						job.setOutputValueClass(NullWritable.class);
+						job.setOutputFormatClass(NullOutputFormat.class);
+						FileInputFormat.addInputPath(job, inputPath);
+						return job;
+					}
+
+					@Override
+					protected String getCounterGroup() {
+						return "TripleDeleteMapper";
+					}
+				});
+
+		final Counters counters;
+		try {
+			counters = JobOrchestrator.awaitAll(
+					Collections.singletonList(future)).get(0);
+		} finally {
+			BitvectorCache.clear();
+		}
+		final long parseErrors = counters.findCounter("TripleDeleteMapper",
+				"PARSE_ERRORS").getValue();
+		if (parseErrors > 0) {
+			System.err.println(parseErrors
+					+ " Zeilen konnten nicht geparst werden");
+		}
+		return counters.findCounter("TripleDeleteMapper", "TRIPLE_DELETED")
+				.getValue();
+	}
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import lupos.cloud.bloomfilter.BitvectorCache;
+import lupos.cloud.hbase.DuplicateFilter;
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.HBaseStatistics;
+import lupos.cloud.hbase.JobOrchestrator;
+import lupos.cloud.hbase.RowKeySalt;
+import lupos.cloud.storage.util.TripleLineParser;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.KeyValueSortReducer;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.mapreduce.hadoopbackport.TotalOrderPartitioner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * Verteilter Ladevorgang für eine N-Triples Datei, die bereits auf dem
+ * verteilten Dateisystem liegt. Im Gegensatz zum {@link BulkLoad} wird nicht
+ * auf dem Client geparst und keine CSV-Datei je Tabelle hochgeladen, sondern
+ * ein einziger MapReduce Job parst die Datei (siehe {@link TripleKVMapper}),
+ * erzeugt die Einträge aller Index-Tabellen und schreibt deren HFiles (siehe
+ * {@link MultiTableHFileOutputFormat}). Die Reducer werden an den Grenzen der
+ * Tabellen und ihrer Regionen partitioniert, anschließend werden die HFiles
+ * jeder Tabelle per LoadIncrementalHFiles in HBase geladen.
+ * 
+ * Die "@prefix"-Deklarationen müssen am Anfang der Datei stehen, danach wird
+ * ein Tripel pro Zeile erwartet. Die Änderungen der Statistiken (siehe
+ * {@link HBaseStatistics}) werden von den Mappern gesammelt und erst nach dem
+ * Laden der HFiles geschrieben. Doppelte Tripel in verschiedenen Splits der
+ * Datei werden dabei mehrfach gezählt.
+ */
+public class TripleBulkLoad {
+
+	/** Konfigurationsschlüssel der Verteilungsstrategie. */
+	public static final String TABLE_STRATEGY_PROPERTY = "lupos.cloud.table.strategy";
+
+	/** Name des Ausgabeverzeichnisses im Arbeitsverzeichnis. */
+	public static final String HFILE_DIR = "tripleBulkLoadHFiles";
+
+	/**
+	 * Lädt die N-Triples Datei in die Tabellen der aktuellen
+	 * Verteilungsstrategie. Die Tabellen müssen bereits existieren.
+	 * 
+	 * @param input
+	 *            Pfad der Datei auf dem verteilten Dateisystem
+	 * @return Anzahl der geladenen Tripel
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static long load(final String input) throws Exception {
+		HBaseConnection.init();
+		final Configuration conf = new Configuration(
+				HBaseConnection.getConfiguration());
+		final FileSystem fs = FileSystem.get(conf);
+		final Path inputPath = new Path(input);
+		final Path workingDir = new Path("/tmp/" + HBaseConnection.WORKING_DIR);
+		final Path outputPath = new Path(workingDir, HFILE_DIR);
+		final Path partitionPath = new Path(workingDir, HFILE_DIR
+				+ "_partitions");
+		final Path statisticsPath = new Path(workingDir, HFILE_DIR
+				+ "_statistics");
+		fs.delete(outputPath, true);
+
+		conf.setInt(TABLE_STRATEGY_PROPERTY,
+				HBaseDistributionStrategy.TABLE_STRATEGY);
+		conf.setInt(RowKeySalt.SALT_BUCKETS_PROPERTY, RowKeySalt.SALT_BUCKETS);
+		conf.setInt(DuplicateFilter.MAPPER_CACHE_BYTES_PROPERTY,
+				DuplicateFilter.MAPPER_CACHE_BYTES);
+		conf.setBoolean(HBaseStatistics.ACTIVE_PROPERTY,
+				HBaseStatistics.ACTIVE);
+		conf.set(TripleKVMapper.STATISTICS_DIR_PROPERTY,
+				statisticsPath.toString());
+		// die Statistiken dürfen nicht von zwei Versuchen gezählt werden
+		conf.setBoolean("mapred.map.tasks.speculative.execution", false);
+		for (final Map.Entry<String, String> prefix : readPrefixes(fs,
+				inputPath).entrySet()) {
+			conf.set(TripleKVMapper.PREFIX_PROPERTY + prefix.getKey(),
+					prefix.getValue());
+		}
+
+		// Einstellungen der Column-Families und Partitionsgrenzen
+		final String[] tables = HBaseDistributionStrategy.getTableInstance()
+				.getTableNames();
+		conf.setStrings(MultiTableHFileOutputFormat.TABLES_PROPERTY, tables);
+		final HTable[] hTables = new HTable[tables.length];
+		final ArrayList<ImmutableBytesWritable> splits = new ArrayList<ImmutableBytesWritable>();
+		for (int i = 0; i < tables.length; i++) {
+			hTables[i] = new HTable(HBaseConnection.getConfiguration(),
+					tables[i]);
+			for (final HColumnDescriptor family : hTables[i]
+					.getTableDescriptor().getColumnFamilies()) {
+				MultiTableHFileOutputFormat.configureFamily(conf, tables[i],
+						family);
+			}
+			if (i > 0) {
+				splits.add(new ImmutableBytesWritable(new byte[] { (byte) i }));
+			}
+			for (final byte[] startKey : hTables[i].getStartKeys()) {
+				if (startKey.length > 0) {
+					splits.add(new ImmutableBytesWritable(Bytes.add(
+							new byte[] { (byte) i }, startKey)));
+				}
+			}
+		}
+		Collections.sort(splits);
+		writePartitions(conf, fs, partitionPath, splits);
+		TotalOrderPartitioner.setPartitionFile(conf, partitionPath);
+
+		final int reduceTasks = splits.size() + 1;
+		final Future<Counters> future = JobOrchestrator.getInstance().submit(
+				new JobOrchestrator.JobTask("HBase Triple Bulk Import for "
+						+ input) {
+
+					@Override
+					protected Job createJob() throws IOException {
+						// Ausgabe eines fehlgeschlagenen Versuchs entfernen
+						fs.delete(outputPath, true);
+						fs.delete(statisticsPath, true);
+						final Job job = new Job(conf, this.getName());
+						job.setJarByClass(TripleKVMapper.class);
+						job.setInputFormatClass(TextInputFormat.class);
+						job.setMapperClass(TripleKVMapper.class);
+						job.setMapOutputKeyClass(ImmutableBytesWritable.class);
+						job.setMapOutputValueClass(KeyValue.class);
+						job.setPartitionerClass(TotalOrderPartitioner.class);
+						job.setCombinerClass(KeyValueDedupCombiner.class);
+						job.setReducerClass(KeyValueSortReducer.class);
+						job.setNumReduceTasks(reduceTasks);
+						job.setOutputKeyClass(ImmutableBytesWritable.class);
+						job.setOutputValueClass(KeyValue.class);
+						job.setOutputFormatClass(MultiTableHFileOutputFormat.class);
+						FileInputFormat.addInputPath(job, inputPath);
+						FileOutputFormat.setOutputPath(job, outputPath);
+						return job;
+					}
+
+					@Override
+					protected void completed(final Job job) throws IOException {
+						// Lade generierte HFiles in HBase
+						final LoadIncrementalHFiles loader = new LoadIncrementalHFiles(
+								HBaseConnection.getConfiguration());
+						for (int i = 0; i < tables.length; i++) {
+							final Path tableDir = new Path(outputPath,
+									tables[i]);
+							if (fs.exists(tableDir)) {
+								loader.doBulkLoad(tableDir, hTables[i]);
+							}
+						}
+						applyStatistics(fs, statisticsPath);
+					}
+
+					@Override
+					protected String getCounterGroup() {
+						return "TripleKVMapper";
+					}
+				});
+
+		final Counters counters;
+		try {
+			counters = JobOrchestrator.awaitAll(
+					Collections.singletonList(future)).get(0);
+		} finally {
+			BitvectorCache.clear();
+			for (final HTable hTable : hTables) {
+				hTable.close();
+			}
+			fs.delete(outputPath, true);
+			fs.delete(partitionPath, false);
+			fs.delete(statisticsPath, true);
+		}
+
+		final long parseErrors = counters.findCounter("TripleKVMapper",
+				"PARSE_ERRORS").getValue();
+		if (parseErrors > 0) {
+			System.err.println(parseErrors
+					+ " Zeilen konnten nicht geparst werden");
+		}
+		return counters.findCounter("TripleKVMapper", "TRIPLE_IMPORTED")
+				.getValue();
+	}
+
+	/**
+	 * Übernimmt die Statistikänderungen der Mapper (siehe
+	 * {@link HBaseStatistics#apply(java.io.DataInput)}).
+	 * 
+	 * @param fs
+	 *            the fs
+	 * @param dir
+	 *            Verzeichnis mit einer Datei je Map-Task
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void applyStatistics(final FileSystem fs, final Path dir)
+			throws IOException {
+		if (!HBaseStatistics.ACTIVE || !fs.exists(dir)) {
+			return;
+		}
+		for (final FileStatus file : fs.listStatus(dir)) {
+			final DataInputStream in = fs.open(file.getPath());
+			try {
+				HBaseStatistics.apply(in);
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Liest die "@prefix"-Deklarationen am Anfang der Datei.
+	 * 
+	 * @param fs
+	 *            the fs
+	 * @param path
+	 *            the path
+	 * @return Präfix -> Namensraum
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static Map<String, String> readPrefixes(final FileSystem fs,
+			final Path path) throws IOException {
+		final Map<String, String> prefixes = new HashMap<String, String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				fs.open(path), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+					continue;
+				}
+				if (!TripleLineParser.parsePrefix(trimmed, prefixes)) {
+					break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Schreibt die Partitionsgrenzen für den TotalOrderPartitioner.
+	 * 
+	 * @param conf
+	 *            the conf
+	 * @param fs
+	 *            the fs
+	 * @param path
+	 *            the path
+	 * @param splits
+	 *            die sortierten Grenzen
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writePartitions(final Configuration conf,
+			final FileSystem fs, final Path path,
+			final ArrayList<ImmutableBytesWritable> splits) throws IOException {
+		final SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf,
+				path, ImmutableBytesWritable.class, NullWritable.class);
+		try {
+			for (final ImmutableBytesWritable split : splits) {
+				writer.append(split, NullWritable.get());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+
+import lupos.cloud.hbase.HBaseDeleter;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.HBaseStatistics;
+import lupos.cloud.hbase.HBaseTriple;
+import lupos.cloud.storage.util.TripleLineParser;
+import lupos.datastructures.items.Triple;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper des verteilten Löschens (siehe {@link TripleBulkDelete}). Die Zeilen
+ * der N-Triples Datei werden geparst und blockweise mit dem
+ * {@link HBaseDeleter} aus allen Index-Tabellen gelöscht, inklusive der
+ * Bloomfilter-Spalten und Statistiken.
+ */
+public class TripleDeleteMapper extends
+		Mapper<LongWritable, Text, NullWritable, NullWritable> {
+
+	/** Parser für eine Zeile. */
+	private TripleLineParser parser;
+
+	/** Verteilungsstrategie. */
+	private HBaseDistributionStrategy strategy;
+
+	/** Tripel des aktuellen Blocks. */
+	private final ArrayList<Triple> block = new ArrayList<Triple>(
+			TripleKVMapper.BLOCK_SIZE);
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.hadoop.mapreduce.Mapper#setup(org.apache.hadoop.mapreduce.
+	 * Mapper.Context)
+	 */
+	@Override
+	protected void setup(final Context context) throws IOException,
+			InterruptedException {
+		final Configuration c = context.getConfiguration();
+		TripleKVMapper.configure(c);
+		HBaseStatistics.ACTIVE = c.getBoolean(HBaseStatistics.ACTIVE_PROPERTY,
+				HBaseStatistics.ACTIVE);
+		this.parser = TripleKVMapper.createParser(c);
+		this.strategy = HBaseDistributionStrategy.getTableInstance();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.hadoop.mapreduce.Mapper#map(KEYIN, VALUEIN,
+	 * org.apache.hadoop.mapreduce.Mapper.Context)
+	 */
+	@Override
+	protected void map(final LongWritable key, final Text value,
+			final Context context) throws IOException, InterruptedException {
+		final Triple triple;
+		try {
+			triple = this.parser.parse(value.toString());
+		} catch (final URISyntaxException e) {
+			context.getCounter("TripleDeleteMapper", "PARSE_ERRORS")
+					.increment(1);
+			return;
+		}
+		if (triple == null) {
+			// Leerzeile, Kommentar oder Präfix
+			return;
+		}
+		this.block.add(triple);
+		if (this.block.size() == TripleKVMapper.BLOCK_SIZE) {
+			this.deleteBlock(context);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.hadoop.mapreduce.Mapper#cleanup(org.apache.hadoop.mapreduce
+	 * .Mapper.Context)
+	 */
+	@Override
+	protected void cleanup(final Context context) throws IOException,
+			InterruptedException {
+		this.deleteBlock(context);
+	}
+
+	/**
+	 * Löscht die Tripel des aktuellen Blocks.
+	 * 
+	 * @param context
+	 *            the context
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void deleteBlock(final Context context) throws IOException {
+		if (this.block.isEmpty()) {
+			return;
+		}
+		// nur nachschlagen, zu löschende Tripel dürfen keine IDs vergeben
+		this.strategy.prepareLookupBlock(this.block);
+		final ArrayList<HBaseTriple> items = new ArrayList<HBaseTriple>();
+		for (final Triple triple : this.block) {
+			items.addAll(this.strategy.lookupIndecesTriple(triple));
+		}
+		HBaseDeleter.delete(items);
+		context.getCounter("TripleDeleteMapper", "TRIPLE_DELETED").increment(
+				this.block.size());
+		this.block.clear();
+	}
+}
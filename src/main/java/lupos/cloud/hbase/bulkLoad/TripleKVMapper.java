@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.hbase.bulkLoad;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import lupos.cloud.bloomfilter.BitvectorManager;
+import lupos.cloud.hbase.DuplicateFilter;
+import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDictionary;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.HBaseStatistics;
+import lupos.cloud.hbase.HBaseTriple;
+import lupos.cloud.hbase.RowKeySalt;
+import lupos.cloud.storage.util.TripleLineParser;
+import lupos.datastructures.items.Triple;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper des verteilten Ladevorgangs (siehe {@link TripleBulkLoad}). Jede
+ * Zeile der N-Triples Datei wird direkt im Mapper geparst und mit der
+ * Verteilungsstrategie in die Einträge aller Index-Tabellen inklusive der
+ * Bloomfilter-Spalten überführt. Dem Rowkey wird im Schlüssel die Nummer der
+ * Tabelle vorangestellt, damit ein einziger Job die HFiles aller Tabellen
+ * erzeugen kann (siehe {@link MultiTableHFileOutputFormat}).
+ * 
+ * Neue Tripel werden wie beim Laden über den Client mit
+ * {@link HBaseStatistics} gezählt. Die Änderungen werden nicht direkt
+ * geschrieben, sondern je Task in einer Datei gesammelt, die der Client erst
+ * nach dem Laden der HFiles übernimmt.
+ */
+public class TripleKVMapper extends
+		Mapper<LongWritable, Text, ImmutableBytesWritable, KeyValue> {
+
+	/** Anzahl der Tripel, die gemeinsam vorbereitet werden. */
+	public static int BLOCK_SIZE = 1000;
+
+	/** Präfix der Konfigurationsschlüssel für die "@prefix"-Deklarationen. */
+	public static final String PREFIX_PROPERTY = "lupos.bulkload.prefix.";
+
+	/** Konfigurationsschlüssel des Verzeichnisses der Statistikänderungen. */
+	public static final String STATISTICS_DIR_PROPERTY = "lupos.bulkload.statistics";
+
+	/**
+	 * Anzahl der Statistikzeilen, ab der die gesammelten Änderungen in die
+	 * Datei geschrieben werden.
+	 */
+	public static int STATISTICS_SPILL_ROWS = 100000;
+
+	/** Leerer Wert der Bloomfilter-Spalten. */
+	private static final byte[] EMPTY = new byte[0];
+
+	/** Parser für eine Zeile. */
+	private TripleLineParser parser;
+
+	/** Verteilungsstrategie. */
+	private HBaseDistributionStrategy strategy;
+
+	/** Tabellenname -> Nummer der Tabelle. */
+	private final HashMap<String, Byte> tableIndex = new HashMap<String, Byte>();
+
+	/** Die zuletzt gelesenen Tripel. */
+	private DuplicateFilter.Cache duplicates;
+
+	/** Tripel des aktuellen Blocks. */
+	private final ArrayList<Triple> block = new ArrayList<Triple>(BLOCK_SIZE);
+
+	/** Datei der Statistikänderungen (null, falls nicht gezählt wird). */
+	private FSDataOutputStream statistics = null;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.hadoop.mapreduce.Mapper#setup(org.apache.hadoop.mapreduce.
+	 * Mapper.Context)
+	 */
+	@Override
+	protected void setup(final Context context) throws IOException,
+			InterruptedException {
+		final Configuration c = context.getConfiguration();
+		configure(c);
+		this.parser = createParser(c);
+		this.duplicates = new DuplicateFilter.Cache(c.getInt(
+				DuplicateFilter.MAPPER_CACHE_BYTES_PROPERTY,
+				DuplicateFilter.MAPPER_CACHE_BYTES));
+
+		this.strategy = HBaseDistributionStrategy.getTableInstance();
+		final String[] tables = this.strategy.getTableNames();
+		for (int i = 0; i < tables.length; i++) {
+			this.tableIndex.put(tables[i], (byte) i);
+		}
+
+		HBaseStatistics.ACTIVE = c.getBoolean(HBaseStatistics.ACTIVE_PROPERTY,
+				false);
+		if (HBaseStatistics.ACTIVE) {
+			// je Task eine Datei, ein erneuter Versuch überschreibt sie
+			final Path file = new Path(c.get(STATISTICS_DIR_PROPERTY), context
+					.getTaskAttemptID().getTaskID().toString());
+			this.statistics = file.getFileSystem(c).create(file, true);
+		}
+	}
+
+	/**
+	 * Übernimmt die Einstellungen des Clients (Verteilungsstrategie, Salt) im
+	 * Mapper.
+	 * 
+	 * @param c
+	 *            die Konfiguration des Jobs
+	 */
+	static void configure(final Configuration c) {
+		HBaseDistributionStrategy.TABLE_STRATEGY = c.getInt(
+				TripleBulkLoad.TABLE_STRATEGY_PROPERTY,
+				HBaseDistributionStrategy.TABLE_STRATEGY);
+		RowKeySalt.SALT_BUCKETS = c.getInt(RowKeySalt.SALT_BUCKETS_PROPERTY, 0);
+		// im Mapper darf das Arbeitsverzeichnis des BulkLoads nicht
+		// angelegt/gelöscht werden
+		HBaseConnection.MAP_REDUCE_BULK_LOAD = false;
+	}
+
+	/**
+	 * Erzeugt den Parser mit den "@prefix"-Deklarationen aus der Konfiguration.
+	 * 
+	 * @param c
+	 *            die Konfiguration des Jobs
+	 * @return the triple line parser
+	 */
+	static TripleLineParser createParser(final Configuration c) {
+		final Map<String, String> prefixes = new HashMap<String, String>();
+		for (final Map.Entry<String, String> entry : c) {
+			if (entry.getKey().startsWith(PREFIX_PROPERTY)) {
+				prefixes.put(
+						entry.getKey().substring(PREFIX_PROPERTY.length()),
+						entry.getValue());
+			}
+		}
+		return new TripleLineParser(prefixes);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.apache.hadoop.mapreduce.Mapper#map(KEYIN, VALUEIN,
+	 * org.apache.hadoop.mapreduce.Mapper.Context)
+	 */
+	@Override
+	protected void map(final LongWritable key, final Text value,
+			final Context context) throws IOException, InterruptedException {
+		final Triple triple;
+		try {
+			triple = this.parser.parse(value.toString());
+		} catch (final URISyntaxException e) {
+			context.getCounter("TripleKVMapper", "PARSE_ERRORS").increment(1);
+			return;
+		}
+		if (triple == null) {
+			// Leerzeile, Kommentar oder Präfix
+			return;
+		}
+		// doppelte Tripel vor dem Erzeugen der Index-Einträge verwerfen
+		if (!this.duplicates
+				.add(Bytes.toBytes(DuplicateFilter.key(triple)))) {
+			context.getCounter("TripleKVMapper", "DUPLICATE_TRIPLES")
+					.increment(1);
+			return;
+		}
+		this.block.add(triple);
+		if (this.block.size() == BLOCK_SIZE) {
+			this.writeBlock(context);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.apache.hadoop.mapreduce.Mapper#cleanup(org.apache.hadoop.mapreduce
+	 * .Mapper.Context)
+	 */
+	@Override
+	protected void cleanup(final Context context) throws IOException,
+			InterruptedException {
+		this.writeBlock(context);
+		// gepufferte Einträge des Wörterbuchs
+		HBaseDictionary.flush();
+		if (this.statistics != null) {
+			HBaseStatistics.spill(this.statistics);
+			this.statistics.writeBoolean(false);
+			this.statistics.close();
+		}
+	}
+
+	/**
+	 * Erzeugt die Index-Einträge der Tripel des aktuellen Blocks.
+	 * 
+	 * @param context
+	 *            the context
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	private void writeBlock(final Context context) throws IOException,
+			InterruptedException {
+		if (this.block.isEmpty()) {
+			return;
+		}
+		this.strategy.prepareBlock(this.block);
+		final ArrayList<HBaseTriple> items = new ArrayList<HBaseTriple>();
+		for (final Triple triple : this.block) {
+			items.addAll(this.strategy.generateIndecesTriple(triple));
+		}
+		// vor dem Laden zählen: vorhandene Tripel sind noch ungeändert
+		HBaseStatistics.add(items);
+		if (this.statistics != null
+				&& HBaseStatistics.getPendingRows() >= STATISTICS_SPILL_ROWS) {
+			HBaseStatistics.spill(this.statistics);
+		}
+		for (final HBaseTriple item : items) {
+			this.write(item, context);
+		}
+		context.getCounter("TripleKVMapper", "TRIPLE_IMPORTED").increment(
+				this.block.size());
+		this.block.clear();
+	}
+
+	/**
+	 * Schreibt die Zelle eines Index-Eintrags und die zugehörigen
+	 * Bloomfilter-Spalten (wie {@link HBaseConnection#addRow(HBaseTriple)}).
+	 * 
+	 * @param item
+	 *            the item
+	 * @param context
+	 *            the context
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	private void write(final HBaseTriple item, final Context context)
+			throws IOException, InterruptedException {
+		final byte[] row = item.getRowKey();
+		final byte[] outKey = new byte[row.length + 1];
+		outKey[0] = this.tableIndex.get(item.getTablename());
+		System.arraycopy(row, 0, outKey, 1, row.length);
+		final ImmutableBytesWritable ibKey = new ImmutableBytesWritable(outKey);
+
+		context.write(ibKey,
+				new KeyValue(row, Bytes.toBytes(item.getColumnFamily()),
+						item.getColumn(), Bytes.toBytes(item.getValue())));
+
+		final String[] columnElements = item.getBloomElements();
+		context.write(ibKey, new KeyValue(row,
+				BitvectorManager.bloomfilter1ColumnFamily, HBaseKVMapper
+						.IntegerToByteArray(4, BitvectorManager.hash(Bytes
+								.toBytes(columnElements[0]))), EMPTY));
+		if (columnElements.length > 1) {
+			context.write(ibKey, new KeyValue(row,
+					BitvectorManager.bloomfilter2ColumnFamily, HBaseKVMapper
+							.IntegerToByteArray(4, BitvectorManager.hash(Bytes
+									.toBytes(columnElements[1]))), EMPTY));
+		}
+	}
+}
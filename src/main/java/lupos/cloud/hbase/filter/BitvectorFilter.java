@@ -26,9 +26,9 @@ package lupos.cloud.hbase.filter;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.BitSet;
 
-import lupos.cloud.bloomfilter.BitvectorManager;
+import lupos.cloud.bloomfilter.Bitvector;
+import lupos.cloud.hbase.CompositeKey;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.filter.FilterBase;
@@ -51,10 +51,13 @@ public class BitvectorFilter extends FilterBase {
 	protected byte[] byteBitVector2 = null;
 
 	/** The bitvector1. */
-	BitSet bitvector1 = null;
+	Bitvector bitvector1 = null;
 
 	/** The bitvector2. */
-	BitSet bitvector2 = null;
+	Bitvector bitvector2 = null;
+
+	/** Cursor über die Elemente des Spaltennamens. */
+	private final CompositeKey.Cursor cursor = new CompositeKey.Cursor();
 
 	/**
 	 * Instantiates a new bitvector filter.
@@ -68,8 +71,10 @@ public class BitvectorFilter extends FilterBase {
 	 *
 	 * @param bitvector1
 	 *            the bitvector1
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
 	 */
-	public BitvectorFilter(final byte[] bitvector1) {
+	public BitvectorFilter(final byte[] bitvector1) throws IOException {
 		this.byteBitVector1 = bitvector1;
 		this.bitvector1 = fromByteArray(bitvector1);
 	}
@@ -81,8 +86,11 @@ public class BitvectorFilter extends FilterBase {
 	 *            the bitvector1
 	 * @param bitvector2
 	 *            the bitvector2
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
 	 */
-	public BitvectorFilter(final byte[] bitvector1, final byte[] bitvector2) {
+	public BitvectorFilter(final byte[] bitvector1, final byte[] bitvector2)
+			throws IOException {
 		this.byteBitVector1 = bitvector1;
 		this.byteBitVector2 = bitvector1;
 		this.bitvector1 = fromByteArray(bitvector1);
@@ -94,10 +102,13 @@ public class BitvectorFilter extends FilterBase {
 	 *
 	 * @param bytes
 	 *            the bytes
-	 * @return the bit set
+	 * @return the bitvector
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
 	 */
-	public static BitSet fromByteArray(final byte[] bytes) {
-		return BitSet.valueOf(bytes);
+	public static Bitvector fromByteArray(final byte[] bytes)
+			throws IOException {
+		return Bitvector.fromByteArray(bytes);
 	}
 
 	/*
@@ -109,28 +120,23 @@ public class BitvectorFilter extends FilterBase {
 	 */
 	@Override
 	public ReturnCode filterKeyValue(final KeyValue kv) {
-		final String toSplit = Bytes.toString(kv.getKey());
-		if (toSplit.contains(",")) {
-			// 1
-			final String toAdd1 = toSplit.substring(0, toSplit.indexOf(","));
-			if (this.bitvector1 != null
-					&& !this.isElementPartOfBitvector(toAdd1, this.bitvector1)) {
-				return ReturnCode.NEXT_COL;
-			}
-			// 2
-			final String toAdd2 = toSplit.substring(toSplit.indexOf(",") + 1,
-					toSplit.length());
-
-			if (this.bitvector2 != null
-					&& !this.isElementPartOfBitvector(toAdd2, this.bitvector2)) {
-				return ReturnCode.NEXT_COL;
-			}
-		} else {
-			final String toAdd = Bytes.toString(kv.getKey());
-			if (this.bitvector1 != null
-					&& !this.isElementPartOfBitvector(toAdd, this.bitvector1)) {
-				return ReturnCode.NEXT_COL;
-			}
+		this.cursor.reset(kv.getBuffer(), kv.getQualifierOffset(),
+				kv.getQualifierLength());
+		// 1
+		if (this.cursor.next()
+				&& this.bitvector1 != null
+				&& !this.isElementPartOfBitvector(this.cursor.getBuffer(),
+						this.cursor.getOffset(), this.cursor.getLength(),
+						this.bitvector1)) {
+			return ReturnCode.NEXT_COL;
+		}
+		// 2
+		if (this.cursor.next()
+				&& this.bitvector2 != null
+				&& !this.isElementPartOfBitvector(this.cursor.getBuffer(),
+						this.cursor.getOffset(), this.cursor.getLength(),
+						this.bitvector2)) {
+			return ReturnCode.NEXT_COL;
 		}
 		return ReturnCode.INCLUDE;
 	}
@@ -138,19 +144,19 @@ public class BitvectorFilter extends FilterBase {
 	/**
 	 * Checks if is element part of bitvector.
 	 *
-	 * @param element
-	 *            the element
+	 * @param buf
+	 *            the buf
+	 * @param offset
+	 *            the offset
+	 * @param length
+	 *            the length
 	 * @param bitvector
 	 *            the bitvector
 	 * @return true, if is element part of bitvector
 	 */
-	private boolean isElementPartOfBitvector(final String element, final BitSet bitvector) {
-		final Integer position = BitvectorManager.hash(element.getBytes());
-		if (bitvector.get(position)) {
-			return true;
-		} else {
-			return false;
-		}
+	private boolean isElementPartOfBitvector(final byte[] buf,
+			final int offset, final int length, final Bitvector bitvector) {
+		return bitvector.contains(buf, offset, length);
 	}
 
 	/*
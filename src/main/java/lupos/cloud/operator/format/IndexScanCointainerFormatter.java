@@ -63,13 +63,21 @@ public class IndexScanCointainerFormatter implements IOperatorFormatter {
 		final IndexScanContainer indexScan = (IndexScanContainer) operator;
 		final Collection<TriplePattern> tp = indexScan.getIndexScan()
 				.getTriplePattern();
-		final PigIndexScanOperator pigIndexScan = new PigIndexScanOperator(tp);
+		final PigIndexScanOperator pigIndexScan = new PigIndexScanOperator(tp,
+				indexScan.getIndexScan().getGraphConstraint());
 		singlePigQuery.setIndexScanOperator(pigIndexScan);
-		singlePigQuery.buildAndAppendQuery(pigIndexScan);
+		// die Filter werden vor den Tripel-Mustern hinzugefügt, damit
+		// Bereichsanfragen bereits beim Laden ausgewertet werden können
 		for (final BasicOperator op : indexScan.getOperators()) {
 			if (op instanceof Filter) {
 				singlePigQuery.addContainerFilter(new PigFilterOperator(
 						(Filter) op));
+			}
+		}
+		singlePigQuery.buildAndAppendQuery(pigIndexScan);
+		for (final BasicOperator op : indexScan.getOperators()) {
+			if (op instanceof Filter) {
+				// bereits hinzugefügt
 			} else if (op instanceof Projection) {
 				singlePigQuery.addProjection(new PigProjectionOperator(
 						((Projection) op).getProjectedVariables()));
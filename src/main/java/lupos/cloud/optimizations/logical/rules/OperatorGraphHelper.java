@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
+import lupos.cloud.hbase.HBaseDistributionStrategy;
 import lupos.cloud.operator.IndexScanContainer;
 import lupos.cloud.operator.MultiIndexScanContainer;
 import lupos.cloud.pig.operator.PigFilterOperator;
@@ -106,7 +107,11 @@ public class OperatorGraphHelper {
 				Limit.class, Sort.class, AddBindingFromOtherVar.class,
 				Result.class, Root.class, AddBinding.class, Union.class,
 				Join.class, Optional.class, SortLimit.class };
-		if (op instanceof Filter) {
+		if (!HBaseDistributionStrategy.getTableInstance().storesLexicalValues()
+				&& (op instanceof Filter || op instanceof Sort || op instanceof SortLimit)) {
+			// auf kodierten Werten (z.B. Wörterbuch-IDs) nicht auswertbar
+			result = false;
+		} else if (op instanceof Filter) {
 			result = PigFilterOperator.checkIfFilterIsSupported(((Filter) op)
 					.getNodePointer().getChildren()[0]);
 		} else {
@@ -24,10 +24,14 @@
 package lupos.cloud.pig;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 
+import lupos.cloud.bloomfilter.BitvectorManager;
 import lupos.cloud.bloomfilter.CloudBitvector;
+import lupos.cloud.hbase.CompositeKey;
+import lupos.cloud.hbase.HBaseDistributionStrategy;
 import lupos.cloud.pig.operator.PigFilterOperator;
 import lupos.datastructures.items.Item;
 import lupos.engine.operators.tripleoperator.TriplePattern;
@@ -89,7 +93,7 @@ public class BagInformation {
 		this.name = name + this.patternId;
 		idCounter++;
 		this.tablename = tablename;
-		for (Item item : triplePattern.getItems()) {
+		for (Item item : getItemsInTableOrder()) {
 			if (item.isVariable()) {
 				bagElements.add(item.toString());
 			}
@@ -191,20 +195,154 @@ public class BagInformation {
 	}
 
 	/**
-	 * Gets the literals.
+	 * Gibt den Rowkey zurück, der sich aus den Literalen des Tripel-Musters
+	 * ergibt. Die Literale werden entsprechend der Verteilungsstrategie kodiert
+	 * (z.B. als Wörterbuch-ID) und der Rowkey ggf. mit dem Salt versehen. Ist
+	 * die Zeile auf mehrere Unterzeilen verteilt, wird das gemeinsame Präfix
+	 * zurückgegeben.
 	 * 
-	 * @return the literals
+	 * @return the row key
 	 */
-	public String getLiterals() {
-		StringBuilder result = new StringBuilder();
-		boolean first = true;
-		for (Item item : triplePattern.getItems()) {
+	public byte[] getRowKey() {
+		String[] literals = getRowLiterals();
+		if (literals.length == 0) {
+			return new byte[0];
+		}
+		return HBaseDistributionStrategy.getTableInstance().getScanKey(
+				getTablename(), literals);
+	}
+
+	/**
+	 * Gibt alle Rowkeys (Unterzeilen) zurück, auf die die zum Tripel-Muster
+	 * passenden Spalten verteilt sind.
+	 * 
+	 * @return the row keys
+	 */
+	public byte[][] getRowKeys() {
+		String[] literals = getRowLiterals();
+		if (literals.length == 0) {
+			return new byte[][] { new byte[0] };
+		}
+		return HBaseDistributionStrategy.getTableInstance().getRowKeys(
+				getTablename(), literals);
+	}
+
+	/**
+	 * Gibt das Präfix der Spaltennamen zurück, falls mehr Elemente gebunden
+	 * sind als der Rowkey der Tabelle enthält (siehe
+	 * {@link HBaseDistributionStrategy#getRowKeyLength(String)}), sonst null.
+	 * 
+	 * @return the column prefix
+	 */
+	public byte[] getColumnPrefix() {
+		String[] literals = getEncodedLiterals();
+		int rowKeyLength = getRowKeyLength();
+		if (literals.length <= rowKeyLength) {
+			return null;
+		}
+		return CompositeKey.encodeComposite(Arrays.copyOfRange(literals,
+				rowKeyLength, literals.length));
+	}
+
+	/**
+	 * Prüft, ob die Werte der (einzigen) Variable dieses Tripel-Musters allein
+	 * den Spaltennamen bilden (z.B. ?o in sp_o). Nur dann können
+	 * Bereichsanfragen als Spaltenbereich ausgewertet werden.
+	 * 
+	 * @return true, if is column range possible
+	 */
+	public boolean isColumnRangePossible() {
+		return bagElements.size() == 1
+				&& getColumnPrefix() == null
+				&& tablename.length() - tablename.indexOf('_') == 2
+				&& HBaseDistributionStrategy.getTableInstance()
+						.storesLexicalValues()
+				&& !HBaseDistributionStrategy.getTableInstance()
+						.storesGraphs();
+	}
+
+	/**
+	 * Gibt die Column-Family zurück, in der die Bitvektor-Indizes des i-ten
+	 * Elements der Bag gespeichert sind. Die Indizes beziehen sich auf die
+	 * Elemente des Spaltennamens, gebundene Präfix-Elemente werden daher
+	 * übersprungen.
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the bloomfilter column family
+	 */
+	public byte[] getBloomfilterColumnFamily(int index) {
+		int prefixLength = Math.max(0, getEncodedLiterals().length
+				- getRowKeyLength());
+		return (index + prefixLength == 0) ? BitvectorManager.bloomfilter1ColumnFamily
+				: BitvectorManager.bloomfilter2ColumnFamily;
+	}
+
+	/**
+	 * Gibt die Anzahl der Elemente im Rowkey der Tabelle zurück.
+	 * 
+	 * @return the row key length
+	 */
+	private int getRowKeyLength() {
+		return HBaseDistributionStrategy.getTableInstance().getRowKeyLength(
+				getTablename());
+	}
+
+	/**
+	 * Gibt die Literale zurück, die den Rowkey bilden.
+	 * 
+	 * @return the row literals
+	 */
+	private String[] getRowLiterals() {
+		String[] literals = getEncodedLiterals();
+		int rowKeyLength = getRowKeyLength();
+		if (literals.length <= rowKeyLength) {
+			return literals;
+		}
+		return Arrays.copyOf(literals, rowKeyLength);
+	}
+
+	/**
+	 * Gibt die entsprechend der Verteilungsstrategie kodierten Literale des
+	 * Tripel-Musters in der Reihenfolge der Tabelle zurück.
+	 * 
+	 * @return the encoded literals
+	 */
+	private String[] getEncodedLiterals() {
+		ArrayList<String> literals = new ArrayList<String>();
+		for (Item item : getItemsInTableOrder()) {
 			if (!item.isVariable()) {
-				result.append(first ? item.toString() : "," + item.toString());
-				first = false;
+				literals.add(HBaseDistributionStrategy.getTableInstance()
+						.lookupTerm(item.toString()));
+			}
+		}
+		return literals.toArray(new String[literals.size()]);
+	}
+
+	/**
+	 * Gibt die Elemente des Tripel-Musters in der Reihenfolge zurück, in der
+	 * sie in der Tabelle gespeichert sind (z.B. "p_os" -> p, o, s).
+	 * 
+	 * @return the items in table order
+	 */
+	private ArrayList<Item> getItemsInTableOrder() {
+		ArrayList<Item> result = new ArrayList<Item>(3);
+		for (char c : tablename.toCharArray()) {
+			switch (c) {
+			case 's':
+				result.add(triplePattern.getSubject());
+				break;
+			case 'p':
+				result.add(triplePattern.getPredicate());
+				break;
+			case 'o':
+				result.add(triplePattern.getObject());
+				break;
+			default:
+				break;
 			}
 		}
-		return result.toString();
+		return result;
 	}
 
 	/**
@@ -26,6 +26,7 @@ package lupos.cloud.pig.operator;
 import java.util.ArrayList;
 import java.util.HashSet;
 
+import lupos.cloud.hbase.TypedLiteralEncoding;
 import lupos.cloud.pig.BagInformation;
 import lupos.engine.operators.singleinput.filter.Filter;
 import lupos.sparql1_1.*;
@@ -264,6 +265,109 @@ public class PigFilterOperator {
 		return result;
 	}
 
+	/**
+	 * Gibt den Spaltenbereich zurück, auf den eine Bereichsanfrage der Form
+	 * "?var OP Literal" (bzw. "Literal OP ?var") mit OP aus &lt;, &lt;=, &gt;,
+	 * &gt;= und einer Zahl oder einem typisierten Literal (Zahl oder
+	 * xsd:dateTime) die kodierten Werte der Variable einschränkt (siehe
+	 * {@link TypedLiteralEncoding}). Die Bereiche von Konjunktionen (&amp;&amp;)
+	 * werden geschnitten. Für alle anderen Filter wird null zurückgegeben.
+	 * 
+	 * @param variable
+	 *            the variable (ohne "?")
+	 * @return {min, max} oder null
+	 */
+	public byte[][] getColumnRange(String variable) {
+		return getColumnRange(filter.getNodePointer().getChildren()[0],
+				variable);
+	}
+
+	/**
+	 * Gibt den Spaltenbereich eines Teilausdrucks zurück.
+	 * 
+	 * @param node
+	 *            the node
+	 * @param variable
+	 *            the variable (ohne "?")
+	 * @return {min, max} oder null
+	 */
+	private static byte[][] getColumnRange(Node node, String variable) {
+		if (node.getChildren() == null || node.getChildren().length != 2) {
+			return null;
+		}
+		Node left = node.getChildren()[0];
+		Node right = node.getChildren()[1];
+		if (node instanceof ASTAndNode) {
+			// ein nicht unterstützter Teilausdruck schränkt nicht weiter ein
+			byte[][] leftRange = getColumnRange(left, variable);
+			byte[][] rightRange = getColumnRange(right, variable);
+			if (leftRange == null || rightRange == null) {
+				return (leftRange == null) ? rightRange : leftRange;
+			}
+			return TypedLiteralEncoding.intersectColumnRanges(leftRange,
+					rightRange);
+		}
+		boolean lower;
+		if (node instanceof ASTGreaterThanNode
+				|| node instanceof ASTGreaterThanEqualsNode) {
+			lower = true;
+		} else if (node instanceof ASTLessThanNode
+				|| node instanceof ASTLessThanEqualsNode) {
+			lower = false;
+		} else {
+			return null;
+		}
+		// Literal OP ?var -> ?var OP' Literal
+		if (right instanceof ASTVar && !(left instanceof ASTVar)) {
+			Node tmp = left;
+			left = right;
+			right = tmp;
+			lower = !lower;
+		}
+		if (!(left instanceof ASTVar)
+				|| !((ASTVar) left).getName().equals(variable)) {
+			return null;
+		}
+		char type;
+		String lexical;
+		if (right instanceof ASTInteger) {
+			// z.B. FILTER(?x > 5)
+			type = TypedLiteralEncoding.NUMERIC;
+			lexical = String.valueOf(((ASTInteger) right).getValue());
+		} else if (right instanceof ASTFloatingPoint) {
+			type = TypedLiteralEncoding.NUMERIC;
+			lexical = String.valueOf(((ASTFloatingPoint) right).getValue());
+		} else if (right instanceof ASTRDFLiteral
+				&& right.getChildren() != null
+				&& right.getChildren().length == 2
+				&& right.getChildren()[0] instanceof ASTStringLiteral
+				&& right.getChildren()[1] instanceof ASTQuotedURIRef) {
+			String datatype = ((ASTQuotedURIRef) right.getChildren()[1])
+					.getQRef();
+			if (datatype.startsWith("<") && datatype.endsWith(">")) {
+				datatype = datatype.substring(1, datatype.length() - 1);
+			}
+			type = TypedLiteralEncoding.getType(datatype);
+			lexical = ((ASTStringLiteral) right.getChildren()[0])
+					.getStringLiteral().replace("\"", "");
+		} else {
+			return null;
+		}
+		if (type == 0) {
+			return null;
+		}
+		double value;
+		try {
+			value = TypedLiteralEncoding.getValue(type, lexical.trim());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		// die Grenzen werden immer eingeschlossen, da die Werte als double
+		// verglichen werden
+		return lower ? TypedLiteralEncoding.getColumnRange(type, value, null)
+				: TypedLiteralEncoding.getColumnRange(type, null, value);
+	}
+
 	/**
 	 * Gets the variables.
 	 * 
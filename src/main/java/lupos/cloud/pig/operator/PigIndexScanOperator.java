@@ -27,12 +27,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 
-import lupos.cloud.bloomfilter.BitvectorManager;
 import lupos.cloud.bloomfilter.CloudBitvector;
+import lupos.cloud.hbase.CompositeKey;
 import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.RowKeySalt;
+import lupos.cloud.hbase.TypedLiteralEncoding;
 import lupos.cloud.pig.BagInformation;
 import lupos.cloud.storage.util.CloudManagement;
-import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.Item;
 import lupos.engine.operators.tripleoperator.TriplePattern;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -54,6 +56,12 @@ public class PigIndexScanOperator implements IPigOperator {
 	/** Debug Ausgabe. */
 	boolean debug = false;
 
+	/** Filter der Anfrage. */
+	ArrayList<PigFilterOperator> filterOps = null;
+
+	/** Graph eines GRAPH-Musters (null für den Standardgraph). */
+	Item graphConstraint = null;
+
 	/**
 	 * Instantiates a new pig index scan operator.
 	 *
@@ -64,6 +72,20 @@ public class PigIndexScanOperator implements IPigOperator {
 		this.triplePatternCollection = tp;
 	}
 
+	/**
+	 * Instantiates a new pig index scan operator.
+	 *
+	 * @param tp
+	 *            the tp
+	 * @param graphConstraint
+	 *            Graph eines GRAPH-Musters (null für den Standardgraph)
+	 */
+	public PigIndexScanOperator(final Collection<TriplePattern> tp,
+			final Item graphConstraint) {
+		this.triplePatternCollection = tp;
+		this.graphConstraint = graphConstraint;
+	}
+
 	/**
 	 * Mit dieser Methode wird das PigLatin-Programm langsam aufgebaut indem die
 	 * einzelnen Tripel-Muster hinzugefügt werden.
@@ -80,6 +102,7 @@ public class PigIndexScanOperator implements IPigOperator {
 			final boolean debug, final ArrayList<PigFilterOperator> filterOps) {
 		this.intermediateJoins = intermediateBags;
 		this.debug = debug;
+		this.filterOps = filterOps;
 		final StringBuilder result = new StringBuilder();
 		for (final TriplePattern triplePattern : this.triplePatternCollection) {
 			final BagInformation curPattern = this.getHBaseTable(triplePattern);
@@ -101,7 +124,10 @@ public class PigIndexScanOperator implements IPigOperator {
 						+ "' "
 						+ "using lupos.cloud.pig.udfs.HBaseLoadUDF('"
 						+ HBaseDistributionStrategy.getTableInstance()
-								.getColumnFamilyName() + "', '-loadKey true'");
+								.getColumnFamilyName() + "', '-loadKey true"
+						+ (RowKeySalt.isActive() ? " -saltBuckets "
+								+ RowKeySalt.SALT_BUCKETS : "")
+						+ this.getGraphOption() + "'");
 				if (CloudManagement.bloomfilter_active) {
 					result.append(", '', "
 							+ " '"
@@ -117,7 +143,7 @@ public class PigIndexScanOperator implements IPigOperator {
 				}
 
 				result.append(") as (rowkey:chararray, columncontent_"
-						+ this.tripleCounter + ":map[]");
+						+ this.tripleCounter + ":bytearray");
 				if (CloudManagement.bloomfilter_active) {
 					result.append(", bloomfilter1:bytearray, bloomfilter2:bytearray");
 				}
@@ -157,8 +183,9 @@ public class PigIndexScanOperator implements IPigOperator {
 						+ "' "
 						+ "using lupos.cloud.pig.udfs.HBaseLoadUDF('"
 						+ HBaseDistributionStrategy.getTableInstance()
-								.getColumnFamilyName() + "', '', '"
-						+ curPattern.getLiterals() + "'");
+								.getColumnFamilyName() + "', '"
+						+ this.getLoadOptions(curPattern) + "', '"
+						+ CompositeKey.toArgument(curPattern.getRowKey()) + "'");
 				if (CloudManagement.bloomfilter_active) {
 					result.append(((curPattern.getBagElements().size() == 1) ? ", '"
 							+ DigestUtils.sha512Hex(
@@ -176,7 +203,7 @@ public class PigIndexScanOperator implements IPigOperator {
 									.toString() + "'"));
 				}
 
-				result.append(") as (columncontent_" + this.tripleCounter + ":map[]");
+				result.append(") as (columncontent_" + this.tripleCounter + ":bytearray");
 				if (CloudManagement.bloomfilter_active) {
 					result.append(((curPattern.getBagElements().size() == 1) ? ", bloomfilter1:bytearray"
 							: ", bloomfilter1:bytearray, bloomfilter2:bytearray"));
@@ -206,35 +233,41 @@ public class PigIndexScanOperator implements IPigOperator {
 			if ((curPattern.getBagElements().size() == 1)) {
 				curPattern.addBitvector(curPattern.getBagElements().get(0),
 						new CloudBitvector(curPattern.getTablename(),
-								curPattern.getLiterals(),
-								BitvectorManager.bloomfilter1ColumnFamily,
+								curPattern.getRowKey(),
+								curPattern.getRowKeys(),
+								curPattern.getBloomfilterColumnFamily(0),
 								curPattern.getPatternId()));
 			} else if ((curPattern.getBagElements().size() == 2)) {
 				curPattern.addBitvector(curPattern.getBagElements().get(0),
 						new CloudBitvector(curPattern.getTablename(),
-								curPattern.getLiterals(),
-								BitvectorManager.bloomfilter1ColumnFamily,
+								curPattern.getRowKey(),
+								curPattern.getRowKeys(),
+								curPattern.getBloomfilterColumnFamily(0),
 								curPattern.getPatternId()));
 				curPattern.addBitvector(curPattern.getBagElements().get(1),
 						new CloudBitvector(curPattern.getTablename(),
-								curPattern.getLiterals(),
-								BitvectorManager.bloomfilter2ColumnFamily,
+								curPattern.getRowKey(),
+								curPattern.getRowKeys(),
+								curPattern.getBloomfilterColumnFamily(1),
 								curPattern.getPatternId()));
 			} else if ((curPattern.getBagElements().size() == 3)) {
 				curPattern.addBitvector(
 						curPattern.getBagElements().get(0),
 						new CloudBitvector(curPattern.getTablename(),
-								curPattern.getLiterals(), null, curPattern
+								curPattern.getRowKey(),
+								curPattern.getRowKeys(), null, curPattern
 										.getPatternId()));
 				curPattern.addBitvector(
 						curPattern.getBagElements().get(1),
 						new CloudBitvector(curPattern.getTablename(),
-								curPattern.getLiterals(), null, curPattern
+								curPattern.getRowKey(),
+								curPattern.getRowKeys(), null, curPattern
 										.getPatternId()));
 				curPattern.addBitvector(
 						curPattern.getBagElements().get(2),
 						new CloudBitvector(curPattern.getTablename(),
-								curPattern.getLiterals(), null, curPattern
+								curPattern.getRowKey(),
+								curPattern.getRowKeys(), null, curPattern
 										.getPatternId()));
 			}
 
@@ -246,6 +279,96 @@ public class PigIndexScanOperator implements IPigOperator {
 		return result.toString();
 	}
 
+	/**
+	 * Gibt die Optionen der HBaseLoadUDF für ein Tripel-Muster mit gebundenen
+	 * Elementen zurück. Standardmäßig wird genau eine Zeile gelesen.
+	 *
+	 * @param curPattern
+	 *            the cur pattern
+	 * @return the load options
+	 */
+	private String getLoadOptions(final BagInformation curPattern) {
+		final StringBuilder result = new StringBuilder();
+		if (HBaseDistributionStrategy.getTableInstance().isPrefixScan(
+				curPattern.getTablename())) {
+			result.append("-prefixScan");
+		}
+		final byte[] columnPrefix = curPattern.getColumnPrefix();
+		if (columnPrefix != null) {
+			if (result.length() > 0) {
+				result.append(" ");
+			}
+			result.append("-columnPrefix "
+					+ CompositeKey.toArgument(columnPrefix));
+		}
+		final byte[][] columnRange = this.getColumnRange(curPattern);
+		if (columnRange != null) {
+			if (result.length() > 0) {
+				result.append(" ");
+			}
+			result.append("-columnRange "
+					+ CompositeKey.toArgument(columnRange[0]) + ","
+					+ CompositeKey.toArgument(columnRange[1]));
+		}
+		result.append(this.getGraphOption());
+		return result.toString().trim();
+	}
+
+	/**
+	 * Speichert die Strategie Graphen (siehe
+	 * {@link HBaseDistributionStrategy#storesGraphs()}), wird der Graph aus den
+	 * Spaltennamen entfernt. Bei einem gebundenen Graph werden nur dessen
+	 * Spalten gelesen.
+	 *
+	 * @return die Option (mit führendem Leerzeichen) oder ""
+	 */
+	private String getGraphOption() {
+		final HBaseDistributionStrategy strategy = HBaseDistributionStrategy
+				.getTableInstance();
+		if (!strategy.storesGraphs()) {
+			return "";
+		}
+		if (this.graphConstraint == null) {
+			return " -graph *";
+		}
+		if (this.graphConstraint.isVariable()) {
+			throw new RuntimeException(
+					"GRAPH with a variable is not supported, the graph must be bound: "
+							+ this.graphConstraint);
+		}
+		return " -graph "
+				+ CompositeKey.toArgument(CompositeKey.encode(strategy
+						.encodeGraph(this.graphConstraint.toString())));
+	}
+
+	/**
+	 * Bereichsanfragen auf die Variable eines Tripel-Musters werden als
+	 * Spaltenbereich an die HBaseLoadUDF übergeben, damit nur die passenden
+	 * Spalten gelesen werden. Mehrere Bereiche werden geschnitten. Die Filter
+	 * selbst werden weiterhin ausgeführt.
+	 *
+	 * @param curPattern
+	 *            the cur pattern
+	 * @return {min, max} oder null
+	 */
+	private byte[][] getColumnRange(final BagInformation curPattern) {
+		if (this.filterOps == null || !curPattern.isColumnRangePossible()) {
+			return null;
+		}
+		final String variable = curPattern.getBagElements().get(0)
+				.substring(1);
+		byte[][] result = null;
+		for (final PigFilterOperator filter : this.filterOps) {
+			final byte[][] range = filter.getColumnRange(variable);
+			if (range == null) {
+				continue;
+			}
+			result = (result == null) ? range : TypedLiteralEncoding
+					.intersectColumnRanges(result, range);
+		}
+		return result;
+	}
+
 	/**
 	 * Gibt für ein Tripel-Muster die korrespondierende HBase Tabelle zurück.
 	 *
@@ -254,60 +377,10 @@ public class PigIndexScanOperator implements IPigOperator {
 	 * @return the h base table
 	 */
 	private BagInformation getHBaseTable(final TriplePattern triplePattern) {
-		final int subject = triplePattern.getSubject().getClass() == Variable.class ? 1
-				: 0;
-		final int predicate = triplePattern.getPredicate().getClass() == Variable.class ? 10
-				: 0;
-		final int object = triplePattern.getObject().getClass() == Variable.class ? 100
-				: 0;
-
-		BagInformation result = null;
-		switch (subject + predicate + object) {
-		case 110:
-			result = new BagInformation(triplePattern, "s_po",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 101:
-			result = new BagInformation(triplePattern, "p_so",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 11:
-			result = new BagInformation(triplePattern, "o_sp",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 100:
-			result = new BagInformation(triplePattern, "sp_o",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 10:
-			result = new BagInformation(triplePattern, "so_p",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 1:
-			result = new BagInformation(triplePattern, "po_s",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 111:
-			// Wenn alles Variablen sind kann eine beliebige Tabelle verwendet
-			// werden, hier wird S_PO genommen
-			result = new BagInformation(triplePattern, "s_po",
-					"INTERMEDIATE_BAG_");
-			break;
-		case 0:
-			// Wenn alles Literale sind kann eine beliebige Tabelle verwendet
-			// werden, hier wird SO_P genommen
-			result = new BagInformation(triplePattern, "so_p",
-					"INTERMEDIATE_BAG_");
-			break;
-		default:
-			break;
-		}
-
-		// for (String item : result.getVariables()) {
-		// joinVariables.add(item);
-		// }
-
-		return result;
+		// die Tabelle wird von der Verteilungsstrategie gewählt
+		return new BagInformation(triplePattern, HBaseDistributionStrategy
+				.getTableInstance().getTablename(triplePattern),
+				"INTERMEDIATE_BAG_");
 	}
 
 	/**
@@ -30,7 +30,6 @@ import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,7 +37,9 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Properties;
 
+import lupos.cloud.bloomfilter.Bitvector;
 import lupos.cloud.bloomfilter.BitvectorManager;
+import lupos.cloud.hbase.CompositeKey;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -262,8 +263,9 @@ public class HBaseLoadBagUDF extends LoadFunc implements StoreFuncInterface,
 		return bitvector;
 	}
 
-	public static BitSet fromByteArray(final byte[] bytes) {
-		return BitSet.valueOf(bytes);
+	public static Bitvector fromByteArray(final byte[] bytes)
+			throws IOException {
+		return Bitvector.fromByteArray(bytes);
 	}
 
 	/**
@@ -468,8 +470,8 @@ public class HBaseLoadBagUDF extends LoadFunc implements StoreFuncInterface,
 
 		if (rowKey != null) {
 			this.scan.setStartRow(Bytes.toBytes(rowKey));
-			// add random string because stopRow is exclusiv
-			this.scan.setStopRow(Bytes.toBytes(rowKey + "z"));
+			// stopRow ist exklusiv, es wird genau die Zeile gelesen
+			this.scan.setStopRow(CompositeKey.getStopRow(Bytes.toBytes(rowKey)));
 		}
 
 		// Map-reduce jobs should not run with cacheBlocks
@@ -809,9 +811,9 @@ public class HBaseLoadBagUDF extends LoadFunc implements StoreFuncInterface,
 	}
 
 	@Deprecated
-	private boolean isElementPartOfBitvector(final String element, final BitSet bitvector) {
+	private boolean isElementPartOfBitvector(final String element, final Bitvector bitvector) {
 		final Integer position = BitvectorManager.hash(element.getBytes());
-		if (bitvector.get(position)) {
+		if (bitvector.contains(position)) {
 			return true;
 		} else {
 			return false;
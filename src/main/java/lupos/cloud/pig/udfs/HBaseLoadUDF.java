@@ -31,15 +31,19 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Properties;
+import java.util.regex.Pattern;
+
+import lupos.cloud.bloomfilter.Bitvector;
+import lupos.cloud.hbase.CompositeKey;
+import lupos.cloud.hbase.RowKeySalt;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -54,17 +58,20 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.BinaryComparator;
 import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.filter.FamilyFilter;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.QualifierFilter;
+import org.apache.hadoop.hbase.filter.RegexStringComparator;
 import org.apache.hadoop.hbase.filter.RowFilter;
 import org.apache.hadoop.hbase.filter.WhileMatchFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -106,7 +113,6 @@ import org.apache.pig.impl.util.ObjectSerializer;
 import org.apache.pig.impl.util.UDFContext;
 import org.apache.pig.impl.util.Utils;
 import org.joda.time.DateTime;
-import org.xerial.snappy.Snappy;
 
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
@@ -152,6 +158,12 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 	private final static CommandLineParser parser_ = new GnuParser();
 
 	private boolean loadRowKey_;
+	private final int saltLength_;
+	private byte[] columnPrefix_;
+	private byte[][] columnRange_;
+	private final boolean prefixScan_;
+	private final boolean graphColumn_;
+	private byte[] graph_;
 	private String delimiter_;
 	private boolean ignoreWhitespace_;
 	private final long limit_;
@@ -171,8 +183,8 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 	private ResourceSchema schema_;
 	private RequiredFieldList requiredFieldList;
 
-	private BitSet bitvector1 = null;
-	private BitSet bitvector2 = null;
+	private Bitvector bitvector1 = null;
+	private Bitvector bitvector2 = null;
 	private FileSystem fs = null;
 	private Path bitvectorPath1 = null;
 	private Path bitvectorPath2 = null;
@@ -180,6 +192,28 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 
 	private static final TupleFactory tupleFactory = TupleFactory.getInstance();
 
+	/** Zeichensatz, der jedes Byte auf genau ein Zeichen abbildet. */
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/** Puffer für die Spaltennamen einer Zeile. */
+	private final ByteArrayOutputStream columnBuffer = new ByteArrayOutputStream();
+
+	/** Cursor über die Elemente eines Spaltennamens (für den Graph). */
+	private final CompositeKey.Cursor graphCursor = new CompositeKey.Cursor();
+
+	/**
+	 * Zuletzt übernommene Zelle (ohne Graph). Wird über mehrere Results
+	 * derselben Zeile beibehalten, da eine Zeile bei scan.setBatch auf mehrere
+	 * Results verteilt wird.
+	 */
+	private KeyValue previous = null;
+
+	/** Länge des Spaltennamens von {@link #previous} ohne Graph. */
+	private int previousLength = 0;
+
+	/** Cursor über die Elemente des Rowkeys. */
+	private final CompositeKey.Cursor rowKeyCursor = new CompositeKey.Cursor();
+
 	private static void populateValidOptions() {
 		validOptions_.addOption("loadKey", false, "Load Key");
 		validOptions_.addOption("gt", true,
@@ -215,6 +249,16 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 				"Record must have timestamp less then this value");
 		validOptions_.addOption("timestamp", true,
 				"Record must have timestamp equal to this value");
+		validOptions_.addOption("saltBuckets", true,
+				"Number of salt buckets, the salt is removed from loaded keys");
+		validOptions_.addOption("prefixScan", false,
+				"Load all rows starting with the row key instead of exactly one row");
+		validOptions_.addOption("columnRange", true,
+				"Column range min,max (min inclusive, max exclusive)");
+		validOptions_.addOption("columnPrefix", true,
+				"Composite prefix of the column names, the prefix is removed from loaded columns");
+		validOptions_.addOption("graph", true,
+				"The last element of the column names is the graph, it is removed from loaded columns; * for all graphs, otherwise only columns of this graph are loaded");
 
 	}
 
@@ -261,8 +305,8 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 
 	}
 
-	private BitSet readBloomfilter(final Path path) {
-		BitSet bitvector = null;
+	private Bitvector readBloomfilter(final Path path) {
+		Bitvector bitvector = null;
 		try {
 			if (this.fs == null) {
 				this.fs = FileSystem.get(HBaseConfiguration.create());
@@ -280,11 +324,10 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 		return bitvector;
 	}
 
-	public static BitSet fromByteArray(final byte[] compressedBytes)
+	public static Bitvector fromByteArray(final byte[] compressedBytes)
 			throws IOException {
-		// uncompress
-		final byte[] bytes = Snappy.uncompress(compressedBytes);
-		return BitSet.valueOf(bytes);
+		// Größe aus dem Kopf lesen und dekomprimieren
+		return Bitvector.fromByteArray(compressedBytes);
 	}
 
 	/**
@@ -313,6 +356,8 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 	 *            <li>-minTimestamp= Scan's timestamp for min timeRange
 	 *            <li>-maxTimestamp= Scan's timestamp for max timeRange
 	 *            <li>-timestamp= Scan's specified timestamp
+	 *            <li>-saltBuckets= Anzahl der Salt-Buckets, der Salt wird von
+	 *            geladenen Rowkeys entfernt
 	 *            <li>-caster=(HBaseBinaryConverter|Utf8StorageConverter)
 	 *            Utf8StorageConverter is the default To be used with extreme
 	 *            caution, since this could result in data loss (see
@@ -332,12 +377,36 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 			final HelpFormatter formatter = new HelpFormatter();
 			formatter
 					.printHelp(
-							"[-loadKey] [-gt] [-gte] [-lt] [-lte] [-columnPrefix] [-caching] [-caster] [-noWAL] [-limit] [-delim] [-ignoreWhitespace] [-minTimestamp] [-maxTimestamp] [-timestamp]",
+							"[-loadKey] [-gt] [-gte] [-lt] [-lte] [-columnPrefix] [-columnRange] [-prefixScan] [-graph] [-caching] [-caster] [-noWAL] [-limit] [-delim] [-ignoreWhitespace] [-minTimestamp] [-maxTimestamp] [-timestamp] [-saltBuckets]",
 							validOptions_);
 			throw e;
 		}
 
 		this.loadRowKey_ = this.configuredOptions_.hasOption("loadKey");
+		this.prefixScan_ = this.configuredOptions_.hasOption("prefixScan");
+		this.saltLength_ = RowKeySalt.getSaltLength(Integer
+				.parseInt(this.configuredOptions_.getOptionValue("saltBuckets",
+						"0")));
+
+		if (this.configuredOptions_.hasOption("columnPrefix")) {
+			this.columnPrefix_ = CompositeKey.fromArgument(this.configuredOptions_
+					.getOptionValue("columnPrefix"));
+		}
+
+		this.graphColumn_ = this.configuredOptions_.hasOption("graph");
+		if (this.graphColumn_
+				&& !this.configuredOptions_.getOptionValue("graph").equals("*")) {
+			this.graph_ = CompositeKey.fromArgument(this.configuredOptions_
+					.getOptionValue("graph"));
+		}
+
+		if (this.configuredOptions_.hasOption("columnRange")) {
+			final String[] range = this.configuredOptions_.getOptionValue(
+					"columnRange").split(",");
+			this.columnRange_ = new byte[][] {
+					CompositeKey.fromArgument(range[0]),
+					CompositeKey.fromArgument(range[1]) };
+		}
 
 		this.delimiter_ = ",";
 		if (this.configuredOptions_.getOptionValue("delim") != null) {
@@ -404,7 +473,8 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 			this.timestamp_ = 0;
 		}
 
-		this.initScan(rowKey);
+		this.initScan((rowKey == null) ? null : CompositeKey
+				.fromArgument(rowKey));
 	}
 
 	/**
@@ -461,7 +531,7 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 		return columnInfo;
 	}
 
-	private void initScan(final String rowKey) throws IOException {
+	private void initScan(final byte[] rowKey) throws IOException {
 		this.scan = new Scan();
 		// scan.setRaw(true);
 
@@ -472,9 +542,11 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 
 
 		if (rowKey != null) {
-			this.scan.setStartRow(Bytes.toBytes(rowKey));
-			// add random string because stopRow is exclusiv
-			this.scan.setStopRow(Bytes.toBytes(rowKey + "z"));
+			this.scan.setStartRow(rowKey);
+			// stopRow ist exklusiv: genau die Zeile bzw. alle Zeilen mit dem
+			// Präfix (bei Unterzeilen)
+			this.scan.setStopRow(this.prefixScan_ ? CompositeKey
+					.getPrefixStopRow(rowKey) : CompositeKey.getStopRow(rowKey));
 		}
 
 		// Map-reduce jobs should not run with cacheBlocks
@@ -519,6 +591,27 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 			this.addFilter(new WhileMatchFilter(new RowFilter(
 					CompareOp.LESS_OR_EQUAL, new BinaryComparator(this.lte_))));
 		}
+		// nur Spalten, die mit den gebundenen Elementen beginnen
+		if (this.columnPrefix_ != null) {
+			this.addFilter(new ColumnPrefixFilter(this.columnPrefix_));
+		}
+		// nur Spalten im Wertebereich einer Bereichsanfrage
+		if (this.columnRange_ != null) {
+			this.addFilter(new ColumnRangeFilter(this.columnRange_[0], true,
+					this.columnRange_[1], false));
+		}
+		// nur Spalten, deren letztes Element der gesuchte Graph ist
+		if (this.graph_ != null) {
+			final ByteArrayOutputStream suffix = new ByteArrayOutputStream();
+			CompositeKey.writeElement(suffix, this.graph_, 0,
+					this.graph_.length);
+			final RegexStringComparator comparator = new RegexStringComparator(
+					"(?s)"
+							+ Pattern.quote(new String(suffix.toByteArray(),
+									ISO_8859_1)) + "\\z");
+			comparator.setCharset(ISO_8859_1);
+			this.addFilter(new QualifierFilter(CompareOp.EQUAL, comparator));
+		}
 		if (this.configuredOptions_.hasOption("minTimestamp")
 				|| this.configuredOptions_.hasOption("maxTimestamp")) {
 			this.scan.setTimeRange(this.minTimestamp_, this.maxTimestamp_);
@@ -690,9 +783,6 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 
 				int tupleSize = this.columnInfo_.size();
 
-				final NavigableMap<byte[], NavigableMap<byte[], byte[]>> resultsMap = result
-						.getNoVersionMap();
-
 				if (this.loadRowKey_) {
 					tupleSize++;
 				}
@@ -708,24 +798,90 @@ public class HBaseLoadUDF extends LoadFunc implements StoreFuncInterface,
 
 				int tupleIndex = 0;
 				if (this.loadRowKey_) {
-					tuple.set(0, new DataByteArray(rowKey.get()));
+					// erstes Element des Rowkeys ohne Salt (bei Unterzeilen,
+					// siehe HexaSubkeyDistributionTableStrategy, ist der
+					// Rowkey zusammengesetzt)
+					final byte[] key = rowKey.get();
+					this.rowKeyCursor.reset(key, this.saltLength_, key.length
+							- this.saltLength_);
+					if (this.rowKeyCursor.next()) {
+						tuple.set(0, new DataByteArray(key,
+								this.rowKeyCursor.getOffset(),
+								this.rowKeyCursor.getOffset()
+										+ this.rowKeyCursor.getLength()));
+					} else {
+						tuple.set(0, new DataByteArray(key, this.saltLength_,
+								key.length));
+					}
 					tupleIndex++;
 				}
 
 				for (int i = 0; i < this.columnInfo_.size(); ++i) {
 					final ColumnInfo columnInfo = this.columnInfo_.get(i);
 					if (columnInfo.isColumnMap()) {
-						final NavigableMap<byte[], byte[]> cfResults = resultsMap
-								.get(columnInfo.getColumnFamily());
-
-						// LinkedList<Tuple> list = new LinkedList<Tuple>();
-						final Map<String, DataByteArray> cfMap = new HashMap<String, DataByteArray>();
-
-						if (cfResults != null) {
-							for (final byte[] quantifier : cfResults.keySet()) {
-								cfMap.put(Bytes.toString(quantifier), null);
+						// Alle Spaltennamen der Family werden (mit vorangestellter
+						// Länge) in ein Byte-Array geschrieben, das von der
+						// MapToBagUDF ohne weitere Objekte gelesen wird.
+						this.columnBuffer.reset();
+						if (this.previous != null
+								&& !Bytes.equals(this.previous.getBuffer(),
+										this.previous.getRowOffset(),
+										this.previous.getRowLength(),
+										rowKey.get(), rowKey.getOffset(),
+										rowKey.getLength())) {
+							this.previous = null;
+						}
+						for (final KeyValue kv : result.raw()) {
+							if (!kv.matchingFamily(columnInfo.getColumnFamily())) {
+								continue;
 							}
-							tuple.set(tupleIndex, cfMap);
+							if (this.graphColumn_) {
+								// Graph entfernen, die Zellen eines Tripels in
+								// verschiedenen Graphen folgen aufeinander
+								final int length = CompositeKey
+										.getLastElementStart(kv.getBuffer(),
+												kv.getQualifierOffset(),
+												kv.getQualifierLength(),
+												this.graphCursor)
+										- kv.getQualifierOffset();
+								if (this.graph_ != null
+										&& !Bytes.equals(this.graph_, 0,
+												this.graph_.length,
+												kv.getBuffer(),
+												this.graphCursor.getOffset(),
+												this.graphCursor.getLength())) {
+									continue;
+								}
+								if (this.previous != null
+										&& Bytes.equals(this.previous.getBuffer(),
+												this.previous.getQualifierOffset(),
+												this.previousLength, kv.getBuffer(),
+												kv.getQualifierOffset(), length)) {
+									continue;
+								}
+								this.previous = kv;
+								this.previousLength = length;
+								CompositeKey.writeCompositeSuffix(
+										this.columnBuffer, kv.getBuffer(),
+										kv.getQualifierOffset(), length,
+										this.columnPrefix_ != null ? this.columnPrefix_.length
+												: 1);
+							} else if (this.columnPrefix_ != null) {
+								// gebundene Elemente entfernen
+								CompositeKey.writeCompositeSuffix(
+										this.columnBuffer, kv.getBuffer(),
+										kv.getQualifierOffset(),
+										kv.getQualifierLength(),
+										this.columnPrefix_.length);
+							} else {
+								CompositeKey.writeElement(this.columnBuffer,
+										kv.getBuffer(), kv.getQualifierOffset(),
+										kv.getQualifierLength());
+							}
+						}
+						if (this.columnBuffer.size() > 0) {
+							tuple.set(tupleIndex, new DataByteArray(
+									this.columnBuffer.toByteArray()));
 						}
 					}
 					tupleIndex++;
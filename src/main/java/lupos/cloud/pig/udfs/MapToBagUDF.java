@@ -24,11 +24,10 @@
 package lupos.cloud.pig.udfs;
 
 import java.io.IOException;
-import java.util.BitSet;
-import java.util.HashMap;
-import java.util.Map;
 
-import lupos.cloud.bloomfilter.BitvectorManager;
+import lupos.cloud.bloomfilter.Bitvector;
+import lupos.cloud.hbase.CompositeKey;
+import lupos.cloud.hbase.TypedLiteralEncoding;
 
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.InputSplit;
@@ -41,9 +40,10 @@ import org.apache.pig.data.Tuple;
 import org.apache.pig.data.TupleFactory;
 
 /**
- * UDF Funktion für Pig. In dieser Klasse wird die Map-Datenstruktur in eine
- * "Bag" überführt um diese dann weiter zu verarbeiten. Des Weiteren werden die
- * Elemente an dieser Stelle getrennt und der Bloomfilter angewandt.
+ * UDF Funktion für Pig. In dieser Klasse werden die von der HBaseLoadUDF
+ * gelieferten Spaltennamen in eine "Bag" überführt um diese dann weiter zu
+ * verarbeiten. Des Weiteren werden die Elemente an dieser Stelle getrennt und
+ * der Bloomfilter angewandt.
  */
 public class MapToBagUDF extends EvalFunc<DataBag> implements OrderedLoadFunc {
 
@@ -51,8 +51,14 @@ public class MapToBagUDF extends EvalFunc<DataBag> implements OrderedLoadFunc {
 	private static final BagFactory bagFactory = BagFactory.getInstance();
 	private static final TupleFactory tupleFactory = TupleFactory.getInstance();
 
-	private BitSet bitvector1 = null;
-	private BitSet bitvector2 = null;
+	private Bitvector bitvector1 = null;
+	private Bitvector bitvector2 = null;
+
+	/** Cursor über die Spaltennamen einer Zeile. */
+	private final CompositeKey.Cursor columnCursor = new CompositeKey.Cursor();
+
+	/** Cursor über die Elemente eines Spaltennamens. */
+	private final CompositeKey.Cursor elementCursor = new CompositeKey.Cursor();
 
 	/*
 	 * (non-Javadoc)
@@ -60,65 +66,71 @@ public class MapToBagUDF extends EvalFunc<DataBag> implements OrderedLoadFunc {
 	 * @see org.apache.pig.EvalFunc#exec(org.apache.pig.data.Tuple)
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public DataBag exec(final Tuple input) throws IOException {
 		final DataBag result = bagFactory.newDefaultBag();
 		try {
-			final Map<String, DataByteArray> cfMap = (HashMap<String, DataByteArray>) input
-					.get(0);
+			final DataByteArray columns = (DataByteArray) input.get(0);
 
 			if (input.size() == 2) {
 				final Object b1 = input.get(1);
 				if (b1 != null) {
-					this.bitvector1 = (BitSet) b1;
+					this.bitvector1 = (Bitvector) b1;
 				}
 			}
 
 			if (input.size() == 3) {
 				final Object b1 = input.get(1);
 				if (b1 != null) {
-					this.bitvector1 = (BitSet) b1;
+					this.bitvector1 = (Bitvector) b1;
 				}
 				final Object b2 = input.get(2);
 				if (b2 != null) {
-					this.bitvector2 = (BitSet) b2;
+					this.bitvector2 = (Bitvector) b2;
 				}
 			}
 
-			if (cfMap != null) {
-				for (final String quantifier : cfMap.keySet()) {
-					final String[] columnname = quantifier.split(",");
-
-					if (columnname.length > 1) {
-						if (this.bitvector1 != null
-								&& !this.isElementPartOfBitvector(
-										columnname[0].getBytes(), this.bitvector1)) {
-							continue;
-						}
+			if (columns != null) {
+				final byte[] buf = columns.get();
+				this.columnCursor.resetList(buf, 0, buf.length);
+				while (this.columnCursor.next()) {
+					// Elemente des Spaltennamens bestimmen (ohne Kopie)
+					this.elementCursor.reset(buf,
+							this.columnCursor.getOffset(),
+							this.columnCursor.getLength());
+					if (!this.elementCursor.next()) {
+						continue;
+					}
+					final int offset1 = this.elementCursor.getOffset();
+					final int length1 = this.elementCursor.getLength();
+					int offset2 = -1;
+					int length2 = 0;
+					if (this.elementCursor.next()) {
+						offset2 = this.elementCursor.getOffset();
+						length2 = this.elementCursor.getLength();
+					}
 
-						// 2
-						if (this.bitvector2 != null
-								&& !this.isElementPartOfBitvector(
-										columnname[1].getBytes(), this.bitvector2)) {
-							continue;
-						}
+					if (this.bitvector1 != null
+							&& !this.isElementPartOfBitvector(buf, offset1,
+									length1, this.bitvector1)) {
+						continue;
+					}
 
-					} else {
-						if (this.bitvector1 != null
-								&& !this.isElementPartOfBitvector(
-										columnname[0].getBytes(), this.bitvector1)) {
-							continue;
-						}
+					// 2
+					if (offset2 >= 0
+							&& this.bitvector2 != null
+							&& !this.isElementPartOfBitvector(buf, offset2,
+									length2, this.bitvector2)) {
+						continue;
 					}
 
-					if (columnname.length > 1) {
+					if (offset2 >= 0) {
 						final Tuple toAdd = tupleFactory.newTuple(2);
-						toAdd.set(0, columnname[0]);
-						toAdd.set(1, columnname[1]);
+						toAdd.set(0, toTerm(buf, offset1, length1));
+						toAdd.set(1, toTerm(buf, offset2, length2));
 						result.add(toAdd);
 					} else {
 						final Tuple toAdd = tupleFactory.newTuple(1);
-						toAdd.set(0, columnname[0]);
+						toAdd.set(0, toTerm(buf, offset1, length1));
 						result.add(toAdd);
 					}
 				}
@@ -135,12 +147,20 @@ public class MapToBagUDF extends EvalFunc<DataBag> implements OrderedLoadFunc {
 		return null;
 	}
 
-	private boolean isElementPartOfBitvector(final byte[] element, final BitSet bitvector) {
-		final Integer position = BitvectorManager.hash(element);
-		if (bitvector.get(position)) {
-			return true;
-		} else {
-			return false;
-		}
+	/**
+	 * Erzeugt den Term eines Elements, der Kopf eines ordnungserhaltend
+	 * kodierten Literals (siehe {@link TypedLiteralEncoding}) wird entfernt.
+	 */
+	private static String toTerm(final byte[] buf, final int offset,
+			final int length) {
+		final int header = TypedLiteralEncoding.getHeaderLength(buf, offset,
+				length);
+		return new String(buf, offset + header, length - header,
+				CompositeKey.UTF8);
+	}
+
+	private boolean isElementPartOfBitvector(final byte[] buf, final int offset,
+			final int length, final Bitvector bitvector) {
+		return bitvector.contains(buf, offset, length);
 	}
 }
@@ -23,11 +23,14 @@
  */
 package lupos.cloud.storage;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import lupos.cloud.hbase.DuplicateFilter;
 import lupos.cloud.hbase.HBaseDistributionStrategy;
 import lupos.cloud.hbase.HBaseTriple;
+import lupos.cloud.hbase.LoadMetrics;
 import lupos.cloud.storage.util.CloudManagement;
 import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.items.Triple;
@@ -53,6 +56,12 @@ public class Storage_Cloud extends BlockUpdatesStorage {
 	/** The storage instance. */
 	public static Storage_Cloud storageInstance = null;
 
+	/** Number of triples that are removed together. */
+	public static int REMOVE_BLOCK_SIZE = 1000;
+
+	/** the triples to be removed. */
+	protected final ArrayList<Triple> toBeRemoved = new ArrayList<Triple>();
+
 	/**
 	 * Gets the single instance of Storage_Cloud.
 	 *
@@ -87,6 +96,9 @@ public class Storage_Cloud extends BlockUpdatesStorage {
 	 */
 	@Override
 	public void blockInsert() {
+		// vorher entfernte Tripel zuerst löschen, sonst würde ein danach
+		// wieder eingefügtes Tripel mitgelöscht
+		this.blockRemove();
 		this.cloudManagement.submitHBaseTripleToDatabase(buildInputHBaseTriple(this.toBeAdded));
 		this.insertedData = true;
 	}
@@ -105,9 +117,41 @@ public class Storage_Cloud extends BlockUpdatesStorage {
 	 */
 	@Override
 	public void removeAfterAdding(final Triple triple) {
-		this.cloudManagement
-				.deleteHBaseTripleFromDatabase(HBaseDistributionStrategy
-						.getTableInstance().generateIndecesTriple(triple));
+		this.toBeRemoved.add(triple);
+		if (this.toBeRemoved.size() >= REMOVE_BLOCK_SIZE) {
+			this.blockRemove();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see lupos.distributed.storage.nodistributionstrategy.BlockUpdatesStorage#remove(lupos.datastructures.items.Triple)
+	 */
+	@Override
+	public void remove(final Triple triple) {
+		// only insert the pending triples, the removals are collected
+		if (!this.toBeAdded.isEmpty()) {
+			super.endImportData();
+		}
+		this.removeAfterAdding(triple);
+	}
+
+	/**
+	 * Removes the collected triples with one batched delete.
+	 */
+	public void blockRemove() {
+		if (this.toBeRemoved.isEmpty()) {
+			return;
+		}
+		final HBaseDistributionStrategy strategy = HBaseDistributionStrategy
+				.getTableInstance();
+		// nur nachschlagen, zu löschende Tripel dürfen keine IDs vergeben
+		strategy.prepareLookupBlock(this.toBeRemoved);
+		final ArrayList<HBaseTriple> hbaseTripleList = new ArrayList<HBaseTriple>();
+		for (final Triple triple : this.toBeRemoved) {
+			hbaseTripleList.addAll(strategy.lookupIndecesTriple(triple));
+		}
+		this.toBeRemoved.clear();
+		this.cloudManagement.deleteHBaseTripleFromDatabase(hbaseTripleList);
 	}
 
 	/* (non-Javadoc)
@@ -125,6 +169,7 @@ public class Storage_Cloud extends BlockUpdatesStorage {
 	 */
 	@Override
 	public void endImportData() {
+		this.blockRemove();
 		if (!this.toBeAdded.isEmpty()) {
 			super.endImportData();
 		}
@@ -142,7 +187,16 @@ public class Storage_Cloud extends BlockUpdatesStorage {
 	public static Collection<HBaseTriple> buildInputHBaseTriple(
 			final Collection<Triple> toBeAdded) {
 		final ArrayList<HBaseTriple> hbaseTripleList = new ArrayList<HBaseTriple>();
-		for (final Triple triple : toBeAdded) {
+		// bereits gespeicherte Tripel nicht erneut laden
+		Collection<Triple> triples = toBeAdded;
+		try {
+			triples = DuplicateFilter.filter(toBeAdded);
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+		LoadMetrics.addTriples(triples.size());
+		HBaseDistributionStrategy.getTableInstance().prepareBlock(triples);
+		for (final Triple triple : triples) {
 			for (final HBaseTriple ht : HBaseDistributionStrategy.getTableInstance()
 					.generateIndecesTriple(triple)) {
 				hbaseTripleList.add(ht);
@@ -25,16 +25,22 @@ package lupos.cloud.storage.util;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+import lupos.cloud.bloomfilter.BitvectorCache;
 import lupos.cloud.bloomfilter.BitvectorManager;
 import lupos.cloud.hbase.HBaseConnection;
+import lupos.cloud.hbase.HBaseDeleter;
 import lupos.cloud.hbase.HBaseDistributionStrategy;
+import lupos.cloud.hbase.HBaseStatistics;
 import lupos.cloud.hbase.HBaseTriple;
+import lupos.cloud.hbase.LoadMetrics;
 import lupos.cloud.pig.PigQuery;
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.bindings.BindingsFactory;
@@ -80,9 +86,11 @@ public class CloudManagement {
 	/** Aktiviert den Bloomfilter. */
 	public static boolean bloomfilter_active = true;
 
-	/** Zeit Formatierung. */
-	static SimpleDateFormat formatter = new SimpleDateFormat(
-			"yyyy.MM.dd HH:mm:ss");
+	/**
+	 * Anzahl der Ergebnistupel, deren Werte gemeinsam dekodiert werden (ein
+	 * Multi-Get pro Block bei der Dictionary-Strategie).
+	 */
+	public static int DECODE_BLOCK_SIZE = 1000;
 
 	/**
 	 * Instantiates a new cloud management.
@@ -95,12 +103,7 @@ public class CloudManagement {
 		try {
 			HBaseConnection.init();
 			pigServer = new PigServer(ExecType.MAPREDUCE);
-			for (final String tablename : HBaseDistributionStrategy
-					.getTableInstance().getTableNames()) {
-				HBaseConnection.createTable(tablename,
-						HBaseDistributionStrategy.getTableInstance()
-								.getColumnFamilyName());
-			}
+			HBaseDistributionStrategy.getTableInstance().createTables();
 		} catch (final IOException e) {
 			e.printStackTrace();
 		}
@@ -113,26 +116,35 @@ public class CloudManagement {
 	 *            the triple
 	 */
 	public void submitHBaseTripleToDatabase(final Collection<HBaseTriple> triple) {
+		try {
+			HBaseStatistics.add(triple);
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+		// der Fortschritt wird von LoadMetrics ausgegeben
+		final long start = System.nanoTime();
 		for (final HBaseTriple item : triple) {
-			if (countTriple % 1000000 == 0) {
-				if (countTriple != 0) {
-					System.out.println(formatter.format(new Date()).toString()
-							+ ": " + countTriple + " HBaseTripel importiert!");
-				}
-			}
 			try {
-				HBaseConnection.addRow(item.getTablename(), item.getRow_key(),
-						item.getColumnFamily(), item.getColumn(),
-						item.getValue());
+				HBaseConnection.addRow(item);
 				countTriple++;
 			} catch (final IOException e) {
 				e.printStackTrace();
 			}
 		}
+		LoadMetrics.record(LoadMetrics.SPOOL, System.nanoTime() - start);
+		if (!HBaseConnection.MAP_REDUCE_BULK_LOAD) {
+			// beim Bulk-Load erst nach dem Laden der Generation, sonst
+			// nachdem die Writer-Threads geschrieben haben
+			try {
+				HBaseConnection.flush();
+			} catch (final IOException e) {
+				e.printStackTrace();
+			}
+		}
 	}
 
 	/**
-	 * Delete h base triple from database.
+	 * Löscht die Zellen eines Blocks von Tripeln (siehe {@link HBaseDeleter}).
 	 *
 	 * @param triple
 	 *            the triple
@@ -140,11 +152,10 @@ public class CloudManagement {
 	public void deleteHBaseTripleFromDatabase(
 			final Collection<HBaseTriple> triple) {
 		try {
-			for (final HBaseTriple item : triple) {
-				HBaseConnection.deleteRow(item.getTablename(),
-						item.getColumnFamily(), item.getRow_key(),
-						item.getColumn());
-			}
+			// noch gepufferte Zellen schreiben, damit sie gelöscht werden
+			// können
+			HBaseConnection.flush();
+			HBaseDeleter.delete(triple);
 		} catch (final IOException e) {
 			e.printStackTrace();
 		}
@@ -161,11 +172,13 @@ public class CloudManagement {
 
 		QueryResult result = null;
 		final long start = System.currentTimeMillis();
+		// vom Pig-Job benutzte Bitvektoren (siehe BitvectorCache#release)
+		List<String> bitvectorPaths = Collections.emptyList();
 		try {
 			if (bloomfilter_active) {
 				final long start2 = System.currentTimeMillis();
-				BitvectorManager
-						.generateBitvector(query.getBitvectors(), query);
+				bitvectorPaths = BitvectorManager.generateBitvector(
+						query.getBitvectors(), query);
 				final long stop2 = System.currentTimeMillis();
 				System.out.println("Bitvector generated in "
 						+ new DecimalFormat("#.##")
@@ -191,15 +204,50 @@ public class CloudManagement {
 			result = new QueryResult();
 			result = QueryResult
 					.createInstance(new ImmutableIterator<Bindings>() {
+						/** Vorgelesener Block von Ergebnistupeln. */
+						private final ArrayList<Tuple> block = new ArrayList<Tuple>();
+
+						/** Position im Block. */
+						private int position = 0;
+
+						/** Dekodierte Werte des Blocks. */
+						private Map<String, String> decoded = null;
+
 						public boolean hasNext() {
-							return CloudManagement.this.pigQueryResult.hasNext();
+							return this.position < this.block.size()
+									|| CloudManagement.this.pigQueryResult.hasNext();
+						}
+
+						/**
+						 * Liest den nächsten Block von Ergebnistupeln und
+						 * dekodiert alle Werte gemeinsam.
+						 */
+						private void readBlock() throws IOException {
+							this.block.clear();
+							this.position = 0;
+							final HashSet<String> values = new HashSet<String>();
+							while (this.block.size() < DECODE_BLOCK_SIZE
+									&& CloudManagement.this.pigQueryResult.hasNext()) {
+								final Tuple tuple = CloudManagement.this.pigQueryResult.next();
+								for (int i = 0; i < tuple.size(); i++) {
+									if (tuple.get(i) != null) {
+										values.add(tuple.get(i).toString());
+									}
+								}
+								this.block.add(tuple);
+							}
+							this.decoded = HBaseDistributionStrategy
+									.getTableInstance().decodeTerms(values);
 						}
 
 						public Bindings next() {
 							if (this.hasNext()) {
 								try {
+									if (this.position == this.block.size()) {
+										this.readBlock();
+									}
 									final Bindings result = bindingsFactory.createInstance();
-									final Tuple tuple = CloudManagement.this.pigQueryResult.next();
+									final Tuple tuple = this.block.get(this.position++);
 									int i = 0;
 									for (final String var : CloudManagement.this.curVariableList) {
 										final Object curTupleObject = tuple.get(i);
@@ -211,23 +259,19 @@ public class CloudManagement {
 
 										} else {
 
-											final String curTupel = curTupleObject
-													.toString();
+											// ggf. Dekodierung (Dictionary-Strategie)
+											final String curTupel = this.decoded
+													.get(curTupleObject
+															.toString());
 											if (curTupel.toString().startsWith(
 													"<")) {
 												result.add(
 														new Variable(var),
 														LiteralFactory
-																.createURILiteral(tuple
-																		.get(i)
-																		.toString()
+																.createURILiteral(curTupel
 																		.substring(
 																				0,
-																				tuple.get(
-																						i)
-																						.toString()
-																						.lastIndexOf(
-																								">") + 1)));
+																				curTupel.lastIndexOf(">") + 1)));
 											} else if (curTupel
 													.startsWith("\"")) {
 												final String content = curTupel.substring(
@@ -271,9 +315,7 @@ public class CloudManagement {
 												result.add(
 														new Variable(var),
 														LiteralFactory
-																.createLiteral(tuple
-																		.get(i)
-																		.toString()));
+																.createLiteral(curTupel));
 											}
 										}
 										i++;
@@ -290,6 +332,12 @@ public class CloudManagement {
 					});
 		} catch (final IOException e) {
 			e.printStackTrace();
+		} finally {
+			// der Pig-Job ist beendet, die Bitvektoren werden nicht mehr
+			// gelesen
+			for (final String path : bitvectorPaths) {
+				BitvectorCache.release(path);
+			}
 		}
 		final long stop = System.currentTimeMillis();
 		System.out.println("PigLatin Programm erfolgreich in "
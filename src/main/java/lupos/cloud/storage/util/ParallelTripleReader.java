@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.storage.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lupos.cloud.hbase.LoadMetrics;
+import lupos.datastructures.items.Triple;
+
+/**
+ * Liest eine Datei mit einem Tripel pro Zeile parallel ein (siehe
+ * {@link TripleLineParser}). Die "@prefix"-Zeilen am Dateianfang werden nur
+ * einmal gelesen, der Rest der Datei wird in gleich große Byte-Bereiche
+ * aufgeteilt, die von je einem Thread geparst werden. Ein Bereich beginnt mit
+ * der ersten vollständigen Zeile und endet mit der Zeile, die über das Ende
+ * des Bereichs hinausgeht. Die Tripel werden blockweise über eine beschränkte
+ * Warteschlange an den Aufrufer von {@link #nextBlock()} übergeben.
+ */
+public class ParallelTripleReader {
+
+	/** UTF-8 Zeichensatz. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Markiert das Ende eines Threads in der Warteschlange. */
+	private static final List<Triple> END = new ArrayList<Triple>(0);
+
+	/** Anzahl der Blöcke pro Thread, die in der Warteschlange warten dürfen. */
+	public static int QUEUE_BLOCKS_PER_THREAD = 4;
+
+	/** The file. */
+	private final String file;
+
+	/** Anzahl der Parser-Threads. */
+	private final int threads;
+
+	/** Anzahl der Tripel pro Block. */
+	private final int blockSize;
+
+	/** Geparste Blöcke. */
+	private final BlockingQueue<List<Triple>> queue;
+
+	/** Präfix -> Namensraum. */
+	private final HashMap<String, String> prefixes = new HashMap<String, String>();
+
+	/** Anzahl der Zeilen, die nicht geparst werden konnten. */
+	private final AtomicLong parseErrors = new AtomicLong();
+
+	/** Anzahl der noch laufenden Threads. */
+	private int running = 0;
+
+	/** Fehler eines Threads. */
+	private volatile IOException failure = null;
+
+	/**
+	 * Instantiates a new parallel triple reader.
+	 *
+	 * @param file
+	 *            the file
+	 * @param threads
+	 *            Anzahl der Parser-Threads
+	 * @param blockSize
+	 *            Anzahl der Tripel pro Block
+	 */
+	public ParallelTripleReader(final String file, final int threads,
+			final int blockSize) {
+		this.file = file;
+		this.threads = Math.max(1, threads);
+		this.blockSize = blockSize;
+		this.queue = new ArrayBlockingQueue<List<Triple>>(this.threads
+				* QUEUE_BLOCKS_PER_THREAD);
+	}
+
+	/**
+	 * Liest die Präfixe und startet die Parser-Threads.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void start() throws IOException {
+		long headerEnd = 0;
+		final InputStream in = new BufferedInputStream(new FileInputStream(
+				this.file));
+		try {
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			while (readLine(in, buffer)) {
+				final String trimmed = new String(buffer.toByteArray(), UTF8)
+						.trim();
+				// Leerzeilen und Kommentare vor bzw. zwischen den Präfixen
+				// überspringen (wie TripleBulkLoad.readPrefixes)
+				if (trimmed.startsWith("@")) {
+					TripleLineParser.parsePrefix(trimmed, this.prefixes);
+				} else if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+					break;
+				}
+				headerEnd += buffer.size() + 1;
+			}
+		} finally {
+			in.close();
+		}
+
+		final long length = new File(this.file).length();
+		final long rangeSize = Math.max(1, (length - headerEnd + this.threads
+				- 1)
+				/ this.threads);
+		for (long start = headerEnd; start < length; start += rangeSize) {
+			this.running++;
+			final Worker worker = new Worker(start, Math.min(length, start
+					+ rangeSize));
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Gibt den nächsten Block geparster Tripel zurück (in beliebiger
+	 * Reihenfolge).
+	 *
+	 * @return the block oder null, wenn alle Threads fertig sind
+	 * @throws IOException
+	 *             falls ein Thread die Datei nicht lesen konnte
+	 */
+	public List<Triple> nextBlock() throws IOException {
+		while (this.running > 0) {
+			final List<Triple> block;
+			try {
+				block = this.queue.take();
+			} catch (final InterruptedException e) {
+				throw new IOException(e);
+			}
+			if (block == END) {
+				this.running--;
+			} else {
+				return block;
+			}
+		}
+		if (this.failure != null) {
+			throw this.failure;
+		}
+		return null;
+	}
+
+	/**
+	 * Gibt die Anzahl der Zeilen zurück, die nicht geparst werden konnten.
+	 *
+	 * @return the parses the errors
+	 */
+	public long getParseErrors() {
+		return this.parseErrors.get();
+	}
+
+	/**
+	 * Liest eine Zeile (ohne Zeilenumbruch) in den Puffer.
+	 *
+	 * @param in
+	 *            the in
+	 * @param buffer
+	 *            the buffer
+	 * @return false, falls das Dateiende erreicht ist
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static boolean readLine(final InputStream in,
+			final ByteArrayOutputStream buffer) throws IOException {
+		buffer.reset();
+		int b = in.read();
+		if (b < 0) {
+			return false;
+		}
+		while (b >= 0 && b != '\n') {
+			buffer.write(b);
+			b = in.read();
+		}
+		return true;
+	}
+
+	/**
+	 * Parst einen Byte-Bereich der Datei.
+	 */
+	private class Worker extends Thread {
+
+		/** Beginn des Bereichs. */
+		private final long start;
+
+		/** Ende des Bereichs (exklusiv). */
+		private final long end;
+
+		/**
+		 * Instantiates a new worker.
+		 *
+		 * @param start
+		 *            the start
+		 * @param end
+		 *            the end
+		 */
+		public Worker(final long start, final long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Thread#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				this.parse();
+			} catch (final IOException e) {
+				ParallelTripleReader.this.failure = e;
+			} catch (final InterruptedException e) {
+				ParallelTripleReader.this.failure = new IOException(e);
+			} finally {
+				try {
+					ParallelTripleReader.this.queue.put(END);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * Parst alle Zeilen, die in dem Bereich beginnen.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 * @throws InterruptedException
+		 *             the interrupted exception
+		 */
+		private void parse() throws IOException, InterruptedException {
+			final FileInputStream fis = new FileInputStream(
+					ParallelTripleReader.this.file);
+			final InputStream in = new BufferedInputStream(fis, 1 << 16);
+			try {
+				long position = this.start;
+				final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				// beginnt der Bereich mitten in einer Zeile, gehört diese zum
+				// vorherigen Bereich
+				if (position > 0) {
+					fis.getChannel().position(position - 1);
+					if (in.read() != '\n') {
+						readLine(in, buffer);
+						position += buffer.size() + 1;
+					}
+				} else {
+					fis.getChannel().position(position);
+				}
+
+				final TripleLineParser parser = new TripleLineParser(
+						ParallelTripleReader.this.prefixes);
+				List<Triple> block = new ArrayList<Triple>(
+						ParallelTripleReader.this.blockSize);
+				long blockStart = System.nanoTime();
+				while (position < this.end && readLine(in, buffer)) {
+					position += buffer.size() + 1;
+					try {
+						final Triple triple = parser.parse(new String(buffer
+								.toByteArray(), UTF8));
+						if (triple != null) {
+							block.add(triple);
+						}
+					} catch (final URISyntaxException e) {
+						ParallelTripleReader.this.parseErrors.incrementAndGet();
+					}
+					if (block.size() == ParallelTripleReader.this.blockSize) {
+						LoadMetrics.record(LoadMetrics.PARSE, System.nanoTime()
+								- blockStart);
+						ParallelTripleReader.this.queue.put(block);
+						block = new ArrayList<Triple>(
+								ParallelTripleReader.this.blockSize);
+						blockStart = System.nanoTime();
+					}
+				}
+				if (!block.isEmpty()) {
+					LoadMetrics.record(LoadMetrics.PARSE, System.nanoTime()
+							- blockStart);
+					ParallelTripleReader.this.queue.put(block);
+				}
+			} finally {
+				in.close();
+			}
+		}
+	}
+}
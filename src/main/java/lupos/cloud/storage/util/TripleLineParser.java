@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2013, Institute of Information Systems (Sven Groppe, Thomas Kiencke and contributors of P-LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.cloud.storage.util;
+
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.items.literal.LiteralFactory;
+
+/**
+ * Schneller Parser für Dateien mit genau einem Tripel pro Zeile (N-Triples
+ * bzw. N3 mit vorangestellten "@prefix"-Zeilen). Im Gegensatz zum Umweg über
+ * den LUPOSDATE-Evaluator wird jede Zeile direkt in ein {@link Triple}
+ * überführt. Unterstützt werden IRIs, Präfix-Namen, leere Knoten, Literale
+ * (mit Sprache oder Datentyp), Zahlen, true/false und "a" als Prädikat.
+ *
+ * Die Präfixe werden einmal gelesen und können danach von beliebig vielen
+ * Instanzen (eine pro Thread) gemeinsam genutzt werden.
+ */
+public class TripleLineParser {
+
+	/** The Constant XSD. */
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+	/** rdf:type für das Schlüsselwort "a". */
+	private static final String RDF_TYPE = "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>";
+
+	/** Präfix -> Namensraum (ohne spitze Klammern). */
+	private final Map<String, String> prefixes;
+
+	/** Aktuelle Zeile. */
+	private String line;
+
+	/** Aktuelle Position in der Zeile. */
+	private int pos;
+
+	/**
+	 * Instantiates a new triple line parser.
+	 *
+	 * @param prefixes
+	 *            the prefixes (siehe {@link #parsePrefix(String, Map)})
+	 */
+	public TripleLineParser(final Map<String, String> prefixes) {
+		this.prefixes = prefixes;
+	}
+
+	/**
+	 * Instantiates a new triple line parser without prefixes.
+	 */
+	public TripleLineParser() {
+		this(new HashMap<String, String>());
+	}
+
+	/**
+	 * Liest eine "@prefix"-Zeile in die Präfix-Tabelle ein.
+	 *
+	 * @param line
+	 *            the line
+	 * @param prefixes
+	 *            the prefixes
+	 * @return true, falls die Zeile eine Präfix-Deklaration war
+	 */
+	public static boolean parsePrefix(final String line,
+			final Map<String, String> prefixes) {
+		final String trimmed = line.trim();
+		if (!trimmed.startsWith("@prefix")) {
+			return false;
+		}
+		final int colon = trimmed.indexOf(':');
+		final int start = trimmed.indexOf('<', colon);
+		final int end = trimmed.indexOf('>', start);
+		if (colon < 0 || start < 0 || end < 0) {
+			return false;
+		}
+		prefixes.put(trimmed.substring("@prefix".length(), colon).trim(),
+				trimmed.substring(start + 1, end));
+		return true;
+	}
+
+	/**
+	 * Parst eine Zeile.
+	 *
+	 * @param text
+	 *            the line
+	 * @return das Tripel oder null bei leeren Zeilen und Kommentaren
+	 * @throws URISyntaxException
+	 *             falls die Zeile kein gültiges Tripel enthält
+	 */
+	public Triple parse(final String text) throws URISyntaxException {
+		this.line = text;
+		this.pos = 0;
+		this.skipWhitespace();
+		if (this.pos >= this.line.length() || this.line.charAt(this.pos) == '#'
+				|| this.line.charAt(this.pos) == '@') {
+			return null;
+		}
+		final Literal subject = this.nextTerm(false);
+		final Literal predicate = this.nextTerm(true);
+		final Literal object = this.nextTerm(false);
+		this.skipWhitespace();
+		if (this.pos >= this.line.length() || this.line.charAt(this.pos) != '.') {
+			throw this.error("'.' expected");
+		}
+		return new Triple(subject, predicate, object);
+	}
+
+	/**
+	 * Liest den nächsten Term.
+	 *
+	 * @param predicate
+	 *            true, falls der Term an Prädikatposition steht
+	 * @return the literal
+	 * @throws URISyntaxException
+	 *             the URI syntax exception
+	 */
+	private Literal nextTerm(final boolean predicate) throws URISyntaxException {
+		this.skipWhitespace();
+		if (this.pos >= this.line.length()) {
+			throw this.error("term expected");
+		}
+		final char c = this.line.charAt(this.pos);
+		if (c == '<') {
+			return LiteralFactory.createURILiteral(this.nextIRI());
+		}
+		if (c == '"') {
+			return this.nextLiteral();
+		}
+		final String token = this.nextToken();
+		if (token.startsWith("_:")) {
+			return LiteralFactory.createAnonymousLiteral(token);
+		}
+		if (predicate && token.equals("a")) {
+			return LiteralFactory.createURILiteral(RDF_TYPE);
+		}
+		if (token.equals("true") || token.equals("false")) {
+			return LiteralFactory.createTypedLiteral("\"" + token + "\"", "<"
+					+ XSD + "boolean>");
+		}
+		if (c == '+' || c == '-' || Character.isDigit(c)) {
+			final String type;
+			if (token.indexOf('e') >= 0 || token.indexOf('E') >= 0) {
+				type = "double";
+			} else if (token.indexOf('.') >= 0) {
+				type = "decimal";
+			} else {
+				type = "integer";
+			}
+			return LiteralFactory.createTypedLiteral("\"" + token + "\"", "<"
+					+ XSD + type + ">");
+		}
+		return LiteralFactory.createURILiteral(this.expand(token));
+	}
+
+	/**
+	 * Liest eine IRI in spitzen Klammern.
+	 *
+	 * @return the IRI (mit spitzen Klammern)
+	 * @throws URISyntaxException
+	 *             the URI syntax exception
+	 */
+	private String nextIRI() throws URISyntaxException {
+		final int end = this.line.indexOf('>', this.pos);
+		if (end < 0) {
+			throw this.error("'>' expected");
+		}
+		final String result = this.line.substring(this.pos, end + 1);
+		this.pos = end + 1;
+		return result;
+	}
+
+	/**
+	 * Liest ein Literal mit optionaler Sprache bzw. optionalem Datentyp.
+	 *
+	 * @return the literal
+	 * @throws URISyntaxException
+	 *             the URI syntax exception
+	 */
+	private Literal nextLiteral() throws URISyntaxException {
+		int end = this.pos + 1;
+		while (end < this.line.length() && this.line.charAt(end) != '"') {
+			if (this.line.charAt(end) == '\\') {
+				end++;
+			}
+			end++;
+		}
+		if (end >= this.line.length()) {
+			throw this.error("'\"' expected");
+		}
+		final String content = this.line.substring(this.pos, end + 1);
+		this.pos = end + 1;
+		if (this.line.startsWith("^^", this.pos)) {
+			this.pos += 2;
+			final String type = this.pos < this.line.length()
+					&& this.line.charAt(this.pos) == '<' ? this.nextIRI()
+					: this.expand(this.nextToken());
+			return LiteralFactory.createTypedLiteral(content, type);
+		}
+		if (this.pos < this.line.length() && this.line.charAt(this.pos) == '@') {
+			this.pos++;
+			return LiteralFactory.createLanguageTaggedLiteral(content,
+					this.nextToken());
+		}
+		return LiteralFactory.createLiteral(content);
+	}
+
+	/**
+	 * Liest ein Token bis zum nächsten Leerzeichen. Ein abschließender Punkt
+	 * gehört nicht zum Token.
+	 *
+	 * @return the token
+	 */
+	private String nextToken() {
+		final int start = this.pos;
+		while (this.pos < this.line.length()
+				&& !Character.isWhitespace(this.line.charAt(this.pos))) {
+			this.pos++;
+		}
+		if (this.pos > start + 1 && this.line.charAt(this.pos - 1) == '.') {
+			this.pos--;
+		}
+		return this.line.substring(start, this.pos);
+	}
+
+	/**
+	 * Ersetzt das Präfix eines Präfix-Namens durch den Namensraum.
+	 *
+	 * @param token
+	 *            the token
+	 * @return the IRI (mit spitzen Klammern)
+	 * @throws URISyntaxException
+	 *             bei unbekanntem Präfix
+	 */
+	private String expand(final String token) throws URISyntaxException {
+		final int colon = token.indexOf(':');
+		final String namespace = colon < 0 ? null : this.prefixes.get(token
+				.substring(0, colon));
+		if (namespace == null) {
+			throw this.error("unknown prefix in " + token);
+		}
+		return "<" + namespace + token.substring(colon + 1) + ">";
+	}
+
+	/**
+	 * Überspringt Leerzeichen.
+	 */
+	private void skipWhitespace() {
+		while (this.pos < this.line.length()
+				&& Character.isWhitespace(this.line.charAt(this.pos))) {
+			this.pos++;
+		}
+	}
+
+	/**
+	 * Erzeugt eine Fehlermeldung mit der aktuellen Zeile.
+	 *
+	 * @param message
+	 *            the message
+	 * @return the URI syntax exception
+	 */
+	private URISyntaxException error(final String message) {
+		return new URISyntaxException(this.line, message, this.pos);
+	}
+}